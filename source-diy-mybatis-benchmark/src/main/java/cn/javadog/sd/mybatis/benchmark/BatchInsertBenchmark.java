@@ -0,0 +1,86 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.example.domain.Blog;
+import cn.javadog.sd.mybatis.executor.BatchResult;
+import cn.javadog.sd.mybatis.session.ExecutorType;
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:45
+ *
+ * BatchExecutor 批量插入 rows 个作者的开销。每次操作结束回滚，表的大小保持不变
+ *    authors：只插入作者
+ *    interleaved：每个作者之后紧跟着插入他的博客，两条 SQL 交替执行
+ * rewrite 为 true 时开启 batchInsertRewriteEnabled，INSERT 改写成多行 VALUES 执行
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchInsertBenchmark {
+
+  @Param({"100"})
+  public int rows;
+
+  @Param({"authors", "interleaved"})
+  public String shape;
+
+  @Param({"false", "true"})
+  public boolean rewrite;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  private List<Author> authors;
+
+  private List<Blog> blogs;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkData.createSqlSessionFactory(0);
+    sqlSessionFactory.getConfiguration().setBatchInsertRewriteEnabled(rewrite);
+    authors = new ArrayList<>(rows);
+    blogs = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      Author author = BenchmarkData.newAuthor(i);
+      authors.add(author);
+      blogs.add(new Blog(i, "blog of user" + i, author, null));
+    }
+  }
+
+  @Benchmark
+  public List<BatchResult> insert() {
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      boolean interleaved = "interleaved".equals(shape);
+      for (int i = 0; i < rows; i++) {
+        session.insert("benchmark.insertAuthor", authors.get(i));
+        if (interleaved) {
+          session.insert("benchmark.insertBlog", blogs.get(i));
+        }
+      }
+      List<BatchResult> results = session.flushStatements();
+      session.rollback(true);
+      return results;
+    }
+  }
+
+}
@@ -0,0 +1,143 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.example.domain.Blog;
+import cn.javadog.sd.mybatis.example.domain.Post;
+import cn.javadog.sd.mybatis.example.domain.Section;
+import cn.javadog.sd.mybatis.jdbc.ScriptRunner;
+import cn.javadog.sd.mybatis.session.ExecutorType;
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import cn.javadog.sd.mybatis.session.SqlSessionFactoryBuilder;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:10
+ *
+ * 基准测试的数据准备。
+ * 每次创建一个全新的 Derby 内存库，建表后用批量插入生成数据：每个作者一个博客，每个博客若干篇文章
+ *
+ * note 日志全部关闭，否则 debug 日志的开销会盖过要测的东西
+ */
+public final class BenchmarkData {
+
+  static {
+    LogFactory.useNoLogging();
+  }
+
+  public static final String CONFIG = "benchmark/BenchmarkConfig.xml";
+  public static final String SCHEMA = "benchmark/benchmark-schema.sql";
+
+  public static final String DRIVER = "org.apache.derby.jdbc.EmbeddedDriver";
+  public static final String USERNAME = "admin";
+  public static final String PASSWORD = "admin";
+
+  /**
+   * 每个博客的文章数
+   */
+  public static final int POSTS_PER_BLOG = 5;
+
+  /**
+   * 内存库的序号，同一个 JVM 中每次都建新库
+   */
+  private static final AtomicInteger DATABASE_SEQUENCE = new AtomicInteger();
+
+  private BenchmarkData() {
+  }
+
+  /**
+   * 创建新的内存库的 url
+   */
+  public static String newDatabaseUrl() {
+    return "jdbc:derby:memory:benchmark" + DATABASE_SEQUENCE.incrementAndGet() + ";create=true";
+  }
+
+  /**
+   * 创建 SqlSessionFactory，并生成 authors 个作者的数据
+   */
+  public static SqlSessionFactory createSqlSessionFactory(int authors) throws IOException, SQLException {
+    return createSqlSessionFactory(authors, 64);
+  }
+
+  /**
+   * 创建 SqlSessionFactory，并生成 authors 个作者的数据
+   *
+   * @param dynamicSqlCacheSize 动态 SQL 按形状缓存的个数，0 表示关闭
+   */
+  public static SqlSessionFactory createSqlSessionFactory(int authors, int dynamicSqlCacheSize) throws IOException, SQLException {
+    Properties props = new Properties();
+    props.setProperty("driver", DRIVER);
+    props.setProperty("url", newDatabaseUrl());
+    props.setProperty("username", USERNAME);
+    props.setProperty("password", PASSWORD);
+    props.setProperty("dynamicSqlCacheSize", String.valueOf(dynamicSqlCacheSize));
+    SqlSessionFactory sqlSessionFactory;
+    try (Reader reader = Resources.getResourceAsReader(CONFIG)) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader, props);
+    }
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      createSchema(session.getConnection());
+      loadData(session, authors);
+      session.commit();
+    }
+    return sqlSessionFactory;
+  }
+
+  /**
+   * 创建第 id 个作者
+   */
+  public static Author newAuthor(int id) {
+    Section section = Section.values()[id % Section.values().length];
+    return new Author(id, "user" + id, "********", "user" + id + "@ibatis.apache.org", "bio of user" + id, section);
+  }
+
+  /**
+   * 建表
+   */
+  private static void createSchema(Connection connection) throws IOException, SQLException {
+    ScriptRunner runner = new ScriptRunner(connection);
+    runner.setAutoCommit(true);
+    runner.setStopOnError(true);
+    runner.setLogWriter(null);
+    runner.setErrorLogWriter(null);
+    try (Reader reader = Resources.getResourceAsReader(SCHEMA)) {
+      runner.runScript(reader);
+    }
+  }
+
+  /**
+   * 批量插入数据
+   */
+  private static void loadData(SqlSession session, int authors) {
+    Date now = new Date();
+    for (int i = 1; i <= authors; i++) {
+      Author author = newAuthor(i);
+      session.insert("benchmark.insertAuthor", author);
+      Blog blog = new Blog(i, "blog of user" + i, author, null);
+      session.insert("benchmark.insertBlog", blog);
+      for (int j = 1; j <= POSTS_PER_BLOG; j++) {
+        Post post = new Post();
+        post.setId((i - 1) * POSTS_PER_BLOG + j);
+        post.setBlog(blog);
+        post.setAuthor(author);
+        post.setCreatedOn(now);
+        post.setSection(author.getFavouriteSection());
+        post.setSubject("post " + j + " of user" + i);
+        post.setBody("body of post " + j + " of user" + i);
+        session.insert("benchmark.insertPost", post);
+      }
+    }
+    session.flushStatements();
+  }
+
+}
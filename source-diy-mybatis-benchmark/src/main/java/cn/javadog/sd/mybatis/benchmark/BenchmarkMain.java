@@ -0,0 +1,29 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:20
+ *
+ * benchmarks.jar 的入口，参数与 JMH 自带的 Main 相同，额外固定开启 GC 分析器，
+ * 结果中带上 gc.alloc.rate.norm（每次操作分配的字节数），方便发现分配上的退化
+ *
+ * 运行：java -jar target/benchmarks.jar [JMH 参数，比如 SelectListBenchmark -p mapping=nested]
+ */
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListProfilers()
+        || commandLine.shouldListResultFormats() || commandLine.shouldListWithParams()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+    new Runner(new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build()).run();
+  }
+
+}
@@ -0,0 +1,99 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.support.cache.impl.BinaryCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 10:40
+ *
+ * 缓存值编解码的开销，值是 rows 个作者组成的查询结果：
+ *    serialization：整个 List 走一次 Java 序列化，也就是 {@link BinaryCodec} 之前对实体列表的做法
+ *    binary：{@link BinaryCodec}，List 只写大小，作者逐个属性编码
+ * 配合 gc.alloc.rate.norm 看每次操作的分配
+ *
+ * 运行：java -jar target/benchmarks.jar CacheCodecBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheCodecBenchmark {
+
+  @Param({"100"})
+  public int rows;
+
+  @Param({"serialization", "binary"})
+  public String codec;
+
+  private List<Author> authors;
+
+  private byte[] encoded;
+
+  @Setup
+  public void setup() throws Exception {
+    authors = new ArrayList<>(rows);
+    for (int i = 1; i <= rows; i++) {
+      authors.add(BenchmarkData.newAuthor(i));
+    }
+    encoded = encode(authors);
+  }
+
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return encode(authors);
+  }
+
+  @Benchmark
+  public Object decode() throws Exception {
+    return decode(encoded);
+  }
+
+  @Benchmark
+  public Object roundTrip() throws Exception {
+    return decode(encode(authors));
+  }
+
+  private byte[] encode(Object value) throws IOException {
+    if ("binary".equals(codec)) {
+      return BinaryCodec.encode(value);
+    }
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+    try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+      out.writeObject(value);
+    }
+    return bos.toByteArray();
+  }
+
+  private Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+    if ("binary".equals(codec)) {
+      return BinaryCodec.decode(bytes);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+}
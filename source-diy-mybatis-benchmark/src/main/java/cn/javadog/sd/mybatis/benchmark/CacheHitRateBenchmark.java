@@ -0,0 +1,169 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.decorators.LruCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.WTinyLfuCache;
+import cn.javadog.sd.mybatis.support.cache.impl.PerpetualCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 11:20
+ *
+ * LRU 与 W-TinyLFU 淘汰策略的命中率对比。按预先生成的访问序列读缓存，未命中就放入，模拟二级缓存的使用方式：
+ *    zipf：keySpace 个 key 按 Zipf 分布访问，少数热点占了大部分请求
+ *    zipf-scan：在 zipf 的基础上每隔一段插入一次性的顺序扫描，扫描的 key 只访问一次
+ * 每次操作是一次读（未命中时再加一次写），分数是单次访问的耗时；命中率在每轮测量结束时打印，
+ * 形如 "hit rate [w-tinylfu, zipf-scan]: xx.xx%"
+ *
+ * 运行：java -jar target/benchmarks.jar CacheHitRateBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheHitRateBenchmark {
+
+  /**
+   * 访问序列的长度，2 的幂，循环使用
+   */
+  private static final int TRACE_LENGTH = 1 << 20;
+
+  /**
+   * zipf-scan 下每隔多少次访问插入一次扫描，以及一次扫描的 key 数
+   */
+  private static final int SCAN_INTERVAL = 20_000;
+  private static final int SCAN_LENGTH = 5_000;
+
+  @Param({"lru", "w-tinylfu"})
+  public String policy;
+
+  @Param({"zipf", "zipf-scan"})
+  public String workload;
+
+  @Param({"1000"})
+  public int capacity;
+
+  @Param({"100000"})
+  public int keySpace;
+
+  private Cache cache;
+
+  private Integer[] trace;
+
+  private int index;
+
+  private long hits;
+
+  private long misses;
+
+  @Setup
+  public void setup() {
+    trace = generateTrace();
+    if ("lru".equals(policy)) {
+      LruCache lru = new LruCache(new PerpetualCache(policy));
+      lru.setSize(capacity);
+      cache = lru;
+    } else {
+      WTinyLfuCache tinyLfu = new WTinyLfuCache(new PerpetualCache(policy));
+      tinyLfu.setSize(capacity);
+      cache = tinyLfu;
+    }
+  }
+
+  @Setup(Level.Iteration)
+  public void resetCounters() {
+    hits = 0;
+    misses = 0;
+  }
+
+  @TearDown(Level.Iteration)
+  public void reportHitRate() {
+    System.out.printf("hit rate [%s, %s]: %.2f%%%n", policy, workload, hits * 100.0 / Math.max(1, hits + misses));
+  }
+
+  @Benchmark
+  public Object access() {
+    Integer key = trace[index++ & (TRACE_LENGTH - 1)];
+    Object value = cache.getObject(key);
+    if (value == null) {
+      misses++;
+      cache.putObject(key, key);
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  /**
+   * 生成访问序列，固定种子，两种策略用的是同一个序列
+   */
+  private Integer[] generateTrace() {
+    Random random = new Random(42);
+    double[] cdf = zipfCdf(keySpace, 1.0);
+    boolean scans = "zipf-scan".equals(workload);
+    int scanKey = keySpace;
+    Integer[] keys = new Integer[TRACE_LENGTH];
+    for (int i = 0; i < TRACE_LENGTH; ) {
+      if (scans && i > 0 && i % SCAN_INTERVAL == 0) {
+        for (int j = 0; j < SCAN_LENGTH && i < TRACE_LENGTH; j++) {
+          keys[i++] = scanKey++;
+        }
+      } else {
+        keys[i++] = rank(cdf, random.nextDouble());
+      }
+    }
+    return keys;
+  }
+
+  /**
+   * Zipf 分布的累积概率，排第 k 的 key 的概率与 1/k^exponent 成正比
+   */
+  private static double[] zipfCdf(int n, double exponent) {
+    double[] cdf = new double[n];
+    double sum = 0;
+    for (int k = 1; k <= n; k++) {
+      sum += 1 / Math.pow(k, exponent);
+      cdf[k - 1] = sum;
+    }
+    for (int k = 0; k < n; k++) {
+      cdf[k] /= sum;
+    }
+    return cdf;
+  }
+
+  /**
+   * 二分查找落在哪个 key 上
+   */
+  private static int rank(double[] cdf, double p) {
+    int low = 0;
+    int high = cdf.length - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (cdf[mid] < p) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+}
@@ -0,0 +1,80 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.example.domain.Section;
+import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.RowBounds;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.transaction.jdbc.JdbcTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:35
+ *
+ * CacheKey 的开销：
+ *    createCacheKey：Executor#createCacheKey，每次查询都会走一遍
+ *    lookup：新建的 CacheKey 在一级缓存规模的 HashMap 中查找，测 hashCode/equals
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyBenchmark {
+
+  private Executor executor;
+
+  private MappedStatement mappedStatement;
+
+  private Map<String, Object> parameter;
+
+  private BoundSql boundSql;
+
+  private final Map<CacheKey, Object> localCache = new HashMap<>();
+
+  @Setup
+  public void setup() throws Exception {
+    Configuration configuration = BenchmarkData.createSqlSessionFactory(0).getConfiguration();
+    executor = configuration.newExecutor(new JdbcTransaction(configuration.getEnvironment().getDataSource(), null, false));
+    mappedStatement = configuration.getMappedStatement("benchmark.selectAuthorsByCondition");
+    parameter = new HashMap<>();
+    parameter.put("username", "user1");
+    parameter.put("section", Section.NEWS);
+    parameter.put("ids", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+    boundSql = mappedStatement.getBoundSql(parameter);
+    for (int i = 0; i < 256; i++) {
+      parameter.put("username", "user" + i);
+      localCache.put(createCacheKey(), i);
+    }
+    parameter.put("username", "user1");
+  }
+
+  @Benchmark
+  public CacheKey createCacheKey() {
+    return executor.createCacheKey(mappedStatement, parameter, RowBounds.DEFAULT, boundSql);
+  }
+
+  @Benchmark
+  public Object lookup() {
+    return localCache.get(createCacheKey());
+  }
+
+}
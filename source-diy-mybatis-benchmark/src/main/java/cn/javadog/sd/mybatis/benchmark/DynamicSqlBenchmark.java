@@ -0,0 +1,60 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.example.domain.Section;
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.SqlSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:30
+ *
+ * DynamicSqlSource#getBoundSql 的开销，语句带 where/if/foreach。
+ * dynamicSqlCacheSize 为 0 时每次都重新解析，对比按形状缓存的效果
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DynamicSqlBenchmark {
+
+  @Param({"0", "64"})
+  public int dynamicSqlCacheSize;
+
+  private SqlSource sqlSource;
+
+  private Map<String, Object> parameter;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSource = BenchmarkData.createSqlSessionFactory(0, dynamicSqlCacheSize).getConfiguration()
+        .getMappedStatement("benchmark.selectAuthorsByCondition").getSqlSource();
+    parameter = new HashMap<>();
+    parameter.put("username", "user1");
+    parameter.put("section", Section.NEWS);
+    parameter.put("ids", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8));
+  }
+
+  @Benchmark
+  public BoundSql getBoundSql() {
+    return sqlSource.getBoundSql(parameter);
+  }
+
+}
@@ -0,0 +1,102 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.executor.parameter.ParameterHandler;
+import cn.javadog.sd.mybatis.executor.result.ResultHandler;
+import cn.javadog.sd.mybatis.executor.resultset.ResultSetHandler;
+import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.plugin.Interceptor;
+import cn.javadog.sd.mybatis.plugin.Intercepts;
+import cn.javadog.sd.mybatis.plugin.Invocation;
+import cn.javadog.sd.mybatis.plugin.Plugin;
+import cn.javadog.sd.mybatis.plugin.Signature;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.RowBounds;
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 01:40
+ *
+ * 插件调用链的开销，每次操作打开一个会话按主键查询一次，每个插件都拦截四大接口的一个方法，直接 proceed。
+ * flattened 对比逐层 JDK Proxy 和展开的调用链，见 InterceptorChain#setFlattened
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PluginChainBenchmark {
+
+  @Param({"0", "4"})
+  public int plugins;
+
+  @Param({"true", "false"})
+  public boolean flattened;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkData.createSqlSessionFactory(10);
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    for (int i = 0; i < plugins; i++) {
+      configuration.addInterceptor(new PassThroughInterceptor());
+    }
+    configuration.setFlattenedPluginChainEnabled(flattened);
+  }
+
+  @Benchmark
+  public Object selectOne() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      return session.selectOne("benchmark.selectAuthor", 1);
+    }
+  }
+
+  /**
+   * 什么都不做的插件
+   */
+  @Intercepts({
+      @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+      @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+      @Signature(type = ParameterHandler.class, method = "setParameters", args = {PreparedStatement.class}),
+      @Signature(type = ResultSetHandler.class, method = "handleResultSets", args = {Statement.class})
+  })
+  public static class PassThroughInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+}
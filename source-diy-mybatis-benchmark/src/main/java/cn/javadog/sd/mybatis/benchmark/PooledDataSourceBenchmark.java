@@ -0,0 +1,73 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.support.datasource.pooled.ConcurrentPooledDataSource;
+import cn.javadog.sd.mybatis.support.datasource.pooled.PooledDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:40
+ *
+ * 连接池借出再归还一个连接的开销，8 个线程争抢 10 个连接。
+ * POOLED 是加锁的 PooledDataSource，CONCURRENT_POOLED 是无锁的 ConcurrentPooledDataSource
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class PooledDataSourceBenchmark {
+
+  @Param({"POOLED", "CONCURRENT_POOLED"})
+  public String pool;
+
+  private PooledDataSource dataSource;
+
+  @Setup
+  public void setup() throws SQLException {
+    dataSource = "POOLED".equals(pool) ? new PooledDataSource() : new ConcurrentPooledDataSource();
+    dataSource.setDriver(BenchmarkData.DRIVER);
+    dataSource.setUrl(BenchmarkData.newDatabaseUrl());
+    dataSource.setUsername(BenchmarkData.USERNAME);
+    dataSource.setPassword(BenchmarkData.PASSWORD);
+    // 预热连接，避免把建立物理连接算进去
+    Connection[] connections = new Connection[10];
+    for (int i = 0; i < connections.length; i++) {
+      connections[i] = dataSource.getConnection();
+    }
+    for (Connection connection : connections) {
+      connection.close();
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  public boolean checkout() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      return connection.getAutoCommit();
+    }
+  }
+
+}
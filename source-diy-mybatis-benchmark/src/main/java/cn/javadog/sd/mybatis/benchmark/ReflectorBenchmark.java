@@ -0,0 +1,135 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.support.reflection.Reflector;
+import cn.javadog.sd.mybatis.support.reflection.factory.DefaultReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.factory.LambdaReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.factory.ReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.invoker.Invoker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 17:40
+ *
+ * 反射调用器与 {@link LambdaReflectorFactory} 生成的调用器的对比。
+ * 模拟结果映射时对一行数据的处理：依次 set 四个属性（含基本类型），再 get 回来
+ *
+ * 运行：java -jar target/benchmarks.jar ReflectorBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectorBenchmark {
+
+  @Param({"reflection", "lambda"})
+  public String invokers;
+
+  private Invoker setId;
+  private Invoker setName;
+  private Invoker setScore;
+  private Invoker setActive;
+  private Invoker getId;
+  private Invoker getName;
+  private Invoker getScore;
+  private Invoker getActive;
+
+  private final Row row = new Row();
+  private final Object[] id = {42};
+  private final Object[] name = {"jim"};
+  private final Object[] score = {99.5d};
+  private final Object[] active = {Boolean.TRUE};
+
+  @Setup
+  public void setup() {
+    ReflectorFactory factory = "lambda".equals(invokers) ? new LambdaReflectorFactory() : new DefaultReflectorFactory();
+    Reflector reflector = factory.findForClass(Row.class);
+    setId = reflector.getSetInvoker("id");
+    setName = reflector.getSetInvoker("name");
+    setScore = reflector.getSetInvoker("score");
+    setActive = reflector.getSetInvoker("active");
+    getId = reflector.getGetInvoker("id");
+    getName = reflector.getGetInvoker("name");
+    getScore = reflector.getGetInvoker("score");
+    getActive = reflector.getGetInvoker("active");
+    row.setId(42);
+    row.setName("jim");
+    row.setScore(99.5d);
+    row.setActive(Boolean.TRUE);
+  }
+
+  @Benchmark
+  public Object setProperties() throws Exception {
+    setId.invoke(row, id);
+    setName.invoke(row, name);
+    setScore.invoke(row, score);
+    setActive.invoke(row, active);
+    return row;
+  }
+
+  @Benchmark
+  public int getProperties() throws Exception {
+    int hash = (Integer) getId.invoke(row, null);
+    hash = 31 * hash + getName.invoke(row, null).hashCode();
+    hash = 31 * hash + getScore.invoke(row, null).hashCode();
+    return 31 * hash + getActive.invoke(row, null).hashCode();
+  }
+
+  /**
+   * 典型的实体
+   */
+  public static class Row {
+
+    private int id;
+    private String name;
+    private double score;
+    private Boolean active;
+
+    public int getId() {
+      return id;
+    }
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    public void setScore(double score) {
+      this.score = score;
+    }
+
+    public Boolean getActive() {
+      return active;
+    }
+
+    public void setActive(Boolean active) {
+      this.active = active;
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package cn.javadog.sd.mybatis.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 18:25
+ *
+ * DefaultSqlSession#selectList 的端到端开销，每次操作打开一个会话执行一次查询：
+ *    simple：resultType 自动映射 authors 行
+ *    nested：三表 join，嵌套的 resultMap 组装成 authors 个博客，每个带作者和文章
+ *    lazy：作者和文章都是延迟加载的嵌套查询，只测主查询和代理对象的创建
+ *    eager：作者和文章都是立即加载的嵌套查询，每个博客两次查询
+ *    batch：作者和文章都是批量加载的嵌套查询，按 IN (...) 分批，见 FetchType#BATCH
+ * compiledRowMapping 对比简单映射编译成计划前后的差别，见 RowMappingPlanCompiler
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectListBenchmark {
+
+  @Param({"simple", "nested", "lazy", "eager", "batch"})
+  public String mapping;
+
+  @Param({"100"})
+  public int authors;
+
+  @Param({"true", "false"})
+  public boolean compiledRowMapping;
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  private String statement;
+
+  @Setup
+  public void setup() throws Exception {
+    sqlSessionFactory = BenchmarkData.createSqlSessionFactory(authors);
+    sqlSessionFactory.getConfiguration().setCompiledRowMappingEnabled(compiledRowMapping);
+    switch (mapping) {
+      case "simple":
+        statement = "benchmark.selectAuthors";
+        break;
+      case "nested":
+        statement = "benchmark.selectBlogsNested";
+        break;
+      case "eager":
+        statement = "benchmark.selectBlogsEager";
+        break;
+      case "batch":
+        statement = "benchmark.selectBlogsBatch";
+        break;
+      default:
+        statement = "benchmark.selectBlogsLazy";
+    }
+  }
+
+  @Benchmark
+  public List<Object> selectList() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      return session.selectList(statement);
+    }
+  }
+
+}
@@ -0,0 +1,30 @@
+CREATE TABLE author (
+id                INT NOT NULL,
+username          VARCHAR(255) NOT NULL,
+password          VARCHAR(255) NOT NULL,
+email             VARCHAR(255) NOT NULL,
+bio               VARCHAR(1024),
+favourite_section VARCHAR(25),
+PRIMARY KEY (id)
+);
+
+CREATE TABLE blog (
+id          INT NOT NULL,
+author_id   INT NOT NULL,
+title       VARCHAR(255),
+PRIMARY KEY (id)
+);
+
+CREATE TABLE post (
+id          INT NOT NULL,
+blog_id     INT,
+author_id   INT NOT NULL,
+created_on  TIMESTAMP NOT NULL,
+section     VARCHAR(25) NOT NULL,
+subject     VARCHAR(255) NOT NULL,
+body        VARCHAR(4000) NOT NULL,
+draft       INT NOT NULL,
+PRIMARY KEY (id)
+);
+
+CREATE INDEX post_blog_id ON post (blog_id);
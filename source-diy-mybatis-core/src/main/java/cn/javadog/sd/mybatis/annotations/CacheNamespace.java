@@ -28,7 +28,7 @@ public @interface CacheNamespace {
   Class<? extends Cache> implementation() default PerpetualCache.class;
 
   /**
-   * @return 负责过期的 Cache 实现类
+   * @return 负责过期的 Cache 实现类，如 LruCache、FifoCache、WTinyLfuCache
    */
   Class<? extends Cache> eviction() default LruCache.class;
 
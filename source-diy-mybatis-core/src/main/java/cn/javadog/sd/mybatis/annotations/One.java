@@ -28,4 +28,14 @@ public @interface One {
    */
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * @return 批量加载时每批最多的关联键个数，0 代表使用全局的 defaultBatchFetchSize
+   */
+  int batchSize() default 0;
+
+  /**
+   * @return 批量加载时，嵌套查询结果中与 column 对应的列，不设置时与 column 相同
+   */
+  String foreignColumn() default "";
+
 }
@@ -0,0 +1,74 @@
+package cn.javadog.sd.mybatis.binding;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 23:10
+ *
+ * 返回 CompletableFuture 的 Mapper 方法默认的执行器，见 {@link MapperProxy}。
+ * JDK 21 及以上使用虚拟线程，每个任务一个；否则使用有界的守护线程池，线程数为 CPU 核数的两倍，空闲 60 秒后回收。
+ *
+ * note 数据库操作是阻塞的，实际的并发还受连接池大小的限制，需要控制时通过 Configuration#setAsyncExecutor 设置自己的执行器
+ */
+public final class AsyncMapperExecutors {
+
+  /**
+   * 线程池的线程名前缀
+   */
+  private static final String THREAD_NAME_PREFIX = "sd-mybatis-async-";
+
+  private AsyncMapperExecutors() {
+  }
+
+  /**
+   * 创建默认的执行器
+   */
+  public static Executor newDefaultExecutor() {
+    Executor virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+    if (virtualThreadExecutor != null) {
+      return virtualThreadExecutor;
+    }
+    int threads = Runtime.getRuntime().availableProcessors() * 2;
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(), new DaemonThreadFactory());
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
+  /**
+   * 通过反射调用 Executors#newVirtualThreadPerTaskExecutor，当前 JDK 没有时返回 null
+   */
+  private static Executor newVirtualThreadPerTaskExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * 创建守护线程，不阻止 JVM 退出
+   */
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable r) {
+      Thread thread = new Thread(r, THREAD_NAME_PREFIX + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
@@ -7,16 +7,20 @@ import java.lang.reflect.Type;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import cn.javadog.sd.mybatis.annotations.Flush;
 import cn.javadog.sd.mybatis.annotations.MapKey;
 import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.cursor.defaults.DefaultCursorPublisher;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.mapping.MappedStatement;
 import cn.javadog.sd.mybatis.mapping.SqlCommandType;
 import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.session.RowBounds;
 import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
 import cn.javadog.sd.mybatis.support.exceptions.BindingException;
 import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
 import cn.javadog.sd.mybatis.support.reflection.resolver.TypeParameterResolver;
@@ -53,6 +57,20 @@ public class MapperMethod {
     this.method = new MethodSignature(config, mapperInterface, method);
   }
 
+  /**
+   * 是否异步执行，也就是方法的返回类型是 CompletableFuture。异步执行由 MapperProxy 负责，见 {@link MapperProxy#invoke}
+   */
+  public boolean isAsync() {
+    return method.returnsFuture();
+  }
+
+  /**
+   * 方法的返回类型是否是 CursorPublisher。订阅后才执行查询，需要自己开会话，由 MapperProxy 负责，见 {@link MapperProxy#invoke}
+   */
+  public boolean isPublisher() {
+    return method.returnsPublisher();
+  }
+
   /**
    * 执行方法
    */
@@ -223,6 +241,20 @@ public class MapperMethod {
     return result;
   }
 
+  /**
+   * 执行查询，返回 CursorPublisher。订阅者第一次请求时使用 sqlSessionFactory 开会话查询，结束或取消时关闭
+   */
+  public <T> CursorPublisher<T> executeForPublisher(SqlSessionFactory sqlSessionFactory, Object[] args) {
+    if (command.getType() != SqlCommandType.SELECT) {
+      throw new BindingException("Mapper method '" + command.getName() + "' returns a CursorPublisher, but it is not a select statement.");
+    }
+    // 转换参数
+    Object param = method.convertArgsToSqlCommandParam(args);
+    // 抽离分页参数
+    RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+    return new DefaultCursorPublisher<>(sqlSessionFactory, command.getName(), param, rowBounds);
+  }
+
   private <E> Object convertToDeclaredCollection(Configuration config, List<E> list) {
     Object collection = config.getObjectFactory().create(method.getReturnType());
     MetaObject metaObject = config.newMetaObject(collection);
@@ -390,11 +422,21 @@ public class MapperMethod {
      */
     private final boolean returnsCursor;
 
+    /**
+     * 返回类型是否为 {@link CursorPublisher}
+     */
+    private final boolean returnsPublisher;
+
     /**
      * 返回类型是否为 {@link Optional}
      */
     private final boolean returnsOptional;
 
+    /**
+     * 返回类型是否为 {@link CompletableFuture}，是的话由 MapperProxy 异步执行，其他属性按它的泛型参数解析
+     */
+    private final boolean returnsFuture;
+
     /**
      * 返回类型
      */
@@ -430,6 +472,12 @@ public class MapperMethod {
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       // 初始化 returnType 属性
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      // 如果是 CompletableFuture，使用 <> 中的实际类型
+      this.returnsFuture = CompletableFuture.class.equals(method.getReturnType());
+      if (returnsFuture) {
+        resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+            ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      }
       if (resolvedReturnType instanceof Class<?>) {
         // 普通类
         this.returnType = (Class<?>) resolvedReturnType;
@@ -438,16 +486,23 @@ public class MapperMethod {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
         // 内部类等等
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      // 初始化 returnsVoid 属性
-      this.returnsVoid = void.class.equals(this.returnType);
+      // 初始化 returnsVoid 属性，CompletableFuture<Void> 也算
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       // 初始化 returnsMany 属性
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       // 初始化 returnsCursor 属性
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      // 初始化 returnsPublisher 属性
+      this.returnsPublisher = CursorPublisher.class.equals(this.returnType);
       // 初始化 returnsOptional 属性
       this.returnsOptional = Optional.class.equals(this.returnType);
+      // 会话在异步执行结束时就关闭了，游标无法再读取
+      if (returnsFuture && (returnsCursor || returnsPublisher)) {
+        throw new BindingException("Mapper method '" + mapperInterface.getName() + "." + method.getName()
+            + "' cannot return a Cursor asynchronously, the session is closed when the future completes.");
+      }
       // 初始化 mapKey
       this.mapKey = getMapKey(method);
       // 初始化 returnsMap
@@ -538,6 +593,13 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * 是否返回CursorPublisher类型
+     */
+    public boolean returnsPublisher() {
+      return returnsPublisher;
+    }
+
     /**
      * 返回类型是否是Optional
      * @since 3.5.0
@@ -546,6 +608,13 @@ public class MapperMethod {
       return returnsOptional;
     }
 
+    /**
+     * 返回类型是否是CompletableFuture
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     /**
      * 获得指定参数类型在方法参数中的位置
      */
@@ -6,8 +6,14 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
+import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import cn.javadog.sd.mybatis.session.defaults.DefaultSqlSessionFactory;
+import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
 import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
 
 /**
@@ -71,10 +77,46 @@ public class MapperProxy<T> implements InvocationHandler {
     }
     // 获得 MapperMethod 对象
     final MapperMethod mapperMethod = cachedMapperMethod(method);
+    // 返回 CompletableFuture 的方法，异步执行
+    if (mapperMethod.isAsync()) {
+      return executeAsync(mapperMethod, args);
+    }
+    // 返回 CursorPublisher 的方法，订阅后自己开会话，结束时关闭
+    if (mapperMethod.isPublisher()) {
+      return mapperMethod.executeForPublisher(new DefaultSqlSessionFactory(sqlSession.getConfiguration()), args);
+    }
     // 执行 MapperMethod 方法
     return mapperMethod.execute(sqlSession, args);
   }
 
+  /**
+   * 异步执行，在 Configuration#getAsyncExecutor 上用一个新开的会话执行，执行成功则提交，最后关闭会话（没有提交的会回滚）。
+   * 失败时异常交给返回的 CompletableFuture。
+   *
+   * note 新开的会话与当前会话不在同一个事务中，看不到当前会话未提交的修改
+   */
+  private CompletableFuture<Object> executeAsync(MapperMethod mapperMethod, Object[] args) {
+    final Configuration configuration = sqlSession.getConfiguration();
+    final SqlSessionFactory sqlSessionFactory = new DefaultSqlSessionFactory(configuration);
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        try (SqlSession session = sqlSessionFactory.openSession()) {
+          Object result = mapperMethod.execute(session, args);
+          session.commit();
+          return result;
+        } finally {
+          // 线程会被复用，清理 ErrorContext
+          ErrorContext.instance().reset();
+        }
+      }, configuration.getAsyncExecutor());
+    } catch (RejectedExecutionException e) {
+      // 执行器拒绝时，同样通过 CompletableFuture 返回异常
+      CompletableFuture<Object> future = new CompletableFuture<>();
+      future.completeExceptionally(e);
+      return future;
+    }
+  }
+
   /**
    * 将方法对应的MapperMethod缓存起来，并返回
    */
@@ -451,6 +451,31 @@ public class MapperBuilderAssistant extends BaseBuilder {
       Class<? extends TypeHandler<?>> typeHandler,
       List<ResultFlag> flags,
       boolean lazy) {
+    return buildResultMapping(resultType, property, column, javaType, jdbcType, nestedSelect, nestedResultMap, notNullColumn,
+        columnPrefix, typeHandler, flags, lazy, 0, null);
+  }
+
+  /**
+   * 构建 ResultMapping 对象，支持批量加载的嵌套查询
+   *
+   * @param batchSize 批量加载时每批最多的关联键个数，0 代表不批量加载
+   * @param foreignColumn 批量加载时，嵌套查询结果中与 column 对应的列
+   */
+  public ResultMapping buildResultMapping(
+      Class<?> resultType,
+      String property,
+      String column,
+      Class<?> javaType,
+      JdbcType jdbcType,
+      String nestedSelect,
+      String nestedResultMap,
+      String notNullColumn,
+      String columnPrefix,
+      Class<? extends TypeHandler<?>> typeHandler,
+      List<ResultFlag> flags,
+      boolean lazy,
+      int batchSize,
+      String foreignColumn) {
 
     // 解析对应的 Java Type 类和 TypeHandler 对象
     Class<?> javaTypeClass = resolveResultJavaType(resultType, property, javaType);
@@ -469,6 +494,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .notNullColumns(parseMultipleColumnNames(notNullColumn))
         .columnPrefix(columnPrefix)
         .lazy(lazy)
+        .batchSize(batchSize)
+        .foreignColumn(foreignColumn)
         .build();
   }
 
@@ -36,14 +36,21 @@ public class StaticSqlSource implements SqlSource {
   private final List<ParameterMapping> parameterMappings;
 
   /**
-   * 构造函数
+   * 构造函数，配置快照恢复 RawSqlSource 时也会直接使用
    */
-  StaticSqlSource(Configuration configuration, String sql, List<ParameterMapping> parameterMappings) {
+  public StaticSqlSource(Configuration configuration, String sql, List<ParameterMapping> parameterMappings) {
     this.sql = sql;
     this.configuration = configuration;
     this.parameterMappings = parameterMappings;
   }
 
+  /**
+   * 获取 SQL，getBoundSql 返回的 BoundSql 里是同一个字符串对象
+   */
+  public String getSql() {
+    return sql;
+  }
+
   /**
    * 获取BoundSql
    */
@@ -19,6 +19,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import cn.javadog.sd.mybatis.annotations.Arg;
 import cn.javadog.sd.mybatis.annotations.CacheNamespace;
@@ -47,6 +48,7 @@ import cn.javadog.sd.mybatis.annotations.UpdateProvider;
 import cn.javadog.sd.mybatis.builder.MapperBuilderAssistant;
 import cn.javadog.sd.mybatis.builder.xml.XMLMapperBuilder;
 import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
 import cn.javadog.sd.mybatis.executor.keygen.Jdbc3KeyGenerator;
 import cn.javadog.sd.mybatis.executor.keygen.KeyGenerator;
 import cn.javadog.sd.mybatis.executor.keygen.NoKeyGenerator;
@@ -69,6 +71,7 @@ import cn.javadog.sd.mybatis.support.exceptions.BuilderException;
 import cn.javadog.sd.mybatis.support.exceptions.IncompleteElementException;
 import cn.javadog.sd.mybatis.support.io.Resources;
 import cn.javadog.sd.mybatis.support.parsing.PropertyParser;
+import cn.javadog.sd.mybatis.support.parsing.XPathParser;
 import cn.javadog.sd.mybatis.support.reflection.resolver.TypeParameterResolver;
 import cn.javadog.sd.mybatis.support.type.JdbcType;
 import cn.javadog.sd.mybatis.support.type.ParamMap;
@@ -202,6 +205,12 @@ public class MapperAnnotationBuilder {
     if (!configuration.isResourceLoaded("namespace:" + type.getName())) {
       // 获得 InputStream 对象，note 这里可以看出名字必须一致
       String xmlResource = type.getName().replace('.', '/') + ".xml";
+      // 开启了并行解析的话，文档可能已经预先解析好了
+      XPathParser parsedDocument = configuration.takeParsedMapperDocument(xmlResource);
+      if (parsedDocument != null) {
+        new XMLMapperBuilder(parsedDocument, assistant.getConfiguration(), xmlResource, configuration.getSqlFragments(), type.getName()).parse();
+        return;
+      }
       InputStream inputStream = null;
       try {
         // 从classpath下拿的，TODO 印象里是从当前路径下拿的，没有给别的口子，忘了哪里看到的
@@ -549,6 +558,13 @@ public class MapperAnnotationBuilder {
     Class<?> returnType = method.getReturnType();
     // 解析成对应的 Type
     Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, type);
+    // 如果是 CompletableFuture ，异步执行的方法，使用 <> 中实际类型
+    if (CompletableFuture.class.equals(returnType)) {
+      resolvedReturnType = resolvedReturnType instanceof ParameterizedType
+          ? ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0] : Object.class;
+      returnType = resolvedReturnType instanceof ParameterizedType
+          ? (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType() : Object.class;
+    }
     // 如果 Type 是 Class ，普通类
     if (resolvedReturnType instanceof Class) {
       returnType = (Class<?>) resolvedReturnType;
@@ -569,8 +585,9 @@ public class MapperAnnotationBuilder {
       // 获得泛型 rawType
       ParameterizedType parameterizedType = (ParameterizedType) resolvedReturnType;
       Class<?> rawType = (Class<?>) parameterizedType.getRawType();
-      // 如果rawType是 Collection 或者 Cursor 类型时
-      if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)) {
+      // 如果rawType是 Collection 或者 Cursor、CursorPublisher 类型时
+      if (Collection.class.isAssignableFrom(rawType) || Cursor.class.isAssignableFrom(rawType)
+          || CursorPublisher.class.isAssignableFrom(rawType)) {
         // 获得 <> 中实际类型
         Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
         // 如果 actualTypeArguments 的大小为 1 ，进一步处理
@@ -769,7 +786,9 @@ public class MapperAnnotationBuilder {
           null,
           typeHandler,
           flags,
-          isLazy(result));
+          isLazy(result),
+          batchSize(result),
+          foreignColumn(result));
       // 添加到 resultMappings 中
       resultMappings.add(resultMapping);
     }
@@ -799,16 +818,39 @@ public class MapperAnnotationBuilder {
   private boolean isLazy(Result result) {
     // 判断是否开启懒加载
     boolean isLazy = configuration.isLazyLoadingEnabled();
-    // 如果有 @One 注解，则判断是否懒加载
-    if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType()) {
+    // 如果有 @One 注解，则判断是否懒加载。批量加载依然取全局的
+    if (result.one().select().length() > 0 && FetchType.DEFAULT != result.one().fetchType() && FetchType.BATCH != result.one().fetchType()) {
       isLazy = result.one().fetchType() == FetchType.LAZY;
     // 如果有 @Many 注解，则判断是否懒加载
-    } else if (result.many().select().length() > 0 && FetchType.DEFAULT != result.many().fetchType()) {
+    } else if (result.many().select().length() > 0 && FetchType.DEFAULT != result.many().fetchType() && FetchType.BATCH != result.many().fetchType()) {
       isLazy = result.many().fetchType() == FetchType.LAZY;
     }
     return isLazy;
   }
 
+  /**
+   * 获得批量加载每批的大小，不是批量加载时返回 0
+   */
+  private int batchSize(Result result) {
+    int batchSize;
+    if (result.one().select().length() > 0 && FetchType.BATCH == result.one().fetchType()) {
+      batchSize = result.one().batchSize();
+    } else if (result.many().select().length() > 0 && FetchType.BATCH == result.many().fetchType()) {
+      batchSize = result.many().batchSize();
+    } else {
+      return 0;
+    }
+    return batchSize > 0 ? batchSize : configuration.getDefaultBatchFetchSize();
+  }
+
+  /**
+   * 获得批量加载时嵌套查询结果中的关联列
+   */
+  private String foreignColumn(Result result) {
+    String foreignColumn = result.one().select().length() > 0 ? result.one().foreignColumn() : result.many().foreignColumn();
+    return nullOrEmpty(foreignColumn);
+  }
+
   /**
    * 判断是否有内嵌的查询
    */
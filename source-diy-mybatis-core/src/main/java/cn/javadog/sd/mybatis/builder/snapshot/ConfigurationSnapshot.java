@@ -0,0 +1,657 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.InflaterInputStream;
+
+import cn.javadog.sd.mybatis.builder.MapperBuilderAssistant;
+import cn.javadog.sd.mybatis.builder.StaticSqlSource;
+import cn.javadog.sd.mybatis.executor.keygen.Jdbc3KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.NoKeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.SelectKeyGenerator;
+import cn.javadog.sd.mybatis.mapping.Discriminator;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMap;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
+import cn.javadog.sd.mybatis.mapping.ParameterMode;
+import cn.javadog.sd.mybatis.mapping.ResultFlag;
+import cn.javadog.sd.mybatis.mapping.ResultMap;
+import cn.javadog.sd.mybatis.mapping.ResultMapping;
+import cn.javadog.sd.mybatis.mapping.ResultSetType;
+import cn.javadog.sd.mybatis.mapping.SqlCommandType;
+import cn.javadog.sd.mybatis.mapping.SqlSource;
+import cn.javadog.sd.mybatis.mapping.StatementType;
+import cn.javadog.sd.mybatis.scripting.LanguageDriver;
+import cn.javadog.sd.mybatis.scripting.LanguageDriverRegistry;
+import cn.javadog.sd.mybatis.scripting.defaults.RawSqlSource;
+import cn.javadog.sd.mybatis.scripting.xmltags.SqlNodeCodec;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.exceptions.BuilderException;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+import cn.javadog.sd.mybatis.support.type.JdbcType;
+import cn.javadog.sd.mybatis.support.type.TypeHandler;
+import cn.javadog.sd.mybatis.support.type.TypeHandlerRegistry;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:30
+ *
+ * 预先构建好的配置快照，由 {@link ConfigurationSnapshotWriter} 在构建期生成，启动时由 XMLConfigBuilder 加载，
+ * 跳过 <mappers /> 下 resource、url 声明的 mapper XML 的 DOM 和 XPath 解析，直接还原出解析结果：
+ *    1. 缓存、缓存引用、ParameterMap、ResultMap、MappedStatement，按解析时添加到 Configuration 的顺序还原
+ *    2. MappedStatement 的 SqlSource：静态 SQL 还原成 RawSqlSource，不再解析 #{}；动态 SQL 还原出 SqlNode 树
+ *    3. XML 绑定的 mapper 接口照常 addMapper，接口上的注解依然在启动时解析
+ *
+ * 快照分两部分，头部不压缩，记录配置文件、引用到的变量和每个 mapper XML 的 SHA-256，用来校验快照是否过期；主体用 Deflater 压缩。
+ * 配置文件、mapper XML 的列表和内容、它们引用到的变量有任何变化，快照就整体作废，由 XMLConfigBuilder 退回正常解析，
+ * 见 {@link #isFresh(Node, List, Properties)}：
+ *    1. 配置文件按没有替换 ${} 的 DOM 计算，忽略注释和空白，别名、设置等的修改都会让快照过期
+ *    2. 变量只计算 mapper XML 和配置文件中（<environments /> 除外）通过 ${} 引用到的，数据源的地址、账号等
+ *       只和环境相关的变量不影响快照，构建期生成的快照到了生产环境依然可用
+ */
+public class ConfigurationSnapshot {
+
+  private static final Log log = LogFactory.getLog(ConfigurationSnapshot.class);
+
+  /**
+   * 文件头的魔数，"SDMS"
+   */
+  static final int MAGIC = 0x53444d53;
+
+  /**
+   * 格式版本，格式变化时加一，旧版本的快照视为过期
+   */
+  static final int VERSION = 2;
+
+  /**
+   * PropertyParser 自己的配置项的前缀，比如是否开启默认值，它们的变化总是会影响 ${} 的替换
+   */
+  private static final String PARSER_KEY_PREFIX = "cn.javadog.sd.mybatis.support.parsing.";
+
+  /**
+   * PropertyParser 默认值的分隔符配置项，与默认的分隔符
+   */
+  private static final String PARSER_KEY_DEFAULT_VALUE_SEPARATOR = PARSER_KEY_PREFIX + "default-value-separator";
+  private static final String DEFAULT_VALUE_SEPARATOR = ":";
+
+  /**
+   * ${} 引用的变量
+   */
+  private static final Pattern VARIABLE_REFERENCE = Pattern.compile("\\$\\{([^}]*)}");
+
+  /**
+   * XMLMapperBuilder 绑定 mapper 接口时记录的已加载资源的前缀
+   */
+  static final String NAMESPACE_PREFIX = "namespace:";
+
+  /*SqlSource 的类型*/
+  static final int SQL_SOURCE_RAW = 1;
+  static final int SQL_SOURCE_DYNAMIC = 2;
+  static final int SQL_SOURCE_STATIC = 3;
+
+  /*ResultMap、ParameterMap 的引用方式*/
+  static final int MAP_NONE = 0;
+  static final int MAP_REF = 1;
+  static final int MAP_INLINE = 2;
+
+  /*KeyGenerator 的类型*/
+  static final int KEY_GENERATOR_NONE = 0;
+  static final int KEY_GENERATOR_JDBC3 = 1;
+  static final int KEY_GENERATOR_SELECT_KEY = 2;
+
+  /**
+   * 快照的格式版本
+   */
+  private final int version;
+
+  /**
+   * 生成快照时配置文件的哈希
+   */
+  private final byte[] configurationHash;
+
+  /**
+   * 生成快照时引用到的变量名，按名称排序
+   */
+  private final List<String> variableNames;
+
+  /**
+   * 生成快照时引用到的变量的哈希
+   */
+  private final byte[] variablesHash;
+
+  /**
+   * 生成快照时的 mapper XML，按声明的顺序
+   */
+  private final List<MapperLocation> locations;
+
+  /**
+   * 每个 mapper XML 内容的哈希，与 locations 一一对应
+   */
+  private final List<byte[]> hashes;
+
+  /**
+   * 压缩后的主体
+   */
+  private final byte[] body;
+
+  private ConfigurationSnapshot(int version, byte[] configurationHash, List<String> variableNames, byte[] variablesHash,
+      List<MapperLocation> locations, List<byte[]> hashes, byte[] body) {
+    this.version = version;
+    this.configurationHash = configurationHash;
+    this.variableNames = variableNames;
+    this.variablesHash = variablesHash;
+    this.locations = locations;
+    this.hashes = hashes;
+    this.body = body;
+  }
+
+  /**
+   * 读取快照，主体在 {@link #applyTo(Configuration)} 时才解压
+   */
+  public static ConfigurationSnapshot read(InputStream inputStream) throws IOException {
+    SnapshotInput in = new SnapshotInput(inputStream);
+    if (in.readInt() != MAGIC) {
+      throw new BuilderException("Not a configuration snapshot.");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      // 版本不同，主体的格式可能不同，不再往下读
+      return new ConfigurationSnapshot(version, null, Collections.emptyList(), null, Collections.emptyList(), Collections.emptyList(), null);
+    }
+    byte[] configurationHash = in.readBytes();
+    List<String> variableNames = in.readStrings();
+    byte[] variablesHash = in.readBytes();
+    int size = in.readInt();
+    List<MapperLocation> locations = new ArrayList<>(size);
+    List<byte[]> hashes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      String location = in.readString();
+      locations.add(new MapperLocation(location, in.readBoolean()));
+      hashes.add(in.readBytes());
+    }
+    return new ConfigurationSnapshot(version, configurationHash, variableNames, variablesHash, locations, hashes, in.readBytes());
+  }
+
+  /**
+   * 获取生成快照时的 mapper XML
+   */
+  public List<MapperLocation> getLocations() {
+    return Collections.unmodifiableList(locations);
+  }
+
+  /**
+   * 校验快照是否还能用：格式版本一致，配置文件没有变化，mapper XML 的列表和顺序一致，每个 XML 的内容和引用到的变量都没有变化。
+   * 配置文件和 mapper XML 都没变，引用到的变量名也就不变，所以只需要比较生成时记录的那些变量的值
+   *
+   * @param configurationNode 当前配置文件的 <configuration /> 节点
+   * @param currentLocations 当前配置文件中声明的 mapper XML
+   * @param variables 当前的配置变量，XML 中的 ${} 在解析时按它替换
+   */
+  public boolean isFresh(Node configurationNode, List<MapperLocation> currentLocations, Properties variables) throws IOException {
+    if (version != VERSION) {
+      log.debug("Configuration snapshot version " + version + " does not match " + VERSION + ".");
+      return false;
+    }
+    if (!Arrays.equals(configurationHash, hashOf(configurationNode))) {
+      log.debug("Configuration file changed since the snapshot was built.");
+      return false;
+    }
+    if (!locations.equals(currentLocations)) {
+      log.debug("Configuration snapshot was built for mappers " + locations + " but found " + currentLocations + ".");
+      return false;
+    }
+    for (int i = 0; i < locations.size(); i++) {
+      MapperLocation location = locations.get(i);
+      if (!Arrays.equals(hashes.get(i), hashOf(location.readBytes()))) {
+        log.debug("Mapper " + location + " changed since the snapshot was built.");
+        return false;
+      }
+    }
+    if (!Arrays.equals(variablesHash, hashOf(variableNames, variables))) {
+      log.debug("Configuration variables " + variableNames + " changed since the snapshot was built.");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * 将快照还原到 Configuration 中，相当于逐个解析了快照中的 mapper XML
+   */
+  public void applyTo(Configuration configuration) throws IOException {
+    SnapshotInput in = new SnapshotInput(new InflaterInputStream(new ByteArrayInputStream(body)));
+    new BodyReader(configuration, in).read();
+  }
+
+  /**
+   * 计算 mapper XML 内容的哈希
+   */
+  static byte[] hashOf(byte[] bytes) {
+    return newDigest().digest(bytes);
+  }
+
+  /**
+   * 计算指定变量的哈希，没有设置的变量也要记下，之后设置了同样会改变替换的结果
+   *
+   * @param names 按名称排序的变量名
+   */
+  static byte[] hashOf(List<String> names, Properties variables) {
+    MessageDigest digest = newDigest();
+    for (String name : names) {
+      String value = variables == null ? null : variables.getProperty(name);
+      update(digest, value == null ? "-" + name : "+" + name + '=' + value);
+    }
+    return digest.digest();
+  }
+
+  /**
+   * 计算配置文件的哈希，用的是没有替换 ${} 的 DOM，只看元素、属性和文本，注释、空白不影响
+   */
+  static byte[] hashOf(Node configurationNode) {
+    MessageDigest digest = newDigest();
+    updateNode(digest, configurationNode);
+    return digest.digest();
+  }
+
+  private static void updateNode(MessageDigest digest, Node node) {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        update(digest, "<" + node.getNodeName());
+        // 属性按名称排序
+        NamedNodeMap attributes = node.getAttributes();
+        Map<String, String> sorted = new TreeMap<>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+          sorted.put(attributes.item(i).getNodeName(), attributes.item(i).getNodeValue());
+        }
+        for (Map.Entry<String, String> attribute : sorted.entrySet()) {
+          update(digest, "@" + attribute.getKey() + '=' + attribute.getValue());
+        }
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+          updateNode(digest, children.item(i));
+        }
+        update(digest, ">");
+        break;
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+        String text = node.getNodeValue().trim();
+        if (!text.isEmpty()) {
+          update(digest, "#" + text);
+        }
+        break;
+      default:
+        // 注释、处理指令等不影响解析结果
+    }
+  }
+
+  /**
+   * 写入一段，以 0 结尾，避免相邻的两段拼在一起时产生歧义
+   */
+  private static void update(MessageDigest digest, String token) {
+    digest.update(token.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) 0);
+  }
+
+  /**
+   * 收集会影响快照的变量名：配置文件（<environments /> 除外）和 mapper XML 中 ${} 引用到的，以及 PropertyParser 自己的配置项
+   *
+   * @param mapperContents mapper XML 的内容
+   * @return 按名称排序的变量名
+   */
+  static List<String> referencedVariables(Node configurationNode, Collection<byte[]> mapperContents, Properties variables) {
+    String separator = variables == null ? DEFAULT_VALUE_SEPARATOR
+        : variables.getProperty(PARSER_KEY_DEFAULT_VALUE_SEPARATOR, DEFAULT_VALUE_SEPARATOR);
+    Set<String> names = new TreeSet<>();
+    collectReferences(configurationNode, separator, names);
+    for (byte[] content : mapperContents) {
+      collectReferences(new String(content, StandardCharsets.UTF_8), separator, names);
+    }
+    if (variables != null) {
+      for (String name : variables.stringPropertyNames()) {
+        if (name.startsWith(PARSER_KEY_PREFIX)) {
+          names.add(name);
+        }
+      }
+    }
+    return new ArrayList<>(names);
+  }
+
+  private static void collectReferences(Node node, String separator, Set<String> names) {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        // 数据源等只和环境相关
+        if ("environments".equals(node.getNodeName())) {
+          return;
+        }
+        NamedNodeMap attributes = node.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+          collectReferences(attributes.item(i).getNodeValue(), separator, names);
+        }
+        NodeList children = node.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+          collectReferences(children.item(i), separator, names);
+        }
+        break;
+      case Node.TEXT_NODE:
+      case Node.CDATA_SECTION_NODE:
+        collectReferences(node.getNodeValue(), separator, names);
+        break;
+      default:
+    }
+  }
+
+  /**
+   * 收集一段文本中 ${} 引用的变量名，开启默认值时 ${name:default} 引用的是 name，两个都记下
+   */
+  private static void collectReferences(String text, String separator, Set<String> names) {
+    Matcher matcher = VARIABLE_REFERENCE.matcher(text);
+    while (matcher.find()) {
+      String name = matcher.group(1);
+      names.add(name);
+      int index = name.indexOf(separator);
+      if (index >= 0) {
+        names.add(name.substring(0, index));
+      }
+    }
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new BuilderException("SHA-256 is not available.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 主体的读取，与 {@link ConfigurationSnapshotWriter} 写入的顺序一致
+   */
+  private static final class BodyReader {
+
+    private final Configuration configuration;
+
+    private final TypeHandlerRegistry typeHandlerRegistry;
+
+    private final SnapshotInput in;
+
+    BodyReader(Configuration configuration, SnapshotInput in) {
+      this.configuration = configuration;
+      this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+      this.in = in;
+    }
+
+    void read() throws IOException {
+      // 缓存
+      for (int i = in.readInt(); i > 0; i--) {
+        readCache();
+      }
+      // 缓存引用
+      for (Map.Entry<String, String> entry : in.readStringMap().entrySet()) {
+        configuration.addCacheRef(entry.getKey(), entry.getValue());
+      }
+      // ParameterMap
+      for (int i = in.readInt(); i > 0; i--) {
+        configuration.addParameterMap(readParameterMap());
+      }
+      // ResultMap
+      for (int i = in.readInt(); i > 0; i--) {
+        configuration.addResultMap(readResultMap());
+      }
+      // MappedStatement
+      for (int i = in.readInt(); i > 0; i--) {
+        configuration.addMappedStatement(readStatement());
+      }
+      // 已加载的资源，"namespace:" 开头的是 XML 绑定的 mapper 接口，照常添加，接口上的注解在这里解析
+      List<String> mapperTypes = new ArrayList<>();
+      for (String resource : in.readStrings()) {
+        configuration.addLoadedResource(resource);
+        if (resource.startsWith(NAMESPACE_PREFIX)) {
+          mapperTypes.add(resource.substring(NAMESPACE_PREFIX.length()));
+        }
+      }
+      for (String mapperType : mapperTypes) {
+        Class<?> type;
+        try {
+          type = Resources.classForName(mapperType);
+        } catch (ClassNotFoundException e) {
+          // 与 XMLMapperBuilder#bindMapperForNamespace 一致，没有对应的接口不要紧
+          continue;
+        }
+        if (!configuration.hasMapper(type)) {
+          configuration.addMapper(type);
+        }
+      }
+    }
+
+    /**
+     * 按 <cache /> 的属性重新创建缓存，与 XMLMapperBuilder#cacheElement 一致
+     */
+    private void readCache() throws IOException {
+      String resource = in.readString();
+      String namespace = in.readString();
+      Class<? extends Cache> typeClass = in.readClass();
+      Class<? extends Cache> evictionClass = in.readClass();
+      Long flushInterval = in.readNullableLong();
+      Integer size = in.readNullableInt();
+      boolean readWrite = in.readBoolean();
+      boolean blocking = in.readBoolean();
+      Properties props = new Properties();
+      props.putAll(in.readStringMap());
+      MapperBuilderAssistant builderAssistant = new MapperBuilderAssistant(configuration, resource);
+      builderAssistant.setCurrentNamespace(namespace);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+    }
+
+    private ParameterMap readParameterMap() throws IOException {
+      String id = in.readString();
+      Class<?> type = in.readClass();
+      int size = in.readInt();
+      List<ParameterMapping> parameterMappings = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        parameterMappings.add(readParameterMapping());
+      }
+      return new ParameterMap.Builder(configuration, id, type, parameterMappings).build();
+    }
+
+    private ParameterMapping readParameterMapping() throws IOException {
+      String property = in.readString();
+      ParameterMode mode = in.readEnum(ParameterMode.class);
+      Class<?> javaType = in.readClass();
+      JdbcType jdbcType = in.readEnum(JdbcType.class);
+      Integer numericScale = in.readNullableInt();
+      TypeHandler<?> typeHandler = readTypeHandler(javaType);
+      String expression = in.readString();
+      ParameterMapping.Builder builder = new ParameterMapping.Builder(configuration, property, javaType)
+          .mode(mode)
+          .jdbcType(jdbcType)
+          .numericScale(numericScale)
+          .expression(expression);
+      if (typeHandler != null) {
+        builder.typeHandler(typeHandler);
+      }
+      return builder.build();
+    }
+
+    private ResultMap readResultMap() throws IOException {
+      String id = in.readString();
+      Class<?> type = in.readClass();
+      Boolean autoMapping = in.readNullableBoolean();
+      List<ResultMapping> resultMappings = readResultMappings();
+      ResultMap.Builder builder = new ResultMap.Builder(configuration, id, type, resultMappings, autoMapping);
+      if (in.readBoolean()) {
+        ResultMapping resultMapping = readResultMapping();
+        builder.discriminator(new Discriminator.Builder(configuration, resultMapping, in.readStringMap()).build());
+      }
+      return builder.build();
+    }
+
+    private List<ResultMapping> readResultMappings() throws IOException {
+      int size = in.readInt();
+      List<ResultMapping> resultMappings = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        resultMappings.add(readResultMapping());
+      }
+      return resultMappings;
+    }
+
+    private ResultMapping readResultMapping() throws IOException {
+      ResultMapping.Builder builder = new ResultMapping.Builder(configuration, in.readString());
+      builder.column(in.readString());
+      Class<?> javaType = in.readClass();
+      builder.javaType(javaType);
+      builder.jdbcType(in.readEnum(JdbcType.class));
+      TypeHandler<?> typeHandler = readTypeHandler(javaType);
+      if (typeHandler != null) {
+        builder.typeHandler(typeHandler);
+      }
+      builder.nestedResultMapId(in.readString());
+      builder.nestedQueryId(in.readString());
+      List<String> notNullColumns = in.readStrings();
+      builder.notNullColumns(notNullColumns == null ? null : new HashSet<>(notNullColumns));
+      builder.columnPrefix(in.readString());
+      List<ResultFlag> flags = new ArrayList<>();
+      for (String flag : in.readStrings()) {
+        flags.add(ResultFlag.valueOf(flag));
+      }
+      builder.flags(flags);
+      builder.composites(readResultMappings());
+      builder.lazy(in.readBoolean());
+      builder.batchSize(in.readInt());
+      builder.foreignColumn(in.readString());
+      return builder.build();
+    }
+
+    /**
+     * 读取显式指定的类型处理器，与 BaseBuilder#resolveTypeHandler 一致，先取已注册的，没有再创建。
+     * 没有显式指定的返回 null，由 Builder 按 javaType、jdbcType 解析
+     */
+    private TypeHandler<?> readTypeHandler(Class<?> javaType) throws IOException {
+      if (!in.readBoolean()) {
+        return null;
+      }
+      Class<? extends TypeHandler<?>> handlerType = in.readClass();
+      TypeHandler<?> handler = typeHandlerRegistry.getMappingTypeHandler(handlerType);
+      if (handler == null) {
+        handler = typeHandlerRegistry.getInstance(javaType, handlerType);
+      }
+      return handler;
+    }
+
+    private MappedStatement readStatement() throws IOException {
+      String resource = in.readString();
+      String id = in.readString();
+      SqlCommandType sqlCommandType = in.readEnum(SqlCommandType.class);
+      SqlSource sqlSource = readSqlSource();
+      MappedStatement.Builder builder = new MappedStatement.Builder(configuration, id, sqlSource, sqlCommandType)
+          .resource(resource)
+          .fetchSize(in.readNullableInt())
+          .timeout(in.readNullableInt())
+          .statementType(in.readEnum(StatementType.class))
+          .resultSetType(in.readEnum(ResultSetType.class))
+          .keyGenerator(readKeyGenerator())
+          .keyProperty(in.readString())
+          .keyColumn(in.readString())
+          .lang(readLanguageDriver())
+          .resultOrdered(in.readBoolean())
+          .flushCacheRequired(in.readBoolean())
+          .useCache(in.readBoolean());
+      String cacheId = in.readString();
+      if (cacheId != null) {
+        Cache cache = configuration.getCache(cacheId);
+        if (cache == null) {
+          throw new BuilderException("Cache " + cacheId + " of statement " + id + " is missing from configuration snapshot.");
+        }
+        builder.cache(cache);
+      }
+      switch (in.readByte()) {
+        case MAP_REF:
+          builder.parameterMap(configuration.getParameterMap(in.readString()));
+          break;
+        case MAP_INLINE:
+          builder.parameterMap(readParameterMap());
+          break;
+        default:
+          break;
+      }
+      switch (in.readByte()) {
+        case MAP_REF:
+          builder.resultMap(configuration.getResultMap(in.readString()));
+          break;
+        case MAP_INLINE:
+          builder.resultMap(readResultMap());
+          break;
+        default:
+          break;
+      }
+      return builder.build();
+    }
+
+    private SqlSource readSqlSource() throws IOException {
+      int type = in.readByte();
+      if (type == SQL_SOURCE_DYNAMIC) {
+        return SqlNodeCodec.readDynamicSqlSource(in, configuration);
+      }
+      String sql = in.readString();
+      int size = in.readInt();
+      List<ParameterMapping> parameterMappings = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        parameterMappings.add(readParameterMapping());
+      }
+      StaticSqlSource staticSqlSource = new StaticSqlSource(configuration, sql, parameterMappings);
+      return type == SQL_SOURCE_RAW ? new RawSqlSource(staticSqlSource) : staticSqlSource;
+    }
+
+    private KeyGenerator readKeyGenerator() throws IOException {
+      switch (in.readByte()) {
+        case KEY_GENERATOR_JDBC3:
+          return Jdbc3KeyGenerator.INSTANCE;
+        case KEY_GENERATOR_SELECT_KEY: {
+          String keyStatementId = in.readString();
+          boolean executeBefore = in.readBoolean();
+          if (configuration.hasKeyGenerator(keyStatementId)) {
+            return configuration.getKeyGenerator(keyStatementId);
+          }
+          // 与 XMLStatementBuilder#parseSelectKeyNode 一致，按 <selectKey /> 语句的 id 注册
+          SelectKeyGenerator keyGenerator = new SelectKeyGenerator(configuration.getMappedStatement(keyStatementId, false), executeBefore);
+          configuration.addKeyGenerator(keyStatementId, keyGenerator);
+          return keyGenerator;
+        }
+        default:
+          return NoKeyGenerator.INSTANCE;
+      }
+    }
+
+    private LanguageDriver readLanguageDriver() throws IOException {
+      Class<? extends LanguageDriver> driverType = in.readClass();
+      LanguageDriverRegistry registry = configuration.getLanguageRegistry();
+      if (registry.getDriver(driverType) == null) {
+        registry.register(driverType);
+      }
+      return registry.getDriver(driverType);
+    }
+  }
+
+}
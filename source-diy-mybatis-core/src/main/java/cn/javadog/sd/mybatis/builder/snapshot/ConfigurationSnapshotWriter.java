@@ -0,0 +1,391 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+
+import cn.javadog.sd.mybatis.builder.StaticSqlSource;
+import cn.javadog.sd.mybatis.builder.xml.XMLConfigBuilder;
+import cn.javadog.sd.mybatis.executor.keygen.Jdbc3KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.NoKeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.SelectKeyGenerator;
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.Discriminator;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMap;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
+import cn.javadog.sd.mybatis.mapping.ResultFlag;
+import cn.javadog.sd.mybatis.mapping.ResultMap;
+import cn.javadog.sd.mybatis.mapping.ResultMapping;
+import cn.javadog.sd.mybatis.mapping.SqlSource;
+import cn.javadog.sd.mybatis.scripting.defaults.RawSqlSource;
+import cn.javadog.sd.mybatis.scripting.xmltags.DynamicSqlSource;
+import cn.javadog.sd.mybatis.scripting.xmltags.SqlNodeCodec;
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.exceptions.BuilderException;
+import cn.javadog.sd.mybatis.support.parsing.XNode;
+import cn.javadog.sd.mybatis.support.parsing.XPathParser;
+import cn.javadog.sd.mybatis.support.type.JdbcType;
+import cn.javadog.sd.mybatis.support.type.TypeAliasRegistry;
+import cn.javadog.sd.mybatis.support.type.TypeHandler;
+import cn.javadog.sd.mybatis.support.type.TypeHandlerRegistry;
+import org.w3c.dom.Node;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:50
+ *
+ * 配置快照的生成，在构建期调用：按正常流程解析配置文件，记录 mapper XML 的解析结果，写成 {@link ConfigurationSnapshot}。
+ *
+ * 只记录 <mappers /> 下 resource、url 声明的 mapper XML，遇到不能还原的内容直接抛出 BuilderException，而不是生成一个不完整的快照：
+ *    1. 解析结束后还有没能解析的 statement、resultMap、cache-ref
+ *    2. XMLScriptBuilder 以外的 SqlSource 或 SqlNode，以及自定义的 KeyGenerator
+ *    3. 语句使用了 mapper XML 以外定义的缓存，比如引用了注解声明的缓存
+ */
+public final class ConfigurationSnapshotWriter {
+
+  private final RecordingConfiguration configuration;
+
+  private final TypeHandlerRegistry typeHandlerRegistry;
+
+  /**
+   * 记录下来的 ResultMap、ParameterMap 的 id，语句引用它们时只写 id
+   */
+  private final Set<String> resultMapIds = new HashSet<>();
+  private final Set<String> parameterMapIds = new HashSet<>();
+
+  private final SnapshotOutput out;
+
+  private ConfigurationSnapshotWriter(RecordingConfiguration configuration, SnapshotOutput out) {
+    this.configuration = configuration;
+    this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.out = out;
+  }
+
+  /**
+   * 解析配置文件，生成配置快照
+   *
+   * @param reader 配置文件，写完后不关闭
+   * @param environment 环境，与 SqlSessionFactoryBuilder#build 一致
+   * @param properties 变量，与 SqlSessionFactoryBuilder#build 一致，启动时 ${} 引用到的变量不同快照就会过期
+   * @param outputStream 快照的输出，写完后不关闭
+   * @return 快照中 mapper XML 的位置
+   */
+  public static List<MapperLocation> write(Reader reader, String environment, Properties properties, OutputStream outputStream) throws IOException {
+    RecordingConfiguration configuration = new RecordingConfiguration();
+    XMLConfigBuilder parser = new XMLConfigBuilder(configuration, reader, environment, properties);
+    parser.parse();
+    if (!configuration.getIncompleteStatements().isEmpty()
+        || !configuration.getIncompleteResultMaps().isEmpty()
+        || !configuration.getIncompleteCacheRefs().isEmpty()
+        || !configuration.getIncompleteMethods().isEmpty()) {
+      throw new BuilderException("Cannot write a configuration snapshot while some mapper elements are still incomplete.");
+    }
+    List<MapperLocation> locations = parser.getMapperLocations();
+    Map<MapperLocation, byte[]> contents = new LinkedHashMap<>();
+    for (MapperLocation location : locations) {
+      contents.put(location, location.readBytes());
+    }
+    // 头部，不压缩
+    Node configurationNode = parser.getConfigurationNode();
+    List<String> variableNames = ConfigurationSnapshot.referencedVariables(configurationNode, contents.values(), configuration.getVariables());
+    SnapshotOutput header = new SnapshotOutput(outputStream);
+    header.writeInt(ConfigurationSnapshot.MAGIC);
+    header.writeInt(ConfigurationSnapshot.VERSION);
+    header.writeBytes(ConfigurationSnapshot.hashOf(configurationNode));
+    header.writeStrings(variableNames);
+    header.writeBytes(ConfigurationSnapshot.hashOf(variableNames, configuration.getVariables()));
+    header.writeInt(locations.size());
+    for (MapperLocation location : locations) {
+      byte[] bytes = contents.get(location);
+      header.writeString(location.getLocation());
+      header.writeBoolean(location.isUrl());
+      header.writeBytes(ConfigurationSnapshot.hashOf(bytes));
+    }
+    // 主体，压缩
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DeflaterOutputStream deflater = new DeflaterOutputStream(body);
+    SnapshotOutput out = new SnapshotOutput(deflater);
+    new ConfigurationSnapshotWriter(configuration, out).writeBody(contents);
+    out.flush();
+    deflater.finish();
+    header.writeBytes(body.toByteArray());
+    header.flush();
+    return locations;
+  }
+
+  /**
+   * 写主体，顺序与 ConfigurationSnapshot 的读取一致
+   */
+  private void writeBody(Map<MapperLocation, byte[]> contents) throws IOException {
+    // 缓存
+    Map<String, CacheElement> cacheElements = findCacheElements(contents);
+    Set<String> cacheIds = new HashSet<>();
+    out.writeInt(configuration.caches.size());
+    for (Cache cache : configuration.caches) {
+      CacheElement element = cacheElements.get(cache.getId());
+      if (element == null) {
+        throw new BuilderException("Cannot find the <cache /> element of cache " + cache.getId() + " in the mapper XML.");
+      }
+      writeCache(element);
+      cacheIds.add(cache.getId());
+    }
+    // 缓存引用
+    out.writeStringMap(configuration.cacheRefs);
+    // ParameterMap
+    out.writeInt(configuration.parameterMaps.size());
+    for (ParameterMap parameterMap : configuration.parameterMaps) {
+      writeParameterMap(parameterMap);
+      parameterMapIds.add(parameterMap.getId());
+    }
+    // ResultMap
+    out.writeInt(configuration.resultMaps.size());
+    for (ResultMap resultMap : configuration.resultMaps) {
+      writeResultMap(resultMap);
+      resultMapIds.add(resultMap.getId());
+    }
+    // MappedStatement，只要 mapper XML 中的，排除解析期间补全的接口同名 XML 中的语句
+    Set<String> resources = new HashSet<>();
+    for (MapperLocation location : contents.keySet()) {
+      resources.add(location.getLocation());
+    }
+    List<MappedStatement> statements = new ArrayList<>();
+    for (MappedStatement statement : configuration.statements) {
+      if (resources.contains(statement.getResource())) {
+        statements.add(statement);
+      }
+    }
+    out.writeInt(statements.size());
+    for (MappedStatement statement : statements) {
+      writeStatement(statement, cacheIds);
+    }
+    // 已加载的资源
+    out.writeStrings(configuration.loadedResources);
+  }
+
+  /**
+   * 重新读取 mapper XML 的 <cache /> 节点，Cache 对象是层层装饰后的结果，没法还原出配置
+   */
+  private Map<String, CacheElement> findCacheElements(Map<MapperLocation, byte[]> contents) {
+    Map<String, CacheElement> elements = new HashMap<>();
+    if (configuration.caches.isEmpty()) {
+      return elements;
+    }
+    for (Map.Entry<MapperLocation, byte[]> entry : contents.entrySet()) {
+      XNode mapper = new XPathParser(new ByteArrayInputStream(entry.getValue()), configuration.getVariables()).evalNode("/mapper");
+      XNode cache = mapper.evalNode("cache");
+      if (cache != null) {
+        elements.put(mapper.getStringAttribute("namespace"), new CacheElement(entry.getKey().getLocation(), mapper.getStringAttribute("namespace"), cache));
+      }
+    }
+    return elements;
+  }
+
+  /**
+   * 写缓存的配置，默认值与 XMLMapperBuilder#cacheElement 一致
+   */
+  private void writeCache(CacheElement element) throws IOException {
+    TypeAliasRegistry typeAliasRegistry = configuration.getTypeAliasRegistry();
+    XNode context = element.context;
+    out.writeString(element.resource);
+    out.writeString(element.namespace);
+    out.writeClass(typeAliasRegistry.resolveAlias(context.getStringAttribute("type", "PERPETUAL")));
+    out.writeClass(typeAliasRegistry.resolveAlias(context.getStringAttribute("eviction", "LRU")));
+    out.writeNullableLong(context.getLongAttribute("flushInterval"));
+    out.writeNullableInt(context.getIntAttribute("size"));
+    out.writeBoolean(!context.getBooleanAttribute("readOnly", false));
+    out.writeBoolean(context.getBooleanAttribute("blocking", false));
+    Map<String, String> props = new LinkedHashMap<>();
+    Properties properties = context.getChildrenAsProperties();
+    for (String name : properties.stringPropertyNames()) {
+      props.put(name, properties.getProperty(name));
+    }
+    out.writeStringMap(props);
+  }
+
+  private void writeParameterMap(ParameterMap parameterMap) throws IOException {
+    out.writeString(parameterMap.getId());
+    out.writeClass(parameterMap.getType());
+    writeParameterMappings(parameterMap.getParameterMappings());
+  }
+
+  private void writeParameterMappings(List<ParameterMapping> parameterMappings) throws IOException {
+    out.writeInt(parameterMappings.size());
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      out.writeString(parameterMapping.getProperty());
+      out.writeEnum(parameterMapping.getMode());
+      out.writeClass(parameterMapping.getJavaType());
+      out.writeEnum(parameterMapping.getJdbcType());
+      out.writeNullableInt(parameterMapping.getNumericScale());
+      writeTypeHandler(parameterMapping.getTypeHandler(), parameterMapping.getJavaType(), parameterMapping.getJdbcType());
+      out.writeString(parameterMapping.getExpression());
+    }
+  }
+
+  private void writeResultMap(ResultMap resultMap) throws IOException {
+    out.writeString(resultMap.getId());
+    out.writeClass(resultMap.getType());
+    out.writeNullableBoolean(resultMap.getAutoMapping());
+    writeResultMappings(resultMap.getResultMappings());
+    Discriminator discriminator = resultMap.getDiscriminator();
+    out.writeBoolean(discriminator != null);
+    if (discriminator != null) {
+      writeResultMapping(discriminator.getResultMapping());
+      out.writeStringMap(discriminator.getDiscriminatorMap());
+    }
+  }
+
+  private void writeResultMappings(List<ResultMapping> resultMappings) throws IOException {
+    out.writeInt(resultMappings.size());
+    for (ResultMapping resultMapping : resultMappings) {
+      writeResultMapping(resultMapping);
+    }
+  }
+
+  private void writeResultMapping(ResultMapping resultMapping) throws IOException {
+    out.writeString(resultMapping.getProperty());
+    out.writeString(resultMapping.getColumn());
+    out.writeClass(resultMapping.getJavaType());
+    out.writeEnum(resultMapping.getJdbcType());
+    writeTypeHandler(resultMapping.getTypeHandler(), resultMapping.getJavaType(), resultMapping.getJdbcType());
+    out.writeString(resultMapping.getNestedResultMapId());
+    out.writeString(resultMapping.getNestedQueryId());
+    out.writeStrings(resultMapping.getNotNullColumns());
+    out.writeString(resultMapping.getColumnPrefix());
+    List<String> flags = new ArrayList<>();
+    for (ResultFlag flag : resultMapping.getFlags()) {
+      flags.add(flag.name());
+    }
+    out.writeStrings(flags);
+    writeResultMappings(resultMapping.getComposites());
+    out.writeBoolean(resultMapping.isLazy());
+    out.writeInt(resultMapping.getBatchSize());
+    out.writeString(resultMapping.getForeignColumn());
+  }
+
+  /**
+   * 写类型处理器，能由 javaType、jdbcType 解析出来的不写，读取时由 Builder 重新解析
+   */
+  private void writeTypeHandler(TypeHandler<?> typeHandler, Class<?> javaType, JdbcType jdbcType) throws IOException {
+    boolean explicit = typeHandler != null
+        && (javaType == null || typeHandler != typeHandlerRegistry.getTypeHandler(javaType, jdbcType));
+    out.writeBoolean(explicit);
+    if (explicit) {
+      out.writeClass(typeHandler.getClass());
+    }
+  }
+
+  private void writeStatement(MappedStatement ms, Set<String> cacheIds) throws IOException {
+    out.writeString(ms.getResource());
+    out.writeString(ms.getId());
+    out.writeEnum(ms.getSqlCommandType());
+    writeSqlSource(ms);
+    out.writeNullableInt(ms.getFetchSize());
+    out.writeNullableInt(ms.getTimeout());
+    out.writeEnum(ms.getStatementType());
+    out.writeEnum(ms.getResultSetType());
+    writeKeyGenerator(ms);
+    out.writeString(join(ms.getKeyProperties()));
+    out.writeString(join(ms.getKeyColumns()));
+    out.writeClass(ms.getLang().getClass());
+    out.writeBoolean(ms.isResultOrdered());
+    out.writeBoolean(ms.isFlushCacheRequired());
+    out.writeBoolean(ms.isUseCache());
+    Cache cache = ms.getCache();
+    if (cache != null && !cacheIds.contains(cache.getId())) {
+      throw new BuilderException("Statement " + ms.getId() + " uses cache " + cache.getId() + " which is not declared in a mapper XML.");
+    }
+    out.writeString(cache == null ? null : cache.getId());
+    ParameterMap parameterMap = ms.getParameterMap();
+    if (parameterMap == null) {
+      out.writeByte(ConfigurationSnapshot.MAP_NONE);
+    } else if (parameterMapIds.contains(parameterMap.getId()) && configuration.getParameterMap(parameterMap.getId()) == parameterMap) {
+      out.writeByte(ConfigurationSnapshot.MAP_REF);
+      out.writeString(parameterMap.getId());
+    } else {
+      out.writeByte(ConfigurationSnapshot.MAP_INLINE);
+      writeParameterMap(parameterMap);
+    }
+    ResultMap resultMap = ms.getResultMap();
+    if (resultMap == null) {
+      out.writeByte(ConfigurationSnapshot.MAP_NONE);
+    } else if (resultMapIds.contains(resultMap.getId()) && configuration.getResultMap(resultMap.getId()) == resultMap) {
+      out.writeByte(ConfigurationSnapshot.MAP_REF);
+      out.writeString(resultMap.getId());
+    } else {
+      out.writeByte(ConfigurationSnapshot.MAP_INLINE);
+      writeResultMap(resultMap);
+    }
+  }
+
+  private void writeSqlSource(MappedStatement ms) throws IOException {
+    SqlSource sqlSource = ms.getSqlSource();
+    if (sqlSource instanceof DynamicSqlSource) {
+      out.writeByte(ConfigurationSnapshot.SQL_SOURCE_DYNAMIC);
+      SqlNodeCodec.write(out, (DynamicSqlSource) sqlSource);
+      return;
+    }
+    if (sqlSource instanceof RawSqlSource) {
+      out.writeByte(ConfigurationSnapshot.SQL_SOURCE_RAW);
+    } else if (sqlSource instanceof StaticSqlSource) {
+      out.writeByte(ConfigurationSnapshot.SQL_SOURCE_STATIC);
+    } else {
+      throw new BuilderException("Cannot write " + sqlSource.getClass().getName() + " of statement " + ms.getId() + " to a configuration snapshot.");
+    }
+    // 静态 SQL 与参数无关，直接取解析后的 SQL 和 ParameterMapping
+    BoundSql boundSql = sqlSource.getBoundSql(null);
+    out.writeString(boundSql.getSql());
+    writeParameterMappings(boundSql.getParameterMappings());
+  }
+
+  private void writeKeyGenerator(MappedStatement ms) throws IOException {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (keyGenerator instanceof NoKeyGenerator) {
+      out.writeByte(ConfigurationSnapshot.KEY_GENERATOR_NONE);
+    } else if (keyGenerator instanceof Jdbc3KeyGenerator) {
+      out.writeByte(ConfigurationSnapshot.KEY_GENERATOR_JDBC3);
+    } else if (keyGenerator instanceof SelectKeyGenerator) {
+      SelectKeyGenerator selectKeyGenerator = (SelectKeyGenerator) keyGenerator;
+      out.writeByte(ConfigurationSnapshot.KEY_GENERATOR_SELECT_KEY);
+      out.writeString(selectKeyGenerator.getKeyStatement().getId());
+      out.writeBoolean(selectKeyGenerator.isExecuteBefore());
+    } else {
+      throw new BuilderException("Cannot write " + keyGenerator.getClass().getName() + " of statement " + ms.getId() + " to a configuration snapshot.");
+    }
+  }
+
+  private static String join(String[] values) {
+    return values == null ? null : String.join(",", values);
+  }
+
+  /**
+   * mapper XML 中的 <cache /> 节点
+   */
+  private static final class CacheElement {
+
+    private final String resource;
+
+    private final String namespace;
+
+    private final XNode context;
+
+    CacheElement(String resource, String namespace, XNode context) {
+      this.resource = resource;
+      this.namespace = namespace;
+      this.context = context;
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cn.javadog.sd.mybatis.support.io.Resources;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:20
+ *
+ * <mappers /> 下通过 resource 或 url 声明的 mapper XML 的位置，按声明的顺序参与快照的新鲜度校验
+ */
+public final class MapperLocation {
+
+  /**
+   * resource 或 url 的值，也是 XMLMapperBuilder 记录的 resource
+   */
+  private final String location;
+
+  /**
+   * 是否是 url
+   */
+  private final boolean url;
+
+  public MapperLocation(String location, boolean url) {
+    this.location = location;
+    this.url = url;
+  }
+
+  public String getLocation() {
+    return location;
+  }
+
+  public boolean isUrl() {
+    return url;
+  }
+
+  /**
+   * 打开 XML
+   */
+  public InputStream openStream() throws IOException {
+    return url ? Resources.getUrlAsStream(location) : Resources.getResourceAsStream(location);
+  }
+
+  /**
+   * 读取 XML 的全部字节，用于计算哈希
+   */
+  public byte[] readBytes() throws IOException {
+    try (InputStream in = openStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) != -1) {
+        out.write(buffer, 0, n);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof MapperLocation)) {
+      return false;
+    }
+    MapperLocation that = (MapperLocation) o;
+    return url == that.url && location.equals(that.location);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * location.hashCode() + (url ? 1 : 0);
+  }
+
+  @Override
+  public String toString() {
+    return (url ? "url:" : "resource:") + location;
+  }
+
+}
@@ -0,0 +1,120 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMap;
+import cn.javadog.sd.mybatis.mapping.ResultMap;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.Cache;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:40
+ *
+ * 记录解析结果的 Configuration，由 {@link ConfigurationSnapshotWriter} 使用，按添加的顺序记录 mapper XML 的解析结果。
+ * addMapper、addMappers 期间添加的是 mapper 接口的注解（以及接口同名的 XML）的解析结果，启动时依然会解析，不记录
+ */
+class RecordingConfiguration extends Configuration {
+
+  /**
+   * 当前嵌套的 addMapper、addMappers 的层数
+   */
+  private int mapperDepth;
+
+  final List<Cache> caches = new ArrayList<>();
+
+  final Map<String, String> cacheRefs = new LinkedHashMap<>();
+
+  final List<ParameterMap> parameterMaps = new ArrayList<>();
+
+  final List<ResultMap> resultMaps = new ArrayList<>();
+
+  final List<MappedStatement> statements = new ArrayList<>();
+
+  final Set<String> loadedResources = new LinkedHashSet<>();
+
+  @Override
+  public void addMappers(String packageName, Class<?> superType) {
+    mapperDepth++;
+    try {
+      super.addMappers(packageName, superType);
+    } finally {
+      mapperDepth--;
+    }
+  }
+
+  @Override
+  public void addMappers(String packageName) {
+    mapperDepth++;
+    try {
+      super.addMappers(packageName);
+    } finally {
+      mapperDepth--;
+    }
+  }
+
+  @Override
+  public <T> void addMapper(Class<T> type) {
+    mapperDepth++;
+    try {
+      super.addMapper(type);
+    } finally {
+      mapperDepth--;
+    }
+  }
+
+  @Override
+  public void addCache(Cache cache) {
+    super.addCache(cache);
+    if (mapperDepth == 0) {
+      caches.add(cache);
+    }
+  }
+
+  @Override
+  public void addCacheRef(String namespace, String referencedNamespace) {
+    super.addCacheRef(namespace, referencedNamespace);
+    if (mapperDepth == 0) {
+      cacheRefs.put(namespace, referencedNamespace);
+    }
+  }
+
+  @Override
+  public void addParameterMap(ParameterMap pm) {
+    super.addParameterMap(pm);
+    if (mapperDepth == 0) {
+      parameterMaps.add(pm);
+    }
+  }
+
+  @Override
+  public void addResultMap(ResultMap rm) {
+    super.addResultMap(rm);
+    if (mapperDepth == 0) {
+      resultMaps.add(rm);
+    }
+  }
+
+  @Override
+  public void addMappedStatement(MappedStatement ms) {
+    super.addMappedStatement(ms);
+    if (mapperDepth == 0) {
+      statements.add(ms);
+    }
+  }
+
+  @Override
+  public void addLoadedResource(String resource) {
+    super.addLoadedResource(resource);
+    if (mapperDepth == 0) {
+      loadedResources.add(resource);
+    }
+  }
+
+}
@@ -0,0 +1,146 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.javadog.sd.mybatis.support.exceptions.BuilderException;
+import cn.javadog.sd.mybatis.support.io.Resources;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:00
+ *
+ * 快照的读取，与 {@link SnapshotOutput} 一一对应。
+ * 类按类名加载，同一个类名只加载一次；基本类型没法用 Class.forName 加载，单独处理
+ */
+public final class SnapshotInput {
+
+  /**
+   * 基本类型
+   */
+  private static final Map<String, Class<?>> PRIMITIVES = new HashMap<>();
+
+  static {
+    for (Class<?> type : new Class<?>[] {boolean.class, byte.class, char.class, short.class, int.class, long.class,
+        float.class, double.class, void.class}) {
+      PRIMITIVES.put(type.getName(), type);
+    }
+  }
+
+  private final DataInputStream in;
+
+  /**
+   * 已经加载过的类
+   */
+  private final Map<String, Class<?>> classes = new HashMap<>();
+
+  public SnapshotInput(InputStream in) {
+    this.in = new DataInputStream(in);
+  }
+
+  public boolean readBoolean() throws IOException {
+    return in.readBoolean();
+  }
+
+  public int readByte() throws IOException {
+    return in.readByte();
+  }
+
+  public int readInt() throws IOException {
+    return in.readInt();
+  }
+
+  public long readLong() throws IOException {
+    return in.readLong();
+  }
+
+  public byte[] readBytes() throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  public Boolean readNullableBoolean() throws IOException {
+    int value = in.readByte();
+    return value < 0 ? null : value == 1;
+  }
+
+  public Integer readNullableInt() throws IOException {
+    return in.readBoolean() ? in.readInt() : null;
+  }
+
+  public Long readNullableLong() throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  public String readString() throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 读类名并加载
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Class<T> readClass() throws IOException {
+    String name = readString();
+    if (name == null) {
+      return null;
+    }
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = PRIMITIVES.get(name);
+      if (type == null) {
+        try {
+          type = Resources.classForName(name);
+        } catch (ClassNotFoundException e) {
+          throw new BuilderException("Error loading class " + name + " from configuration snapshot.  Cause: " + e, e);
+        }
+      }
+      classes.put(name, type);
+    }
+    return (Class<T>) type;
+  }
+
+  /**
+   * 读枚举
+   */
+  public <E extends Enum<E>> E readEnum(Class<E> type) throws IOException {
+    String name = readString();
+    return name == null ? null : Enum.valueOf(type, name);
+  }
+
+  public List<String> readStrings() throws IOException {
+    int size = in.readInt();
+    if (size < 0) {
+      return null;
+    }
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add(readString());
+    }
+    return values;
+  }
+
+  public Map<String, String> readStringMap() throws IOException {
+    int size = in.readInt();
+    Map<String, String> values = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      values.put(readString(), readString());
+    }
+    return values;
+  }
+
+}
@@ -0,0 +1,120 @@
+package cn.javadog.sd.mybatis.builder.snapshot;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:00
+ *
+ * 快照的写入，在 DataOutputStream 的基础上补充可为 null 的值、类、字符串集合的写法，与 {@link SnapshotInput} 一一对应。
+ * 字符串按 UTF-8 写长度和字节，不受 writeUTF 64K 的限制，null 的长度写 -1
+ */
+public final class SnapshotOutput {
+
+  private final DataOutputStream out;
+
+  public SnapshotOutput(OutputStream out) {
+    this.out = new DataOutputStream(out);
+  }
+
+  public void writeBoolean(boolean value) throws IOException {
+    out.writeBoolean(value);
+  }
+
+  public void writeByte(int value) throws IOException {
+    out.writeByte(value);
+  }
+
+  public void writeInt(int value) throws IOException {
+    out.writeInt(value);
+  }
+
+  public void writeLong(long value) throws IOException {
+    out.writeLong(value);
+  }
+
+  public void writeBytes(byte[] value) throws IOException {
+    out.writeInt(value.length);
+    out.write(value);
+  }
+
+  /**
+   * 写可为 null 的 Boolean，-1 代表 null
+   */
+  public void writeNullableBoolean(Boolean value) throws IOException {
+    out.writeByte(value == null ? -1 : value ? 1 : 0);
+  }
+
+  public void writeNullableInt(Integer value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeInt(value);
+    }
+  }
+
+  public void writeNullableLong(Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  public void writeString(String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * 写类名，读取时按类名加载
+   */
+  public void writeClass(Class<?> type) throws IOException {
+    writeString(type == null ? null : type.getName());
+  }
+
+  /**
+   * 写枚举的名字
+   */
+  public void writeEnum(Enum<?> value) throws IOException {
+    writeString(value == null ? null : value.name());
+  }
+
+  /**
+   * 写字符串集合，null 的个数写 -1
+   */
+  public void writeStrings(Collection<String> values) throws IOException {
+    if (values == null) {
+      out.writeInt(-1);
+      return;
+    }
+    out.writeInt(values.size());
+    for (String value : values) {
+      writeString(value);
+    }
+  }
+
+  /**
+   * 写字符串的映射，按遍历的顺序
+   */
+  public void writeStringMap(Map<String, String> values) throws IOException {
+    out.writeInt(values.size());
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      writeString(entry.getKey());
+      writeString(entry.getValue());
+    }
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+}
@@ -0,0 +1,173 @@
+package cn.javadog.sd.mybatis.builder.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.util.ResolverUtil;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+import cn.javadog.sd.mybatis.support.parsing.XNode;
+import cn.javadog.sd.mybatis.support.parsing.XPathParser;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 05:30
+ *
+ * <mappers /> 的并行预解析，开启 {@link Configuration#isParallelMapperParsingEnabled()} 后由 XMLConfigBuilder 在注册之前调用。
+ * 在线程池中并行完成与 Configuration 无关的部分：
+ *    1. resource、url 声明的 mapper XML，读取并解析成 DOM 文档
+ *    2. class 声明的 mapper 接口，加载类，解析接口同名的 XML，也就是 MapperAnnotationBuilder#loadXmlResource 要读取的
+ *    3. package 声明的包，扫描包下的类，再逐个解析接口同名的 XML
+ * 解析好的文档放到 {@link Configuration#addParsedMapperDocument(String, XPathParser)}，注册时由 XMLMapperBuilder、MapperAnnotationBuilder 取用。
+ *
+ * 注册（statement、resultMap、缓存等添加到 Configuration）依然在当前线程按声明的顺序完成，Configuration 中的 StrictMap、
+ * 类型处理器、incomplete* 列表都不是线程安全的，这样结果与串行解析完全一致，不会因为线程调度而变化。
+ * 预解析出错的直接跳过，注册时照常读取和解析，错误在那时按声明的顺序抛出
+ */
+public class ParallelMapperParser {
+
+  private static final Log log = LogFactory.getLog(ParallelMapperParser.class);
+
+  private final Configuration configuration;
+
+  /**
+   * 已经提交解析的文档，同一个文档只解析一次
+   */
+  private final Set<String> submitted = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 扫描到的包下的类，key 为包名
+   */
+  private final Map<String, Set<Class<? extends Class<?>>>> packageClasses = new ConcurrentHashMap<>();
+
+  public ParallelMapperParser(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * 并行预解析 <mappers /> 的子节点，全部完成后返回
+   *
+   * @param skipXmlMappers 是否跳过 resource、url 声明的 mapper XML，已经从配置快照还原时跳过
+   */
+  public void parse(List<XNode> mappers, boolean skipXmlMappers) {
+    ForkJoinPool pool = configuration.getMapperParsingPool();
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (XNode child : mappers) {
+      if ("package".equals(child.getName())) {
+        String packageName = child.getStringAttribute("name");
+        tasks.add(pool.submit(() -> scanPackage(packageName)));
+        continue;
+      }
+      String resource = child.getStringAttribute("resource");
+      String url = child.getStringAttribute("url");
+      String mapperClass = child.getStringAttribute("class");
+      if (resource != null && url == null && mapperClass == null) {
+        if (!skipXmlMappers && submitted.add(resource)) {
+          tasks.add(pool.submit(() -> parseResource(resource)));
+        }
+      } else if (resource == null && url != null && mapperClass == null) {
+        if (!skipXmlMappers && submitted.add(url)) {
+          tasks.add(pool.submit(() -> parseUrl(url)));
+        }
+      } else if (resource == null && url == null && mapperClass != null) {
+        tasks.add(pool.submit(() -> loadMapperClass(mapperClass)));
+      }
+    }
+    // 任务不会抛出异常，出错的在注册时照常解析
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+  }
+
+  /**
+   * 获取包下扫描到的类，没有扫描或者扫描出错时返回 null，由调用方照常扫描
+   */
+  public Set<Class<? extends Class<?>>> getPackageClasses(String packageName) {
+    return packageClasses.get(packageName);
+  }
+
+  private void parseResource(String resource) {
+    try (InputStream inputStream = Resources.getResourceAsStream(resource)) {
+      configuration.addParsedMapperDocument(resource, new XPathParser(inputStream, configuration.getVariables()));
+    } catch (Exception e) {
+      skipped(resource, e);
+    }
+  }
+
+  private void parseUrl(String url) {
+    try (InputStream inputStream = Resources.getUrlAsStream(url)) {
+      configuration.addParsedMapperDocument(url, new XPathParser(inputStream, configuration.getVariables()));
+    } catch (Exception e) {
+      skipped(url, e);
+    }
+  }
+
+  private void loadMapperClass(String mapperClass) {
+    try {
+      parseMapperXml(Resources.classForName(mapperClass));
+    } catch (Exception e) {
+      skipped(mapperClass, e);
+    }
+  }
+
+  /**
+   * 扫描包下的类，与 MapperRegistry#addMappers(String) 一致，再并行解析其中接口同名的 XML
+   */
+  private void scanPackage(String packageName) {
+    Set<Class<? extends Class<?>>> classes;
+    try {
+      ResolverUtil<Class<?>> resolverUtil = new ResolverUtil<>();
+      resolverUtil.find(new ResolverUtil.IsA(Object.class), packageName);
+      classes = resolverUtil.getClasses();
+    } catch (Exception e) {
+      skipped(packageName, e);
+      return;
+    }
+    List<ForkJoinTask<?>> tasks = new ArrayList<>();
+    for (Class<?> type : classes) {
+      if (type.isInterface()) {
+        tasks.add(ForkJoinTask.adapt(() -> parseMapperXml(type)));
+      }
+    }
+    ForkJoinTask.invokeAll(tasks);
+    packageClasses.put(packageName, classes);
+  }
+
+  /**
+   * 解析 mapper 接口同名的 XML，与 MapperAnnotationBuilder#loadXmlResource 读取的一致，没有就算了
+   */
+  private void parseMapperXml(Class<?> type) {
+    String xmlResource = type.getName().replace('.', '/') + ".xml";
+    if (!submitted.add(xmlResource)) {
+      return;
+    }
+    InputStream inputStream;
+    try {
+      inputStream = Resources.getResourceAsStream(type.getClassLoader(), xmlResource);
+    } catch (IOException e) {
+      // 资源没找到，与 MapperAnnotationBuilder 一致，不报错
+      return;
+    }
+    try (InputStream in = inputStream) {
+      configuration.addParsedMapperDocument(xmlResource, new XPathParser(in, configuration.getVariables()));
+    } catch (Exception e) {
+      skipped(xmlResource, e);
+    }
+  }
+
+  private static void skipped(String mapper, Exception e) {
+    if (log.isDebugEnabled()) {
+      log.debug("Skipped parallel parsing of " + mapper + ", it will be parsed while registering.  Cause: " + e);
+    }
+  }
+
+}
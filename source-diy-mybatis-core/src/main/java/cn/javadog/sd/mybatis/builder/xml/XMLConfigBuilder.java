@@ -3,9 +3,16 @@ package cn.javadog.sd.mybatis.builder.xml;
 import javax.sql.DataSource;
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 import cn.javadog.sd.mybatis.builder.BaseBuilder;
+import cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshot;
+import cn.javadog.sd.mybatis.builder.snapshot.MapperLocation;
 import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
 import cn.javadog.sd.mybatis.executor.loader.ProxyFactory;
 import cn.javadog.sd.mybatis.mapping.Environment;
@@ -30,6 +37,7 @@ import cn.javadog.sd.mybatis.support.reflection.wrapper.ObjectWrapperFactory;
 import cn.javadog.sd.mybatis.support.transaction.TransactionFactory;
 import cn.javadog.sd.mybatis.support.type.JdbcType;
 import cn.javadog.sd.mybatis.support.type.TypeHandler;
+import org.w3c.dom.Node;
 
 /**
  * @author 余勇
@@ -59,26 +67,60 @@ public class XMLConfigBuilder extends BaseBuilder {
    */
   private final ReflectorFactory localReflectorFactory = new DefaultReflectorFactory();
 
+  /**
+   * 预先构建好的配置快照，为空时正常解析 mapper XML
+   */
+  private final ConfigurationSnapshot snapshot;
+
+  /**
+   * <mappers /> 下通过 resource、url 声明的 mapper XML，按声明的顺序
+   */
+  private final List<MapperLocation> mapperLocations = new ArrayList<>();
+
+  /**
+   * 是否使用了配置快照，而没有解析 mapper XML
+   */
+  private boolean snapshotApplied;
+
+  /**
+   * <configuration /> 节点，没有替换 ${} 的 DOM，用于计算配置快照中配置文件的哈希
+   */
+  private Node configurationNode;
+
   /**
    * 使用 reader 的构造
    */
   public XMLConfigBuilder(Reader reader, String environment, Properties props) {
-    this(new XPathParser(reader, props), environment, props);
+    this(new Configuration(), new XPathParser(reader, props), environment, props, null);
+  }
+
+  /**
+   * 使用 reader+配置快照 的构造，快照过期时退回正常解析
+   */
+  public XMLConfigBuilder(Reader reader, String environment, Properties props, ConfigurationSnapshot snapshot) {
+    this(new Configuration(), new XPathParser(reader, props), environment, props, snapshot);
+  }
+
+  /**
+   * 使用 reader+指定的 Configuration 的构造，由 ConfigurationSnapshotWriter 记录解析结果时使用
+   */
+  public XMLConfigBuilder(Configuration configuration, Reader reader, String environment, Properties props) {
+    this(configuration, new XPathParser(reader, props), environment, props, null);
   }
 
   /**
    * 使用 inputStream 的构造
    */
   public XMLConfigBuilder(InputStream inputStream, String environment, Properties props) {
-    this(new XPathParser(inputStream, props), environment, props);
+    this(new Configuration(), new XPathParser(inputStream, props), environment, props, null);
   }
 
   /**
    * 👆几个构造的目的地
    */
-  private XMLConfigBuilder(XPathParser parser, String environment, Properties props) {
-    // 创建 Configuration 对象
-    super(new Configuration());
+  private XMLConfigBuilder(Configuration configuration, XPathParser parser, String environment, Properties props, ConfigurationSnapshot snapshot) {
+    // 使用传入的 Configuration 对象
+    super(configuration);
     // 记录下在做什么，如果出错，将会打印
     ErrorContext.instance().resource("SQL Mapper Configuration");
     // 设置 Configuration 的 variables 属性
@@ -89,6 +131,7 @@ public class XMLConfigBuilder extends BaseBuilder {
     this.environment = environment;
     // 初始化解析器
     this.parser = parser;
+    this.snapshot = snapshot;
   }
 
   /**
@@ -102,7 +145,9 @@ public class XMLConfigBuilder extends BaseBuilder {
     // 标记已解析
     parsed = true;
     // 解析 XML configuration 节点
-    parseConfiguration(parser.evalNode("/configuration"));
+    XNode root = parser.evalNode("/configuration");
+    configurationNode = root.getNode();
+    parseConfiguration(root);
     return configuration;
   }
 
@@ -328,6 +373,9 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setAutoMappingUnknownColumnBehavior(AutoMappingUnknownColumnBehavior.valueOf(props.getProperty("autoMappingUnknownColumnBehavior", "NONE")));
     // 设置cacheEnabled，默认true，即默认开启一级缓存
     configuration.setCacheEnabled(booleanValueOf(props.getProperty("cacheEnabled"), true));
+    // 二级缓存未命中时，是否合并同一个 CacheKey 的并发查询，默认不合并；合并时等待的超时时间默认 3000 毫秒
+    configuration.setCoalesceQueries(booleanValueOf(props.getProperty("coalesceQueries"), false));
+    configuration.setCoalesceTimeout(integerValueOf(props.getProperty("coalesceTimeout"), 3000));
     // 设置proxyFactory，也就是动态代理，默认是Javassist
     configuration.setProxyFactory((ProxyFactory) createInstance(props.getProperty("proxyFactory")));
     // 是否开启懒加载，默认不开启
@@ -363,6 +411,32 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
     // 指定动态 SQL 生成的默认语言。如 org.apache.ibatis.scripting.xmltags.XMLLanguageDriver, set逻辑会在为空时设置XMLLanguageDriver
     configuration.setDefaultScriptingLanguage(resolveClass(props.getProperty("defaultScriptingLanguage")));
+    // 每个动态 SQL 最多缓存多少种形状解析好的 SqlSource，默认 64，0 代表不缓存
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 64));
+    // 简单映射是否编译成按列位置映射的计划，默认开启
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), true));
+    // 批量加载的嵌套查询每批最多的关联键个数，默认 100
+    configuration.setDefaultBatchFetchSize(integerValueOf(props.getProperty("defaultBatchFetchSize"), 100));
+    // 延迟加载的嵌套查询批量化时每批最多的关联键个数，默认 0，代表不批量化
+    configuration.setLazyLoadBatchSize(integerValueOf(props.getProperty("lazyLoadBatchSize"), 0));
+    // 是否并行解析 <mappers /> 下的 mapper XML，默认关闭
+    configuration.setParallelMapperParsingEnabled(booleanValueOf(props.getProperty("parallelMapperParsingEnabled"), false));
+    // BatchExecutor 累计多少行后自动刷入，默认 0，代表不限制
+    configuration.setBatchFlushSize(integerValueOf(props.getProperty("batchFlushSize"), 0));
+    // BatchExecutor 累计的参数估算达到多少字节后自动刷入，默认 0，代表不限制
+    String batchFlushBytes = props.getProperty("batchFlushBytes");
+    configuration.setBatchFlushBytes(batchFlushBytes == null ? 0L : Long.parseLong(batchFlushBytes));
+    // BatchExecutor 是否把单行 INSERT 改写成多行 VALUES，默认关闭；改写后一条语句最多的占位符个数，默认 2000
+    configuration.setBatchInsertRewriteEnabled(booleanValueOf(props.getProperty("batchInsertRewriteEnabled"), false));
+    configuration.setBatchInsertMaxParameters(integerValueOf(props.getProperty("batchInsertMaxParameters"), 2000));
+    // BatchExecutor 中 INSERT 表的先后顺序，逗号分隔，父表在前，默认没有，只有同一张表的 INSERT 会越过前面的 Statement 合并
+    String batchInsertTableOrder = props.getProperty("batchInsertTableOrder");
+    configuration.setBatchInsertTableOrder(batchInsertTableOrder == null
+        ? Collections.<String>emptyList() : Arrays.asList(batchInsertTableOrder.trim().split("\\s*,\\s*")));
+    // 分区查询最多缓冲的结果个数，默认 1024
+    configuration.setPartitionedQueryBufferSize(integerValueOf(props.getProperty("partitionedQueryBufferSize"), 1024));
+    // 插件是否使用展开的调用链，默认关闭
+    configuration.setFlattenedPluginChainEnabled(booleanValueOf(props.getProperty("flattenedPluginChainEnabled"), false));
     // 设置默认的枚举类型处理器，没有设置的话，默认是EnumTypeHandler
     @SuppressWarnings("unchecked")
     Class<? extends TypeHandler> typeHandler = (Class<? extends TypeHandler>)resolveClass(props.getProperty("defaultEnumTypeHandler"));
@@ -491,58 +565,130 @@ public class XMLConfigBuilder extends BaseBuilder {
    */
   private void mapperElement(XNode parent) throws Exception {
     if (parent != null) {
-      // 遍历子节点
+      // 收集 resource、url 声明的 mapper XML，配置快照没有过期的话，直接还原，不再逐个解析
       for (XNode child : parent.getChildren()) {
-        // 如果是 package 标签，则扫描该包
-        if ("package".equals(child.getName())) {
-          // 获得包名
-          String mapperPackage = child.getStringAttribute("name");
-          // 添加到 configuration 中，注册的逻辑在 configuration 里面
-          configuration.addMappers(mapperPackage);
-        }
-        // 如果是 mapper 标签，
-        else {
-          // 获得 resource、url、class 属性，优先级为 resource => url => class
-          // 其中resource和url是从xml发起的，交给XMLMapperBuilder完成，class是mapper接口发起的，交给configuration内部完成
+        if ("mapper".equals(child.getName()) && child.getStringAttribute("class") == null) {
           String resource = child.getStringAttribute("resource");
           String url = child.getStringAttribute("url");
-          String mapperClass = child.getStringAttribute("class");
-          // 使用相对于类路径的资源引用
-          if (resource != null && url == null && mapperClass == null) {
-            // 异常上下文记录一笔
-            ErrorContext.instance().resource(resource);
-            // 获得 resource 的 InputStream 对象
-            InputStream inputStream = Resources.getResourceAsStream(resource);
-            // 创建 XMLMapperBuilder 对象
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, resource, configuration.getSqlFragments());
-            // 执行解析
-            mapperParser.parse();
-          }
-          // 使用完全限定资源定位符（URL）
-          else if (resource == null && url != null && mapperClass == null) {
-            ErrorContext.instance().resource(url);
-            // 异常上下文记录一笔
-            // 获得 url 的 InputStream 对象
-            InputStream inputStream = Resources.getUrlAsStream(url);
-            // 创建 XMLMapperBuilder 对象
-            XMLMapperBuilder mapperParser = new XMLMapperBuilder(inputStream, configuration, url, configuration.getSqlFragments());
-            // 执行解析
-            mapperParser.parse();
+          if (resource != null && url == null) {
+            mapperLocations.add(new MapperLocation(resource, false));
+          } else if (resource == null && url != null) {
+            mapperLocations.add(new MapperLocation(url, true));
           }
-          // 使用映射器接口实现类的完全限定类名，也就是mapper接口
-          else if (resource == null && url == null && mapperClass != null) {
-            // 获得 Mapper 接口
-            Class<?> mapperInterface = Resources.classForName(mapperClass);
-            // 添加到 configuration 中，注册逻辑在 configuration 里面
-            configuration.addMapper(mapperInterface);
-          } else {
-            throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
+        }
+      }
+      if (snapshot != null && snapshot.isFresh(configurationNode, mapperLocations, configuration.getVariables())) {
+        ErrorContext.instance().resource("Configuration Snapshot");
+        snapshot.applyTo(configuration);
+        snapshotApplied = true;
+      }
+      // 开启了并行解析的话，先并行读取、解析 mapper XML 和扫描包，注册依然在下面按声明的顺序完成
+      ParallelMapperParser parallelParser = null;
+      if (configuration.isParallelMapperParsingEnabled()) {
+        parallelParser = new ParallelMapperParser(configuration);
+        parallelParser.parse(parent.getChildren(), snapshotApplied);
+      }
+      try {
+        registerMappers(parent, parallelParser);
+      } finally {
+        // 没有被取用的文档不再保留
+        configuration.clearParsedMapperDocuments();
+      }
+    }
+  }
+
+  /**
+   * 按声明的顺序注册 mapper
+   *
+   * @param parallelParser 并行预解析的结果，没有开启并行解析时为 null
+   */
+  private void registerMappers(XNode parent, ParallelMapperParser parallelParser) throws Exception {
+    // 遍历子节点
+    for (XNode child : parent.getChildren()) {
+      // 如果是 package 标签，则扫描该包
+      if ("package".equals(child.getName())) {
+        // 获得包名
+        String mapperPackage = child.getStringAttribute("name");
+        Set<Class<? extends Class<?>>> mapperClasses = parallelParser == null ? null : parallelParser.getPackageClasses(mapperPackage);
+        if (mapperClasses != null) {
+          // 已经扫描过了，逐个注册
+          for (Class<?> mapperClass : mapperClasses) {
+            configuration.addMapper(mapperClass);
           }
+        } else {
+          // 添加到 configuration 中，注册的逻辑在 configuration 里面
+          configuration.addMappers(mapperPackage);
+        }
+      }
+      // 如果是 mapper 标签，
+      else {
+        // 获得 resource、url、class 属性，优先级为 resource => url => class
+        // 其中resource和url是从xml发起的，交给XMLMapperBuilder完成，class是mapper接口发起的，交给configuration内部完成
+        String resource = child.getStringAttribute("resource");
+        String url = child.getStringAttribute("url");
+        String mapperClass = child.getStringAttribute("class");
+        // 使用相对于类路径的资源引用
+        if (snapshotApplied && mapperClass == null && (resource == null) != (url == null)) {
+          // 已经从配置快照还原
+          continue;
+        }
+        if (resource != null && url == null && mapperClass == null) {
+          // 异常上下文记录一笔
+          ErrorContext.instance().resource(resource);
+          // 创建 XMLMapperBuilder 对象，已经预先解析好的直接使用
+          XPathParser parsedDocument = configuration.takeParsedMapperDocument(resource);
+          XMLMapperBuilder mapperParser = parsedDocument != null
+              ? new XMLMapperBuilder(parsedDocument, configuration, resource, configuration.getSqlFragments())
+              : new XMLMapperBuilder(Resources.getResourceAsStream(resource), configuration, resource, configuration.getSqlFragments());
+          // 执行解析
+          mapperParser.parse();
+        }
+        // 使用完全限定资源定位符（URL）
+        else if (resource == null && url != null && mapperClass == null) {
+          ErrorContext.instance().resource(url);
+          // 异常上下文记录一笔
+          // 创建 XMLMapperBuilder 对象，已经预先解析好的直接使用
+          XPathParser parsedDocument = configuration.takeParsedMapperDocument(url);
+          XMLMapperBuilder mapperParser = parsedDocument != null
+              ? new XMLMapperBuilder(parsedDocument, configuration, url, configuration.getSqlFragments())
+              : new XMLMapperBuilder(Resources.getUrlAsStream(url), configuration, url, configuration.getSqlFragments());
+          // 执行解析
+          mapperParser.parse();
+        }
+        // 使用映射器接口实现类的完全限定类名，也就是mapper接口
+        else if (resource == null && url == null && mapperClass != null) {
+          // 获得 Mapper 接口
+          Class<?> mapperInterface = Resources.classForName(mapperClass);
+          // 添加到 configuration 中，注册逻辑在 configuration 里面
+          configuration.addMapper(mapperInterface);
+        } else {
+          throw new BuilderException("A mapper element may only specify a url, resource or class, but not more than one.");
         }
       }
     }
   }
 
+  /**
+   * 获取 <mappers /> 下通过 resource、url 声明的 mapper XML
+   */
+  public List<MapperLocation> getMapperLocations() {
+    return Collections.unmodifiableList(mapperLocations);
+  }
+
+  /**
+   * 获取 <configuration /> 节点，解析之后才有
+   */
+  public Node getConfigurationNode() {
+    return configurationNode;
+  }
+
+  /**
+   * 是否使用了配置快照
+   */
+  public boolean isSnapshotApplied() {
+    return snapshotApplied;
+  }
+
   /**
    * 将要被解析的environment标签的ID，是否就是我们需要的
    * 这里要求两者都不能为空，必须有所指定，因此也不能直接一行代码 environment.equals(id)
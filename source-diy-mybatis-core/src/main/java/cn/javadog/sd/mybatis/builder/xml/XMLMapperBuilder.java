@@ -93,9 +93,17 @@ public class XMLMapperBuilder extends BaseBuilder {
   }
 
   /**
-   * 构造的最终目的地
+   * 使用已经解析好的文档构造，见 {@link ParallelMapperParser}
    */
-  private XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
+  public XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments, String namespace) {
+    this(parser, configuration, resource, sqlFragments);
+    this.builderAssistant.setCurrentNamespace(namespace);
+  }
+
+  /**
+   * 构造的最终目的地，也可以直接使用已经解析好的文档构造
+   */
+  public XMLMapperBuilder(XPathParser parser, Configuration configuration, String resource, Map<String, XNode> sqlFragments) {
     super(configuration);
     // 创建 MapperBuilderAssistant 对象
     this.builderAssistant = new MapperBuilderAssistant(configuration, resource);
@@ -464,8 +472,12 @@ public class XMLMapperBuilder extends BaseBuilder {
     String resultSet = context.getStringAttribute("resultSet");
     // 获取 foreignColumn 属性
     String foreignColumn = context.getStringAttribute("foreignColumn");
-    // 获取 lazy 属性，没配置的话就取 全局的
-    boolean lazy = "lazy".equals(context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager"));
+    // 获取 fetchType 属性，没配置的话就取 全局的
+    String fetchType = context.getStringAttribute("fetchType", configuration.isLazyLoadingEnabled() ? "lazy" : "eager");
+    // 批量加载，每批的大小没配置的话就取 全局的；是否延迟依然取全局的
+    boolean batch = "batch".equals(fetchType);
+    int batchSize = batch ? context.getIntAttribute("batchSize", configuration.getDefaultBatchFetchSize()) : 0;
+    boolean lazy = batch ? configuration.isLazyLoadingEnabled() : "lazy".equals(fetchType);
     // 获得javaType对应的类
     Class<?> javaTypeClass = resolveClass(javaType);
     // 获得typeHandler对应的类
@@ -486,7 +498,9 @@ public class XMLMapperBuilder extends BaseBuilder {
         columnPrefix,
         typeHandlerClass,
         flags,
-        lazy
+        lazy,
+        batchSize,
+        foreignColumn
     );
   }
 
@@ -0,0 +1,23 @@
+package cn.javadog.sd.mybatis.cursor;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 23:40
+ *
+ * 流式的查询结果，按订阅者的需求逐行从游标中读取，适合把大量数据直接写到 HTTP 响应之类的场景，不需要先缓存到内存。
+ * 接口的语义与 Reactive Streams 以及 JDK 9 的 java.util.concurrent.Flow 一致（Publisher、Subscriber、Subscription），
+ * 因为项目的编译级别是 1.8，这里单独定义，接到 Flow 或其他响应式框架时做一层简单的转发即可。
+ *
+ * 只能订阅一次，第二次订阅会收到 onError。结束（完成、出错或取消）时关闭游标，也就是 ResultSet 和 Statement，
+ * 如果会话是发布者自己开的，同时关闭会话，归还连接
+ *
+ * @param <T> 结果的类型
+ */
+public interface CursorPublisher<T> {
+
+  /**
+   * 订阅。查询在第一次 {@link CursorSubscription#request(long)} 时才执行，在调用 request 的线程上读取和发送结果
+   */
+  void subscribe(CursorSubscriber<? super T> subscriber);
+
+}
@@ -0,0 +1,33 @@
+package cn.javadog.sd.mybatis.cursor;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 23:40
+ *
+ * {@link CursorPublisher} 的订阅者，与 Flow.Subscriber 的语义一致
+ *
+ * @param <T> 结果的类型
+ */
+public interface CursorSubscriber<T> {
+
+  /**
+   * 订阅成功，之后通过 subscription 请求数据
+   */
+  void onSubscribe(CursorSubscription subscription);
+
+  /**
+   * 收到一行结果，总数不会超过请求的数量
+   */
+  void onNext(T item);
+
+  /**
+   * 出错，之后不会再有其他回调
+   */
+  void onError(Throwable throwable);
+
+  /**
+   * 结果读取完毕，之后不会再有其他回调
+   */
+  void onComplete();
+
+}
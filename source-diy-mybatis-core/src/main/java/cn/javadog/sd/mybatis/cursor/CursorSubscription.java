@@ -0,0 +1,21 @@
+package cn.javadog.sd.mybatis.cursor;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 23:40
+ *
+ * {@link CursorPublisher} 的订阅，与 Flow.Subscription 的语义一致，可以在任意线程调用
+ */
+public interface CursorSubscription {
+
+  /**
+   * 再请求 n 行结果，n 必须大于 0，Long.MAX_VALUE 代表不限制
+   */
+  void request(long n);
+
+  /**
+   * 取消订阅，关闭游标，之后可能还会收到少量已经在发送中的结果
+   */
+  void cancel();
+
+}
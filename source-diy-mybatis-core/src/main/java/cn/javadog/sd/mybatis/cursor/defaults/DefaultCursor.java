@@ -127,6 +127,20 @@ public class DefaultCursor<T> implements Cursor<T> {
     return rowBounds.getOffset() + cursorIterator.iteratorIndex;
   }
 
+  /**
+   * 设置 ResultSet 的 fetchSize，提示驱动之后每次从数据库取多少行。驱动不支持时忽略
+   */
+  public void setFetchSize(int fetchSize) {
+    try {
+      ResultSet rs = rsw.getResultSet();
+      if (rs != null && !rs.isClosed()) {
+        rs.setFetchSize(fetchSize);
+      }
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
   /**
    * 获取迭代器
    */
@@ -0,0 +1,292 @@
+package cn.javadog.sd.mybatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.cursor.CursorSubscriber;
+import cn.javadog.sd.mybatis.cursor.CursorSubscription;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.RowBounds;
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 23:50
+ *
+ * 默认的 CursorPublisher 实现，基于 SqlSession#selectCursor。
+ * 两种用法：
+ *    1. 使用调用方的会话，结束时只关闭游标，会话由调用方关闭，见 SqlSession#selectPublisher
+ *    2. 使用 SqlSessionFactory 自己开会话，结束时连同会话一起关闭，Mapper 方法返回 CursorPublisher 时就是这种
+ *
+ * 语句和 Configuration 都没有配置 fetchSize 时，按第一次请求的数量通过 RowBounds 设置 Statement 的 fetchSize，最多 {@link #MAX_FETCH_SIZE}，
+ * 驱动在执行语句时就按它取数据，不会先把所有行缓冲下来。之后每次请求的数量变了，再提示 ResultSet 调整之后每次取的行数
+ */
+public class DefaultCursorPublisher<T> implements CursorPublisher<T> {
+
+  /**
+   * 按请求数量设置 fetchSize 时的上限
+   */
+  public static final int MAX_FETCH_SIZE = 1000;
+
+  /**
+   * 调用方的会话，与 sqlSessionFactory 二选一
+   */
+  private final SqlSession sqlSession;
+
+  /**
+   * 用于自己开会话，与 sqlSession 二选一
+   */
+  private final SqlSessionFactory sqlSessionFactory;
+
+  private final String statement;
+
+  private final Object parameter;
+
+  private final RowBounds rowBounds;
+
+  /**
+   * 是否已经被订阅
+   */
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+
+  /**
+   * 使用调用方的会话
+   */
+  public DefaultCursorPublisher(SqlSession sqlSession, String statement, Object parameter, RowBounds rowBounds) {
+    this(sqlSession, null, statement, parameter, rowBounds);
+  }
+
+  /**
+   * 使用 SqlSessionFactory 自己开会话
+   */
+  public DefaultCursorPublisher(SqlSessionFactory sqlSessionFactory, String statement, Object parameter, RowBounds rowBounds) {
+    this(null, sqlSessionFactory, statement, parameter, rowBounds);
+  }
+
+  private DefaultCursorPublisher(SqlSession sqlSession, SqlSessionFactory sqlSessionFactory, String statement, Object parameter, RowBounds rowBounds) {
+    this.sqlSession = sqlSession;
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.statement = statement;
+    this.parameter = parameter;
+    this.rowBounds = rowBounds;
+  }
+
+  @Override
+  public void subscribe(CursorSubscriber<? super T> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    // 游标只能读一次
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new CursorSubscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("A CursorPublisher can only be subscribed once"));
+      return;
+    }
+    subscriber.onSubscribe(new PublisherSubscription(subscriber));
+  }
+
+  /**
+   * 订阅。request 和 cancel 可以在任意线程调用，通过 wip 保证同一时间只有一个线程在读游标、发送结果，
+   * 也就是说结果在调用 request 的线程上发送
+   */
+  private class PublisherSubscription implements CursorSubscription {
+
+    private final CursorSubscriber<? super T> subscriber;
+
+    /**
+     * 还没满足的请求数量
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * 排队的 drain 次数，不为 0 说明有线程在 drain
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    /**
+     * 请求的数量不合法时的异常，在 drain 中发送
+     */
+    private volatile Throwable invalidRequest;
+
+    /**
+     * 以下属性只在 drain 中访问
+     */
+    private SqlSession session;
+
+    private Cursor<T> cursor;
+
+    private Iterator<T> iterator;
+
+    /**
+     * 按请求数量设置的 fetchSize，0 代表没有按请求数量设置
+     */
+    private int fetchSize;
+
+    private boolean done;
+
+    PublisherSubscription(CursorSubscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalidRequest = new IllegalArgumentException("request(n) must be positive, but was " + n);
+      } else {
+        // 累加，溢出时按不限制处理
+        long current;
+        long next;
+        do {
+          current = requested.get();
+          if (current == Long.MAX_VALUE) {
+            break;
+          }
+          next = current + n;
+          if (next < 0) {
+            next = Long.MAX_VALUE;
+          }
+        } while (!requested.compareAndSet(current, next));
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      drain();
+    }
+
+    /**
+     * 按请求数量读取并发送结果
+     */
+    private void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      for (;;) {
+        if (done) {
+          return;
+        }
+        if (cancelled) {
+          terminate();
+          return;
+        }
+        Throwable error = invalidRequest;
+        if (error != null) {
+          terminate();
+          subscriber.onError(error);
+          return;
+        }
+        long r = requested.get();
+        long emitted = 0;
+        if (r > 0) {
+          try {
+            if (iterator == null) {
+              open(r);
+            } else {
+              adjustFetchSize(r);
+            }
+            while (emitted != r && !cancelled && iterator.hasNext()) {
+              T next = iterator.next();
+              emitted++;
+              subscriber.onNext(next);
+            }
+            if (!cancelled && !iterator.hasNext()) {
+              terminate();
+              subscriber.onComplete();
+              return;
+            }
+          } catch (RuntimeException e) {
+            terminate();
+            subscriber.onError(e);
+            return;
+          }
+          if (emitted != 0 && r != Long.MAX_VALUE) {
+            requested.addAndGet(-emitted);
+          }
+        }
+        missed = wip.addAndGet(-missed);
+        if (missed == 0) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * 执行查询，打开游标
+     */
+    private void open(long firstRequest) {
+      session = sqlSession != null ? sqlSession : sqlSessionFactory.openSession();
+      // 没有配置 fetchSize 时，按请求的数量设置，执行语句之前就设置到 Statement 上
+      Configuration configuration = session.getConfiguration();
+      MappedStatement ms = configuration.getMappedStatement(statement);
+      RowBounds bounds = rowBounds;
+      if (ms.getFetchSize() == null && configuration.getDefaultFetchSize() == null && rowBounds.getFetchSize() == null) {
+        fetchSize = fetchSizeOf(firstRequest);
+        bounds = new RowBounds(rowBounds.getOffset(), rowBounds.getLimit(), fetchSize);
+      }
+      cursor = session.selectCursor(statement, parameter, bounds);
+      iterator = cursor.iterator();
+    }
+
+    /**
+     * 请求的数量变了，提示 ResultSet 调整之后每次取的行数
+     */
+    private void adjustFetchSize(long request) {
+      int size = fetchSizeOf(request);
+      if (fetchSize != 0 && size != fetchSize && cursor instanceof DefaultCursor) {
+        fetchSize = size;
+        ((DefaultCursor<T>) cursor).setFetchSize(size);
+      }
+    }
+
+    /**
+     * 结束，关闭游标，自己开的会话一起关闭
+     */
+    private void terminate() {
+      if (done) {
+        return;
+      }
+      done = true;
+      try {
+        if (cursor != null) {
+          cursor.close();
+        }
+      } catch (Exception e) {
+        // ignore
+      } finally {
+        if (sqlSessionFactory != null && session != null) {
+          session.close();
+        }
+        cursor = null;
+        iterator = null;
+        session = null;
+      }
+    }
+  }
+
+  /**
+   * 按请求的数量计算 fetchSize
+   */
+  private static int fetchSizeOf(long request) {
+    return (int) Math.min(request, MAX_FETCH_SIZE);
+  }
+
+}
@@ -0,0 +1,339 @@
+package cn.javadog.sd.mybatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
+import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 00:30
+ *
+ * 分区查询的游标，见 {@link SqlSession#selectPartitioned}。
+ * 同一条语句按每一份分区参数各执行一次，每一份用自己的会话（也就是自己的连接），在 ForkJoinPool 上读取游标、映射结果，
+ * 结果放进有界的队列，由遍历游标的线程取出。
+ *
+ * 两种合并方式：
+ *    1. 有序：每一份开始执行时才创建自己的队列，容量为 bufferSize / parallelism，按分区的顺序依次读取。
+ *       同一时间最多 parallelism 份已经开始但还没读完，读完一份才开始下一份，后面的分区可以提前执行，直到自己的队列满。
+ *       bufferSize 小于 parallelism 时，parallelism 降为 bufferSize
+ *    2. 无序：共用一个容量为 bufferSize 的队列，同一时间最多执行 parallelism 份，一份执行完再开始下一份，哪一份先映射出来先返回
+ * 缓冲的结果总数不超过 bufferSize，队列满时映射线程通过 {@link ForkJoinPool.ManagedBlocker} 等待，不会占满线程池
+ *
+ * note 任意一份执行失败时，遍历到失败的位置会关闭游标并抛出异常；关闭游标会停止所有分区，关闭它们的会话
+ */
+public class PartitionedCursor<T> implements Cursor<T> {
+
+  /**
+   * 一份分区结束的标记
+   */
+  private static final Object END = new Object();
+
+  /**
+   * 队列满时，映射线程每次等待的时间，期间检查游标是否已经关闭
+   */
+  private static final long OFFER_WAIT_MILLIS = 100;
+
+  private final SqlSessionFactory sqlSessionFactory;
+
+  private final String statement;
+
+  /**
+   * 每一份的参数
+   */
+  private final List<?> partitions;
+
+  /**
+   * 同一时间最多执行的份数
+   */
+  private final int parallelism;
+
+  /**
+   * 是否按分区的顺序返回
+   */
+  private final boolean ordered;
+
+  private final ForkJoinPool pool;
+
+  /**
+   * 有序时每一份一个队列，开始执行时才创建，读完后释放；无序时只有一个
+   */
+  private final BlockingQueue<Object>[] queues;
+
+  /**
+   * 有序时每一份的队列容量
+   */
+  private final int partitionCapacity;
+
+  /**
+   * 下一份要开始执行的分区
+   */
+  private final AtomicInteger nextPartition = new AtomicInteger();
+
+  private volatile boolean closed;
+
+  /**
+   * 以下属性只在遍历的线程访问
+   */
+  private boolean iteratorRetrieved;
+
+  private boolean consumed;
+
+  /**
+   * 有序时正在读取的分区，无序时已经结束的份数
+   */
+  private int partitionIndex;
+
+  private final PartitionedIterator iterator = new PartitionedIterator();
+
+  @SuppressWarnings("unchecked")
+  public PartitionedCursor(SqlSessionFactory sqlSessionFactory, String statement, List<?> partitions, int parallelism,
+      boolean ordered, ForkJoinPool pool, int bufferSize) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.statement = statement;
+    this.partitions = partitions;
+    this.ordered = ordered;
+    this.pool = pool;
+    int bufferCapacity = Math.max(1, bufferSize);
+    if (ordered) {
+      // 同一时间最多 parallelism 个队列，每个分一部分缓冲
+      this.parallelism = Math.max(1, Math.min(parallelism, bufferCapacity));
+      this.partitionCapacity = bufferCapacity / this.parallelism;
+      this.queues = new BlockingQueue[partitions.size()];
+    } else {
+      this.parallelism = Math.max(1, parallelism);
+      this.partitionCapacity = 0;
+      this.queues = new BlockingQueue[] {new ArrayBlockingQueue<>(bufferCapacity)};
+    }
+  }
+
+  @Override
+  public boolean isOpen() {
+    return iteratorRetrieved && !closed && !consumed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return iterator.iteratorIndex;
+  }
+
+  /**
+   * 获取迭代器，这时才开始执行各个分区
+   */
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    for (int i = 0; i < parallelism; i++) {
+      startNextPartition();
+    }
+    return iterator;
+  }
+
+  /**
+   * 关闭游标，正在执行的分区在映射下一条结果前停止，还没开始的不再执行
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    // 释放缓冲，等待中的映射线程尽快退出
+    for (BlockingQueue<Object> queue : queues) {
+      if (queue != null) {
+        queue.clear();
+      }
+    }
+  }
+
+  /**
+   * 开始下一份分区。有序时由遍历的线程调用，同时创建它的队列
+   */
+  private void startNextPartition() {
+    final int index = nextPartition.getAndIncrement();
+    if (index < partitions.size() && !closed) {
+      if (ordered) {
+        queues[index] = new ArrayBlockingQueue<>(partitionCapacity);
+      }
+      pool.execute(() -> runPartition(index));
+    }
+  }
+
+  /**
+   * 执行一份分区，在 ForkJoinPool 上读取游标、映射结果
+   */
+  private void runPartition(int index) {
+    BlockingQueue<Object> queue = ordered ? queues[index] : queues[0];
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Cursor<Object> cursor = session.selectCursor(statement, partitions.get(index));
+      for (Object row : cursor) {
+        if (closed) {
+          break;
+        }
+        put(queue, row);
+      }
+    } catch (Throwable t) {
+      put(queue, new Failure(t));
+    } finally {
+      ErrorContext.instance().reset();
+      put(queue, END);
+      // 有序时读完一份才开始下一份，见 fetchNext
+      if (!ordered) {
+        startNextPartition();
+      }
+    }
+  }
+
+  /**
+   * 放入队列，队列满时等待，游标关闭时放弃
+   */
+  private void put(final BlockingQueue<Object> queue, final Object element) {
+    if (queue.offer(element)) {
+      return;
+    }
+    try {
+      ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+
+        private boolean done;
+
+        @Override
+        public boolean block() throws InterruptedException {
+          while (!done && !closed) {
+            done = queue.offer(element, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+          }
+          return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+          return done || closed || (done = queue.offer(element));
+        }
+      });
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 取下一条结果，没有更多时返回 null
+   */
+  @SuppressWarnings("unchecked")
+  private T fetchNext() {
+    while (!closed && partitionIndex < partitions.size()) {
+      Object element = take(ordered ? queues[partitionIndex] : queues[0]);
+      if (element == END) {
+        if (ordered) {
+          // 这一份读完了，释放它的队列，开始下一份
+          queues[partitionIndex] = null;
+          startNextPartition();
+        }
+        partitionIndex++;
+        continue;
+      }
+      if (element instanceof Failure) {
+        close();
+        Throwable cause = ((Failure) element).cause;
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw ExceptionUtil.wrapException("Error querying partition of " + statement + ".  Cause: " + cause, (Exception) cause);
+      }
+      return (T) element;
+    }
+    if (!closed) {
+      consumed = true;
+      close();
+    }
+    return null;
+  }
+
+  /**
+   * 从队列取出，被中断时关闭游标
+   */
+  private Object take(BlockingQueue<Object> queue) {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw ExceptionUtil.wrapException("Interrupted while waiting for partition results of " + statement + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 分区执行失败时放入队列的异常
+   */
+  private static class Failure {
+
+    private final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  /**
+   * 迭代器，与 DefaultCursor 的一致，结果不会是 null
+   */
+  private class PartitionedIterator implements Iterator<T> {
+
+    /**
+     * 预读的结果
+     */
+    T object;
+
+    /**
+     * 当前索引位置，从 -1 开始，拿到结果就 +1
+     */
+    int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (object == null) {
+        object = fetchNext();
+      }
+      return object != null;
+    }
+
+    @Override
+    public T next() {
+      T next = object;
+      if (next == null) {
+        next = fetchNext();
+      }
+      if (next != null) {
+        object = null;
+        iteratorIndex++;
+        return next;
+      }
+      throw new NoSuchElementException();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+
+}
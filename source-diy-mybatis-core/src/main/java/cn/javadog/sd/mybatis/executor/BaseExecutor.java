@@ -15,6 +15,8 @@ import cn.javadog.sd.mybatis.mapping.BoundSql;
 import cn.javadog.sd.mybatis.mapping.MappedStatement;
 import cn.javadog.sd.mybatis.mapping.ParameterMapping;
 import cn.javadog.sd.mybatis.mapping.ParameterMode;
+import cn.javadog.sd.mybatis.mapping.SqlSource;
+import cn.javadog.sd.mybatis.scripting.defaults.RawSqlSource;
 import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.session.LocalCacheScope;
 import cn.javadog.sd.mybatis.session.RowBounds;
@@ -283,15 +285,21 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    // 创建 CacheKey 对象
-    CacheKey cacheKey = new CacheKey();
+    // 获取 parameterMappings
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // 创建 CacheKey 对象，id、offset、limit、sql、environment 加上参数，一次分配好
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     // 设置 id、offset、limit、sql 到 CacheKey 对象中
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
-    cacheKey.update(boundSql.getSql());
-    // 获取 parameterMappings
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    SqlSource sqlSource = ms.getSqlSource();
+    if (sqlSource instanceof RawSqlSource && ((RawSqlSource) sqlSource).getSql() == boundSql.getSql()) {
+      // 静态 SQL，哈希在解析时就算好了。插件改写过的 SQL 不是同一个对象，照常计算
+      cacheKey.update(boundSql.getSql(), ((RawSqlSource) sqlSource).getSqlHash());
+    } else {
+      cacheKey.update(boundSql.getSql());
+    }
     // 获取 typeHandlerRegistry
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // 设置 ParameterMapping 数组的元素对应的每个 value 到 CacheKey 对象中
@@ -6,7 +6,11 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import cn.javadog.sd.mybatis.cursor.Cursor;
 import cn.javadog.sd.mybatis.executor.keygen.Jdbc3KeyGenerator;
@@ -15,9 +19,13 @@ import cn.javadog.sd.mybatis.executor.keygen.NoKeyGenerator;
 import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
 import cn.javadog.sd.mybatis.mapping.BoundSql;
 import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
+import cn.javadog.sd.mybatis.mapping.SqlCommandType;
 import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.session.RowBounds;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
 import cn.javadog.sd.mybatis.support.transaction.Transaction;
 
 /**
@@ -25,6 +33,17 @@ import cn.javadog.sd.mybatis.support.transaction.Transaction;
  * @date 2019-12-16 21:30
  * 支持批处理的 Executor 实现类。
  * 强烈建议看看：https://my.oschina.net/zudajun/blog/667214
+ *
+ * 一个刷入窗口内，每个 SQL + MappedStatement 保持一个打开的 Statement，交替执行的语句（比如先插父表再插子表）不会把批拆碎。
+ * 刷入时按 Statement 第一次出现的顺序执行，所以后来的行会提前到排在它后面的 Statement 之前执行，为了不破坏执行顺序的约束：
+ *    1. 只有 INSERT 可以越过后面的 Statement，并且越过的只能是同一张表的 INSERT，或者 batchInsertTableOrder 中排在它后面的表（子表）的 INSERT，
+ *       否则新开一个 Statement。比如先插了子表的行，再插父表，再插引用这个父表行的子表行，最后一行不会提前到父表之前
+ *    2. UPDATE、DELETE 等只能追加到最后一个 Statement，否则新开一个，与原来的行为一致，相当于一道顺序的屏障
+ * 自动刷入默认关闭，显式设置了 batchFlushSize 或 batchFlushBytes 后，窗口内累计的行数或估算的参数字节数达到上限时自动刷入，
+ * 每次刷入都会处理这一批的主键生成。设置了 BatchFlushListener 时，自动刷入的结果交给它，不再保留；
+ * 否则结果留到下次 flushStatements 一起返回，但其中的参数对象会被释放，导入大量数据时堆上只有一个窗口的参数对象。
+ * 没有开启自动刷入时，每个 BatchResult 的参数对象与影响行数一一对应，与原来的行为一致。
+ * 开启 batchInsertRewriteEnabled 后，单行的 INSERT ... VALUES (...) 改写成多行 VALUES 分块执行，见 {@link MultiRowInsert}
  */
 public class BatchExecutor extends BaseExecutor {
 
@@ -33,6 +52,21 @@ public class BatchExecutor extends BaseExecutor {
    */
   public static final int BATCH_UPDATE_RETURN_VALUE = Integer.MIN_VALUE + 1002;
 
+  /**
+   * 估算字节数时，每行固定的开销
+   */
+  private static final long ROW_OVERHEAD_BYTES = 16;
+
+  /**
+   * 估算字节数时，非字符串、非字节数组的参数值的大小
+   */
+  private static final long VALUE_BYTES = 8;
+
+  /**
+   * 解析 INSERT 的表名
+   */
+  private static final Pattern INSERT_TABLE = Pattern.compile("^\\s*insert\\s+into\\s+([^\\s(]+)", Pattern.CASE_INSENSITIVE);
+
   /**
    * Statement 数组
    */
@@ -46,14 +80,45 @@ public class BatchExecutor extends BaseExecutor {
   private final List<BatchResult> batchResultList = new ArrayList<>();
 
   /**
-   * 当前 SQL
+   * 改写成多行 VALUES 的 INSERT
+   *
+   * 每一个元素对应一个 {@link #statementList} 的元素，没有改写的是 null；改写了的，statementList 中对应的是 null，刷入时才创建 Statement
+   */
+  private final List<MultiRowInsert> multiRowInserts = new ArrayList<>();
+
+  /**
+   * INSERT 的表名
+   *
+   * 每一个元素对应一个 {@link #statementList} 的元素，非 INSERT 或者解析不出表名的是 null
+   */
+  private final List<String> insertTables = new ArrayList<>();
+
+  /**
+   * 可以继续追加的 Statement 在 {@link #statementList} 中的位置
+   *
+   * KEY：MappedStatement + SQL
+   */
+  private final Map<CacheKey, Integer> openStatements = new HashMap<>();
+
+  /**
+   * 最后一个非 INSERT 的 Statement 的位置，之前的 Statement 不能再被越过
+   */
+  private int lastBarrier = -1;
+
+  /**
+   * 当前窗口内累计的行数
    */
-  private String currentSql;
+  private int pendingRows;
 
   /**
-   * 当前 MappedStatement 对象
+   * 当前窗口内累计的估算字节数，只在设置了 batchFlushBytes 时累计
    */
-  private MappedStatement currentStatement;
+  private long pendingBytes;
+
+  /**
+   * 自动刷入的结果，下次 flushStatements 时一起返回
+   */
+  private final List<BatchResult> flushedResults = new ArrayList<>();
 
   /**
    * 构造函数
@@ -74,40 +139,164 @@ public class BatchExecutor extends BaseExecutor {
     // 本次执行的SQL
     final String sql = boundSql.getSql();
     final Statement stmt;
-    // 如果匹配最后一次 currentSql 和 currentStatement ，则聚合到 BatchResult 中。相当于重用 statement
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      // 获得最后一次的 Statement 对象
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      // 设置事务超时时间
-      applyTransactionTimeout(stmt);
-      // 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
-      handler.parameterize(stmt);
-      // 获得最后一次的 BatchResult 对象，并添加参数到其中
-      BatchResult batchResult = batchResultList.get(last);
+    final CacheKey key = new CacheKey(2);
+    key.update(ms);
+    key.update(sql);
+    final Integer index = openStatements.get(key);
+    // 如果有相同 SQL 和 MappedStatement 的 Statement，并且可以追加，则聚合到 BatchResult 中。相当于重用 statement
+    if (index != null && canAppend(ms, index, insertTables.get(index))) {
+      stmt = statementList.get(index);
+      MultiRowInsert multiRowInsert = multiRowInserts.get(index);
+      if (multiRowInsert != null) {
+        // 改写成多行 VALUES 的 INSERT，只缓存这一行
+        multiRowInsert.addRow(handler, parameterObject);
+      } else {
+        // 设置事务超时时间
+        applyTransactionTimeout(stmt);
+        // 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
+        handler.parameterize(stmt);
+      }
+      // 获得对应的 BatchResult 对象，并添加参数到其中
+      BatchResult batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     }
-    // 如果不匹配最后一次 currentSql 和 currentStatement ，则新建 BatchResult 对象
+    // 否则新建 Statement 和 BatchResult 对象
     else {
-      // 获得 Connection
-      Connection connection = getConnection(ms.getStatementLog());
-      // 创建 Statement 或 PrepareStatement 对象
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      // 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
-      handler.parameterize(stmt);
-      // 重新设置 currentSql 和 currentStatement
-      currentSql = sql;
-      currentStatement = ms;
+      // 开启了改写时，先尝试改写成多行 VALUES 的 INSERT，刷入时再创建 Statement
+      MultiRowInsert multiRowInsert = configuration.isBatchInsertRewriteEnabled()
+          ? MultiRowInsert.parse(ms, handler, configuration.getBatchInsertMaxParameters()) : null;
+      if (multiRowInsert != null) {
+        stmt = null;
+        multiRowInsert.addRow(handler, parameterObject);
+      } else {
+        // 获得 Connection
+        Connection connection = getConnection(ms.getStatementLog());
+        // 创建 Statement 或 PrepareStatement 对象
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        // 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
+        handler.parameterize(stmt);
+      }
+      // 记录可以追加的位置，非 INSERT 的 Statement 是一道屏障
+      openStatements.put(key, statementList.size());
+      if (ms.getSqlCommandType() != SqlCommandType.INSERT) {
+        lastBarrier = statementList.size();
+      }
       // 添加 Statement 到 statementList 中
       statementList.add(stmt);
+      multiRowInserts.add(multiRowInsert);
+      insertTables.add(ms.getSqlCommandType() == SqlCommandType.INSERT ? insertTableOf(sql) : null);
       // 创建 BatchResult 对象，并添加到 batchResultList 中
       batchResultList.add(new BatchResult(ms, sql, parameterObject));
     }
     // 批处理
-    handler.batch(stmt);
+    if (stmt != null) {
+      handler.batch(stmt);
+    }
+    // 累计的行数或估算的字节数达到上限，自动刷入
+    pendingRows++;
+    long batchFlushBytes = configuration.getBatchFlushBytes();
+    if (batchFlushBytes > 0) {
+      pendingBytes += estimateBytes(boundSql, parameterObject);
+    }
+    int batchFlushSize = configuration.getBatchFlushSize();
+    if (configuration.isBatchAutoFlushEnabled()
+        && ((batchFlushSize > 0 && pendingRows >= batchFlushSize) || (batchFlushBytes > 0 && pendingBytes >= batchFlushBytes))) {
+      autoFlushStatements();
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
+  /**
+   * 估算一行占用的字节数，只看参数值的大小，字符串按两个字节一个字符，其他按固定大小。
+   * 参数值的取法与 DefaultParameterHandler 一致
+   */
+  private long estimateBytes(BoundSql boundSql, Object parameterObject) {
+    long bytes = ROW_OVERHEAD_BYTES;
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      bytes += estimateBytes(value);
+    }
+    return bytes;
+  }
+
+  /**
+   * 估算一个参数值的字节数
+   */
+  private long estimateBytes(Object value) {
+    if (value == null) {
+      return 0;
+    } else if (value instanceof CharSequence) {
+      return 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return ((byte[]) value).length;
+    } else {
+      return VALUE_BYTES;
+    }
+  }
+
+  /**
+   * 判断能否追加到指定位置的 Statement。追加到最后一个总是可以的，
+   * 否则会越过后面的 Statement，只有 INSERT、后面没有屏障，并且越过的都是同一张表或者它的子表的 INSERT 时才可以
+   *
+   * @param table 指定位置的 Statement 的表名
+   */
+  private boolean canAppend(MappedStatement ms, int index, String table) {
+    if (index == statementList.size() - 1) {
+      return true;
+    }
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || lastBarrier > index || table == null) {
+      return false;
+    }
+    List<String> tableOrder = configuration.getBatchInsertTableOrder();
+    int rank = rankOf(tableOrder, table);
+    for (int i = index + 1, n = insertTables.size(); i < n; i++) {
+      String other = insertTables.get(i);
+      if (other == null) {
+        return false;
+      }
+      // 不是同一张表的话，只能越过排在它后面的表
+      if (!table.equalsIgnoreCase(other) && (rank < 0 || rankOf(tableOrder, other) <= rank)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 表在 batchInsertTableOrder 中的位置，没有的返回 -1
+   */
+  private static int rankOf(List<String> tableOrder, String table) {
+    for (int i = 0, n = tableOrder.size(); i < n; i++) {
+      if (tableOrder.get(i).equalsIgnoreCase(table)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 解析 INSERT 的表名，去掉引号，解析不出的返回 null
+   */
+  private static String insertTableOf(String sql) {
+    Matcher matcher = INSERT_TABLE.matcher(sql);
+    return matcher.find() ? matcher.group(1).replaceAll("[\"`\\[\\]]", "") : null;
+  }
+
   /**
    * 执行查询
    */
@@ -163,24 +352,66 @@ public class BatchExecutor extends BaseExecutor {
    */
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
+    // 如果 isRollback 为 true ，返回空数组
+    if (isRollback) {
+      flushedResults.clear();
+      clearStatements();
+      return Collections.emptyList();
+    }
+    // 先带上自动刷入的结果
+    List<BatchResult> results = new ArrayList<>(flushedResults);
+    flushedResults.clear();
+    executeStatements(results);
+    return results;
+  }
+
+  /**
+   * 自动刷入，只在显式开启了自动刷入时发生。有 BatchFlushListener 时结果交给它，不再保留；否则保留结果，但释放其中的参数对象
+   */
+  private void autoFlushStatements() throws SQLException {
+    List<BatchResult> results = new ArrayList<>();
     try {
-      // 如果 isRollback 为 true ，返回空数组
-      if (isRollback) {
-        return Collections.emptyList();
+      executeStatements(results);
+    } catch (BatchExecutorException e) {
+      flushedResults.clear();
+      throw e;
+    }
+    if (configuration.getBatchFlushListener() == null) {
+      // 调用方开启了自动刷入，才释放参数对象，否则参数对象要与影响行数一一对应
+      if (configuration.isBatchAutoFlushEnabled()) {
+        for (BatchResult batchResult : results) {
+          batchResult.releaseParameterObjects();
+        }
       }
+      flushedResults.addAll(results);
+    }
+  }
+
+  /**
+   * 逐个执行当前窗口的 Statement，结果添加到 results 中，并通知 BatchFlushListener
+   */
+  private void executeStatements(List<BatchResult> results) throws SQLException {
+    try {
       // 遍历 statementList 和 batchResultList 数组，逐个提交批处理
-      List<BatchResult> results = new ArrayList<>();
       for (int i = 0, n = statementList.size(); i < n; i++) {
         // 获得 Statement 对象
         Statement stmt = statementList.get(i);
-        // 设置事务超时
-        applyTransactionTimeout(stmt);
         // 拿到 BatchResult 对象
         BatchResult batchResult = batchResultList.get(i);
         try {
+          // 改写成多行 VALUES 的 INSERT，分块执行，每一块执行时已经处理了主键生成
+          MultiRowInsert multiRowInsert = multiRowInserts.get(i);
+          if (multiRowInsert != null) {
+            MappedStatement ms = batchResult.getMappedStatement();
+            batchResult.setUpdateCounts(multiRowInsert.execute(this, getConnection(ms.getStatementLog()), transaction.getTimeout()));
+            results.add(batchResult);
+            continue;
+          }
+          // 设置事务超时
+          applyTransactionTimeout(stmt);
           // 批量执行
           batchResult.setUpdateCounts(stmt.executeBatch());
-          // 处理主键生成
+          // 处理主键生成，每次刷入只处理这一批的参数对象
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
           KeyGenerator keyGenerator = ms.getKeyGenerator();
@@ -199,12 +430,12 @@ public class BatchExecutor extends BaseExecutor {
           StringBuilder message = new StringBuilder();
           message.append(batchResult.getMappedStatement().getId())
                   .append(" (batch index #")
-                  .append(i + 1)
+                  .append(results.size() + 1)
                   .append(")")
                   .append(" failed.");
-          if (i > 0) {
+          if (!results.isEmpty()) {
             message.append(" ")
-                    .append(i)
+                    .append(results.size())
                     .append(" prior sub executor(s) completed successfully, but will be rolled back.");
           }
           throw new BatchExecutorException(message.toString(), e, results, batchResult);
@@ -212,17 +443,33 @@ public class BatchExecutor extends BaseExecutor {
         // 添加到结果集
         results.add(batchResult);
       }
-      return results;
-    } finally {
-      // 关闭 Statement 们
-      for (Statement stmt : statementList) {
-        closeStatement(stmt);
+      // 通知监听器
+      BatchFlushListener listener = configuration.getBatchFlushListener();
+      if (listener != null && !batchResultList.isEmpty()) {
+        listener.onFlush(Collections.unmodifiableList(new ArrayList<>(batchResultList)));
       }
-      // 置空 currentSql、statementList、batchResultList 属性
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
+    } finally {
+      clearStatements();
+    }
+  }
+
+  /**
+   * 关闭并清空当前窗口的 Statement
+   */
+  private void clearStatements() {
+    // 关闭 Statement 们
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
     }
+    // 置空 statementList、batchResultList 等属性
+    statementList.clear();
+    batchResultList.clear();
+    multiRowInserts.clear();
+    insertTables.clear();
+    openStatements.clear();
+    lastBarrier = -1;
+    pendingRows = 0;
+    pendingBytes = 0;
   }
 
 }
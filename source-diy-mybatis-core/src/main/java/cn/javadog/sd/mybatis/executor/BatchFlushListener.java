@@ -0,0 +1,24 @@
+package cn.javadog.sd.mybatis.executor;
+
+import java.util.List;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 21:40
+ *
+ * BatchExecutor 刷入的监听器，通过 Configuration#setBatchFlushListener 设置。
+ * 每次刷入（包括自动刷入和 flushStatements）执行成功后回调，传入这一次刷入的结果。
+ * 设置之后，自动刷入的结果不再留在 BatchExecutor 中，导入大量数据时可以在这里流式地汇总影响行数
+ *
+ * note 回调时主键已经回填到参数对象上，回调返回后 BatchExecutor 不再持有这些参数对象
+ */
+public interface BatchFlushListener {
+
+  /**
+   * 刷入成功
+   *
+   * @param results 这一次刷入的结果，与 Statement 一一对应
+   */
+  void onFlush(List<BatchResult> results);
+
+}
@@ -32,6 +32,11 @@ public class BatchResult {
    */
   private final List<Object> parameterObjects;
 
+  /**
+   * 参数的个数，参数对象被释放后依然保留
+   */
+  private int parameterCount;
+
   /**
    * 更新数量集合
    *
@@ -105,6 +110,22 @@ public class BatchResult {
    */
   public void addParameterObject(Object parameterObject) {
     this.parameterObjects.add(parameterObject);
+    this.parameterCount++;
+  }
+
+  /**
+   * 拿到参数的个数
+   */
+  public int getParameterCount() {
+    return parameterCount;
+  }
+
+  /**
+   * 释放参数对象，显式开启了自动刷入时由 BatchExecutor 在自动刷入后调用，避免长时间的批处理把所有参数对象都留在堆上。
+   * 释放后 {@link #getParameterObjects()} 为空，参数的个数见 {@link #getParameterCount()}
+   */
+  public void releaseParameterObjects() {
+    this.parameterObjects.clear();
   }
 
 }
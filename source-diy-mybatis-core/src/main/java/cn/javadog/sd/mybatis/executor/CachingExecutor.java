@@ -7,6 +7,7 @@ import cn.javadog.sd.mybatis.cursor.Cursor;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.mapping.BoundSql;
 import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.session.RowBounds;
 import cn.javadog.sd.mybatis.support.cache.Cache;
 import cn.javadog.sd.mybatis.support.cache.CacheKey;
@@ -33,6 +34,11 @@ public class CachingExecutor implements Executor {
    */
   private final TransactionalCacheManager tcm = new TransactionalCacheManager();
 
+  /**
+   * 当前事务中是否执行过写操作，提交或回滚后重置。有未提交的写操作时不参与查询合并
+   */
+  private boolean pendingWrites;
+
   /**
    * 构造函数
    */
@@ -85,6 +91,8 @@ public class CachingExecutor implements Executor {
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
     // 如果需要清空缓存，则进行清空
     flushCacheIfRequired(ms);
+    // 标记执行过写操作
+    pendingWrites = true;
     // 执行 delegate 对应的方法
     return delegate.update(ms, parameterObject);
   }
@@ -131,7 +139,7 @@ public class CachingExecutor implements Executor {
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
           // 如果不存在，则从数据库中查询
-          list = delegate.query(ms, parameterObject, rowBounds, null, key, boundSql);
+          list = queryDatabase(ms, parameterObject, rowBounds, key, boundSql);
           // 缓存结果到二级缓存中，可以看看 issue #578 and #116。note 如果list是bull，就会造成缓存穿透
           tcm.putObject(cache, key, list);
         }
@@ -143,6 +151,35 @@ public class CachingExecutor implements Executor {
     return delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
   }
 
+  /**
+   * 二级缓存未命中，查询数据库。开启了 coalesceQueries 时，同一个 CacheKey 的并发查询只查一次库；
+   * 有未提交写操作的会话不参与合并，不管写的是不是这个 namespace：它查出来的可能是未提交的数据，不能给别的会话用，
+   * 别的会话的结果也看不到它自己的修改
+   */
+  private <E> List<E> queryDatabase(MappedStatement ms, Object parameterObject, RowBounds rowBounds, CacheKey key, BoundSql boundSql)
+      throws SQLException {
+    Configuration configuration = ms.getConfiguration();
+    if (configuration.isCoalesceQueries() && !hasUncommittedWrites()) {
+      return configuration.getQueryCoalescer().query(key, configuration.getCoalesceTimeout(),
+          () -> delegate.<E> query(ms, parameterObject, rowBounds, null, key, boundSql));
+    }
+    return delegate.query(ms, parameterObject, rowBounds, null, key, boundSql);
+  }
+
+  /**
+   * 是否有未提交的写操作，自动提交的连接上写操作已经提交了
+   */
+  private boolean hasUncommittedWrites() {
+    if (!pendingWrites) {
+      return false;
+    }
+    try {
+      return !delegate.getTransaction().getConnection().getAutoCommit();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
   /**
    * 批处理
    */
@@ -160,6 +197,7 @@ public class CachingExecutor implements Executor {
     delegate.commit(required);
     // 提交 TransactionalCacheManager
     tcm.commit();
+    pendingWrites = false;
   }
 
   /**
@@ -170,6 +208,7 @@ public class CachingExecutor implements Executor {
     try {
       // 执行 delegate 对应的方法
       delegate.rollback(required);
+      pendingWrites = false;
     } finally {
       if (required) {
         // 回滚 TransactionalCacheManager
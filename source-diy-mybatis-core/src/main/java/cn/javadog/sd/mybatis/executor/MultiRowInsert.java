@@ -0,0 +1,238 @@
+package cn.javadog.sd.mybatis.executor;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import cn.javadog.sd.mybatis.executor.keygen.Jdbc3KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.KeyGenerator;
+import cn.javadog.sd.mybatis.executor.keygen.NoKeyGenerator;
+import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
+import cn.javadog.sd.mybatis.mapping.ParameterMode;
+import cn.javadog.sd.mybatis.mapping.SqlCommandType;
+import cn.javadog.sd.mybatis.mapping.StatementType;
+import cn.javadog.sd.mybatis.scripting.defaults.DefaultParameterHandler;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.RowBounds;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 22:05
+ *
+ * BatchExecutor 中被改写成多行 VALUES 的 INSERT，给 BatchExecutor 用，通过 batchInsertRewriteEnabled setting 开启。
+ * 同一个 MappedStatement 和 SQL 的单行 INSERT INTO t (...) VALUES (...) 先缓存每一行的参数，
+ * 刷入时拼成 INSERT INTO t (...) VALUES (...),(...) 分块执行，每块的占位符个数不超过 batchInsertMaxParameters。
+ * 不少驱动的 JDBC 批处理其实是一行一次往返，改写之后一块只需要一次。
+ *
+ * 每一块通过 StatementHandler 创建和执行，参数对象是这一块的参数对象的 List，
+ * 所以 Jdbc3KeyGenerator 会按顺序把生成的主键回填到每一个参数对象上，与批处理时一致
+ *
+ * note 只改写能确定安全的语句：PREPARED 类型、没有 selectKey、参数都是 IN，SQL 只有一个 VALUES (...) 并且以它结尾，
+ * 表名和列名中没有占位符，参数由 DefaultParameterHandler 设置（没有拦截 ParameterHandler 的插件）。其他情况照常批处理
+ */
+final class MultiRowInsert {
+
+  /**
+   * INSERT INTO 表 (列) VALUES 的部分，不能有占位符
+   */
+  private static final Pattern INSERT_PREFIX = Pattern.compile("^\\s*insert\\s+into\\s+[^()?;]+?(\\([^()?;]*\\))?\\s*values\\s*",
+      Pattern.CASE_INSENSITIVE);
+
+  /**
+   * 一块最多的行数，不限制占位符个数时的上限
+   */
+  private static final int MAX_ROWS = 1000;
+
+  private final MappedStatement mappedStatement;
+
+  /**
+   * INSERT INTO 表 (列) VALUES 的部分
+   */
+  private final String prefix;
+
+  /**
+   * 一行的 (...) 部分
+   */
+  private final String row;
+
+  /**
+   * 一行的参数
+   */
+  private final List<ParameterMapping> rowParameterMappings;
+
+  /**
+   * 一块最多的行数
+   */
+  private final int maxRows;
+
+  /**
+   * 每一行的 ParameterHandler
+   */
+  private final List<DefaultParameterHandler> parameterHandlers = new ArrayList<>();
+
+  /**
+   * 每一行的参数对象
+   */
+  private final List<Object> parameterObjects = new ArrayList<>();
+
+  /**
+   * 满块的 SQL，第一次用到时拼接
+   */
+  private String fullChunkSql;
+
+  private MultiRowInsert(MappedStatement mappedStatement, String prefix, String row, List<ParameterMapping> rowParameterMappings,
+      int maxParameters) {
+    this.mappedStatement = mappedStatement;
+    this.prefix = prefix;
+    this.row = row;
+    this.rowParameterMappings = rowParameterMappings;
+    int parameterCount = rowParameterMappings.size();
+    this.maxRows = maxParameters > 0 && parameterCount > 0 ? Math.max(1, Math.min(MAX_ROWS, maxParameters / parameterCount)) : MAX_ROWS;
+  }
+
+  /**
+   * 尝试改写。不能改写时返回 null
+   *
+   * @param maxParameters 一块最多的占位符个数
+   */
+  static MultiRowInsert parse(MappedStatement ms, StatementHandler handler, int maxParameters) {
+    KeyGenerator keyGenerator = ms.getKeyGenerator();
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED
+        || (keyGenerator.getClass() != Jdbc3KeyGenerator.class && keyGenerator.getClass() != NoKeyGenerator.class)
+        || !(handler.getParameterHandler() instanceof DefaultParameterHandler)) {
+      return null;
+    }
+    BoundSql boundSql = handler.getBoundSql();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    for (ParameterMapping parameterMapping : parameterMappings) {
+      if (parameterMapping.getMode() != ParameterMode.IN) {
+        return null;
+      }
+    }
+    String sql = boundSql.getSql().trim();
+    Matcher matcher = INSERT_PREFIX.matcher(sql);
+    if (!matcher.lookingAt()) {
+      return null;
+    }
+    String row = sql.substring(matcher.end());
+    if (countPlaceholdersInSingleTuple(row) != parameterMappings.size()) {
+      return null;
+    }
+    return new MultiRowInsert(ms, sql.substring(0, matcher.end()), row, parameterMappings, maxParameters);
+  }
+
+  /**
+   * 检查是否是一个完整的 (...)，返回其中占位符的个数，不是时返回 -1。字符串和带引号的标识符中的字符不算
+   */
+  private static int countPlaceholdersInSingleTuple(String row) {
+    if (row.isEmpty() || row.charAt(0) != '(') {
+      return -1;
+    }
+    int depth = 0;
+    int placeholders = 0;
+    char quote = 0;
+    for (int i = 0; i < row.length(); i++) {
+      char c = row.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"' || c == '`') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        // 第一个 ( 闭合的位置必须是结尾，否则就是多行 VALUES 或者后面还有 ON DUPLICATE KEY 之类的子句
+        if (depth == 0 && i != row.length() - 1) {
+          return -1;
+        }
+      } else if (c == '?') {
+        placeholders++;
+      }
+    }
+    return depth == 0 && quote == 0 ? placeholders : -1;
+  }
+
+  /**
+   * 添加一行，handler 与改写时的 SQL 相同
+   */
+  void addRow(StatementHandler handler, Object parameterObject) {
+    parameterHandlers.add((DefaultParameterHandler) handler.getParameterHandler());
+    parameterObjects.add(parameterObject);
+  }
+
+  /**
+   * 分块执行，返回每一行的影响行数。驱动只返回一块的总数，总数与行数一致时每行记 1，否则记 {@link Statement#SUCCESS_NO_INFO}
+   *
+   * @throws BatchUpdateException 某一块执行失败时，其中的影响行数是已经执行的块的
+   */
+  int[] execute(Executor executor, Connection connection, Integer transactionTimeout) throws SQLException {
+    Configuration configuration = mappedStatement.getConfiguration();
+    int rows = parameterObjects.size();
+    int[] updateCounts = new int[rows];
+    int done = 0;
+    try {
+      while (done < rows) {
+        int chunkRows = Math.min(maxRows, rows - done);
+        List<Object> chunkParameters = new ArrayList<>(parameterObjects.subList(done, done + chunkRows));
+        List<ParameterMapping> chunkParameterMappings = new ArrayList<>(chunkRows * rowParameterMappings.size());
+        for (int i = 0; i < chunkRows; i++) {
+          chunkParameterMappings.addAll(rowParameterMappings);
+        }
+        BoundSql chunkBoundSql = new BoundSql(configuration, chunkSql(chunkRows), chunkParameterMappings, chunkParameters);
+        // 参数对象是这一块的 List，执行后 Jdbc3KeyGenerator 按顺序回填主键
+        StatementHandler handler = configuration.newStatementHandler(executor, mappedStatement, chunkParameters, RowBounds.DEFAULT, null, chunkBoundSql);
+        Statement stmt = handler.prepare(connection, transactionTimeout);
+        try {
+          for (int i = 0; i < chunkRows; i++) {
+            parameterHandlers.get(done + i).setParameters((PreparedStatement) stmt, i * rowParameterMappings.size());
+          }
+          int count = handler.update(stmt);
+          Arrays.fill(updateCounts, done, done + chunkRows, count == chunkRows ? 1 : Statement.SUCCESS_NO_INFO);
+        } finally {
+          stmt.close();
+        }
+        done += chunkRows;
+      }
+    } catch (BatchUpdateException e) {
+      throw e;
+    } catch (SQLException e) {
+      throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, done), e);
+    }
+    return updateCounts;
+  }
+
+  /**
+   * 拼接指定行数的 SQL
+   */
+  private String chunkSql(int chunkRows) {
+    if (chunkRows == maxRows && fullChunkSql != null) {
+      return fullChunkSql;
+    }
+    StringBuilder sql = new StringBuilder(prefix.length() + (row.length() + 1) * chunkRows);
+    sql.append(prefix);
+    for (int i = 0; i < chunkRows; i++) {
+      if (i > 0) {
+        sql.append(',');
+      }
+      sql.append(row);
+    }
+    if (chunkRows == maxRows) {
+      fullChunkSql = sql.toString();
+      return fullChunkSql;
+    }
+    return sql.toString();
+  }
+
+}
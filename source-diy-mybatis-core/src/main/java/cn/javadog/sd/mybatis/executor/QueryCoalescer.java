@@ -0,0 +1,188 @@
+package cn.javadog.sd.mybatis.executor;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.cache.impl.BinaryCodec;
+import cn.javadog.sd.mybatis.support.exceptions.CacheException;
+import cn.javadog.sd.mybatis.support.exceptions.ExecutorException;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 16:20
+ *
+ * 二级缓存未命中时的查询合并（single-flight），给 {@link CachingExecutor} 用。
+ * 同一个 CacheKey 同时有多个会话未命中时，只有第一个（带头的）去查库，其他的等它的结果。
+ * 与 BlockingCache 按 key 持有 ReentrantLock 相比：
+ *    1. 带头的查询不管成功失败，都会在 finally 中移除在途的查询，不会像 BlockingCache 那样在异常时漏掉释放锁
+ *    2. 等待有超时，超时或带头的查询失败时，等待的线程自己去查库，不会一直卡住
+ *
+ * 有人在等时，带头的线程在把结果返回给自己的调用方之前，用 {@link BinaryCodec} 编码一份，每个等待者各自解码，
+ * 拿到的是全新的对象，与带头的会话、其他等待者互不影响；结果不能编码（比如实体没有实现 Serializable）时，等待者自己去查库。
+ * 没人等时不编码，不影响单个查询的开销。
+ *
+ * 正在带头查询的线程不会再去等别人，否则两个线程的嵌套查询互相等待，只能靠超时解开
+ *
+ * note 整个 Configuration 共享一个实例，通过 coalesceQueries、coalesceTimeout 两个 setting 开启和配置；
+ * 只有没有未提交写操作的会话才会参与，见 CachingExecutor
+ */
+public class QueryCoalescer {
+
+  /**
+   * 当前线程正在带头的查询数
+   */
+  private static final ThreadLocal<int[]> LEADING = ThreadLocal.withInitial(() -> new int[1]);
+
+  /**
+   * 正在查询的 CacheKey 与在途查询的映射
+   */
+  private final ConcurrentHashMap<CacheKey, Flight> inFlight = new ConcurrentHashMap<>();
+
+  /**
+   * 直接用了带头查询结果的请求数
+   */
+  private final LongAdder collapsedCount = new LongAdder();
+
+  /**
+   * 等待超时、带头的查询失败或者结果不能编码，只好自己查库的请求数
+   */
+  private final LongAdder fallbackCount = new LongAdder();
+
+  /**
+   * 查询，同一个 key 同时只有一个线程执行 loader
+   *
+   * @param timeout 等待带头查询的超时时间，单位：毫秒
+   */
+  @SuppressWarnings("unchecked")
+  public <E> List<E> query(CacheKey key, long timeout, QueryLoader<E> loader) throws SQLException {
+    int[] leading = LEADING.get();
+    if (leading[0] > 0) {
+      return loader.load();
+    }
+    Flight flight = new Flight();
+    Flight existing = inFlight.putIfAbsent(key, flight);
+    if (existing == null) {
+      // 自己带头
+      leading[0]++;
+      try {
+        List<E> list = loader.load();
+        flight.publish(list);
+        return list;
+      } catch (SQLException | RuntimeException | Error e) {
+        flight.fail(e);
+        throw e;
+      } finally {
+        inFlight.remove(key, flight);
+        leading[0]--;
+      }
+    }
+    // 带头的查询已经结束，来不及等了
+    if (!existing.join()) {
+      return loader.load();
+    }
+    try {
+      byte[] bytes = existing.result.get(timeout, TimeUnit.MILLISECONDS);
+      List<E> list = (List<E>) BinaryCodec.decode(bytes);
+      collapsedCount.increment();
+      return list;
+    } catch (TimeoutException | ExecutionException | CacheException e) {
+      fallbackCount.increment();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while waiting for in-flight query of key " + key, e);
+    }
+    return loader.load();
+  }
+
+  /**
+   * 获取被合并的请求数
+   */
+  public long getCollapsedCount() {
+    return collapsedCount.sum();
+  }
+
+  /**
+   * 获取回退到自己查库的请求数
+   */
+  public long getFallbackCount() {
+    return fallbackCount.sum();
+  }
+
+  /**
+   * 获取正在查询的 key 的数量
+   */
+  public int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * 一次在途的查询
+   */
+  private static final class Flight {
+
+    /**
+     * 编码后的结果，只在有人等时才编码
+     */
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    /**
+     * 等待者的个数，-1 代表带头的查询已经结束，不能再加入
+     */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * 加入等待，带头的查询已经结束时返回 false
+     */
+    boolean join() {
+      for (;;) {
+        int n = waiters.get();
+        if (n < 0) {
+          return false;
+        }
+        if (waiters.compareAndSet(n, n + 1)) {
+          return true;
+        }
+      }
+    }
+
+    /**
+     * 带头的查询成功，有人在等时编码一份结果
+     */
+    void publish(List<?> list) {
+      if (waiters.getAndSet(-1) > 0) {
+        try {
+          result.complete(BinaryCodec.encode(list));
+        } catch (CacheException e) {
+          result.completeExceptionally(e);
+        }
+      }
+    }
+
+    /**
+     * 带头的查询失败
+     */
+    void fail(Throwable e) {
+      waiters.set(-1);
+      result.completeExceptionally(e);
+    }
+  }
+
+  /**
+   * 真正的查询
+   */
+  @FunctionalInterface
+  public interface QueryLoader<E> {
+
+    List<E> load() throws SQLException;
+
+  }
+
+}
@@ -4,9 +4,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import cn.javadog.sd.mybatis.cursor.Cursor;
 import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
@@ -15,7 +13,8 @@ import cn.javadog.sd.mybatis.mapping.MappedStatement;
 import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.session.RowBounds;
-import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.datasource.pooled.PooledDataSource;
+import cn.javadog.sd.mybatis.support.datasource.pooled.StatementCache;
 import cn.javadog.sd.mybatis.support.transaction.Transaction;
 
 /**
@@ -27,15 +26,17 @@ import cn.javadog.sd.mybatis.support.transaction.Transaction;
  * 执行完成后，不关闭该 Statement 对象。
  * 其它的，和 SimpleExecutor 是一致的。
  *
+ * 连接来自连接池时，Statement 缓存在真实连接的 {@link StatementCache} 上，会话结束后依然保留，同一个连接上的后续会话可以继续复用；
+ * 否则缓存在当前执行器中，提交、回滚、关闭时关闭。两种缓存都有上限，超出时关闭最久没用的 Statement
  */
 public class ReuseExecutor extends BaseExecutor {
 
   /**
-   * Statement 的缓存
+   * 连接不来自连接池时，执行器自己的 Statement 缓存
    *
-   * KEY ：SQL
+   * KEY ：MappedStatement 的编号 + SQL
    */
-  private final Map<String, Statement> statementMap = new HashMap<>();
+  private final StatementCache localStatementCache = new StatementCache(StatementCache.DEFAULT_SIZE);
 
   /**
    * 构造函数
@@ -53,7 +54,7 @@ public class ReuseExecutor extends BaseExecutor {
     // 创建 StatementHandler 对象
     StatementHandler handler = configuration.newStatementHandler(this, ms, parameter, RowBounds.DEFAULT, null, null);
     // 初始化 Statement 对象
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     // 执行 StatementHandler  ，进行写操作
     return handler.update(stmt);
   }
@@ -67,7 +68,7 @@ public class ReuseExecutor extends BaseExecutor {
     // 创建 StatementHandler 对象
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, resultHandler, boundSql);
     // 初始化 Statement 对象
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     // 执行 StatementHandler  ，进行读操作
     return handler.<E>query(stmt, resultHandler);
   }
@@ -81,7 +82,7 @@ public class ReuseExecutor extends BaseExecutor {
     // 创建 StatementHandler 对象
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
     // 初始化 Statement 对象
-    Statement stmt = prepareStatement(handler, ms.getStatementLog());
+    Statement stmt = prepareStatement(handler, ms);
     // 执行 StatementHandler  ，进行读操作
     return handler.<E>queryCursor(stmt);
   }
@@ -91,11 +92,8 @@ public class ReuseExecutor extends BaseExecutor {
    */
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
-    // 关闭缓存的 Statement 对象们
-    for (Statement stmt : statementMap.values()) {
-      closeStatement(stmt);
-    }
-    statementMap.clear();
+    // 关闭执行器自己缓存的 Statement 对象们，连接上的缓存跟随连接
+    localStatementCache.clear();
     // 返回空集合
     return Collections.emptyList();
   }
@@ -103,26 +101,27 @@ public class ReuseExecutor extends BaseExecutor {
   /**
    * 初始化Statement，与其它执行器不同的也在这里
    */
-  private Statement prepareStatement(StatementHandler handler, Log statementLog) throws SQLException {
+  private Statement prepareStatement(StatementHandler handler, MappedStatement ms) throws SQLException {
     Statement stmt;
     BoundSql boundSql = handler.getBoundSql();
-    // 拿到SQL
-    String sql = boundSql.getSql();
+    // 同一个 SQL 在不同的 MappedStatement 中创建 Statement 的方式可能不同，比如主键生成，所以 KEY 带上编号
+    String key = ms.getId() + "\n" + boundSql.getSql();
+    StatementCache statementCache = getStatementCache();
+    // 从缓存中获得 Statement 或 PrepareStatement 对象
+    stmt = statementCache.get(key);
     // 存在
-    if (hasStatementFor(sql)) {
-      // 从缓存中获得 Statement 或 PrepareStatement 对象
-      stmt = getStatement(sql);
+    if (stmt != null) {
       // 设置事务超时时间
       applyTransactionTimeout(stmt);
     }
     // 不存在
     else {
       // 获得 Connection 对象
-      Connection connection = getConnection(statementLog);
+      Connection connection = getConnection(ms.getStatementLog());
       // 创建 Statement 或 PrepareStatement 对象
       stmt = handler.prepare(connection, transaction.getTimeout());
-      // 添加到缓存中
-      putStatement(sql, stmt);
+      // 添加到缓存中，超出上限时会关闭最久没用的
+      statementCache.put(key, stmt);
     }
     // 设置 SQL 上的参数，例如 PrepareStatement 对象上的占位符
     handler.parameterize(stmt);
@@ -130,29 +129,11 @@ public class ReuseExecutor extends BaseExecutor {
   }
 
   /**
-   * 判断是否存在对应的 Statement 对象
-   */
-  private boolean hasStatementFor(String sql) {
-    try {
-      // 从 statementMap 拿指定key的 statement，并检验所属的连接没有关闭
-      return statementMap.keySet().contains(sql) && !statementMap.get(sql).getConnection().isClosed();
-    } catch (SQLException e) {
-      return false;
-    }
-  }
-
-  /**
-   * 获得 Statement 对象
-   */
-  private Statement getStatement(String s) {
-    return statementMap.get(s);
-  }
-
-  /**
-   * 添加 Statement 对象到缓存中
+   * 获得 Statement 缓存，优先使用连接上的
    */
-  private void putStatement(String sql, Statement stmt) {
-    statementMap.put(sql, stmt);
+  private StatementCache getStatementCache() throws SQLException {
+    StatementCache statementCache = PooledDataSource.getStatementCache(transaction.getConnection());
+    return statementCache != null && statementCache.getMaxSize() > 0 ? statementCache : localStatementCache;
   }
 
 }
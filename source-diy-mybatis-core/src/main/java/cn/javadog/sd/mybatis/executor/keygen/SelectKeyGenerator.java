@@ -44,6 +44,20 @@ public class SelectKeyGenerator implements KeyGenerator {
     this.keyStatement = keyStatement;
   }
 
+  /**
+   * 获取查询主键的 MappedStatement
+   */
+  public MappedStatement getKeyStatement() {
+    return keyStatement;
+  }
+
+  /**
+   * 是否在 before 阶段执行
+   */
+  public boolean isExecuteBefore() {
+    return executeBefore;
+  }
+
   /**
    * SQL 执行前
    */
@@ -0,0 +1,240 @@
+package cn.javadog.sd.mybatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.executor.ResultExtractor;
+import cn.javadog.sd.mybatis.mapping.FetchType;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ResultMap;
+import cn.javadog.sd.mybatis.mapping.ResultMapping;
+import cn.javadog.sd.mybatis.session.AutoMappingBehavior;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.exceptions.ExecutorException;
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaClass;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 20:10
+ *
+ * 批量加载的分组，见 {@link FetchType#BATCH}。
+ * 一次查询的结果中，同一个 ResultMapping 的所有行共用一个分组：每行登记自己的关联键，拿到一个 {@link BatchResultLoader}，
+ * 任意一行加载时，连同它之后还没加载的键凑够 batchSize 个，执行一次嵌套查询，结果按 foreignColumn 对应的属性分回各个键，
+ * 其他行再加载时直接取分好的结果。
+ *
+ * 嵌套查询的参数与 SqlSession 传入 List 时一致，是包含 list 和 collection 两个 key 的 Map，
+ * 所以语句里用 <foreach collection="list" ...> 拼出 IN (...) 即可
+ *
+ * 延迟加载的批量化也用它，见 {@link #forLazyLoad(Configuration, ResultMapping, MappedStatement, int)}：
+ * 嵌套查询还是按单个键查询，批量查询由 {@link BatchSqlSource} 推导，每行的加载器依然是原来的嵌套查询和参数，
+ * 只是加载时交给分组，与同一结果集中其他对象还没加载的键合并成一次查询
+ *
+ * note 延迟加载时可能在其他线程触发，加载的方法加了锁
+ */
+public class BatchFetchGroup {
+
+  /**
+   * 全局配置
+   */
+  private final Configuration configuration;
+
+  /**
+   * 嵌套查询，每行的加载器记录的语句
+   */
+  private final MappedStatement mappedStatement;
+
+  /**
+   * 一批键执行的查询，参数是包含 list 的 Map。显式的批量加载就是嵌套查询本身
+   */
+  private final MappedStatement batchStatement;
+
+  /**
+   * 每行的加载器的参数是否包装成 list 参数，延迟加载的批量化时是原来的关联键
+   */
+  private final boolean wrapRowKey;
+
+  /**
+   * 属性的类型
+   */
+  private final Class<?> targetType;
+
+  /**
+   * 每批最多的关联键个数
+   */
+  private final int batchSize;
+
+  /**
+   * 嵌套查询的结果中，与 foreignColumn 对应的属性
+   */
+  private final String foreignProperty;
+
+  /**
+   * 解析结果
+   */
+  private final ResultExtractor resultExtractor;
+
+  /**
+   * 还没加载的关联键，按登记的顺序
+   *
+   * KEY：归一化后的键，见 {@link #normalize(Object)}
+   * VALUE：原始的键，作为查询的参数
+   */
+  private final Map<Object, Object> pendingKeys = new LinkedHashMap<>();
+
+  /**
+   * 已经加载的关联键和对应的结果
+   */
+  private final Map<Object, List<Object>> loadedResults = new HashMap<>();
+
+  public BatchFetchGroup(Configuration configuration, ResultMapping resultMapping) {
+    this(configuration, configuration.getMappedStatement(resultMapping.getNestedQueryId()), null, resultMapping.getJavaType(),
+        resultMapping.getBatchSize(), resultMapping.getForeignColumn());
+  }
+
+  private BatchFetchGroup(Configuration configuration, MappedStatement mappedStatement, MappedStatement batchStatement,
+      Class<?> targetType, int batchSize, String foreignColumn) {
+    this.configuration = configuration;
+    this.mappedStatement = mappedStatement;
+    this.batchStatement = batchStatement != null ? batchStatement : mappedStatement;
+    this.wrapRowKey = batchStatement == null;
+    this.targetType = targetType;
+    this.batchSize = batchSize;
+    String property = resolveForeignProperty(this.batchStatement, foreignColumn, configuration);
+    if (property == null) {
+      throw new ExecutorException("Cannot batch fetch with '" + mappedStatement.getId() + "'. No property of "
+          + mappedStatement.getResultMap().getType().getName() + " is mapped from the foreign column '" + foreignColumn + "'.");
+    }
+    this.foreignProperty = property;
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+  }
+
+  /**
+   * 创建延迟加载批量化的分组。嵌套查询不能推导出批量查询，或者结果中找不到关联键对应的属性时返回 null，依然逐个加载
+   *
+   * @param nestedQuery 按单个关联键查询的嵌套查询
+   * @param batchSize 每批最多的关联键个数
+   */
+  public static BatchFetchGroup forLazyLoad(Configuration configuration, ResultMapping resultMapping, MappedStatement nestedQuery, int batchSize) {
+    MappedStatement batchStatement = configuration.getLazyBatchStatement(nestedQuery);
+    if (batchStatement == null) {
+      return null;
+    }
+    String keyColumn = BatchSqlSource.keyColumnOf(batchStatement);
+    if (resolveForeignProperty(batchStatement, keyColumn, configuration) == null) {
+      return null;
+    }
+    return new BatchFetchGroup(configuration, nestedQuery, batchStatement, resultMapping.getJavaType(), batchSize, keyColumn);
+  }
+
+  /**
+   * 登记一行的关联键，返回这一行的加载器
+   */
+  public synchronized ResultLoader addKey(Executor executor, Object key) {
+    Object normalizedKey = normalize(key);
+    if (!loadedResults.containsKey(normalizedKey)) {
+      pendingKeys.put(normalizedKey, key);
+    }
+    Object rowParameter = wrapRowKey ? wrapKeys(Collections.singletonList(key)) : key;
+    return new BatchResultLoader(configuration, executor, mappedStatement, rowParameter, targetType, this, normalizedKey);
+  }
+
+  /**
+   * 加载指定行的结果，这一行所在的批还没加载时，执行一次嵌套查询
+   */
+  synchronized Object load(BatchResultLoader loader, Object normalizedKey) throws SQLException {
+    List<Object> results = loadedResults.get(normalizedKey);
+    if (results == null) {
+      // 当前键，加上之后还没加载的键，凑够一批
+      List<Object> batchKeys = new ArrayList<>();
+      Map<Object, List<Object>> batch = new HashMap<>();
+      Object key = pendingKeys.remove(normalizedKey);
+      batchKeys.add(key);
+      batch.put(normalizedKey, new ArrayList<>());
+      Iterator<Map.Entry<Object, Object>> iterator = pendingKeys.entrySet().iterator();
+      while (batchKeys.size() < batchSize && iterator.hasNext()) {
+        Map.Entry<Object, Object> entry = iterator.next();
+        batchKeys.add(entry.getValue());
+        batch.put(entry.getKey(), new ArrayList<>());
+        iterator.remove();
+      }
+      // 查询，按关联属性分回各个键
+      List<Object> rows = loader.selectList(batchStatement, wrapKeys(batchKeys));
+      for (Object row : rows) {
+        if (row != null) {
+          List<Object> keyResults = batch.get(normalize(configuration.newMetaObject(row).getValue(foreignProperty)));
+          if (keyResults != null) {
+            keyResults.add(row);
+          }
+        }
+      }
+      loadedResults.putAll(batch);
+      results = batch.get(normalizedKey);
+    }
+    return resultExtractor.extractObjectFromList(results, targetType);
+  }
+
+  /**
+   * 获取还没加载的关联键的个数
+   */
+  public synchronized int getPendingKeyCount() {
+    return pendingKeys.size();
+  }
+
+  /**
+   * 包装成嵌套查询的参数
+   */
+  private Object wrapKeys(List<Object> keys) {
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("collection", keys);
+    parameter.put("list", keys);
+    return parameter;
+  }
+
+  /**
+   * 获得 foreignColumn 对应的属性，找不到时返回 null。先找查询的 resultMap 中明确配置的列，
+   * 再按自动映射的规则找，resultMap 不会自动映射时找不到
+   */
+  private static String resolveForeignProperty(MappedStatement statement, String foreignColumn, Configuration configuration) {
+    ResultMap resultMap = statement.getResultMap();
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      if (foreignColumn.equalsIgnoreCase(resultMapping.getColumn()) && resultMapping.getProperty() != null) {
+        return resultMapping.getProperty();
+      }
+    }
+    // 与 DefaultResultSetHandler#shouldApplyAutomaticMappings 一致，嵌套查询的结果是顶层的映射
+    boolean autoMapping = resultMap.getAutoMapping() != null
+        ? resultMap.getAutoMapping() : configuration.getAutoMappingBehavior() != AutoMappingBehavior.NONE;
+    if (!autoMapping) {
+      return null;
+    }
+    return MetaClass.forClass(resultMap.getType(), configuration.getReflectorFactory())
+        .findProperty(foreignColumn, configuration.isMapUnderscoreToCamelCase());
+  }
+
+  /**
+   * 归一化关联键。父行的列与子对象的属性类型可能不同，比如 Integer 和 Long，整数统一转成 Long 再比较
+   */
+  private static Object normalize(Object key) {
+    if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+      return ((Number) key).longValue();
+    }
+    if (key instanceof BigInteger || key instanceof BigDecimal) {
+      try {
+        return new BigDecimal(key.toString()).longValueExact();
+      } catch (ArithmeticException e) {
+        return key;
+      }
+    }
+    return key;
+  }
+
+}
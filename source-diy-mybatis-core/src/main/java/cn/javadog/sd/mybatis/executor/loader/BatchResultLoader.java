@@ -0,0 +1,44 @@
+package cn.javadog.sd.mybatis.executor.loader;
+
+import java.sql.SQLException;
+
+import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.session.Configuration;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 20:25
+ *
+ * 批量加载中一行的结果加载器，由 {@link BatchFetchGroup#addKey(Executor, Object)} 创建。
+ * 加载时交给所在的分组，分组用它的执行器查询整批。
+ *
+ * note 参数对象是只包含这一行关联键的 list 参数，与嵌套查询接收的参数形式一致，LoadPair 记录的就是它；
+ *  延迟加载的批量化时是原来的关联键，反序列化后依然可以用原来的嵌套查询逐个加载
+ */
+public class BatchResultLoader extends ResultLoader {
+
+  /**
+   * 所在的分组
+   */
+  private final BatchFetchGroup group;
+
+  /**
+   * 归一化后的关联键
+   */
+  private final Object key;
+
+  BatchResultLoader(Configuration config, Executor executor, MappedStatement mappedStatement, Object parameterObject,
+      Class<?> targetType, BatchFetchGroup group, Object key) {
+    super(config, executor, mappedStatement, parameterObject, targetType, null, null);
+    this.group = group;
+    this.key = key;
+  }
+
+  @Override
+  public Object loadResult() throws SQLException {
+    resultObject = group.load(this, key);
+    return resultObject;
+  }
+
+}
@@ -0,0 +1,289 @@
+package cn.javadog.sd.mybatis.executor.loader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
+import cn.javadog.sd.mybatis.mapping.ParameterMode;
+import cn.javadog.sd.mybatis.mapping.SqlCommandType;
+import cn.javadog.sd.mybatis.mapping.SqlSource;
+import cn.javadog.sd.mybatis.mapping.StatementType;
+import cn.javadog.sd.mybatis.scripting.defaults.RawSqlSource;
+import cn.javadog.sd.mybatis.session.Configuration;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 03:00
+ *
+ * 由按单个关联键查询的嵌套查询推导出的批量查询，给延迟加载的批量化用，见 {@link Configuration#getLazyLoadBatchSize()}。
+ * 嵌套查询形如 select ... where [其他条件 and] col = #{id}，把末尾的 col = ? 换成 col IN (?, ?, ...)，
+ * 参数与 {@link BatchFetchGroup} 一致，是包含 list 的 Map，每个键对应一个占位符。
+ *
+ * 改写靠正则识别 SQL 的形状，不是完整的 SQL 解析，只处理能确定改写后语义不变的情况，其余的返回 null，依然逐个加载：
+ *    1. 静态 SQL，也就是 {@link RawSqlSource}，预编译的 select 语句
+ *    2. 只有一个入参占位符，并且在 SQL 末尾，紧跟在 where 或 and 后面
+ *    3. SQL 中没有 or，避免 and 的优先级改变条件的含义
+ *    4. 关联键的列属于主表（from 后的第一张表），并且在 select 的列中，结果才能按它分回各个键。
+ *       比如 select p.* from post p join blog b on p.blog_id = b.id where b.id = ?，b.id 不在结果中，不能批量化
+ *
+ * 支持的形状，关联键可以不带限定名，也可以用主表的表名或别名限定：
+ *    select * from post where blog_id = ?
+ *    select id, subject, blog_id from post where draft = 0 and blog_id = ?
+ *    select p.* from post p join author a on p.author_id = a.id where p.blog_id = ?
+ * 不支持的形状，逐个加载：
+ *    末尾还有其他子句：select * from post where blog_id = ? order by id
+ *    条件带括号：select * from post where (blog_id = ?)、select * from post where draft = 0 and (blog_id = ?)
+ *    关联键带 schema 的限定名：select * from app.post where app.post.blog_id = ?
+ *    条件中有 or：select * from post where draft = 1 or blog_id = ?
+ * 推导的结果由 {@link Configuration#getLazyBatchStatement(MappedStatement)} 按嵌套查询缓存
+ */
+public class BatchSqlSource implements SqlSource {
+
+  /**
+   * 末尾的 [where|and] col = ?，第一组是 col 之前的部分，第二组是列，可以带表别名
+   */
+  private static final Pattern TRAILING_KEY_CONDITION = Pattern.compile(
+      "^(.*\\b(?:where|and)\\s+)((?:\\w+\\.)?\\w+)\\s*=\\s*\\?\\s*$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  /**
+   * 条件中的 or
+   */
+  private static final Pattern OR = Pattern.compile("\\bor\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * select 的列和 from 之后的部分
+   */
+  private static final Pattern SELECT_FROM = Pattern.compile(
+      "^\\s*select\\s+(?:distinct\\s+)?(.*?)\\s+from\\s+(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  /**
+   * 主表和别名
+   */
+  private static final Pattern PRIMARY_TABLE = Pattern.compile("^([\\w.]+)(?:\\s+(?:as\\s+)?(\\w+))?", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * 单个的列，可以带表别名和列别名
+   */
+  private static final Pattern SELECT_COLUMN = Pattern.compile("^(?:(\\w+)\\.)?(\\w+|\\*)(?:\\s+(?:as\\s+)?(\\w+))?$", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * from 子句结束的位置
+   */
+  private static final Pattern FROM_END = Pattern.compile("\\b(?:where|group|order)\\b", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * 多表
+   */
+  private static final Pattern JOIN = Pattern.compile("\\bjoin\\b|,", Pattern.CASE_INSENSITIVE);
+
+  /**
+   * 紧跟在主表后面，不是别名的关键字
+   */
+  private static final Set<String> NOT_ALIASES = new HashSet<>(Arrays.asList(
+      "where", "join", "inner", "left", "right", "full", "cross", "natural", "on", "group", "order", "limit", "union"));
+
+  /**
+   * 批量查询的 id 后缀
+   */
+  private static final String ID_SUFFIX = "!lazyBatch";
+
+  /**
+   * 每个键对应的附加参数的前缀
+   */
+  private static final String KEY_PREFIX = "__lazy_batch_";
+
+  private final Configuration configuration;
+
+  /**
+   * IN 之前的部分，包括列
+   */
+  private final String prefix;
+
+  /**
+   * 关联键在结果中的列名
+   */
+  private final String column;
+
+  /**
+   * 原来的关联键占位符
+   */
+  private final ParameterMapping keyMapping;
+
+  private BatchSqlSource(Configuration configuration, String prefix, String column, ParameterMapping keyMapping) {
+    this.configuration = configuration;
+    this.prefix = prefix;
+    this.column = column;
+    this.keyMapping = keyMapping;
+  }
+
+  /**
+   * 由嵌套查询推导出批量查询，不能推导时返回 null。一般通过 {@link Configuration#getLazyBatchStatement(MappedStatement)} 获取，只推导一次
+   */
+  public static MappedStatement batchStatementOf(MappedStatement nestedQuery) {
+    if (nestedQuery.getSqlCommandType() != SqlCommandType.SELECT
+        || nestedQuery.getStatementType() != StatementType.PREPARED
+        || !(nestedQuery.getSqlSource() instanceof RawSqlSource)) {
+      return null;
+    }
+    BoundSql boundSql = nestedQuery.getSqlSource().getBoundSql(null);
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    if (parameterMappings.size() != 1 || parameterMappings.get(0).getMode() != ParameterMode.IN) {
+      return null;
+    }
+    String sql = boundSql.getSql();
+    Matcher matcher = TRAILING_KEY_CONDITION.matcher(sql);
+    if (OR.matcher(sql).find() || !matcher.matches()) {
+      return null;
+    }
+    String qualifiedColumn = matcher.group(2);
+    String column = resultColumnOf(sql, qualifiedColumn);
+    if (column == null) {
+      return null;
+    }
+    Configuration configuration = nestedQuery.getConfiguration();
+    BatchSqlSource sqlSource = new BatchSqlSource(configuration, matcher.group(1) + qualifiedColumn, column, parameterMappings.get(0));
+    return new MappedStatement.Builder(configuration, nestedQuery.getId() + ID_SUFFIX, sqlSource, SqlCommandType.SELECT)
+        .resource(nestedQuery.getResource())
+        .parameterMap(nestedQuery.getParameterMap())
+        .resultMap(nestedQuery.getResultMap())
+        .fetchSize(nestedQuery.getFetchSize())
+        .timeout(nestedQuery.getTimeout())
+        .resultSetType(nestedQuery.getResultSetType())
+        .cache(nestedQuery.getCache())
+        .useCache(nestedQuery.isUseCache())
+        .resultOrdered(nestedQuery.isResultOrdered())
+        .lang(nestedQuery.getLang())
+        .build();
+  }
+
+  /**
+   * 获得关联键在结果中的列名，关联键不属于主表或者不在 select 的列中时返回 null
+   *
+   * @param qualifiedColumn 条件中的关联键，可以带表别名
+   */
+  private static String resultColumnOf(String sql, String qualifiedColumn) {
+    Matcher selectFrom = SELECT_FROM.matcher(sql);
+    if (!selectFrom.matches()) {
+      return null;
+    }
+    String from = selectFrom.group(2);
+    Matcher fromEnd = FROM_END.matcher(from);
+    String tables = fromEnd.find() ? from.substring(0, fromEnd.start()) : from;
+    Matcher primary = PRIMARY_TABLE.matcher(tables.trim());
+    if (!primary.lookingAt()) {
+      return null;
+    }
+    String table = primary.group(1);
+    String alias = primary.group(2) != null && !NOT_ALIASES.contains(primary.group(2).toLowerCase(Locale.ENGLISH)) ? primary.group(2) : null;
+    boolean multiTable = JOIN.matcher(tables).find();
+    // 关联键要属于主表，多表时要带上主表的别名
+    int dot = qualifiedColumn.lastIndexOf('.');
+    String keyQualifier = dot < 0 ? null : qualifiedColumn.substring(0, dot);
+    String keyColumn = qualifiedColumn.substring(dot + 1);
+    if (keyQualifier == null ? multiTable : !isPrimary(keyQualifier, table, alias)) {
+      return null;
+    }
+    // 在 select 的列中找关联键，其他表的 * 可能包含同名的列，不能确定
+    String resultColumn = null;
+    for (String item : splitColumns(selectFrom.group(1))) {
+      Matcher column = SELECT_COLUMN.matcher(item);
+      if (!column.matches()) {
+        continue;
+      }
+      String qualifier = column.group(1);
+      boolean fromPrimary = qualifier == null ? !multiTable : isPrimary(qualifier, table, alias);
+      if ("*".equals(column.group(2))) {
+        if (!fromPrimary || column.group(3) != null) {
+          return null;
+        }
+        if (resultColumn == null) {
+          resultColumn = keyColumn;
+        }
+      } else if (fromPrimary && keyColumn.equalsIgnoreCase(column.group(2)) && resultColumn == null) {
+        resultColumn = column.group(3) != null ? column.group(3) : column.group(2);
+      }
+    }
+    return resultColumn;
+  }
+
+  /**
+   * 限定名是否是主表
+   */
+  private static boolean isPrimary(String qualifier, String table, String alias) {
+    if (alias != null) {
+      return qualifier.equalsIgnoreCase(alias);
+    }
+    return qualifier.equalsIgnoreCase(table) || qualifier.equalsIgnoreCase(table.substring(table.lastIndexOf('.') + 1));
+  }
+
+  /**
+   * 按顶层的逗号拆分 select 的列，括号不配对时返回空
+   */
+  private static List<String> splitColumns(String columns) {
+    List<String> items = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < columns.length(); i++) {
+      char c = columns.charAt(i);
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        items.add(columns.substring(start, i).trim());
+        start = i + 1;
+      }
+    }
+    if (depth != 0) {
+      return Collections.emptyList();
+    }
+    items.add(columns.substring(start).trim());
+    return items;
+  }
+
+  /**
+   * 获取关联键在结果中的列名，批量查询的结果按它对应的属性分回各个键
+   */
+  public static String keyColumnOf(MappedStatement batchStatement) {
+    return ((BatchSqlSource) batchStatement.getSqlSource()).column;
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    List<?> keys = (List<?>) ((Map<?, ?>) parameterObject).get("list");
+    StringBuilder sql = new StringBuilder(prefix.length() + 6 + keys.size() * 3).append(prefix).append(" IN (");
+    List<ParameterMapping> parameterMappings = new ArrayList<>(keys.size());
+    for (int i = 0; i < keys.size(); i++) {
+      if (i > 0) {
+        sql.append(", ");
+      }
+      sql.append('?');
+      parameterMappings.add(new ParameterMapping.Builder(configuration, KEY_PREFIX + i, keyMapping.getTypeHandler())
+          .javaType(keyMapping.getJavaType())
+          .jdbcType(keyMapping.getJdbcType())
+          .build());
+    }
+    sql.append(')');
+    BoundSql boundSql = new BoundSql(configuration, sql.toString(), parameterMappings, parameterObject);
+    for (int i = 0; i < keys.size(); i++) {
+      boundSql.setAdditionalParameter(KEY_PREFIX + i, keys.get(i));
+    }
+    return boundSql;
+  }
+
+  @Override
+  public String toString() {
+    return prefix + " IN (...)";
+  }
+
+}
@@ -0,0 +1,258 @@
+package cn.javadog.sd.mybatis.executor.loader;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import cn.javadog.sd.mybatis.support.exceptions.ExecutorException;
+import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 02:00
+ *
+ * 延迟加载代理类的缓存，由 JavassistProxyFactory、CglibProxyFactory 使用。
+ * 每个结果类型只生成一次代理类，构造方法按参数类型解析一次，复制属性用的字段也只解析一次，
+ * 之后每一行结果只是调用缓存的构造方法，再设置方法处理器。
+ * 代理类实现的接口由结果类型决定：没有自己定义 writeReplace 方法时实现 {@link WriteReplaceInterface}
+ *
+ * note 代理类和结果类型的生命周期相同，这里用强引用，结果类型所在的 ClassLoader 卸载时需要 {@link #clear()}
+ */
+public class ProxyClassCache {
+
+  private static final Log log = LogFactory.getLog(ProxyClassCache.class);
+
+  /**
+   * 序列化时触发的方法
+   */
+  private static final String WRITE_REPLACE_METHOD = "writeReplace";
+
+  /**
+   * 代理类的生成器，由具体的字节码工具实现
+   */
+  public interface ProxyClassGenerator {
+
+    /**
+     * 生成代理类
+     *
+     * @param type 结果类型，也就是代理类的父类
+     * @param interfaces 代理类额外实现的接口
+     */
+    Class<?> generate(Class<?> type, Class<?>[] interfaces) throws Exception;
+  }
+
+  private final ProxyClassGenerator generator;
+
+  /**
+   * 结果类型对应的代理类
+   */
+  private final ConcurrentMap<Class<?>, Class<?>> proxyClasses = new ConcurrentHashMap<>();
+
+  /**
+   * 代理类的无参构造方法，最常见的情况单独缓存，不用每次创建 key
+   */
+  private final ConcurrentMap<Class<?>, Constructor<?>> defaultConstructors = new ConcurrentHashMap<>();
+
+  /**
+   * 代理类的有参构造方法
+   */
+  private final ConcurrentMap<ConstructorKey, Constructor<?>> constructors = new ConcurrentHashMap<>();
+
+  /**
+   * 结果类型及其父类中需要复制的字段
+   */
+  private final ConcurrentMap<Class<?>, Field[]> copyableFields = new ConcurrentHashMap<>();
+
+  /**
+   * 生成的代理类个数
+   */
+  private final LongAdder proxyClassCount = new LongAdder();
+
+  /**
+   * 创建的代理对象个数
+   */
+  private final LongAdder proxyCount = new LongAdder();
+
+  public ProxyClassCache(ProxyClassGenerator generator) {
+    this.generator = generator;
+  }
+
+  /**
+   * 创建结果类型的代理对象，方法处理器由调用方设置
+   */
+  public Object newInstance(Class<?> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+    Constructor<?> constructor;
+    Object[] args;
+    if (constructorArgTypes.isEmpty()) {
+      constructor = defaultConstructors.computeIfAbsent(type, t -> resolveConstructor(t, new Class<?>[0]));
+      args = new Object[0];
+    } else {
+      Class<?>[] argTypes = constructorArgTypes.toArray(new Class<?>[constructorArgTypes.size()]);
+      constructor = constructors.computeIfAbsent(new ConstructorKey(type, argTypes), k -> resolveConstructor(k.type, k.argTypes));
+      args = constructorArgs.toArray(new Object[constructorArgs.size()]);
+    }
+    try {
+      Object proxy = constructor.newInstance(args);
+      proxyCount.increment();
+      return proxy;
+    } catch (Exception e) {
+      throw new ExecutorException("Error creating lazy proxy.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 将 source 的字段复制到 destination，与 PropertyCopier#copyBeanProperties 一致，但字段只解析一次，并且跳过静态字段
+   */
+  public void copyProperties(Class<?> type, Object source, Object destination) {
+    for (Field field : copyableFields.computeIfAbsent(type, ProxyClassCache::resolveCopyableFields)) {
+      try {
+        field.set(destination, field.get(source));
+      } catch (Exception e) {
+        // 与 PropertyCopier 一致，忽略
+      }
+    }
+  }
+
+  /**
+   * 获取结果类型的代理类，没有时生成
+   */
+  public Class<?> getProxyClass(Class<?> type) {
+    return proxyClasses.computeIfAbsent(type, this::generateProxyClass);
+  }
+
+  /**
+   * 生成的代理类个数
+   */
+  public long getProxyClassCount() {
+    return proxyClassCount.sum();
+  }
+
+  /**
+   * 创建的代理对象个数
+   */
+  public long getProxyCount() {
+    return proxyCount.sum();
+  }
+
+  /**
+   * 清空缓存，计数不清零
+   */
+  public void clear() {
+    proxyClasses.clear();
+    defaultConstructors.clear();
+    constructors.clear();
+    copyableFields.clear();
+  }
+
+  @Override
+  public String toString() {
+    return "ProxyClassCache{proxyClasses=" + proxyClassCount.sum() + ", proxies=" + proxyCount.sum() + "}";
+  }
+
+  /**
+   * 解析代理类的构造方法
+   */
+  private Constructor<?> resolveConstructor(Class<?> type, Class<?>[] argTypes) {
+    try {
+      Constructor<?> constructor = getProxyClass(type).getDeclaredConstructor(argTypes);
+      constructor.setAccessible(true);
+      return constructor;
+    } catch (NoSuchMethodException e) {
+      throw new ExecutorException("Error creating lazy proxy.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 生成代理类
+   */
+  private Class<?> generateProxyClass(Class<?> type) {
+    Class<?>[] interfaces;
+    try {
+      // 如果已经存在 writeReplace 方法，则不用实现 WriteReplaceInterface
+      type.getDeclaredMethod(WRITE_REPLACE_METHOD);
+      // ObjectOutputStream will call writeReplace of objects returned by writeReplace
+      if (log.isDebugEnabled()) {
+        log.debug(WRITE_REPLACE_METHOD + " method was found on bean " + type + ", make sure it returns this");
+      }
+      interfaces = new Class<?>[0];
+    } catch (NoSuchMethodException e) {
+      interfaces = new Class<?>[] {WriteReplaceInterface.class};
+    } catch (SecurityException e) {
+      interfaces = new Class<?>[0];
+    }
+    try {
+      Class<?> proxyClass = generator.generate(type, interfaces);
+      proxyClassCount.increment();
+      if (log.isDebugEnabled()) {
+        log.debug("Generated lazy loading proxy class " + proxyClass.getName() + " for " + type.getName());
+      }
+      return proxyClass;
+    } catch (Exception e) {
+      throw new ExecutorException("Error creating lazy proxy class for " + type.getName() + ".  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 解析结果类型及其父类中的非静态字段
+   */
+  private static Field[] resolveCopyableFields(Class<?> type) {
+    List<Field> fields = new ArrayList<>();
+    for (Class<?> parent = type; parent != null; parent = parent.getSuperclass()) {
+      for (Field field : parent.getDeclaredFields()) {
+        if (Modifier.isStatic(field.getModifiers())) {
+          continue;
+        }
+        try {
+          field.setAccessible(true);
+          fields.add(field);
+        } catch (Exception e) {
+          // 无法访问的字段，与 PropertyCopier 一致，忽略
+        }
+      }
+    }
+    return fields.toArray(new Field[fields.size()]);
+  }
+
+  /**
+   * 有参构造方法的 key
+   */
+  private static final class ConstructorKey {
+
+    private final Class<?> type;
+
+    private final Class<?>[] argTypes;
+
+    private final int hashCode;
+
+    ConstructorKey(Class<?> type, Class<?>[] argTypes) {
+      this.type = type;
+      this.argTypes = argTypes;
+      this.hashCode = 31 * type.hashCode() + Arrays.hashCode(argTypes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ConstructorKey)) {
+        return false;
+      }
+      ConstructorKey that = (ConstructorKey) o;
+      return type == that.type && Arrays.equals(argTypes, that.argTypes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+}
@@ -1,5 +1,6 @@
 package cn.javadog.sd.mybatis.executor.loader;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
 
@@ -23,5 +24,13 @@ public interface ProxyFactory {
    * 创建代理对象
    */
   Object createProxy(Object target, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory, List<Class<?>> constructorArgTypes, List<Object> constructorArgs);
-  
+
+  /**
+   * 直接用无参构造方法创建指定类型的代理对象，不需要先创建目标对象再复制属性。
+   * 由 DefaultResultSetHandler 在使用默认 ObjectFactory 时调用，默认实现还是先通过 ObjectFactory 创建目标对象
+   */
+  default Object createProxy(Class<?> type, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory) {
+    return createProxy(objectFactory.create(type), lazyLoader, configuration, objectFactory, new ArrayList<>(), new ArrayList<>());
+  }
+
 }
@@ -122,11 +122,7 @@ public class ResultLoader {
    */
   private <E> List<E> selectList() throws SQLException {
     // 获得 Executor 对象
-    Executor localExecutor = executor;
-    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
-      // 检查线程不对的话，比如开了新线程进行懒加载相关属性的加载，或者原执行器已经关闭，那么就新开一个执行器。TODO 执行器与线程貌似是强关联的
-      localExecutor = newExecutor();
-    }
+    Executor localExecutor = localExecutor();
     // 执行查询
     try {
       return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
@@ -138,6 +134,32 @@ public class ResultLoader {
     }
   }
 
+  /**
+   * 使用指定的语句和参数查询，BoundSql 和 CacheKey 由执行器生成，执行器的选择与 {@link #selectList()} 一致。
+   * 给批量加载用，一次查询加载多个关联键
+   */
+  protected <E> List<E> selectList(MappedStatement mappedStatement, Object parameterObject) throws SQLException {
+    Executor localExecutor = localExecutor();
+    try {
+      return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  /**
+   * 获得执行查询用的 Executor 对象
+   */
+  private Executor localExecutor() {
+    if (Thread.currentThread().getId() != this.creatorThreadId || executor.isClosed()) {
+      // 检查线程不对的话，比如开了新线程进行懒加载相关属性的加载，或者原执行器已经关闭，那么就新开一个执行器。TODO 执行器与线程貌似是强关联的
+      return newExecutor();
+    }
+    return executor;
+  }
+
   /**
    * 创建 Executor 对象，因为 Executor 是非线程安全的
    */
@@ -1,6 +1,7 @@
 package cn.javadog.sd.mybatis.executor.loader.cglib;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -8,19 +9,18 @@ import java.util.Set;
 
 import cn.javadog.sd.mybatis.executor.loader.AbstractEnhancedDeserializationProxy;
 import cn.javadog.sd.mybatis.executor.loader.AbstractSerialStateHolder;
+import cn.javadog.sd.mybatis.executor.loader.ProxyClassCache;
 import cn.javadog.sd.mybatis.executor.loader.ProxyFactory;
 import cn.javadog.sd.mybatis.executor.loader.ResultLoaderMap;
-import cn.javadog.sd.mybatis.executor.loader.WriteReplaceInterface;
 import cn.javadog.sd.mybatis.session.Configuration;
 import cn.javadog.sd.mybatis.support.io.Resources;
-import cn.javadog.sd.mybatis.support.logging.Log;
-import cn.javadog.sd.mybatis.support.logging.LogFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.ObjectFactory;
 import cn.javadog.sd.mybatis.support.reflection.property.PropertyCopier;
 import cn.javadog.sd.mybatis.support.reflection.property.PropertyNamer;
 import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
 import net.sf.cglib.proxy.MethodInterceptor;
 import net.sf.cglib.proxy.MethodProxy;
 
@@ -31,7 +31,7 @@ import net.sf.cglib.proxy.MethodProxy;
  */
 public class CglibProxyFactory implements ProxyFactory {
 
-  private static final Log log = LogFactory.getLog(CglibProxyFactory.class);
+  private static final ProxyClassCache PROXY_CLASSES = new ProxyClassCache(CglibProxyFactory::generateProxyClass);
   private static final String FINALIZE_METHOD = "finalize";
   private static final String WRITE_REPLACE_METHOD = "writeReplace";
 
@@ -48,6 +48,18 @@ public class CglibProxyFactory implements ProxyFactory {
     return EnhancedResultObjectProxyImpl.createProxy(target, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
   }
 
+  @Override
+  public Object createProxy(Class<?> type, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory) {
+    return EnhancedResultObjectProxyImpl.createProxy(type, lazyLoader, configuration, objectFactory);
+  }
+
+  /**
+   * 代理类的缓存，可以获取生成的代理类个数和创建的代理对象个数
+   */
+  public ProxyClassCache getProxyClassCache() {
+    return PROXY_CLASSES;
+  }
+
   public Object createDeserializationProxy(Object target, Map<String, ResultLoaderMap.LoadPair> unloadedProperties, ObjectFactory objectFactory, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
     return EnhancedDeserializationProxyImpl.createProxy(target, unloadedProperties, objectFactory, constructorArgTypes, constructorArgs);
   }
@@ -57,30 +69,26 @@ public class CglibProxyFactory implements ProxyFactory {
       // Not Implemented
   }
 
+  /**
+   * 创建代理对象。代理类每个结果类型只生成一次，见 {@link ProxyClassCache}
+   */
   static Object crateProxy(Class<?> type, Callback callback, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+    Object enhanced = PROXY_CLASSES.newInstance(type, constructorArgTypes, constructorArgs);
+    ((Factory) enhanced).setCallback(0, callback);
+    return enhanced;
+  }
+
+  /**
+   * 生成代理类，回调在创建代理对象后设置
+   */
+  private static Class<?> generateProxyClass(Class<?> type, Class<?>[] interfaces) {
     Enhancer enhancer = new Enhancer();
-    enhancer.setCallback(callback);
     enhancer.setSuperclass(type);
-    try {
-      type.getDeclaredMethod(WRITE_REPLACE_METHOD);
-      // ObjectOutputStream will call writeReplace of objects returned by writeReplace
-      if (log.isDebugEnabled()) {
-        log.debug(WRITE_REPLACE_METHOD + " method was found on bean " + type + ", make sure it returns this");
-      }
-    } catch (NoSuchMethodException e) {
-      enhancer.setInterfaces(new Class[]{WriteReplaceInterface.class});
-    } catch (SecurityException e) {
-      // nothing to do here
+    if (interfaces.length > 0) {
+      enhancer.setInterfaces(interfaces);
     }
-    Object enhanced;
-    if (constructorArgTypes.isEmpty()) {
-      enhanced = enhancer.create();
-    } else {
-      Class<?>[] typesArray = constructorArgTypes.toArray(new Class[constructorArgTypes.size()]);
-      Object[] valuesArray = constructorArgs.toArray(new Object[constructorArgs.size()]);
-      enhanced = enhancer.create(typesArray, valuesArray);
-    }
-    return enhanced;
+    enhancer.setCallbackType(MethodInterceptor.class);
+    return enhancer.createClass();
   }
 
   private static class EnhancedResultObjectProxyImpl implements MethodInterceptor {
@@ -107,10 +115,17 @@ public class CglibProxyFactory implements ProxyFactory {
       final Class<?> type = target.getClass();
       EnhancedResultObjectProxyImpl callback = new EnhancedResultObjectProxyImpl(type, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
       Object enhanced = crateProxy(type, callback, constructorArgTypes, constructorArgs);
-      PropertyCopier.copyBeanProperties(type, target, enhanced);
+      PROXY_CLASSES.copyProperties(type, target, enhanced);
       return enhanced;
     }
 
+    public static Object createProxy(Class<?> type, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory) {
+      List<Class<?>> constructorArgTypes = Collections.emptyList();
+      List<Object> constructorArgs = Collections.emptyList();
+      EnhancedResultObjectProxyImpl callback = new EnhancedResultObjectProxyImpl(type, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
+      return crateProxy(type, callback, constructorArgTypes, constructorArgs);
+    }
+
     @Override
     public Object intercept(Object enhanced, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
       final String methodName = method.getName();
@@ -164,7 +179,7 @@ public class CglibProxyFactory implements ProxyFactory {
       final Class<?> type = target.getClass();
       EnhancedDeserializationProxyImpl callback = new EnhancedDeserializationProxyImpl(type, unloadedProperties, objectFactory, constructorArgTypes, constructorArgs);
       Object enhanced = crateProxy(type, callback, constructorArgTypes, constructorArgs);
-      PropertyCopier.copyBeanProperties(type, target, enhanced);
+      PROXY_CLASSES.copyProperties(type, target, enhanced);
       return enhanced;
     }
 
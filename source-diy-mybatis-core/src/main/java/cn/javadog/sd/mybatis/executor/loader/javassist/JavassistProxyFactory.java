@@ -1,6 +1,7 @@
 package cn.javadog.sd.mybatis.executor.loader.javassist;
 
 import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -12,14 +13,11 @@ import javassist.util.proxy.ProxyFactory;
 
 import cn.javadog.sd.mybatis.executor.loader.AbstractEnhancedDeserializationProxy;
 import cn.javadog.sd.mybatis.executor.loader.AbstractSerialStateHolder;
+import cn.javadog.sd.mybatis.executor.loader.ProxyClassCache;
 import cn.javadog.sd.mybatis.executor.loader.ResultLoaderMap;
 import cn.javadog.sd.mybatis.executor.loader.ResultLoaderMap.LoadPair;
-import cn.javadog.sd.mybatis.executor.loader.WriteReplaceInterface;
 import cn.javadog.sd.mybatis.session.Configuration;
-import cn.javadog.sd.mybatis.support.exceptions.ExecutorException;
 import cn.javadog.sd.mybatis.support.io.Resources;
-import cn.javadog.sd.mybatis.support.logging.Log;
-import cn.javadog.sd.mybatis.support.logging.LogFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.ObjectFactory;
 import cn.javadog.sd.mybatis.support.reflection.property.PropertyCopier;
 import cn.javadog.sd.mybatis.support.reflection.property.PropertyNamer;
@@ -34,9 +32,9 @@ import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
 public class JavassistProxyFactory implements cn.javadog.sd.mybatis.executor.loader.ProxyFactory {
 
   /**
-   * 日志打印器
+   * 代理类的缓存，所有 JavassistProxyFactory 共用
    */
-  private static final Log log = LogFactory.getLog(JavassistProxyFactory.class);
+  private static final ProxyClassCache PROXY_CLASSES = new ProxyClassCache(JavassistProxyFactory::generateProxyClass);
 
   /**
    * 垃圾回收方法
@@ -68,6 +66,21 @@ public class JavassistProxyFactory implements cn.javadog.sd.mybatis.executor.loa
     return EnhancedResultObjectProxyImpl.createProxy(target, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
   }
 
+  /**
+   * 直接创建代理对象，不需要先创建目标对象
+   */
+  @Override
+  public Object createProxy(Class<?> type, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory) {
+    return EnhancedResultObjectProxyImpl.createProxy(type, lazyLoader, configuration, objectFactory);
+  }
+
+  /**
+   * 代理类的缓存，可以获取生成的代理类个数和创建的代理对象个数
+   */
+  public ProxyClassCache getProxyClassCache() {
+    return PROXY_CLASSES;
+  }
+
   /**
    * 创建支持反序列化的代理对象
    */
@@ -84,41 +97,29 @@ public class JavassistProxyFactory implements cn.javadog.sd.mybatis.executor.loa
   }
 
   /**
-   * 创建代理对象
+   * 创建代理对象。代理类每个结果类型只生成一次，见 {@link ProxyClassCache}
    */
   static Object crateProxy(Class<?> type, MethodHandler callback, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
+    // 通过缓存的代理类的构造方法创建代理对象
+    Object enhanced = PROXY_CLASSES.newInstance(type, constructorArgTypes, constructorArgs);
+    // <x> 设置代理对象的执行器
+    ((Proxy) enhanced).setHandler(callback);
+    return enhanced;
+  }
 
+  /**
+   * 生成代理类
+   */
+  private static Class<?> generateProxyClass(Class<?> type, Class<?>[] interfaces) {
     // 创建 javassist ProxyFactory 对象
     ProxyFactory enhancer = new ProxyFactory();
     // 设置父类
     enhancer.setSuperclass(type);
     // 根据情况，设置接口为 WriteReplaceInterface 。和序列化相关，可以无视
-    try {
-      // 如果已经存在 writeReplace 方法，则不用设置接口为 WriteReplaceInterface
-      type.getDeclaredMethod(WRITE_REPLACE_METHOD);
-      // ObjectOutputStream will call writeReplace of objects returned by writeReplace
-      if (log.isDebugEnabled()) {
-        log.debug(WRITE_REPLACE_METHOD + " method was found on bean " + type + ", make sure it returns this");
-      }
-    } catch (NoSuchMethodException e) {
-      // 如果不存在 writeReplace 方法，则设置接口为 WriteReplaceInterface
-      enhancer.setInterfaces(new Class[]{WriteReplaceInterface.class});
-    } catch (SecurityException e) {
-      // nothing to do here
+    if (interfaces.length > 0) {
+      enhancer.setInterfaces(interfaces);
     }
-
-    // 创建代理对象
-    Object enhanced;
-    Class<?>[] typesArray = constructorArgTypes.toArray(new Class[constructorArgTypes.size()]);
-    Object[] valuesArray = constructorArgs.toArray(new Object[constructorArgs.size()]);
-    try {
-      enhanced = enhancer.create(typesArray, valuesArray);
-    } catch (Exception e) {
-      throw new ExecutorException("Error creating lazy proxy.  Cause: " + e, e);
-    }
-    // <x> 设置代理对象的执行器
-    ((Proxy) enhanced).setHandler(callback);
-    return enhanced;
+    return enhancer.createClass();
   }
 
   /**
@@ -154,10 +155,20 @@ public class JavassistProxyFactory implements cn.javadog.sd.mybatis.executor.loa
       // 创建代理对象
       Object enhanced = crateProxy(type, callback, constructorArgTypes, constructorArgs);
       // 将 target 的属性，复制到 enhanced 中
-      PropertyCopier.copyBeanProperties(type, target, enhanced);
+      PROXY_CLASSES.copyProperties(type, target, enhanced);
       return enhanced;
     }
 
+    /**
+     * 用无参构造方法直接创建代理对象，代理对象本身就是结果对象，不需要复制属性
+     */
+    public static Object createProxy(Class<?> type, ResultLoaderMap lazyLoader, Configuration configuration, ObjectFactory objectFactory) {
+      List<Class<?>> constructorArgTypes = Collections.emptyList();
+      List<Object> constructorArgs = Collections.emptyList();
+      EnhancedResultObjectProxyImpl callback = new EnhancedResultObjectProxyImpl(type, lazyLoader, configuration, objectFactory, constructorArgTypes, constructorArgs);
+      return crateProxy(type, callback, constructorArgTypes, constructorArgs);
+    }
+
     /**
      * 执行方法
      */
@@ -219,7 +230,7 @@ public class JavassistProxyFactory implements cn.javadog.sd.mybatis.executor.loa
       final Class<?> type = target.getClass();
       EnhancedDeserializationProxyImpl callback = new EnhancedDeserializationProxyImpl(type, unloadedProperties, objectFactory, constructorArgTypes, constructorArgs);
       Object enhanced = crateProxy(type, callback, constructorArgTypes, constructorArgs);
-      PropertyCopier.copyBeanProperties(type, target, enhanced);
+      PROXY_CLASSES.copyProperties(type, target, enhanced);
       return enhanced;
     }
 
@@ -1,12 +1,14 @@
 package cn.javadog.sd.mybatis.executor.resultset;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -17,6 +19,7 @@ import cn.javadog.sd.mybatis.cursor.Cursor;
 import cn.javadog.sd.mybatis.cursor.defaults.DefaultCursor;
 import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
 import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.executor.loader.BatchFetchGroup;
 import cn.javadog.sd.mybatis.executor.loader.ResultLoader;
 import cn.javadog.sd.mybatis.executor.loader.ResultLoaderMap;
 import cn.javadog.sd.mybatis.executor.parameter.ParameterHandler;
@@ -35,6 +38,7 @@ import cn.javadog.sd.mybatis.session.RowBounds;
 import cn.javadog.sd.mybatis.support.cache.CacheKey;
 import cn.javadog.sd.mybatis.support.exceptions.ExecutorException;
 import cn.javadog.sd.mybatis.support.exceptions.ResultMapException;
+import cn.javadog.sd.mybatis.support.reflection.factory.DefaultObjectFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.ObjectFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.ReflectorFactory;
 import cn.javadog.sd.mybatis.support.reflection.meta.MetaClass;
@@ -140,6 +144,17 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
 
+  /**
+   * 批量加载的分组，同一个 ResultMapping 的所有行共用一个。
+   * 延迟加载批量化的分组也在这里，不能批量化的 ResultMapping 记录为 null
+   */
+  private final Map<ResultMapping, BatchFetchGroup> batchFetchGroups = new IdentityHashMap<>();
+
+  /**
+   * 待批量加载的非延迟属性，ResultSet 的行处理完后统一加载。使用自定义的 ResultHandler 时，每行交给它之前加载
+   */
+  private final List<PendingBatchFetch> pendingBatchFetches = new ArrayList<>();
+
   /**
    * 临时标记是否使用构造方法创建该结果对象。使用此字段减少内存占用
    */
@@ -161,6 +176,33 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
+  /**
+   * 内部类，待批量加载的属性
+   */
+  private static class PendingBatchFetch {
+
+    /**
+     * 结果对象的元对象
+     */
+    private final MetaObject metaObject;
+
+    /**
+     * 属性名
+     */
+    private final String property;
+
+    /**
+     * 结果加载器
+     */
+    private final ResultLoader resultLoader;
+
+    public PendingBatchFetch(MetaObject metaObject, String property, ResultLoader resultLoader) {
+      this.metaObject = metaObject;
+      this.property = property;
+      this.resultLoader = resultLoader;
+    }
+  }
+
   /**
    * 未在 resultMap 中显示声明 数据库字段 与 POJO字段 映射关系的列名信息。
    * 即使未显示声明，但如果开启了字段自动映射，数据库查询结果依然会写到POJO相应字段
@@ -172,6 +214,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      */
     private final String column;
 
+    /**
+     * 字段的位置，从 1 开始
+     */
+    private final int columnIndex;
+
     /**
      * 属性名
      */
@@ -190,8 +237,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     /**
      * 构造函数
      */
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
@@ -348,6 +396,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       // 处理简单映射的结果
       handleRowValuesForSimpleResultMap(rsw, resultMap, resultHandler, rowBounds, parentMapping);
     }
+    // 批量加载非延迟的嵌套查询
+    loadPendingBatchFetches();
+  }
+
+  /**
+   * 批量加载非延迟的嵌套查询，第一行加载时会把同一批的其他行一起查出来
+   */
+  private void loadPendingBatchFetches() throws SQLException {
+    for (PendingBatchFetch pending : pendingBatchFetches) {
+      pending.metaObject.setValue(pending.property, pending.resultLoader.loadResult());
+    }
+    pendingBatchFetches.clear();
   }
 
   /**
@@ -388,12 +448,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ResultSet resultSet = rsw.getResultSet();
     // 跳过分页
     skipRows(resultSet, rowBounds);
+    // 能编译的简单映射，直接按编译好的计划逐行映射
+    RowMappingPlan plan = configuration.isCompiledRowMappingEnabled()
+        ? configuration.getRowMappingPlanCompiler().compile(rsw, resultMap, shouldApplyAutomaticMappings(resultMap, false)) : null;
     // 循环，条件： 是否继续处理 ResultSet(resultContext没有关闭) + ResultSet 是否已经关闭 + ResultSet 是否还有下一条
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
-      // 根据该行记录以及 ResultMap.discriminator ，决定映射使用的 ResultMap 对象。这个 resultMap 对应另一个对象，也就是所谓的关联对象
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      // 根据最终确定的 ResultMap 对 ResultSet 中的该行记录进行映射，得到映射后的结果对象
-      Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      Object rowValue;
+      if (plan != null) {
+        rowValue = plan.map(resultSet);
+      } else {
+        // 根据该行记录以及 ResultMap.discriminator ，决定映射使用的 ResultMap 对象。这个 resultMap 对应另一个对象，也就是所谓的关联对象
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
+        // 根据最终确定的 ResultMap 对 ResultSet 中的该行记录进行映射，得到映射后的结果对象
+        rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      }
       // 将映射创建的结果对象添加到 ResultHandler.resultList 中保存
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
@@ -450,6 +518,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * 将映射创建的结果对象添加到 ResultHandler.resultList 中保存
    */
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
+    // 自定义的 ResultHandler 拿到结果就可能使用，批量加载的属性要先加载好，这时每行各自加载，不再与后面的行合并
+    if (!pendingBatchFetches.isEmpty() && !(resultHandler instanceof DefaultResultHandler)) {
+      loadPendingBatchFetches();
+    }
     // 将结果存起来
     callResultHandler(resultHandler, resultContext, rowValue);
   }
@@ -546,8 +618,6 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    // 获得 mapped 的字段的名字的数组
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
     boolean foundValues = false;
     // 遍历 ResultMapping 数组
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
@@ -558,11 +628,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         // the user added a column attribute to a nested result map, ignore it
         column = null;
       }
+      // 字段的位置，结果集中没有该字段时为 -1。resultMap 的字段都在 mappedColumns 中，所以存在即是 mapped 的字段
+      final int columnIndex = rsw.getColumnIndex(column);
       if (propertyMapping.isCompositeResult() // 组合
           // 属于mappedColumnNames)
-              || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))){
+              || columnIndex > 0){
         // 获得指定字段的值
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -589,17 +661,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   /**
    * 获得指定字段的
    */
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     // 内嵌查询，获得嵌套查询的值
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     }
-    // 普通，直接获得指定字段的值
+    // 普通，按位置获得指定字段的值
     else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
-      final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      return typeHandler.getResult(rs, columnIndex);
     }
   }
 
@@ -642,7 +713,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           // 判断是否有对应的 TypeHandler 对象。如果有，则创建 UnMappedColumnAutoMapping 对象，并添加到 autoMapping 中
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, rsw.getColumnIndex(columnName), property, typeHandler, propertyType.isPrimitive()));
             // 如果没有，则执行 AutoMappingUnknownColumnBehavior 对应的逻辑
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
@@ -670,8 +741,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (!autoMapping.isEmpty()) {
       // 遍历 UnMappedColumnAutoMapping 数组
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        // 获得指定字段的值
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        // 按位置获得指定字段的值
+        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex);
         // 若非空，标记 foundValues 有值
         if (value != null) {
           foundValues = true;
@@ -696,6 +767,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final List<Class<?>> constructorArgTypes = new ArrayList<>();
     // 记录使用的构造方法的参数值的数组
     final List<Object> constructorArgs = new ArrayList<>();
+    // 默认 ObjectFactory 加无参构造方法时，直接创建代理对象，不用先创建目标对象再复制属性
+    if (canCreateLazyProxyDirectly(rsw, resultMap)) {
+      return configuration.getProxyFactory().createProxy(resultMap.getType(), lazyLoader, configuration, objectFactory);
+    }
     // 创建映射后的结果对象
     Object resultObject = createResultObject(rsw, resultMap, constructorArgTypes, constructorArgs, columnPrefix);
     if (resultObject != null && !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
@@ -714,6 +789,29 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return resultObject;
   }
 
+  /**
+   * 是否可以直接创建延迟加载的代理对象：有延迟加载的嵌套查询，使用默认的 ObjectFactory，并且会通过无参构造方法创建结果对象。
+   * 这时先创建的目标对象只是用来复制默认的属性值，代理对象的构造方法本身就会设置这些值
+   */
+  private boolean canCreateLazyProxyDirectly(ResultSetWrapper rsw, ResultMap resultMap) {
+    if (objectFactory.getClass() != DefaultObjectFactory.class || !resultMap.getConstructorResultMappings().isEmpty()) {
+      return false;
+    }
+    final Class<?> resultType = resultMap.getType();
+    if (resultType.isInterface() || Modifier.isAbstract(resultType.getModifiers())) {
+      return false;
+    }
+    boolean lazy = false;
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getNestedQueryId() != null && propertyMapping.isLazy()) {
+        lazy = true;
+        break;
+      }
+    }
+    return lazy && !hasTypeHandlerForResultObject(rsw, resultType)
+        && MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor();
+  }
+
   /**
    * 创建映射后的结果对象
    */
@@ -886,8 +984,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
     // 获得 TypeHandler 对象
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    // 获得 ResultSet 的指定字段的值
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    // 获得 ResultSet 的指定字段的值，找不到位置时按名字取，由驱动报错
+    final int columnIndex = rsw.getColumnIndex(columnName);
+    return columnIndex > 0 ? typeHandler.getResult(rsw.getResultSet(), columnIndex) : typeHandler.getResult(rsw.getResultSet(), columnName);
   }
 
   /**
@@ -923,6 +1022,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private Object getNestedQueryMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
+    // 批量加载，先登记关联键
+    if (propertyMapping.isBatch()) {
+      return addBatchFetch(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+    }
     // 获得内嵌查询的编号
     final String nestedQueryId = propertyMapping.getNestedQueryId();
     // 获得属性名
@@ -948,8 +1051,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         value = DEFERED;
         // 检查缓存中不存在
       } else { // 无缓存
+        // 如果要求延迟加载，并且可以批量化，则与同一结果集中其他对象的这个属性共用批量查询
+        final BatchFetchGroup lazyLoadGroup = propertyMapping.isLazy() ? getLazyLoadBatchGroup(propertyMapping, nestedQuery) : null;
         // 创建 ResultLoader 对象
-        final ResultLoader resultLoader = new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
+        final ResultLoader resultLoader = lazyLoadGroup != null ? lazyLoadGroup.addKey(executor, nestedQueryParameterObject)
+            : new ResultLoader(configuration, executor, nestedQuery, nestedQueryParameterObject, targetType, key, nestedBoundSql);
         // 如果要求延迟加载，则延迟加载
         if (propertyMapping.isLazy()) {
           // 如果该属性配置了延迟加载，则将其添加到 `ResultLoader.loaderMap` 中，等待真正使用时再执行嵌套查询并得到结果对象。
@@ -965,6 +1071,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  /**
+   * 获得延迟加载批量化的分组，没有开启或者不能批量化时返回 null。
+   * 只处理单列的关联键，复合键依然逐个加载
+   */
+  private BatchFetchGroup getLazyLoadBatchGroup(ResultMapping propertyMapping, MappedStatement nestedQuery) {
+    final int batchSize = configuration.getLazyLoadBatchSize();
+    if (batchSize <= 0 || propertyMapping.isCompositeResult()) {
+      return null;
+    }
+    if (batchFetchGroups.containsKey(propertyMapping)) {
+      return batchFetchGroups.get(propertyMapping);
+    }
+    final BatchFetchGroup group = BatchFetchGroup.forLazyLoad(configuration, propertyMapping, nestedQuery, batchSize);
+    batchFetchGroups.put(propertyMapping, group);
+    return group;
+  }
+
+  /**
+   * 登记批量加载的嵌套查询。延迟加载时交给 ResultLoaderMap，否则等 ResultSet 的行处理完后统一加载
+   */
+  private Object addBatchFetch(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+      throws SQLException {
+    // 获得关联键，类型由列决定
+    final Object key = typeHandlerRegistry.getUnknownTypeHandler().getResult(rs, prependPrefix(propertyMapping.getColumn(), columnPrefix));
+    // issue #353 & #560 do not execute nested query if key is null
+    if (key == null) {
+      return null;
+    }
+    BatchFetchGroup group = batchFetchGroups.get(propertyMapping);
+    if (group == null) {
+      group = new BatchFetchGroup(configuration, propertyMapping);
+      batchFetchGroups.put(propertyMapping, group);
+    }
+    final ResultLoader resultLoader = group.addKey(executor, key);
+    if (propertyMapping.isLazy()) {
+      lazyLoader.addLoader(propertyMapping.getProperty(), metaResultObject, resultLoader);
+    } else {
+      pendingBatchFetches.add(new PendingBatchFetch(metaResultObject, propertyMapping.getProperty(), resultLoader));
+    }
+    return DEFERED;
+  }
+
   /**
    * 获得内嵌查询的参数类型
    */
@@ -1221,7 +1369,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (notNullColumns != null && !notNullColumns.isEmpty()) {
       ResultSet rs = rsw.getResultSet();
       for (String column : notNullColumns) {
-        rs.getObject(prependPrefix(column, columnPrefix));
+        final String prefixedColumn = prependPrefix(column, columnPrefix);
+        final int columnIndex = rsw.getColumnIndex(prefixedColumn);
+        if (columnIndex > 0) {
+          rs.getObject(columnIndex);
+        } else {
+          rs.getObject(prefixedColumn);
+        }
         if (!rs.wasNull()) {
           return true;
         }
@@ -1323,11 +1477,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         // 拿到类型处理器
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        // 拿到结果匹配的上的所有列
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+        // 拿到列的位置，存在即是结果匹配的上的列
+        final int columnIndex = rsw.getColumnIndex(column);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+        if (columnIndex > 0) {
+          final Object value = th.getResult(rsw.getResultSet(), columnIndex);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
             // 记录结果
             cacheKey.update(column);
@@ -1361,7 +1515,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         // 拿到指定列的值，注意两点：
         // 1、使用的是column而不是property，也就是说ResultSet的结果是包含前缀的
         // 2、ResultSet可能有多条记录，每次getString(column)游标都会向下划一位，也就是说 cacheKey 存的是一条记录的缓存
-        String value = rsw.getResultSet().getString(column);
+        String value = rsw.getResultSet().getString(rsw.getColumnIndex(column));
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1377,9 +1531,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 拿到所有列名
     List<String> columnNames = rsw.getColumnNames();
     // 遍历列名
-    for (String columnName : columnNames) {
-      // 拿到值
-      final String value = rsw.getResultSet().getString(columnName);
+    for (int i = 0; i < columnNames.size(); i++) {
+      final String columnName = columnNames.get(i);
+      // 按位置拿到值
+      final String value = rsw.getResultSet().getString(i + 1);
       // 设置到cacheKey
       if (value != null) {
         cacheKey.update(columnName);
@@ -54,6 +54,11 @@ public class ResultSetWrapper {
    */
   private final List<JdbcType> jdbcTypes = new ArrayList<>();
 
+  /**
+   * 字段的位置的映射，字段名统一转大写，位置从 1 开始，重名的字段取第一个，与 ResultSet 按名字取值时一致
+   */
+  private final Map<String, Integer> columnIndexMap = new HashMap<>();
+
   /**
    * TypeHandler 的映射
    *
@@ -88,9 +93,11 @@ public class ResultSetWrapper {
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      String columnName = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      columnNames.add(columnName);
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
+      columnIndexMap.putIfAbsent(columnName.toUpperCase(Locale.ENGLISH), i);
     }
   }
 
@@ -122,16 +129,24 @@ public class ResultSetWrapper {
     return jdbcTypes;
   }
 
+  /**
+   * 获取指定列的位置，从 1 开始，忽略大小写，不存在返回 -1。
+   * 映射时按位置取值，避免每个单元格都让驱动按名字查找一遍列
+   */
+  public int getColumnIndex(String columnName) {
+    if (columnName == null) {
+      return -1;
+    }
+    Integer index = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    return index == null ? -1 : index;
+  }
+
   /**
    * 获取指定列的jdbcTypes
    */
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
-      }
-    }
-    return null;
+    int index = getColumnIndex(columnName);
+    return index < 0 ? null : jdbcTypes.get(index - 1);
   }
 
   /**
@@ -156,8 +171,8 @@ public class ResultSetWrapper {
       // 如果获取不到，则再次进行查找。和 UnknownTypeHandler#resolveTypeHandler 方法的逻辑一样。可以看看 issue #59 comment 10
       if (handler == null || handler instanceof UnknownTypeHandler) {
         // 使用 classNames 中的类型，进行继续查找 TypeHandler 对象
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
+        final int index = getColumnIndex(columnName);
+        final Class<?> javaType = index < 0 ? null : resolveClass(classNames.get(index - 1));
         if (javaType != null && jdbcType != null) {
           handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
         } else if (javaType != null) {
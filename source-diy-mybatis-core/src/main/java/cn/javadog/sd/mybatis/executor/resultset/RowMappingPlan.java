@@ -0,0 +1,133 @@
+package cn.javadog.sd.mybatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import cn.javadog.sd.mybatis.support.exceptions.ReflectionException;
+import cn.javadog.sd.mybatis.support.reflection.factory.ObjectFactory;
+import cn.javadog.sd.mybatis.support.reflection.invoker.Invoker;
+import cn.javadog.sd.mybatis.support.type.TypeHandler;
+import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 19:10
+ *
+ * 编译好的行映射计划，由 {@link RowMappingPlanCompiler} 针对一个 ResultMap 加一种列布局生成。
+ * 列的位置、TypeHandler、属性的 set 调用器都已确定，映射一行就是按下标依次取值、赋值，
+ * 不再查找列名、拼接前缀，也不用为每行创建 MetaObject
+ *
+ * 与 DefaultResultSetHandler#getRowValue 的语义保持一致：先自动映射，再映射明确配置的列，
+ * 一个属性都没映射上时返回 null，除非开启了 returnInstanceForEmptyRow
+ */
+public class RowMappingPlan {
+
+  /**
+   * 结果类型
+   */
+  private final Class<?> type;
+
+  /**
+   * 创建结果对象的工厂
+   */
+  private final ObjectFactory objectFactory;
+
+  /**
+   * 列的映射，自动映射在前，明确配置的在后
+   */
+  private final ColumnMapping[] columnMappings;
+
+  /**
+   * 值为 null 时是否也调用 setter
+   */
+  private final boolean callSettersOnNulls;
+
+  /**
+   * 一个属性都没映射上时，是否依然返回结果对象
+   */
+  private final boolean returnInstanceForEmptyRow;
+
+  RowMappingPlan(Class<?> type, ObjectFactory objectFactory, ColumnMapping[] columnMappings, boolean callSettersOnNulls,
+      boolean returnInstanceForEmptyRow) {
+    this.type = type;
+    this.objectFactory = objectFactory;
+    this.columnMappings = columnMappings;
+    this.callSettersOnNulls = callSettersOnNulls;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+  }
+
+  /**
+   * 映射当前行
+   */
+  public Object map(ResultSet rs) throws SQLException {
+    Object rowValue = objectFactory.create(type);
+    boolean foundValues = false;
+    // 所有列共用一个参数数组，调用器不会持有它
+    Object[] args = new Object[1];
+    for (ColumnMapping mapping : columnMappings) {
+      Object value = mapping.typeHandler.getResult(rs, mapping.columnIndex);
+      if (value != null) {
+        foundValues = true;
+      }
+      if (value != null || (callSettersOnNulls && !mapping.primitive)) {
+        args[0] = value;
+        set(rowValue, mapping, args);
+      }
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  /**
+   * 获取列映射的数量
+   */
+  public int getColumnMappingCount() {
+    return columnMappings.length;
+  }
+
+  /**
+   * 设置属性，异常的处理与 BeanWrapper#setBeanProperty 一致
+   */
+  private void set(Object rowValue, ColumnMapping mapping, Object[] args) {
+    try {
+      mapping.setter.invoke(rowValue, args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      throw new ReflectionException("Could not set property '" + mapping.property + "' of '" + rowValue.getClass() + "' with value '" + args[0] + "' Cause: " + cause.toString(), cause);
+    }
+  }
+
+  /**
+   * 一列的映射
+   */
+  static class ColumnMapping {
+
+    /**
+     * 列的位置，从 1 开始
+     */
+    final int columnIndex;
+
+    /**
+     * 属性名，报错时用
+     */
+    final String property;
+
+    final TypeHandler<?> typeHandler;
+
+    final Invoker setter;
+
+    /**
+     * 属性是否是基本类型，基本类型不能设置 null
+     */
+    final boolean primitive;
+
+    ColumnMapping(int columnIndex, String property, TypeHandler<?> typeHandler, Invoker setter, boolean primitive) {
+      this.columnIndex = columnIndex;
+      this.property = property;
+      this.typeHandler = typeHandler;
+      this.setter = setter;
+      this.primitive = primitive;
+    }
+
+  }
+
+}
@@ -0,0 +1,188 @@
+package cn.javadog.sd.mybatis.executor.resultset;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cn.javadog.sd.mybatis.mapping.ResultMap;
+import cn.javadog.sd.mybatis.mapping.ResultMapping;
+import cn.javadog.sd.mybatis.session.AutoMappingUnknownColumnBehavior;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaClass;
+import cn.javadog.sd.mybatis.support.reflection.wrapper.DefaultObjectWrapperFactory;
+import cn.javadog.sd.mybatis.support.type.TypeHandler;
+import cn.javadog.sd.mybatis.support.type.TypeHandlerRegistry;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 19:20
+ *
+ * {@link RowMappingPlan} 的编译器，给 DefaultResultSetHandler 用。
+ * 一个 ResultMap 在同一种列布局（列名、JdbcType、Java 类型都相同）下的映射方式是确定的，
+ * 所以第一次遇到时解析出每一列的位置、TypeHandler 和 set 调用器，缓存起来，之后的查询直接复用。
+ *
+ * 只处理最常见的简单映射：通过默认构造创建 JavaBean，属性都是一级的，没有 discriminator、构造参数、嵌套查询、嵌套映射，
+ * 也没有自定义 ObjectWrapperFactory。其他情况返回 null，由 DefaultResultSetHandler 按原来的方式逐行映射
+ *
+ * note 整个 Configuration 共享一个实例，通过 compiledRowMappingEnabled setting 开启（默认开启）
+ */
+public class RowMappingPlanCompiler {
+
+  /**
+   * 最多缓存的计划数，满了之后新的计划照常使用，但不再缓存
+   */
+  private static final int MAX_CACHED_PLANS = 1024;
+
+  /**
+   * 标记着不能编译的组合，避免每次查询都重新判断
+   */
+  private static final RowMappingPlan UNSUPPORTED = new RowMappingPlan(null, null, null, false, false);
+
+  private final Configuration configuration;
+
+  /**
+   * 编译好的计划
+   *
+   * KEY：ResultMap + 是否自动映射 + 列布局
+   */
+  private final Map<CacheKey, RowMappingPlan> plans = new ConcurrentHashMap<>();
+
+  public RowMappingPlanCompiler(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * 获取计划，不能编译时返回 null
+   *
+   * @param autoMapping 是否自动映射未配置的列
+   */
+  public RowMappingPlan compile(ResultSetWrapper rsw, ResultMap resultMap, boolean autoMapping) throws SQLException {
+    CacheKey key = createKey(rsw, resultMap, autoMapping);
+    RowMappingPlan plan = plans.get(key);
+    if (plan == null) {
+      plan = doCompile(rsw, resultMap, autoMapping);
+      if (plans.size() < MAX_CACHED_PLANS) {
+        plans.putIfAbsent(key, plan);
+      }
+    }
+    return plan == UNSUPPORTED ? null : plan;
+  }
+
+  /**
+   * 获取已经缓存的计划数，包括不能编译的组合
+   */
+  public int getCachedPlanCount() {
+    return plans.size();
+  }
+
+  /**
+   * 创建缓存的键
+   */
+  private CacheKey createKey(ResultSetWrapper rsw, ResultMap resultMap, boolean autoMapping) {
+    List<String> columnNames = rsw.getColumnNames();
+    CacheKey key = new CacheKey(2 + columnNames.size() * 3);
+    key.update(resultMap);
+    key.update(autoMapping);
+    for (int i = 0; i < columnNames.size(); i++) {
+      key.update(columnNames.get(i));
+      key.update(rsw.getJdbcTypes().get(i));
+      key.update(rsw.getClassNames().get(i));
+    }
+    return key;
+  }
+
+  /**
+   * 编译
+   */
+  private RowMappingPlan doCompile(ResultSetWrapper rsw, ResultMap resultMap, boolean autoMapping) throws SQLException {
+    Class<?> type = resultMap.getType();
+    MetaClass metaClass = MetaClass.forClass(type, configuration.getReflectorFactory());
+    if (!isSupported(rsw, resultMap, metaClass)) {
+      return UNSUPPORTED;
+    }
+    List<RowMappingPlan.ColumnMapping> mappings = new ArrayList<>();
+    // 自动映射，与 DefaultResultSetHandler#createAutomaticMappings 一致
+    if (autoMapping) {
+      for (String columnName : rsw.getUnmappedColumnNames(resultMap, null)) {
+        String property = metaClass.findProperty(columnName, configuration.isMapUnderscoreToCamelCase());
+        if (property != null && resultMap.getMappedProperties().contains(property)) {
+          continue;
+        }
+        Class<?> propertyType = property != null && isSimpleProperty(property) && metaClass.hasSetter(property) ? metaClass.getSetterType(property) : null;
+        if (propertyType == null || !configuration.getTypeHandlerRegistry().hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+          // 未知的列有对应的处理（告警或报错），交给原来的流程
+          if (configuration.getAutoMappingUnknownColumnBehavior() != AutoMappingUnknownColumnBehavior.NONE) {
+            return UNSUPPORTED;
+          }
+          continue;
+        }
+        TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+        mappings.add(new RowMappingPlan.ColumnMapping(rsw.getColumnIndex(columnName), property, typeHandler,
+            metaClass.getSetInvoker(property), propertyType.isPrimitive()));
+      }
+    }
+    // 明确配置的列，与 DefaultResultSetHandler#applyPropertyMappings 一致，结果集中没有的列跳过
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      String property = propertyMapping.getProperty();
+      int columnIndex = rsw.getColumnIndex(propertyMapping.getColumn());
+      if (property == null || columnIndex < 0) {
+        continue;
+      }
+      mappings.add(new RowMappingPlan.ColumnMapping(columnIndex, property, propertyMapping.getTypeHandler(),
+          metaClass.getSetInvoker(property), metaClass.getSetterType(property).isPrimitive()));
+    }
+    return new RowMappingPlan(type, configuration.getObjectFactory(), mappings.toArray(new RowMappingPlan.ColumnMapping[0]),
+        configuration.isCallSettersOnNulls(), configuration.isReturnInstanceForEmptyRow());
+  }
+
+  /**
+   * 判断是否可以编译
+   */
+  private boolean isSupported(ResultSetWrapper rsw, ResultMap resultMap, MetaClass metaClass) {
+    Class<?> type = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null
+        || !resultMap.getConstructorResultMappings().isEmpty()) {
+      return false;
+    }
+    // 结果对象是 JavaBean，通过默认构造创建，用 BeanWrapper 访问
+    if (type.isInterface() || Map.class.isAssignableFrom(type) || Collection.class.isAssignableFrom(type)
+        || !metaClass.hasDefaultConstructor() || hasTypeHandlerForResultObject(rsw, type)
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      String property = propertyMapping.getProperty();
+      if (propertyMapping.getNestedResultMapId() != null || propertyMapping.getNestedQueryId() != null
+          || propertyMapping.isCompositeResult() || propertyMapping.getColumn() == null) {
+        return false;
+      }
+      if (property != null && (!isSimpleProperty(property) || !metaClass.hasSetter(property))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 与 DefaultResultSetHandler#hasTypeHandlerForResultObject 一致
+   */
+  private boolean hasTypeHandlerForResultObject(ResultSetWrapper rsw, Class<?> resultType) {
+    TypeHandlerRegistry typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    if (rsw.getColumnNames().size() == 1) {
+      return typeHandlerRegistry.hasTypeHandler(resultType, rsw.getJdbcType(rsw.getColumnNames().get(0)));
+    }
+    return typeHandlerRegistry.hasTypeHandler(resultType);
+  }
+
+  /**
+   * 是否是一级属性，不是 a.b、a[0] 的形式
+   */
+  private boolean isSimpleProperty(String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0;
+  }
+
+}
@@ -171,6 +171,11 @@ public abstract class BaseStatementHandler implements StatementHandler {
    * 设置 FetchSize
    */
   protected void setFetchSize(Statement stmt) throws SQLException {
+    // 本次调用指定的 fetchSize 优先，驱动在执行语句时就按它取数据，所以要在这里设置
+    if (rowBounds != null && rowBounds.getFetchSize() != null) {
+      stmt.setFetchSize(rowBounds.getFetchSize());
+      return;
+    }
     // 获得 fetchSize 。非空，则进行设置
     Integer fetchSize = mappedStatement.getFetchSize();
     if (fetchSize != null) {
@@ -8,11 +8,16 @@ import java.util.Properties;
 
 import cn.javadog.sd.mybatis.builder.InitializingObject;
 import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.BlockingCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.ConcurrentLruCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.ExpiringCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.LoggingCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.LruCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.ScheduledCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.SynchronizedCache;
+import cn.javadog.sd.mybatis.support.cache.impl.ConcurrentCache;
+import cn.javadog.sd.mybatis.support.cache.impl.OffHeapCache;
 import cn.javadog.sd.mybatis.support.cache.impl.PerpetualCache;
 import cn.javadog.sd.mybatis.support.exceptions.CacheException;
 import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
@@ -142,17 +147,21 @@ public class CacheBuilder {
     Cache cache = newBaseCacheInstance(implementation, id);
     // 将 Properties 设置到 cache 对象
     setCacheProperties(cache);
-    // 如果实现类是 PerpetualCache，才进行装饰，原因可以看看 issue #352
-    if (PerpetualCache.class.equals(cache.getClass())) {
+    // 如果实现类是内置的 PerpetualCache、ConcurrentCache 或 OffHeapCache，才进行装饰，原因可以看看 issue #352
+    if (PerpetualCache.class.equals(cache.getClass()) || ConcurrentCache.class.equals(cache.getClass())
+        || OffHeapCache.class.equals(cache.getClass())) {
+      // 实现类和每一层装饰器都是线程安全的，才能省掉 SynchronizedCache
+      boolean threadSafe = cache instanceof ThreadSafeCache;
       // 遍历装饰类
       for (Class<? extends Cache> decorator : decorators) {
         // 进行装饰，装饰后设置给 cache
-        cache = newCacheDecoratorInstance(decorator, cache);
+        cache = newCacheDecoratorInstance(resolveDecorator(decorator, threadSafe), cache);
         // 将 Properties 设置到 cache 对象
         setCacheProperties(cache);
+        threadSafe = threadSafe && cache instanceof ThreadSafeCache;
       }
       // 根据传进来的属性，包装一些标准的装饰器
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, threadSafe);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       // 其他类型的实现，用 LoggingCache 包一层
       cache = new LoggingCache(cache);
@@ -174,10 +183,22 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * 线程安全的缓存，默认的 LruCache 换成线程安全的 ConcurrentLruCache，否则 LruCache 会让整个缓存又需要加锁
+   */
+  private Class<? extends Cache> resolveDecorator(Class<? extends Cache> decorator, boolean threadSafe) {
+    if (threadSafe && LruCache.class.equals(decorator)) {
+      return ConcurrentLruCache.class;
+    }
+    return decorator;
+  }
+
   /**
    * 根据传进来的属性，包装一些标准的装饰器
+   *
+   * @param threadSafe 当前的 cache 是否已经是线程安全的，是的话不用包 SynchronizedCache
    */
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, boolean threadSafe) {
     try {
       // 拿到对象的元信息
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -189,6 +210,13 @@ public class CacheBuilder {
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
+        // ScheduledCache 的清空判断不是线程安全的
+        threadSafe = false;
+      }
+      // 配置了按键过期的属性，包一层 ExpiringCache
+      if (hasExpiryProperties()) {
+        cache = new ExpiringCache(cache);
+        setCacheProperties(cache);
       }
       // 可读写的话，包一层SerializedCache， note 删除了，不做可序列化的实现
       if (readWrite) {
@@ -196,8 +224,10 @@ public class CacheBuilder {
       }
       // 包一层日志 LoggingCache
       cache = new LoggingCache(cache);
-      // 包一层同步 SynchronizedCache
-      cache = new SynchronizedCache(cache);
+      // 包一层同步 SynchronizedCache，线程安全的就不用包了，读缓存不再串行
+      if (!threadSafe) {
+        cache = new SynchronizedCache(cache);
+      }
       // 读取阻塞的话，包一层BlockingCache
       if (blocking) {
         cache = new BlockingCache(cache);
@@ -208,6 +238,16 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * 是否配置了按键过期的属性，见 {@link ExpiringCache}
+   */
+  private boolean hasExpiryProperties() {
+    return properties != null
+        && (properties.containsKey(ExpiringCache.EXPIRE_AFTER_WRITE)
+        || properties.containsKey(ExpiringCache.EXPIRE_AFTER_ACCESS)
+        || properties.containsKey(ExpiringCache.REFRESH_AFTER_WRITE));
+  }
+
   /**
    * 将 properties 相关属性设置到 Cache 里面
    */
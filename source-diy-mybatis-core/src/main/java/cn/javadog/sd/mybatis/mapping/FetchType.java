@@ -18,6 +18,14 @@ public enum FetchType {
    */
   EAGER,
 
+  /**
+   * 批量加载。先收集当前结果集所有行的关联键，再按 batchSize 分批，每批执行一次 IN (...) 的嵌套查询，
+   * 嵌套查询以 list 形式接收这批键，查到的结果按 foreignColumn 对应的属性分回各行。
+   * 是否延迟依然由全局的 lazyLoadingEnabled 决定，延迟时第一次访问某行的属性才加载它所在的那一批。
+   * 非延迟时使用自定义的 ResultHandler，每行交给它之前先加载好，这时不再分批合并
+   */
+  BATCH,
+
   /**
    * 使用全局默认值
    */
@@ -199,8 +199,8 @@ public final class MappedStatement {
      */
     public Builder resultMap(ResultMap resultMap) {
       mappedStatement.resultMap = resultMap;
-      // 只要一个resultMap有嵌套的resultMap，就可以认为 mappedStatement 有嵌套查询
-      mappedStatement.hasNestedResultMaps = mappedStatement.hasNestedResultMaps || resultMap.hasNestedResultMaps();
+      // 只要一个resultMap有嵌套的resultMap，就可以认为 mappedStatement 有嵌套查询。insert/update/delete 没有 resultMap
+      mappedStatement.hasNestedResultMaps = mappedStatement.hasNestedResultMaps || resultMap != null && resultMap.hasNestedResultMaps();
       return this;
     }
 
@@ -84,6 +84,16 @@ public class ResultMapping {
    */
   private boolean lazy;
 
+  /**
+   * 批量加载时每批最多的关联键个数，0 代表不批量加载，见 {@link FetchType#BATCH}
+   */
+  private int batchSize;
+
+  /**
+   * 批量加载时，嵌套查询结果中与 column 对应的列，用来把结果分回各行。不设置时与 column 相同
+   */
+  private String foreignColumn;
+
   /**
    * 构造函数，不对外开放。由👇的构造器调用
    */
@@ -212,6 +222,22 @@ public class ResultMapping {
       return this;
     }
 
+    /**
+     * 设置 batchSize
+     */
+    public Builder batchSize(int batchSize) {
+      resultMapping.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * 设置 foreignColumn
+     */
+    public Builder foreignColumn(String foreignColumn) {
+      resultMapping.foreignColumn = foreignColumn;
+      return this;
+    }
+
     /**
      * 执行构建
      */
@@ -241,6 +267,10 @@ public class ResultMapping {
       if (resultMapping.nestedResultMapId == null && resultMapping.column == null && resultMapping.composites.isEmpty()) {
         throw new IllegalStateException("Mapping is missing column attribute for property " + resultMapping.property);
       }
+      // 批量加载只支持单列关联键的嵌套查询
+      if (resultMapping.batchSize > 0 && (resultMapping.nestedQueryId == null || !resultMapping.composites.isEmpty())) {
+        throw new IllegalStateException("Batch fetching requires a nested select with a single key column for property " + resultMapping.property);
+      }
     }
 
     /**
@@ -321,6 +351,21 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * 是否批量加载
+   */
+  public boolean isBatch() {
+    return batchSize > 0;
+  }
+
+  public String getForeignColumn() {
+    return foreignColumn != null ? foreignColumn : column;
+  }
+
   /**
    * 重写equal，只要类型相同，字段名相同，就相等。
    */
@@ -373,6 +418,7 @@ public class ResultMapping {
     sb.append(", notNullColumns=").append(notNullColumns);
     sb.append(", columnPrefix='").append(columnPrefix).append('\'');
     sb.append(", flags=").append(flags);
+    sb.append(", batchSize=").append(batchSize);
     sb.append(", composites=").append(composites);
     sb.append(", lazy=").append(lazy);
     sb.append('}');
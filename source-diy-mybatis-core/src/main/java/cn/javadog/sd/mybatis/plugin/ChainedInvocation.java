@@ -0,0 +1,45 @@
+package cn.javadog.sd.mybatis.plugin;
+
+import java.lang.reflect.InvocationTargetException;
+
+import cn.javadog.sd.mybatis.plugin.DispatchChain.MethodDispatch;
+import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 01:10
+ *
+ * 展开模式下的方法调用信息，见 {@link DispatchChain}。
+ * proceed 时交给下一个拦截器，没有了就通过 MethodHandle 调用目标对象。
+ * 异常与嵌套代理时一致：下一层抛出的异常包装成 InvocationTargetException
+ *
+ * note getTarget 返回的始终是真正的目标对象，而不是内层的代理对象
+ */
+class ChainedInvocation extends Invocation {
+
+  private final MethodDispatch dispatch;
+
+  /**
+   * 下一个拦截器的位置
+   */
+  private final int next;
+
+  ChainedInvocation(Object target, MethodDispatch dispatch, Object[] args, int next) {
+    super(target, dispatch.method, args);
+    this.dispatch = dispatch;
+    this.next = next;
+  }
+
+  @Override
+  public Object proceed() throws InvocationTargetException, IllegalAccessException {
+    try {
+      if (next < dispatch.interceptors.length) {
+        return dispatch.interceptors[next].intercept(new ChainedInvocation(getTarget(), dispatch, getArgs(), next + 1));
+      }
+      return dispatch.invokeTarget(getTarget(), getArgs());
+    } catch (Throwable t) {
+      throw new InvocationTargetException(ExceptionUtil.unwrapThrowable(t));
+    }
+  }
+
+}
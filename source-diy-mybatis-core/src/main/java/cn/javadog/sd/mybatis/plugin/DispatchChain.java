@@ -0,0 +1,197 @@
+package cn.javadog.sd.mybatis.plugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cn.javadog.sd.mybatis.support.exceptions.PluginException;
+import cn.javadog.sd.mybatis.support.util.ExceptionUtil;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 01:10
+ *
+ * 一个目标类在一组拦截器下的调用链，由 {@link InterceptorChain} 在展开模式下按目标类创建并缓存。
+ * 与逐个拦截器 {@link Plugin#wrap(Object, Interceptor)} 的区别：
+ *    1. 整条链只有一层 JDK Proxy，代理类和它的构造方法在创建调用链时就准备好
+ *    2. 每个方法拦截它的拦截器在创建调用链时就排好序，调用时不再查 signatureMap
+ *    3. 没有拦截器拦截的方法直接调用目标对象，被拦截的方法最后通过 MethodHandle 调用目标对象，不走 Method#invoke
+ * 拦截器的顺序与嵌套代理时一致，后添加的在外层，先执行
+ */
+final class DispatchChain {
+
+  /**
+   * 没有参数的方法调用时的参数
+   */
+  private static final Object[] EMPTY_ARGS = new Object[0];
+
+  /**
+   * 调用目标对象的 MethodHandle 统一的类型 (Object target, Object[] args)Object
+   */
+  private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+  /**
+   * 代理类的构造方法，为 null 时说明没有拦截器拦截这个目标类，直接返回目标对象
+   */
+  private final Constructor<?> proxyConstructor;
+
+  /**
+   * 每个接口方法的调用信息
+   */
+  private final Map<Method, MethodDispatch> dispatches;
+
+  private DispatchChain(Constructor<?> proxyConstructor, Map<Method, MethodDispatch> dispatches) {
+    this.proxyConstructor = proxyConstructor;
+    this.dispatches = dispatches;
+  }
+
+  /**
+   * 创建目标类的调用链
+   *
+   * @param type 目标类
+   * @param interceptors 拦截器，按添加的顺序
+   * @param signatureMaps 每个拦截器拦截的方法映射，与 interceptors 一一对应
+   */
+  @SuppressWarnings("deprecation")
+  static DispatchChain build(Class<?> type, List<Interceptor> interceptors, List<Map<Class<?>, Set<Method>>> signatureMaps) {
+    // 所有拦截器拦截的接口中，目标类实现了的
+    Set<Class<?>> interfaces = new LinkedHashSet<>();
+    for (Map<Class<?>, Set<Method>> signatureMap : signatureMaps) {
+      for (Class<?> c : Plugin.getAllInterfaces(type, signatureMap)) {
+        interfaces.add(c);
+      }
+    }
+    if (interfaces.isEmpty()) {
+      return new DispatchChain(null, null);
+    }
+    Map<Method, MethodDispatch> dispatches = new HashMap<>();
+    for (Class<?> c : interfaces) {
+      for (Method method : c.getMethods()) {
+        if (dispatches.containsKey(method)) {
+          continue;
+        }
+        // 后添加的拦截器在外层，先执行
+        List<Interceptor> chain = new ArrayList<>();
+        for (int i = interceptors.size() - 1; i >= 0; i--) {
+          Set<Method> methods = signatureMaps.get(i).get(method.getDeclaringClass());
+          if (methods != null && methods.contains(method)) {
+            chain.add(interceptors.get(i));
+          }
+        }
+        dispatches.put(method, new MethodDispatch(method, invokerFor(method), chain.toArray(new Interceptor[chain.size()])));
+      }
+    }
+    try {
+      Class<?> proxyClass = Proxy.getProxyClass(type.getClassLoader(), interfaces.toArray(new Class<?>[interfaces.size()]));
+      return new DispatchChain(proxyClass.getConstructor(InvocationHandler.class), dispatches);
+    } catch (NoSuchMethodException e) {
+      throw new PluginException("Could not create the proxy class for " + type.getName() + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 把接口方法转换成 (Object target, Object[] args)Object 的 MethodHandle
+   */
+  private static MethodHandle invokerFor(Method method) {
+    try {
+      return MethodHandles.publicLookup().unreflect(method)
+          .asSpreader(Object[].class, method.getParameterCount())
+          .asType(INVOKER_TYPE);
+    } catch (IllegalAccessException e) {
+      throw new PluginException("Could not access method " + method + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 为目标对象创建代理，没有拦截器拦截这个目标类时返回目标对象
+   */
+  Object wrap(Object target) {
+    if (proxyConstructor == null) {
+      return target;
+    }
+    try {
+      return proxyConstructor.newInstance(new Handler(target, dispatches));
+    } catch (ReflectiveOperationException e) {
+      throw new PluginException("Could not create the proxy for " + target.getClass().getName() + ". Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 一个接口方法的调用信息
+   */
+  static final class MethodDispatch {
+
+    /**
+     * 接口方法
+     */
+    final Method method;
+
+    /**
+     * 调用目标对象的 MethodHandle
+     */
+    final MethodHandle invoker;
+
+    /**
+     * 拦截这个方法的拦截器，外层的在前
+     */
+    final Interceptor[] interceptors;
+
+    MethodDispatch(Method method, MethodHandle invoker, Interceptor[] interceptors) {
+      this.method = method;
+      this.invoker = invoker;
+      this.interceptors = interceptors;
+    }
+
+    /**
+     * 直接调用目标对象，异常原样抛出
+     */
+    Object invokeTarget(Object target, Object[] args) throws Throwable {
+      Object[] arguments = args == null ? EMPTY_ARGS : args;
+      return (Object) invoker.invokeExact(target, arguments);
+    }
+  }
+
+  /**
+   * 代理对象的调用处理器
+   */
+  private static final class Handler implements InvocationHandler {
+
+    private final Object target;
+
+    private final Map<Method, MethodDispatch> dispatches;
+
+    Handler(Object target, Map<Method, MethodDispatch> dispatches) {
+      this.target = target;
+      this.dispatches = dispatches;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      MethodDispatch dispatch = dispatches.get(method);
+      try {
+        if (dispatch == null) {
+          // Object 的方法，与 Plugin 一致，反射调用
+          return method.invoke(target, args);
+        }
+        if (dispatch.interceptors.length == 0) {
+          // 没有拦截器，直接调用目标对象
+          return dispatch.invokeTarget(target, args);
+        }
+        return dispatch.interceptors[0].intercept(new ChainedInvocation(target, dispatch, args, 1));
+      } catch (Exception e) {
+        throw ExceptionUtil.unwrapThrowable(e);
+      }
+    }
+  }
+
+}
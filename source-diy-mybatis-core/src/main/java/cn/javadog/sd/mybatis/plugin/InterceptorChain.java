@@ -1,8 +1,12 @@
 package cn.javadog.sd.mybatis.plugin;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author 余勇
@@ -19,10 +23,35 @@ public class InterceptorChain {
    */
   private final List<Interceptor> interceptors = new ArrayList<>();
 
+  /**
+   * 是否使用展开的调用链，见 {@link DispatchChain}。
+   * 开启后不再调用 {@link Interceptor#plugin(Object)}，而是按 @Intercepts 声明的方法拦截，
+   * 效果与 plugin 中调用 {@link Plugin#wrap(Object, Interceptor)} 相同，自定义了 plugin 逻辑的拦截器不要开启
+   */
+  private volatile boolean flattened;
+
+  /**
+   * 每个拦截器拦截的方法映射，与 interceptors 一一对应，展开模式下第一次用到时解析
+   */
+  private volatile List<Map<Class<?>, Set<Method>>> signatureMaps;
+
+  /**
+   * 每个目标类的调用链
+   */
+  private final Map<Class<?>, DispatchChain> dispatchChains = new ConcurrentHashMap<>();
+
   /**
    * 应用所有拦截器到指定目标对象
    */
   public Object pluginAll(Object target) {
+    if (flattened) {
+      // 没有拦截器时不需要代理
+      if (interceptors.isEmpty()) {
+        return target;
+      }
+      return dispatchChains.computeIfAbsent(target.getClass(),
+          type -> DispatchChain.build(type, interceptors, getSignatureMaps())).wrap(target);
+    }
     for (Interceptor interceptor : interceptors) {
       // 逐个将拦截器加载在目标对象上
       target = interceptor.plugin(target);
@@ -35,6 +64,9 @@ public class InterceptorChain {
    */
   public void addInterceptor(Interceptor interceptor) {
     interceptors.add(interceptor);
+    // 拦截器变了，之前的调用链都作废
+    signatureMaps = null;
+    dispatchChains.clear();
   }
 
   /**
@@ -44,4 +76,27 @@ public class InterceptorChain {
     return Collections.unmodifiableList(interceptors);
   }
 
+  public boolean isFlattened() {
+    return flattened;
+  }
+
+  public void setFlattened(boolean flattened) {
+    this.flattened = flattened;
+  }
+
+  /**
+   * 获取每个拦截器拦截的方法映射
+   */
+  private List<Map<Class<?>, Set<Method>>> getSignatureMaps() {
+    List<Map<Class<?>, Set<Method>>> maps = signatureMaps;
+    if (maps == null) {
+      maps = new ArrayList<>(interceptors.size());
+      for (Interceptor interceptor : interceptors) {
+        maps.add(Plugin.getSignatureMap(interceptor));
+      }
+      signatureMaps = maps;
+    }
+    return maps;
+  }
+
 }
@@ -99,7 +99,7 @@ public class Plugin implements InvocationHandler {
   /**
    * 获得拦截的方法映射
    */
-  private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
+  static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
     // 拿到拦截器上的 @Intercepts 注解对象
     Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
     // 没有注解直接GG，可以看看 issue #251
@@ -127,7 +127,7 @@ public class Plugin implements InvocationHandler {
   /**
    * 获得目标类的接口集合
    */
-  private static Class<?>[] getAllInterfaces(Class<?> type, Map<Class<?>, Set<Method>> signatureMap) {
+  static Class<?>[] getAllInterfaces(Class<?> type, Map<Class<?>, Set<Method>> signatureMap) {
     // 接口的集合
     Set<Class<?>> interfaces = new HashSet<>();
     // 循环递归 type 类，及其父类
@@ -74,6 +74,14 @@ public class DefaultParameterHandler implements ParameterHandler {
    */
   @Override
   public void setParameters(PreparedStatement ps) {
+    setParameters(ps, 0);
+  }
+
+  /**
+   * 将 parameterObject 参数值填充到 PreparedStatement，占位符的位置从 offset + 1 开始。
+   * 给 BatchExecutor 把多行 INSERT 合并成一条 VALUES (...),(...) 时用，每一行的参数填到自己的那一段
+   */
+  public void setParameters(PreparedStatement ps, int offset) {
     ErrorContext.instance().activity("setting parameters").object(mappedStatement.getParameterMap().getId());
     // 从 boundSql 中拿到 ParameterMapping 数组
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
@@ -117,7 +125,7 @@ public class DefaultParameterHandler implements ParameterHandler {
           }
           // 设置 ? 占位符的参数
           try {
-            typeHandler.setParameter(ps, i + 1, value, jdbcType);
+            typeHandler.setParameter(ps, offset + i + 1, value, jdbcType);
           } catch (TypeException | SQLException e) {
             throw new TypeException("Could not set parameters for mapping: " + parameterMapping + ". Cause: " + e, e);
           }
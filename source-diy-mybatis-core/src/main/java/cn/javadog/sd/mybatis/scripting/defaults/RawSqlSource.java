@@ -3,11 +3,13 @@ package cn.javadog.sd.mybatis.scripting.defaults;
 import java.util.HashMap;
 
 import cn.javadog.sd.mybatis.builder.SqlSourceBuilder;
+import cn.javadog.sd.mybatis.builder.StaticSqlSource;
 import cn.javadog.sd.mybatis.mapping.BoundSql;
 import cn.javadog.sd.mybatis.mapping.SqlSource;
 import cn.javadog.sd.mybatis.scripting.xmltags.DynamicContext;
 import cn.javadog.sd.mybatis.scripting.xmltags.SqlNode;
 import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
 
 /**
  * @author 余勇
@@ -22,6 +24,12 @@ public class RawSqlSource implements SqlSource {
    */
   private final SqlSource sqlSource;
 
+  /**
+   * 解析后的 SQL，以及它在 CacheKey 中的哈希。SQL 是固定的，哈希在这里算一次，每次查询构建 CacheKey 时就不用再算
+   */
+  private final String sql;
+  private final long sqlHash;
+
   /**
    * 构造函数
    */
@@ -39,6 +47,31 @@ public class RawSqlSource implements SqlSource {
     Class<?> clazz = parameterType == null ? Object.class : parameterType;
     // 获得 SqlSource 对象
     sqlSource = sqlSourceParser.parse(sql, clazz, new HashMap<>());
+    this.sql = ((StaticSqlSource) sqlSource).getSql();
+    this.sqlHash = CacheKey.hashOf(this.sql);
+  }
+
+  /**
+   * 构造函数，使用已经解析好的 StaticSqlSource，由配置快照恢复时使用，不再解析 #{}
+   */
+  public RawSqlSource(StaticSqlSource sqlSource) {
+    this.sqlSource = sqlSource;
+    this.sql = sqlSource.getSql();
+    this.sqlHash = CacheKey.hashOf(this.sql);
+  }
+
+  /**
+   * 获取解析后的 SQL
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * 获取 SQL 在 CacheKey 中的哈希
+   */
+  public long getSqlHash() {
+    return sqlHash;
   }
 
   /**
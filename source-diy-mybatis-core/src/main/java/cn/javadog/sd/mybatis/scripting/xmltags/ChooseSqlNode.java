@@ -25,13 +25,13 @@ public class ChooseSqlNode implements SqlNode {
   /**
    * <otherwise /> 标签对应的 SqlNode 节点
    */
-  private final SqlNode defaultSqlNode;
+  final SqlNode defaultSqlNode;
 
   /**
    * <when /> 标签对应的 SqlNode 节点数组。
    * 叫 ifSqlNodes 很有意思，侧面说明作用和 if 标签一样
    */
-  private final List<SqlNode> ifSqlNodes;
+  final List<SqlNode> ifSqlNodes;
 
   /**
    * 构造
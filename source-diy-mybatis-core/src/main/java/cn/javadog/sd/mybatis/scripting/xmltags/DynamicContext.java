@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
 import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
 import ognl.OgnlContext;
 import ognl.OgnlException;
@@ -56,6 +57,12 @@ public class DynamicContext {
    */
   private int uniqueNumber = 0;
 
+  /**
+   * 动态 SQL 的形状：走了哪些分支、foreach 遍历了几次、${} 替换成了什么，按执行顺序记录。
+   * 形状相同，生成的 SQL 就相同，DynamicSqlSource 据此复用解析好的 SqlSource。第一次记录时才创建
+   */
+  private CacheKey shape;
+
   /**
    * 构造函数。
    * 当需要使用到 OGNL 表达式时，parameterObject 非空
@@ -102,6 +109,23 @@ public class DynamicContext {
     return sqlBuilder.toString().trim();
   }
 
+  /**
+   * 记录一次会影响生成 SQL 的决定，子类要委托给外层的 context
+   */
+  public void recordShape(Object decision) {
+    if (shape == null) {
+      shape = new CacheKey();
+    }
+    shape.update(decision);
+  }
+
+  /**
+   * 获取记录的形状，一个分支都没有时为 null
+   */
+  public CacheKey getShape() {
+    return shape;
+  }
+
   /**
    * 获取唯一标示号，并自增
    */
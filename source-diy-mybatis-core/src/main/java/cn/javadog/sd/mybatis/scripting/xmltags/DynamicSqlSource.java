@@ -1,17 +1,29 @@
 package cn.javadog.sd.mybatis.scripting.xmltags;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import cn.javadog.sd.mybatis.builder.SqlSourceBuilder;
 import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.mapping.ParameterMapping;
 import cn.javadog.sd.mybatis.mapping.SqlSource;
 import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
+import cn.javadog.sd.mybatis.support.reflection.property.PropertyTokenizer;
 
 
 /**
  * @author Clinton Begin
  *
  * 动态的 SqlSource 实现类
+ *
+ * 每次执行都要应用一遍 SqlNode 树，再用 SqlSourceBuilder 解析生成的 SQL 中的 #{}，重新构建 ParameterMapping。
+ * 而 <if>/<where> 之类的语句通常只有少数几种形状，所以按形状（见 {@link DynamicContext#recordShape(Object)}）缓存解析好的 StaticSqlSource，
+ * 形状相同时跳过解析。缓存的个数上限由 dynamicSqlCacheSize 设置，满了之后新的形状不再缓存，设为 0 关闭。
+ * 像 #{item.v} 这样经过附加参数的嵌套属性，item 是 Map 时类型取决于 v 的值，无法放进形状，命中时要核对一遍，见 {@link ShapeEntry}
  */
 public class DynamicSqlSource implements SqlSource {
 
@@ -19,7 +31,12 @@ public class DynamicSqlSource implements SqlSource {
   /**
    * 根 SqlNode 对象
    */
-  private final SqlNode rootSqlNode;
+  final SqlNode rootSqlNode;
+
+  /**
+   * 形状与解析好的 SqlSource 的映射
+   */
+  private final ConcurrentHashMap<CacheKey, ShapeEntry> shapeCache = new ConcurrentHashMap<>();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
     this.configuration = configuration;
@@ -31,11 +48,9 @@ public class DynamicSqlSource implements SqlSource {
     // <1> 应用 rootSqlNode
     DynamicContext context = new DynamicContext(configuration, parameterObject);
     rootSqlNode.apply(context);
-    // <2> 创建 SqlSourceBuilder 对象
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
-    // <2> 解析出 SqlSource 对象
+    // <2> 解析出 SqlSource 对象，形状相同的直接复用
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    SqlSource sqlSource = resolveSqlSource(context, parameterType);
     // <3> 获得 BoundSql 对象
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     // <4> 添加附加参数到 BoundSql 对象中
@@ -45,4 +60,126 @@ public class DynamicSqlSource implements SqlSource {
     // <5> 返回 BoundSql 对象
     return boundSql;
   }
+
+  /**
+   * 获取已经缓存的形状的数量
+   */
+  public int getCachedShapeCount() {
+    return shapeCache.size();
+  }
+
+  /**
+   * 按形状获取解析好的 SqlSource，没有就解析并缓存
+   */
+  private SqlSource resolveSqlSource(DynamicContext context, Class<?> parameterType) {
+    int cacheSize = configuration.getDynamicSqlCacheSize();
+    if (cacheSize <= 0) {
+      return parse(context, parameterType);
+    }
+    CacheKey shape = createShapeKey(context, parameterType);
+    ShapeEntry entry = shapeCache.get(shape);
+    if (entry != null && entry.matches(configuration, context.getBindings())) {
+      return entry.sqlSource;
+    }
+    SqlSource sqlSource = parse(context, parameterType);
+    // 嵌套属性的类型变了的，用新的替换掉
+    if (entry != null || shapeCache.size() < cacheSize) {
+      shapeCache.put(shape, new ShapeEntry(configuration, sqlSource, context.getBindings()));
+    }
+    return sqlSource;
+  }
+
+  /**
+   * 解析生成的 SQL
+   */
+  private SqlSource parse(DynamicContext context, Class<?> parameterType) {
+    // 创建 SqlSourceBuilder 对象
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    return sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+  }
+
+  /**
+   * 创建形状的键。除了 SqlNode 树记录的分支，ParameterMapping 的 javaType 还取决于参数类型和附加参数值的类型，
+   * 比如 foreach 的元素是 Integer 还是 Long，所以这些类型也要算进去
+   */
+  private CacheKey createShapeKey(DynamicContext context, Class<?> parameterType) {
+    CacheKey recorded = context.getShape();
+    Map<String, Object> bindings = context.getBindings();
+    CacheKey shape = new CacheKey(3 + bindings.size() * 2);
+    shape.update(recorded);
+    shape.update(parameterType);
+    for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+      Object value = entry.getValue();
+      shape.update(entry.getKey());
+      shape.update(value == null ? null : value.getClass());
+    }
+    return shape;
+  }
+
+  /**
+   * 缓存的解析结果。ParameterMapping 的 javaType 和 TypeHandler 是按附加参数（bindings）中的属性类型解析的，
+   * 顶层的附加参数的类型已经在形状里，嵌套属性（比如 foreach 的元素是 Map 时的 #{item.v}）的类型取决于运行时的值，
+   * 这里记下解析时的类型，命中时核对，不一致就重新解析
+   */
+  private static class ShapeEntry {
+
+    final SqlSource sqlSource;
+
+    /**
+     * 从附加参数中取类型的嵌套属性
+     */
+    private final String[] properties;
+
+    /**
+     * 解析时这些属性的类型
+     */
+    private final Class<?>[] types;
+
+    ShapeEntry(Configuration configuration, SqlSource sqlSource, Map<String, Object> bindings) {
+      this.sqlSource = sqlSource;
+      List<String> nestedProperties = new ArrayList<>();
+      List<Class<?>> nestedTypes = new ArrayList<>();
+      MetaObject metaBindings = null;
+      for (ParameterMapping parameterMapping : sqlSource.getBoundSql(null).getParameterMappings()) {
+        String property = parameterMapping.getProperty();
+        if (property == null) {
+          continue;
+        }
+        PropertyTokenizer prop = new PropertyTokenizer(property);
+        if (!prop.hasNext() || !bindings.containsKey(prop.getName())) {
+          continue;
+        }
+        if (metaBindings == null) {
+          metaBindings = configuration.newMetaObject(bindings);
+        }
+        nestedProperties.add(property);
+        nestedTypes.add(typeOf(metaBindings, property));
+      }
+      this.properties = nestedProperties.toArray(new String[0]);
+      this.types = nestedTypes.toArray(new Class<?>[0]);
+    }
+
+    /**
+     * 本次调用的嵌套属性类型是否与解析时一致
+     */
+    boolean matches(Configuration configuration, Map<String, Object> bindings) {
+      if (properties.length == 0) {
+        return true;
+      }
+      MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (int i = 0; i < properties.length; i++) {
+        if (types[i] != typeOf(metaBindings, properties[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * 与 SqlSourceBuilder 一致，附加参数中没有的属性返回 null，由参数类型决定
+     */
+    private static Class<?> typeOf(MetaObject metaBindings, String property) {
+      return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+  }
 }
@@ -24,6 +24,11 @@ public class ForEachSqlNode implements SqlNode {
    */
   public static final String ITEM_PREFIX = "__frch_";
 
+  /**
+   * 记录形状时，每个元素的开始标记
+   */
+  private static final Object ITERATION = new Object();
+
   /**
    * 表达式计算器
    */
@@ -32,37 +37,37 @@ public class ForEachSqlNode implements SqlNode {
   /**
    * 集合的表达式，就是 collection 属性值
    */
-  private final String collectionExpression;
+  final String collectionExpression;
 
   /**
    * 字节点
    */
-  private final SqlNode contents;
+  final SqlNode contents;
 
   /**
    * 开标签
    */
-  private final String open;
+  final String open;
 
   /**
    * 闭标签
    */
-  private final String close;
+  final String close;
 
   /**
    * 分隔符
    */
-  private final String separator;
+  final String separator;
 
   /**
    * 集合项
    */
-  private final String item;
+  final String item;
 
   /**
    * 索引变量的名称
    */
-  private final String index;
+  final String index;
 
   /**
    * 全局配置
@@ -95,6 +100,7 @@ public class ForEachSqlNode implements SqlNode {
     final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
     // 如果一个元素都没有，直接返回
     if (!iterable.iterator().hasNext()) {
+      context.recordShape(0);
       return true;
     }
     boolean first = true;
@@ -113,6 +119,8 @@ public class ForEachSqlNode implements SqlNode {
         // 使用分隔符作为前缀
         context = new PrefixedContext(context, separator);
       }
+      // 每个元素开始前记一下，子标签的分支记录才能和元素对应上，不会与别的遍历次数混淆
+      context.recordShape(ITERATION);
       // 获得唯一编号
       int uniqueNumber = context.getUniqueNumber();
       // 绑定到 context 中，Issue #709
@@ -143,6 +151,8 @@ public class ForEachSqlNode implements SqlNode {
       context = oldContext;
       i++;
     }
+    // 遍历的次数
+    context.recordShape(i);
     // 添加 close 到 SQL 中
     applyClose(context);
     // 移除 index 和 item 对应的绑定，实际上这俩标签没起过啥作用
@@ -309,6 +319,14 @@ public class ForEachSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    /**
+     * 记录形状
+     */
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
+
   }
 
   /**
@@ -399,6 +417,14 @@ public class ForEachSqlNode implements SqlNode {
     public int getUniqueNumber() {
       return delegate.getUniqueNumber();
     }
+
+    /**
+     * 记录形状
+     */
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
   }
 
 }
@@ -19,12 +19,12 @@ public class IfSqlNode implements SqlNode {
   /**
    * 判断表达式
    */
-  private final String test;
+  final String test;
 
   /**
    * 内嵌的 SqlNode 节点，也就是里面的文本 TextNode
    */
-  private final SqlNode contents;
+  final SqlNode contents;
 
   /**
    * 构造函数
@@ -42,11 +42,13 @@ public class IfSqlNode implements SqlNode {
   public boolean apply(DynamicContext context) {
     // 判断是否符合条件
     if (evaluator.evaluateBoolean(test, context.getBindings())) {
+      context.recordShape(Boolean.TRUE);
       // 符合，执行 contents 的标签解析
       contents.apply(context);
       // 返回成功
       return true;
     }
+    context.recordShape(Boolean.FALSE);
     // 不符合，返回失败
     return false;
   }
@@ -23,7 +23,7 @@ public class MixedSqlNode implements SqlNode {
   /**
    * 内嵌的 SqlNode 数组
    */
-  private final List<SqlNode> contents;
+  final List<SqlNode> contents;
 
   /**
    * 构造函数
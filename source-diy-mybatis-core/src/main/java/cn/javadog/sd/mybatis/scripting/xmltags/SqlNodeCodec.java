@@ -0,0 +1,184 @@
+package cn.javadog.sd.mybatis.scripting.xmltags;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import cn.javadog.sd.mybatis.builder.snapshot.SnapshotInput;
+import cn.javadog.sd.mybatis.builder.snapshot.SnapshotOutput;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.exceptions.BuilderException;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 04:10
+ *
+ * SqlNode 树的编码，给配置快照用，见 {@link cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshot}。
+ * 每个节点先写一个类型标记，再按构造方法的参数写属性，子节点递归写入；读取时调用相同的构造方法，
+ * 节点里的 ExpressionEvaluator 等运行时对象由构造方法重新创建。
+ *
+ * note 只支持 XMLScriptBuilder 生成的节点，WhereSqlNode 和 SetSqlNode 要在 TrimSqlNode 之前判断
+ */
+public final class SqlNodeCodec {
+
+  private static final int MIXED = 1;
+  private static final int STATIC_TEXT = 2;
+  private static final int TEXT = 3;
+  private static final int IF = 4;
+  private static final int CHOOSE = 5;
+  private static final int WHERE = 6;
+  private static final int SET = 7;
+  private static final int TRIM = 8;
+  private static final int FOREACH = 9;
+  private static final int VAR_DECL = 10;
+
+  private SqlNodeCodec() {
+  }
+
+  /**
+   * 写 DynamicSqlSource 的根节点
+   */
+  public static void write(SnapshotOutput out, DynamicSqlSource sqlSource) throws IOException {
+    write(out, sqlSource.rootSqlNode);
+  }
+
+  /**
+   * 读根节点，创建 DynamicSqlSource
+   */
+  public static DynamicSqlSource readDynamicSqlSource(SnapshotInput in, Configuration configuration) throws IOException {
+    return new DynamicSqlSource(configuration, read(in, configuration));
+  }
+
+  /**
+   * 写节点，null 写 0
+   */
+  public static void write(SnapshotOutput out, SqlNode node) throws IOException {
+    if (node == null) {
+      out.writeByte(0);
+    } else if (node instanceof MixedSqlNode) {
+      out.writeByte(MIXED);
+      writeNodes(out, ((MixedSqlNode) node).contents);
+    } else if (node instanceof StaticTextSqlNode) {
+      out.writeByte(STATIC_TEXT);
+      out.writeString(((StaticTextSqlNode) node).text);
+    } else if (node instanceof TextSqlNode) {
+      TextSqlNode text = (TextSqlNode) node;
+      out.writeByte(TEXT);
+      out.writeString(text.text);
+      out.writeString(text.injectionFilter == null ? null : text.injectionFilter.pattern());
+    } else if (node instanceof IfSqlNode) {
+      IfSqlNode ifNode = (IfSqlNode) node;
+      out.writeByte(IF);
+      out.writeString(ifNode.test);
+      write(out, ifNode.contents);
+    } else if (node instanceof ChooseSqlNode) {
+      ChooseSqlNode choose = (ChooseSqlNode) node;
+      out.writeByte(CHOOSE);
+      writeNodes(out, choose.ifSqlNodes);
+      write(out, choose.defaultSqlNode);
+    } else if (node instanceof WhereSqlNode) {
+      out.writeByte(WHERE);
+      write(out, ((WhereSqlNode) node).contents);
+    } else if (node instanceof SetSqlNode) {
+      out.writeByte(SET);
+      write(out, ((SetSqlNode) node).contents);
+    } else if (node instanceof TrimSqlNode) {
+      TrimSqlNode trim = (TrimSqlNode) node;
+      out.writeByte(TRIM);
+      out.writeString(trim.prefix);
+      out.writeStrings(trim.prefixesToOverride);
+      out.writeString(trim.suffix);
+      out.writeStrings(trim.suffixesToOverride);
+      write(out, trim.contents);
+    } else if (node instanceof ForEachSqlNode) {
+      ForEachSqlNode forEach = (ForEachSqlNode) node;
+      out.writeByte(FOREACH);
+      out.writeString(forEach.collectionExpression);
+      out.writeString(forEach.index);
+      out.writeString(forEach.item);
+      out.writeString(forEach.open);
+      out.writeString(forEach.close);
+      out.writeString(forEach.separator);
+      write(out, forEach.contents);
+    } else if (node instanceof VarDeclSqlNode) {
+      VarDeclSqlNode varDecl = (VarDeclSqlNode) node;
+      out.writeByte(VAR_DECL);
+      out.writeString(varDecl.name);
+      out.writeString(varDecl.expression);
+    } else {
+      throw new BuilderException("Cannot write " + node.getClass().getName() + " to a configuration snapshot.");
+    }
+  }
+
+  /**
+   * 读节点
+   */
+  public static SqlNode read(SnapshotInput in, Configuration configuration) throws IOException {
+    int type = in.readByte();
+    switch (type) {
+      case 0:
+        return null;
+      case MIXED:
+        return new MixedSqlNode(readNodes(in, configuration));
+      case STATIC_TEXT:
+        return new StaticTextSqlNode(in.readString());
+      case TEXT: {
+        String text = in.readString();
+        String injectionFilter = in.readString();
+        return new TextSqlNode(text, injectionFilter == null ? null : Pattern.compile(injectionFilter));
+      }
+      case IF: {
+        String test = in.readString();
+        return new IfSqlNode(read(in, configuration), test);
+      }
+      case CHOOSE: {
+        List<SqlNode> ifSqlNodes = readNodes(in, configuration);
+        return new ChooseSqlNode(ifSqlNodes, read(in, configuration));
+      }
+      case WHERE:
+        return new WhereSqlNode(configuration, read(in, configuration));
+      case SET:
+        return new SetSqlNode(configuration, read(in, configuration));
+      case TRIM: {
+        String prefix = in.readString();
+        List<String> prefixesToOverride = in.readStrings();
+        String suffix = in.readString();
+        List<String> suffixesToOverride = in.readStrings();
+        return new TrimSqlNode(configuration, read(in, configuration), prefix, prefixesToOverride, suffix, suffixesToOverride);
+      }
+      case FOREACH: {
+        String collectionExpression = in.readString();
+        String index = in.readString();
+        String item = in.readString();
+        String open = in.readString();
+        String close = in.readString();
+        String separator = in.readString();
+        return new ForEachSqlNode(configuration, read(in, configuration), collectionExpression, index, item, open, close, separator);
+      }
+      case VAR_DECL: {
+        String name = in.readString();
+        return new VarDeclSqlNode(name, in.readString());
+      }
+      default:
+        throw new BuilderException("Unknown SqlNode type " + type + " in configuration snapshot.");
+    }
+  }
+
+  private static void writeNodes(SnapshotOutput out, List<SqlNode> nodes) throws IOException {
+    out.writeInt(nodes.size());
+    for (SqlNode node : nodes) {
+      write(out, node);
+    }
+  }
+
+  private static List<SqlNode> readNodes(SnapshotInput in, Configuration configuration) throws IOException {
+    int size = in.readInt();
+    List<SqlNode> nodes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      nodes.add(read(in, configuration));
+    }
+    return nodes;
+  }
+
+}
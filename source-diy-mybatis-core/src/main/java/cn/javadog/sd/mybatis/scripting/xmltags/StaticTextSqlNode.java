@@ -12,7 +12,7 @@ public class StaticTextSqlNode implements SqlNode {
   /**
    * 文本内容
    */
-  private final String text;
+  final String text;
 
   /**
    * 构造函数
@@ -19,12 +19,12 @@ public class TextSqlNode implements SqlNode {
   /**
    * 文本
    */
-  private final String text;
+  final String text;
 
   /**
    * 目前该属性只在单元测试中使用，暂时无视
    */
-  private final Pattern injectionFilter;
+  final Pattern injectionFilter;
 
   /**
    * 构造函数
@@ -118,6 +118,8 @@ public class TextSqlNode implements SqlNode {
       String srtValue = (value == null ? "" : String.valueOf(value));
       // 检查是否SQL注入
       checkInjection(srtValue);
+      // 替换的值会进入 SQL，也是形状的一部分
+      context.recordShape(srtValue);
       // 返回该值
       return srtValue;
     }
@@ -25,27 +25,27 @@ public class TrimSqlNode implements SqlNode {
   /**
    * 内含的 SqlNode 节点
    */
-  private final SqlNode contents;
+  final SqlNode contents;
 
   /**
    * 前缀
    */
-  private final String prefix;
+  final String prefix;
 
   /**
    * 后缀
    */
-  private final String suffix;
+  final String suffix;
 
   /**
    * 需要被删除的前缀
    */
-  private final List<String> prefixesToOverride;
+  final List<String> prefixesToOverride;
 
   /**
    * 需要被删除的后缀
    */
-  private final List<String> suffixesToOverride;
+  final List<String> suffixesToOverride;
 
   /**
    * 全局配置
@@ -181,6 +181,14 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    /**
+     * 记录形状
+     */
+    @Override
+    public void recordShape(Object decision) {
+      delegate.recordShape(decision);
+    }
+
     /**
      * 将SQL暂时拼接到 sqlBuffer
      */
@@ -12,12 +12,12 @@ public class VarDeclSqlNode implements SqlNode {
   /**
    * 名字属性
    */
-  private final String name;
+  final String name;
 
   /**
    * 表达式，也就是value属性
    */
-  private final String expression;
+  final String expression;
 
   /**
    * 构造函数
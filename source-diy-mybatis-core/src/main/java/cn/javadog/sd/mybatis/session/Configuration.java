@@ -2,25 +2,35 @@ package cn.javadog.sd.mybatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 
+import cn.javadog.sd.mybatis.binding.AsyncMapperExecutors;
 import cn.javadog.sd.mybatis.binding.MapperRegistry;
 import cn.javadog.sd.mybatis.builder.annotation.MethodResolver;
 import cn.javadog.sd.mybatis.builder.xml.CacheRefResolver;
+import cn.javadog.sd.mybatis.builder.xml.ParallelMapperParser;
 import cn.javadog.sd.mybatis.builder.xml.ResultMapResolver;
 import cn.javadog.sd.mybatis.builder.xml.XMLStatementBuilder;
 import cn.javadog.sd.mybatis.executor.BatchExecutor;
+import cn.javadog.sd.mybatis.executor.BatchFlushListener;
 import cn.javadog.sd.mybatis.executor.CachingExecutor;
 import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.executor.QueryCoalescer;
+import cn.javadog.sd.mybatis.executor.resultset.RowMappingPlanCompiler;
 import cn.javadog.sd.mybatis.executor.ReuseExecutor;
 import cn.javadog.sd.mybatis.executor.SimpleExecutor;
 import cn.javadog.sd.mybatis.executor.keygen.KeyGenerator;
+import cn.javadog.sd.mybatis.executor.loader.BatchSqlSource;
 import cn.javadog.sd.mybatis.executor.loader.ProxyFactory;
 import cn.javadog.sd.mybatis.executor.loader.cglib.CglibProxyFactory;
 import cn.javadog.sd.mybatis.executor.loader.javassist.JavassistProxyFactory;
@@ -44,7 +54,11 @@ import cn.javadog.sd.mybatis.scripting.xmltags.XMLLanguageDriver;
 import cn.javadog.sd.mybatis.support.cache.Cache;
 import cn.javadog.sd.mybatis.support.cache.decorators.FifoCache;
 import cn.javadog.sd.mybatis.support.cache.decorators.LruCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.WTinyLfuCache;
+import cn.javadog.sd.mybatis.support.cache.impl.ConcurrentCache;
+import cn.javadog.sd.mybatis.support.cache.impl.OffHeapCache;
 import cn.javadog.sd.mybatis.support.cache.impl.PerpetualCache;
+import cn.javadog.sd.mybatis.support.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import cn.javadog.sd.mybatis.support.datasource.pooled.PooledDataSourceFactory;
 import cn.javadog.sd.mybatis.support.datasource.unpooled.UnpooledDataSourceFactory;
 import cn.javadog.sd.mybatis.support.io.VFS;
@@ -54,6 +68,7 @@ import cn.javadog.sd.mybatis.support.logging.nologging.NoLoggingImpl;
 import cn.javadog.sd.mybatis.support.logging.slf4j.Slf4jImpl;
 import cn.javadog.sd.mybatis.support.logging.stdout.StdOutImpl;
 import cn.javadog.sd.mybatis.support.parsing.XNode;
+import cn.javadog.sd.mybatis.support.parsing.XPathParser;
 import cn.javadog.sd.mybatis.support.reflection.factory.DefaultObjectFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.DefaultReflectorFactory;
 import cn.javadog.sd.mybatis.support.reflection.factory.ObjectFactory;
@@ -126,6 +141,16 @@ public class Configuration {
    */
   protected boolean cacheEnabled = true;
 
+  /**
+   * 二级缓存未命中时，是否合并同一个 CacheKey 的并发查询，见 {@link QueryCoalescer}
+   */
+  protected boolean coalesceQueries;
+
+  /**
+   * 等待合并查询结果的超时时间，单位：毫秒，超时后自己查库
+   */
+  protected long coalesceTimeout = 3000;
+
   /**
    * 指定当结果集中值为 null 的时候是否调用映射对象的 setter（map 对象时为 put）方法，
    * 这在依赖于 Map.keySet() 或 null 值初始化的时候比较有用。
@@ -175,6 +200,104 @@ public class Configuration {
    */
   protected Set<String> lazyLoadTriggerMethods = new HashSet<String>(Arrays.asList("equals", "clone", "hashCode", "toString"));
 
+  /**
+   * 每个动态 SQL 最多缓存多少种形状解析好的 SqlSource，0 代表不缓存，见 DynamicSqlSource
+   */
+  protected int dynamicSqlCacheSize = 64;
+
+  /**
+   * 合并查询的实现，整个 Configuration 共享
+   */
+  protected final QueryCoalescer queryCoalescer = new QueryCoalescer();
+
+  /**
+   * 简单映射是否编译成按列位置映射的计划，见 {@link RowMappingPlanCompiler}
+   */
+  protected boolean compiledRowMappingEnabled = true;
+
+  /**
+   * 行映射计划的编译器，整个 Configuration 共享
+   */
+  protected final RowMappingPlanCompiler rowMappingPlanCompiler = new RowMappingPlanCompiler(this);
+
+  /**
+   * fetchType="batch" 的嵌套查询没有指定 batchSize 时，每批最多的关联键个数
+   */
+  protected int defaultBatchFetchSize = 100;
+
+  /**
+   * 延迟加载的嵌套查询批量化时，每批最多的关联键个数，0 代表不批量化。
+   * 开启后同一结果集中各个对象的同一个延迟属性，任意一个触发加载时，连同其他还没加载的一起用一次 IN (...) 查询，见 {@link BatchSqlSource}
+   */
+  protected int lazyLoadBatchSize = 0;
+
+  /**
+   * 由嵌套查询推导出的批量查询，KEY 为嵌套查询的 id，不能推导的也记下，每个嵌套查询只推导一次
+   */
+  protected final Map<String, Optional<MappedStatement>> lazyBatchStatements = new ConcurrentHashMap<>();
+
+  /**
+   * BatchExecutor 一个刷入窗口内最多累计的行数，达到后自动刷入，0 代表不限制，也就是默认不自动刷入
+   */
+  protected int batchFlushSize = 0;
+
+  /**
+   * BatchExecutor 一个刷入窗口内最多累计的参数字节数（估算值），达到后自动刷入，0 代表不限制
+   */
+  protected long batchFlushBytes = 0;
+
+  /**
+   * BatchExecutor 每次刷入后的监听器。设置后自动刷入的结果交给它，BatchExecutor 不再保留
+   */
+  protected BatchFlushListener batchFlushListener;
+
+  /**
+   * BatchExecutor 是否把单行的 INSERT ... VALUES (...) 改写成多行 VALUES 执行
+   */
+  protected boolean batchInsertRewriteEnabled = false;
+
+  /**
+   * 改写成多行 VALUES 时，一条语句最多的占位符个数，SQL Server 的上限是 2100，默认取 2000
+   */
+  protected int batchInsertMaxParameters = 2000;
+
+  /**
+   * BatchExecutor 中 INSERT 表的先后顺序，父表在前。INSERT 越过前面的 Statement 追加时，只能越过同一张表，
+   * 或者在这里排在它后面的表（它的子表）的 Statement，否则新开一个 Statement，保证子表的行不会先于父表执行
+   */
+  protected List<String> batchInsertTableOrder = Collections.emptyList();
+
+  /**
+   * 返回 CompletableFuture 的 Mapper 方法的执行器，没有设置时第一次用到才创建默认的，见 {@link AsyncMapperExecutors}
+   */
+  protected volatile java.util.concurrent.Executor asyncExecutor;
+
+  /**
+   * 分区查询缓冲的结果总数，见 {@link SqlSession#selectPartitioned}
+   */
+  protected int partitionedQueryBufferSize = 1024;
+
+  /**
+   * 分区查询读取游标、映射结果的线程池，没有设置时使用 ForkJoinPool#commonPool
+   */
+  protected ForkJoinPool partitionedQueryPool;
+
+  /**
+   * 是否并行解析 <mappers />，见 {@link ParallelMapperParser}。
+   * 开启后各个 mapper XML（包括 mapper 接口同名的 XML）的文档在线程池中并行解析，注册依然按声明的顺序在当前线程完成
+   */
+  protected boolean parallelMapperParsingEnabled = false;
+
+  /**
+   * 并行解析 <mappers /> 的线程池，没有设置时使用 ForkJoinPool#commonPool
+   */
+  protected ForkJoinPool mapperParsingPool;
+
+  /**
+   * 并行解析好的 mapper XML 文档，key 为 resource 或 url，注册时取出，构建完成后清空
+   */
+  protected final Map<String, XPathParser> parsedMapperDocuments = new ConcurrentHashMap<>();
+
   /**
    * 默认的Statement超时时间
    */
@@ -345,11 +468,15 @@ public class Configuration {
     typeAliasRegistry.registerAlias("MANAGED", ManagedTransactionFactory.class);
     // 连接池类型
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
     // 缓存实现类类型
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentCache.class);
+    typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", WTinyLfuCache.class);
     // 语言驱动类型
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
@@ -560,6 +687,197 @@ public class Configuration {
     this.cacheEnabled = cacheEnabled;
   }
 
+  public boolean isCoalesceQueries() {
+    return coalesceQueries;
+  }
+
+  public void setCoalesceQueries(boolean coalesceQueries) {
+    this.coalesceQueries = coalesceQueries;
+  }
+
+  public long getCoalesceTimeout() {
+    return coalesceTimeout;
+  }
+
+  public void setCoalesceTimeout(long coalesceTimeout) {
+    this.coalesceTimeout = coalesceTimeout;
+  }
+
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  public QueryCoalescer getQueryCoalescer() {
+    return queryCoalescer;
+  }
+
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  public RowMappingPlanCompiler getRowMappingPlanCompiler() {
+    return rowMappingPlanCompiler;
+  }
+
+  public int getDefaultBatchFetchSize() {
+    return defaultBatchFetchSize;
+  }
+
+  public void setDefaultBatchFetchSize(int defaultBatchFetchSize) {
+    this.defaultBatchFetchSize = defaultBatchFetchSize;
+  }
+
+  public int getLazyLoadBatchSize() {
+    return lazyLoadBatchSize;
+  }
+
+  public void setLazyLoadBatchSize(int lazyLoadBatchSize) {
+    this.lazyLoadBatchSize = lazyLoadBatchSize;
+  }
+
+  /**
+   * 获取由嵌套查询推导出的批量查询，不能推导时返回 null，见 {@link BatchSqlSource#batchStatementOf(MappedStatement)}
+   */
+  public MappedStatement getLazyBatchStatement(MappedStatement nestedQuery) {
+    return lazyBatchStatements.computeIfAbsent(nestedQuery.getId(),
+        id -> Optional.ofNullable(BatchSqlSource.batchStatementOf(nestedQuery))).orElse(null);
+  }
+
+  public int getBatchFlushSize() {
+    return batchFlushSize;
+  }
+
+  public void setBatchFlushSize(int batchFlushSize) {
+    this.batchFlushSize = batchFlushSize;
+  }
+
+  public long getBatchFlushBytes() {
+    return batchFlushBytes;
+  }
+
+  public void setBatchFlushBytes(long batchFlushBytes) {
+    this.batchFlushBytes = batchFlushBytes;
+  }
+
+  /**
+   * 是否显式开启了 BatchExecutor 的自动刷入，即 batchFlushSize、batchFlushBytes 任意一个大于 0
+   */
+  public boolean isBatchAutoFlushEnabled() {
+    return batchFlushSize > 0 || batchFlushBytes > 0;
+  }
+
+  public BatchFlushListener getBatchFlushListener() {
+    return batchFlushListener;
+  }
+
+  public void setBatchFlushListener(BatchFlushListener batchFlushListener) {
+    this.batchFlushListener = batchFlushListener;
+  }
+
+  public boolean isBatchInsertRewriteEnabled() {
+    return batchInsertRewriteEnabled;
+  }
+
+  public void setBatchInsertRewriteEnabled(boolean batchInsertRewriteEnabled) {
+    this.batchInsertRewriteEnabled = batchInsertRewriteEnabled;
+  }
+
+  public int getBatchInsertMaxParameters() {
+    return batchInsertMaxParameters;
+  }
+
+  public java.util.concurrent.Executor getAsyncExecutor() {
+    java.util.concurrent.Executor executor = asyncExecutor;
+    if (executor == null) {
+      synchronized (this) {
+        executor = asyncExecutor;
+        if (executor == null) {
+          executor = AsyncMapperExecutors.newDefaultExecutor();
+          asyncExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  public void setAsyncExecutor(java.util.concurrent.Executor asyncExecutor) {
+    this.asyncExecutor = asyncExecutor;
+  }
+
+  public void setBatchInsertMaxParameters(int batchInsertMaxParameters) {
+    this.batchInsertMaxParameters = batchInsertMaxParameters;
+  }
+
+  public List<String> getBatchInsertTableOrder() {
+    return batchInsertTableOrder;
+  }
+
+  public void setBatchInsertTableOrder(List<String> batchInsertTableOrder) {
+    this.batchInsertTableOrder = batchInsertTableOrder;
+  }
+
+  public int getPartitionedQueryBufferSize() {
+    return partitionedQueryBufferSize;
+  }
+
+  public void setPartitionedQueryBufferSize(int partitionedQueryBufferSize) {
+    this.partitionedQueryBufferSize = partitionedQueryBufferSize;
+  }
+
+  public ForkJoinPool getPartitionedQueryPool() {
+    return partitionedQueryPool != null ? partitionedQueryPool : ForkJoinPool.commonPool();
+  }
+
+  public void setPartitionedQueryPool(ForkJoinPool partitionedQueryPool) {
+    this.partitionedQueryPool = partitionedQueryPool;
+  }
+
+  public boolean isParallelMapperParsingEnabled() {
+    return parallelMapperParsingEnabled;
+  }
+
+  public void setParallelMapperParsingEnabled(boolean parallelMapperParsingEnabled) {
+    this.parallelMapperParsingEnabled = parallelMapperParsingEnabled;
+  }
+
+  public ForkJoinPool getMapperParsingPool() {
+    return mapperParsingPool != null ? mapperParsingPool : ForkJoinPool.commonPool();
+  }
+
+  public void setMapperParsingPool(ForkJoinPool mapperParsingPool) {
+    this.mapperParsingPool = mapperParsingPool;
+  }
+
+  /**
+   * 添加并行解析好的 mapper XML 文档
+   */
+  public void addParsedMapperDocument(String resource, XPathParser parser) {
+    parsedMapperDocuments.put(resource, parser);
+  }
+
+  /**
+   * 取出并行解析好的 mapper XML 文档，没有时返回 null，由调用方照常解析。
+   * 文档在解析 <include /> 时会被修改，只能使用一次
+   */
+  public XPathParser takeParsedMapperDocument(String resource) {
+    return parsedMapperDocuments.isEmpty() ? null : parsedMapperDocuments.remove(resource);
+  }
+
+  /**
+   * 清空没有用到的 mapper XML 文档
+   */
+  public void clearParsedMapperDocuments() {
+    parsedMapperDocuments.clear();
+  }
+
   public Integer getDefaultStatementTimeout() {
     return defaultStatementTimeout;
   }
@@ -672,6 +990,17 @@ public class Configuration {
     return interceptorChain.getInterceptors();
   }
 
+  /**
+   * 插件是否使用展开的调用链，每个目标类只有一层代理，见 {@link InterceptorChain#setFlattened(boolean)}
+   */
+  public boolean isFlattenedPluginChainEnabled() {
+    return interceptorChain.isFlattened();
+  }
+
+  public void setFlattenedPluginChainEnabled(boolean flattenedPluginChainEnabled) {
+    interceptorChain.setFlattened(flattenedPluginChainEnabled);
+  }
+
   public LanguageDriverRegistry getLanguageRegistry() {
     return languageRegistry;
   }
@@ -0,0 +1,24 @@
+package cn.javadog.sd.mybatis.session;
+
+import java.util.List;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 00:20
+ *
+ * 分区查询的分区器，见 {@link SqlSession#selectPartitioned(String, Object, Partitioner, int)}。
+ * 把查询参数拆成若干份互不重叠的参数，例如主键的若干个区间，同一条语句用每一份参数各执行一次，合起来就是完整的结果。
+ * 常用的按数值区间拆分见 {@link RangePartitioner}
+ */
+public interface Partitioner {
+
+  /**
+   * 拆分参数
+   *
+   * @param parameter 查询参数
+   * @param parallelism 并行度，拆出的份数一般与它相同，也可以更多，同一时间最多执行 parallelism 份
+   * @return 每一份的参数，按结果的顺序排列
+   */
+  List<?> partition(Object parameter, int parallelism);
+
+}
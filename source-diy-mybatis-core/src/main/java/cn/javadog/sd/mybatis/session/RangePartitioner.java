@@ -0,0 +1,87 @@
+package cn.javadog.sd.mybatis.session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
+import cn.javadog.sd.mybatis.support.reflection.meta.SystemMetaObject;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 00:20
+ *
+ * 按数值区间拆分的分区器，把 [min, max) 平均分成 parallelism 段。
+ * 每一份参数是一个 Map，包含原参数的内容（Map 的所有键，或者 JavaBean 可读的属性），再加上这一段的下界和上界，
+ * 语句中写成 id &gt;= #{lower} and id &lt; #{upper} 即可，下界包含，上界不包含
+ */
+public class RangePartitioner implements Partitioner {
+
+  /**
+   * 下界的参数名
+   */
+  private final String lowerProperty;
+
+  /**
+   * 上界的参数名
+   */
+  private final String upperProperty;
+
+  /**
+   * 整个区间的下界，包含
+   */
+  private final long min;
+
+  /**
+   * 整个区间的上界，不包含
+   */
+  private final long max;
+
+  public RangePartitioner(String lowerProperty, String upperProperty, long min, long max) {
+    if (max < min) {
+      throw new IllegalArgumentException("max (" + max + ") must not be less than min (" + min + ")");
+    }
+    this.lowerProperty = lowerProperty;
+    this.upperProperty = upperProperty;
+    this.min = min;
+    this.max = max;
+  }
+
+  @Override
+  public List<?> partition(Object parameter, int parallelism) {
+    long span = max - min;
+    // 区间比并行度还小时，每段只有一个值
+    int count = (int) Math.max(1, Math.min(parallelism, span));
+    List<Map<String, Object>> partitions = new ArrayList<>(count);
+    long lower = min;
+    for (int i = 0; i < count; i++) {
+      // 余数分给前面几段
+      long upper = lower + span / count + (i < span % count ? 1 : 0);
+      Map<String, Object> partition = copyOf(parameter);
+      partition.put(lowerProperty, lower);
+      partition.put(upperProperty, upper);
+      partitions.add(partition);
+      lower = upper;
+    }
+    return partitions;
+  }
+
+  /**
+   * 复制原参数的内容
+   */
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> copyOf(Object parameter) {
+    Map<String, Object> copy = new HashMap<>();
+    if (parameter instanceof Map) {
+      copy.putAll((Map<String, Object>) parameter);
+    } else if (parameter != null) {
+      MetaObject metaObject = SystemMetaObject.forObject(parameter);
+      for (String name : metaObject.getGetterNames()) {
+        copy.put(name, metaObject.getValue(name));
+      }
+    }
+    return copy;
+  }
+
+}
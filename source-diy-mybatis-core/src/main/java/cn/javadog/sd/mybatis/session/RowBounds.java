@@ -33,20 +33,32 @@ public class RowBounds {
    */
   private final int limit;
 
+  /**
+   * 本次调用的 fetchSize，执行语句之前设置到 Statement 上，优先于语句和 Configuration 的配置，null 代表不指定
+   */
+  private final Integer fetchSize;
+
   /**
    * 默认构造，使用默认值
    */
   public RowBounds() {
-    this.offset = NO_ROW_OFFSET;
-    this.limit = NO_ROW_LIMIT;
+    this(NO_ROW_OFFSET, NO_ROW_LIMIT);
   }
 
   /**
    * 自定义构造
    */
   public RowBounds(int offset, int limit) {
+    this(offset, limit, null);
+  }
+
+  /**
+   * 自定义构造，同时指定本次调用的 fetchSize
+   */
+  public RowBounds(int offset, int limit, Integer fetchSize) {
     this.offset = offset;
     this.limit = limit;
+    this.fetchSize = fetchSize;
   }
 
   /**
@@ -63,4 +75,11 @@ public class RowBounds {
     return limit;
   }
 
+  /**
+   * 获取本次调用的 fetchSize
+   */
+  public Integer getFetchSize() {
+    return fetchSize;
+  }
+
 }
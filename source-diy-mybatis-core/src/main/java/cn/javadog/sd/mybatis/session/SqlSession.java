@@ -6,6 +6,7 @@ import java.util.List;
 import java.util.Map;
 
 import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
 import cn.javadog.sd.mybatis.executor.BatchResult;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 
@@ -78,6 +79,36 @@ public interface SqlSession extends Closeable {
    */
   <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * 查询列表，结果按订阅者的请求数量从游标中推送，游标在结束或取消时关闭，会话仍由调用方关闭
+   */
+  <T> CursorPublisher<T> selectPublisher(String statement);
+
+  /**
+   * 查询列表，结果按订阅者的请求数量从游标中推送
+   */
+  <T> CursorPublisher<T> selectPublisher(String statement, Object parameter);
+
+  /**
+   * 查询列表，结果按订阅者的请求数量从游标中推送
+   */
+  <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds);
+
+  /**
+   * 分区查询，按分区顺序返回，见 {@link #selectPartitioned(String, Object, Partitioner, int, boolean)}
+   */
+  <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism);
+
+  /**
+   * 分区查询。partitioner 把参数拆成互不重叠的若干份，同一条语句按每一份各执行一次，每一份使用单独的会话和连接，
+   * 在 Configuration#getPartitionedQueryPool 上并行映射结果，最多同时执行 parallelism 份，合并成一个游标返回。
+   * 缓冲的结果最多 Configuration#getPartitionedQueryBufferSize 个，遍历得慢时各分区等待。
+   * 遍历游标时才开始执行，游标在会话关闭时一起关闭
+   *
+   * @param ordered 是否按分区的顺序返回，否则哪一份的结果先映射出来先返回
+   */
+  <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism, boolean ordered);
+
   /**
    * 使用指定的 statement 和参数获取一条记录，并使用 ResultHandler 处理
    * TODO 一条记录？
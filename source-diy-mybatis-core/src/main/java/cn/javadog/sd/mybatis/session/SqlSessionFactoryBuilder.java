@@ -5,6 +5,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.util.Properties;
 
+import cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshot;
 import cn.javadog.sd.mybatis.builder.xml.XMLConfigBuilder;
 import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
 import cn.javadog.sd.mybatis.session.defaults.DefaultSqlSessionFactory;
@@ -72,6 +73,44 @@ public class SqlSessionFactoryBuilder {
     }
   }
 
+  /**
+   * 使用 reader+配置快照 构造工厂
+   */
+  public SqlSessionFactory build(Reader reader, InputStream snapshot) {
+    return build(reader, null, null, snapshot);
+  }
+
+  /**
+   * 使用 reader+环境+properties+配置快照 构造工厂。
+   * 快照由 ConfigurationSnapshotWriter 在构建期生成，没有过期时跳过 mapper XML 的解析，过期时退回正常解析
+   *
+   * @param snapshot 配置快照的输入流，构造完成后关闭
+   */
+  public SqlSessionFactory build(Reader reader, String environment, Properties properties, InputStream snapshot) {
+    try {
+      // 读取配置快照
+      ConfigurationSnapshot configurationSnapshot = ConfigurationSnapshot.read(snapshot);
+      // 创建 XMLConfigBuilder 对象
+      XMLConfigBuilder parser = new XMLConfigBuilder(reader, environment, properties, configurationSnapshot);
+      // 执行 XML 解析，创建 DefaultSqlSessionFactory 对象
+      return build(parser.parse());
+    } catch (Exception e) {
+      throw ExceptionUtil.wrapException("Error building SqlSession.", e);
+    } finally {
+      ErrorContext.instance().reset();
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // Intentionally ignore. Prefer previous error.
+      }
+      try {
+        snapshot.close();
+      } catch (IOException e) {
+        // Intentionally ignore. Prefer previous error.
+      }
+    }
+  }
+
   /**
    * 使用 inputStream 构造工厂
    */
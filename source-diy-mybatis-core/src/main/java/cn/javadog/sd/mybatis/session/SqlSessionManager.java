@@ -11,6 +11,9 @@ import java.util.Map;
 import java.util.Properties;
 
 import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.cursor.defaults.DefaultCursorPublisher;
+import cn.javadog.sd.mybatis.cursor.defaults.PartitionedCursor;
 import cn.javadog.sd.mybatis.executor.BatchResult;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.support.exceptions.SqlSessionException;
@@ -300,6 +303,59 @@ public class SqlSessionManager implements SqlSessionFactory, SqlSession {
     return sqlSessionProxy.selectCursor(statement, parameter, rowBounds);
   }
 
+  /**
+   * 分区查询
+   */
+  @Override
+  public <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism) {
+    return selectPartitioned(statement, parameter, partitioner, parallelism, true);
+  }
+
+  /**
+   * 分区查询。各个分区本来就使用自己的会话，没有线程绑定的会话时，直接用 sqlSessionFactory 创建，
+   * 不能走 sqlSessionProxy，它执行完方法就会关闭会话，连带关闭游标
+   */
+  @Override
+  public <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism, boolean ordered) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession != null) {
+      return sqlSession.selectPartitioned(statement, parameter, partitioner, parallelism, ordered);
+    }
+    Configuration configuration = getConfiguration();
+    configuration.getMappedStatement(statement);
+    return new PartitionedCursor<>(sqlSessionFactory, statement, partitioner.partition(parameter, parallelism), parallelism,
+        ordered, configuration.getPartitionedQueryPool(), configuration.getPartitionedQueryBufferSize());
+  }
+
+  /**
+   * 查询，结果通过 CursorPublisher 推送
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement) {
+    return selectPublisher(statement, null);
+  }
+
+  /**
+   * 查询，结果通过 CursorPublisher 推送
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+    return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * 查询，结果通过 CursorPublisher 推送。
+   * 没有线程绑定的会话时，订阅后自己开会话，结束时关闭，不能走 sqlSessionProxy，它执行完方法就会关闭会话
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+    final SqlSession sqlSession = localSqlSession.get();
+    if (sqlSession != null) {
+      return sqlSession.selectPublisher(statement, parameter, rowBounds);
+    }
+    return new DefaultCursorPublisher<>(sqlSessionFactory, statement, parameter, rowBounds);
+  }
+
   /**
    * 查询列表
    */
@@ -10,6 +10,9 @@ import java.util.List;
 import java.util.Map;
 
 import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.cursor.defaults.DefaultCursorPublisher;
+import cn.javadog.sd.mybatis.cursor.defaults.PartitionedCursor;
 import cn.javadog.sd.mybatis.executor.BatchResult;
 import cn.javadog.sd.mybatis.support.exceptions.ErrorContext;
 import cn.javadog.sd.mybatis.executor.Executor;
@@ -17,6 +20,7 @@ import cn.javadog.sd.mybatis.executor.result.DefaultMapResultHandler;
 import cn.javadog.sd.mybatis.executor.result.DefaultResultContext;
 import cn.javadog.sd.mybatis.mapping.MappedStatement;
 import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.Partitioner;
 import cn.javadog.sd.mybatis.executor.result.ResultHandler;
 import cn.javadog.sd.mybatis.session.RowBounds;
 import cn.javadog.sd.mybatis.session.SqlSession;
@@ -174,6 +178,53 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  /**
+   * 查询，结果通过 CursorPublisher 推送
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement) {
+    return selectPublisher(statement, null);
+  }
+
+  /**
+   * 查询，结果通过 CursorPublisher 推送
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter) {
+    return selectPublisher(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * 查询，结果通过 CursorPublisher 推送。订阅者第一次请求时才执行查询
+   */
+  @Override
+  public <T> CursorPublisher<T> selectPublisher(String statement, Object parameter, RowBounds rowBounds) {
+    return new DefaultCursorPublisher<>(this, statement, parameter, rowBounds);
+  }
+
+  /**
+   * 分区查询
+   */
+  @Override
+  public <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism) {
+    return selectPartitioned(statement, parameter, partitioner, parallelism, true);
+  }
+
+  /**
+   * 分区查询，各个分区使用新开的会话执行
+   */
+  @Override
+  public <T> Cursor<T> selectPartitioned(String statement, Object parameter, Partitioner partitioner, int parallelism, boolean ordered) {
+    // 校验语句存在
+    configuration.getMappedStatement(statement);
+    Cursor<T> cursor = new PartitionedCursor<>(new DefaultSqlSessionFactory(configuration), statement,
+        partitioner.partition(parameter, parallelism), parallelism, ordered, configuration.getPartitionedQueryPool(),
+        configuration.getPartitionedQueryBufferSize());
+    // 添加 cursor 到 cursorList 中，会话关闭时一起关闭
+    registerCursor(cursor);
+    return cursor;
+  }
+
   /**
    * 查询列表
    */
@@ -0,0 +1,60 @@
+package cn.javadog.sd.mybatis.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshotWriter;
+import cn.javadog.sd.mybatis.builder.snapshot.MapperLocation;
+import cn.javadog.sd.mybatis.support.io.Resources;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 05:00
+ *
+ * 配置快照的生成工具，在构建期执行，把生成的快照和应用一起打包，
+ * 启动时通过 SqlSessionFactoryBuilder#build(Reader, String, Properties, InputStream) 加载。
+ * 应用的类和 mapper XML 要在 classpath 上，与启动时解析配置文件的环境一致
+ *
+ * 运行：java -cp [应用的 classpath] cn.javadog.sd.mybatis.snapshot.SnapshotGenerator 配置文件 快照文件 [环境]
+ * 配置文件先按文件路径找，找不到再按 classpath 资源找
+ */
+public class SnapshotGenerator {
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("Usage: SnapshotGenerator <config file or resource> <snapshot file> [environment]");
+      System.exit(1);
+    }
+    String environment = args.length == 3 ? args[2] : null;
+    File output = new File(args[1]);
+    File parent = output.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IllegalStateException("Could not create directory " + parent);
+    }
+    List<MapperLocation> locations;
+    try (Reader reader = openConfig(args[0]);
+         OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+      locations = ConfigurationSnapshotWriter.write(reader, environment, null, out);
+    }
+    System.out.println("Wrote configuration snapshot of " + locations.size() + " mappers to " + output + " (" + output.length() + " bytes)");
+  }
+
+  /**
+   * 打开配置文件
+   */
+  private static Reader openConfig(String config) throws Exception {
+    File file = new File(config);
+    if (file.isFile()) {
+      return new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8);
+    }
+    return Resources.getResourceAsReader(config);
+  }
+
+}
@@ -1,8 +1,7 @@
 package cn.javadog.sd.mybatis.support.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import cn.javadog.sd.mybatis.support.util.ArrayUtil;
 
@@ -11,10 +10,15 @@ import cn.javadog.sd.mybatis.support.util.ArrayUtil;
  * @date 2019-12-04 21:24
  *
  * 实现 Cloneable、Serializable 接口，缓存键
+ *
+ * 每次查询都要构建一个 CacheKey，是热点路径上的分配和计算，所以：
+ *    1. 各个组成部分存在一个原地扩容的 Object[] 中，比较时直接按下标访问，不再经过 ArrayList
+ *    2. 每次 update 增量地计算 64 位哈希，字符串用 64 位 FNV-1a 计算，equals 先比 64 位哈希，不同的键几乎不会走到逐个比较
+ *    3. 调用方已经算好哈希的（比如静态 SQL 在解析时就算好了），可以用 {@link #update(Object, long)} 跳过计算
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -2360146547330958914L;
 
   /**
    * 单例 - 空缓存键
@@ -22,29 +26,30 @@ public class CacheKey implements Cloneable, Serializable {
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
   /**
-   * 默认 {@link #multiplier} 的值
+   * 空数组，第一次 update 时才分配
    */
-  private static final int DEFAULT_MULTIPLYER = 37;
+  private static final Object[] EMPTY = new Object[0];
 
   /**
-   * 默认 {@link #hashcode} 的值
+   * {@link #hash} 的初始值
    */
-  private static final int DEFAULT_HASHCODE = 17;
+  private static final long SEED = 0x6a09e667f3bcc909L;
 
   /**
-   * hashcode 求值的系数
+   * 黄金分割数，每次合并哈希时乘上它，让结果与顺序相关
    */
-  private final int multiplier;
+  private static final long GOLDEN = 0x9e3779b97f4a7c15L;
 
   /**
-   * 缓存键的 hashcode
+   * FNV-1a 的参数
    */
-  private int hashcode;
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
 
   /**
-   * 校验和
+   * 缓存键的 64 位哈希
    */
-  private long checksum;
+  private long hash;
 
   /**
    * {@link #update(Object)} 的数量
@@ -52,29 +57,34 @@ public class CacheKey implements Cloneable, Serializable {
   private int count;
 
   /**
-   * 这个key对应的值的历史记录
+   * 这个key的各个组成部分，只有前 count 个有效
    * Sonarlint(一个功能非常强大的代码质量检查、管理的工具)标记这个类应该声明为transient。
    * 如果说没有内容需要被序列化，这里确实应该标记为transient，但偶尔还是有内容需要被序列化的，因此这里没有标记transient
-   *
-   * TODO 上面翻译的不对！
    */
-  private List<Object> updateList;
+  private Object[] components;
 
   /**
    * 构造函数
    */
   public CacheKey() {
-    this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLYER;
+    this.hash = SEED;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.components = EMPTY;
   }
 
   /**
-   * 构造， 这个objects就是👆{@link #updateList} 存的值
+   * 构造，预估了组成部分的个数，避免扩容
    */
-  public CacheKey(Object[] objects) {
+  public CacheKey(int expectedSize) {
     this();
+    this.components = expectedSize > 0 ? new Object[expectedSize] : EMPTY;
+  }
+
+  /**
+   * 构造， 这个objects就是👆{@link #components} 存的值
+   */
+  public CacheKey(Object[] objects) {
+    this(objects.length);
     // 基于 objects ，更新相关属性
     updateAll(objects);
   }
@@ -83,32 +93,30 @@ public class CacheKey implements Cloneable, Serializable {
    * 值被更新的次数
    */
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   /**
-   * 更新当前key对应的value
-   * TODO 这么麻烦的计算hashcode干嘛，这个方法啥时候调用？只是updateAll？
+   * 添加一个组成部分
    */
   public void update(Object object) {
-    // 方法参数 object 的 hashcode
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
-
-    count++;
-
-    // checksum 为 baseHashCode 的求和
-    checksum += baseHashCode;
-
-    // 计算新的 hashcode 值
-    baseHashCode *= count;
-    hashcode = multiplier * hashcode + baseHashCode;
+    update(object, hashOf(object));
+  }
 
-    // 添加 object 到 updateList 中
-    updateList.add(object);
+  /**
+   * 添加一个组成部分，哈希已经由调用方用 {@link #hashOf(Object)} 算好
+   */
+  public void update(Object object, long objectHash) {
+    if (count == components.length) {
+      components = Arrays.copyOf(components, Math.max(8, count << 1));
+    }
+    components[count++] = object;
+    // 先打散，再合并，旋转加乘法让 [a, b] 和 [b, a] 的哈希不同
+    hash = Long.rotateLeft(hash ^ mix(objectHash), 27) * GOLDEN + count;
   }
 
   /**
-   * 将objects刷新到updateList里面
+   * 将objects刷新到components里面
    */
   public void updateAll(Object[] objects) {
     for (Object o : objects) {
@@ -117,7 +125,25 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   /**
-   * 重写equal，比较赋值，感觉除非地址相同，很难有两个CacheKey相同
+   * 计算单个组成部分的 64 位哈希，字符串用 FNV-1a，其他的用 hashCode，数组按内容计算
+   */
+  public static long hashOf(Object object) {
+    if (object == null) {
+      return 1;
+    }
+    if (object instanceof String) {
+      String string = (String) object;
+      long h = FNV_OFFSET;
+      for (int i = 0, length = string.length(); i < length; i++) {
+        h = (h ^ string.charAt(i)) * FNV_PRIME;
+      }
+      return h;
+    }
+    return ArrayUtil.hashCode(object);
+  }
+
+  /**
+   * 重写equal，先比 64 位哈希和数量，都相同才逐个比较
    */
   @Override
   public boolean equals(Object object) {
@@ -130,20 +156,17 @@ public class CacheKey implements Cloneable, Serializable {
 
     final CacheKey cacheKey = (CacheKey) object;
 
-    if (hashcode != cacheKey.hashcode) {
-      return false;
-    }
-    if (checksum != cacheKey.checksum) {
+    if (hash != cacheKey.hash) {
       return false;
     }
     if (count != cacheKey.count) {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = components[i];
+      Object thatObject = cacheKey.components[i];
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -151,11 +174,11 @@ public class CacheKey implements Cloneable, Serializable {
   }
 
   /**
-   * 返回hashcode
+   * 返回hashcode，由 64 位哈希折叠而来
    */
   @Override
   public int hashCode() {
-    return hashcode;
+    return (int) (hash ^ (hash >>> 32));
   }
 
   /**
@@ -163,24 +186,36 @@ public class CacheKey implements Cloneable, Serializable {
    */
   @Override
   public String toString() {
-    StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    StringBuilder returnValue = new StringBuilder().append(Long.toHexString(hash));
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(components[i]));
     }
     return returnValue.toString();
   }
 
   /**
    * 重写
-   * TODO 感觉写的那么麻烦，必有大用
+   * 克隆出来的 key 还会继续 update，见 DefaultResultSetHandler#combineKeys，所以要复制数组
    */
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     // 克隆 CacheKey 对象
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    // 创建 updateList 数组，避免原数组修改
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    // 复制 components 数组，多留一个位置给紧接着的 update，避免原数组修改
+    clonedCacheKey.components = Arrays.copyOf(components, count + 1);
     return clonedCacheKey;
   }
 
+  /**
+   * 打散哈希，MurmurHash3 的 fmix64
+   */
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
 }
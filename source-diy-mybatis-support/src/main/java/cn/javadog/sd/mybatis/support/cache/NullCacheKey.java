@@ -26,6 +26,14 @@ public final class NullCacheKey extends CacheKey {
     throw new CacheException("Not allowed to update a NullCacheKey instance.");
   }
 
+  /**
+   * 空键不允许更改
+   */
+  @Override
+  public void update(Object object, long objectHash) {
+    throw new CacheException("Not allowed to update a NullCacheKey instance.");
+  }
+
   /**
    * 空键不允许更改
    */
@@ -0,0 +1,15 @@
+package cn.javadog.sd.mybatis.support.cache;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 13:10
+ *
+ * 标记接口，实现该接口的 {@link Cache} 声明自身是线程安全的，所有方法都可以被多个线程并发调用。
+ * CacheBuilder 构建缓存时，如果实现类和所有的装饰器都实现了该接口，就不再包装
+ * {@link cn.javadog.sd.mybatis.support.cache.decorators.SynchronizedCache}，读缓存也就不必再争抢同一把锁
+ *
+ * note 实现类要自己保证线程安全，接口本身没有任何方法
+ */
+public interface ThreadSafeCache {
+
+}
@@ -25,6 +25,8 @@ import cn.javadog.sd.mybatis.support.exceptions.CacheException;
  * @date 2019-12-04 15:28
  * 实现 Cache 接口，阻塞的 Cache 实现类。
  * 这是一个简单低效版本的 Cache 阻塞装饰器
+ *
+ * note 要防止缓存击穿，更推荐开启 coalesceQueries 设置，由 CachingExecutor 合并并发的查询，不用在查库期间持有锁
  */
 public class BlockingCache implements Cache {
 
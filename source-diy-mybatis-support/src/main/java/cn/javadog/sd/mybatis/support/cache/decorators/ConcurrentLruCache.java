@@ -0,0 +1,177 @@
+package cn.javadog.sd.mybatis.support.cache.decorators;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 13:32
+ *
+ * 线程安全的近似 LRU 淘汰装饰器，基于 CLOCK 算法。
+ * {@link LruCache} 用的是按访问顺序排序的 LinkedHashMap，连 get 都会修改链表，所以只能在 SynchronizedCache 里用；
+ * 这里每个键只带一个"最近被访问过"的标记，读缓存时只是设置标记，不加锁；
+ * 超过上限时才加锁，像时钟指针一样循环扫描：被访问过的清掉标记放过一轮，没被访问过的淘汰掉
+ *
+ * note 实现类声明了 {@link ThreadSafeCache} 时，CacheBuilder 会用它代替 LruCache
+ */
+public class ConcurrentLruCache implements Cache, ThreadSafeCache {
+
+  /**
+   * 委托的 Cache 对象
+   */
+  private final Cache delegate;
+
+  /**
+   * 缓存键与访问标记的映射
+   */
+  private final ConcurrentHashMap<Object, Node> keyMap = new ConcurrentHashMap<>();
+
+  /**
+   * 淘汰时加的锁，只有写操作超过上限时才会用到
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  /**
+   * 时钟指针，只在持有 evictionLock 时访问
+   */
+  private Iterator<Map.Entry<Object, Node>> hand;
+
+  /**
+   * 缓存上限
+   */
+  private volatile int size;
+
+  /**
+   * 构造
+   */
+  public ConcurrentLruCache(Cache delegate) {
+    this.delegate = delegate;
+    // 默认为 1024
+    this.size = 1024;
+  }
+
+  /**
+   * 获取缓存标示
+   */
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  /**
+   * 获取已经缓存的数量
+   */
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * 设置缓存上限
+   */
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  /**
+   * 添加缓存，超过上限就淘汰
+   */
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    // 值为 null 的不占名额，见 TransactionalCache#flushPendingEntries
+    if (value == null) {
+      keyMap.remove(key);
+      return;
+    }
+    Node node = keyMap.putIfAbsent(key, new Node());
+    if (node != null) {
+      node.accessed = true;
+    }
+    if (keyMap.size() > size) {
+      evict();
+    }
+  }
+
+  /**
+   * 获取缓存，只设置访问标记，不加锁
+   */
+  @Override
+  public Object getObject(Object key) {
+    Node node = keyMap.get(key);
+    // 已经标记过就不再写，减少缓存行的争用
+    if (node != null && !node.accessed) {
+      node.accessed = true;
+    }
+    return delegate.getObject(key);
+  }
+
+  /**
+   * 移除缓存
+   */
+  @Override
+  public Object removeObject(Object key) {
+    keyMap.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  /**
+   * 清空缓存
+   */
+  @Override
+  public void clear() {
+    delegate.clear();
+    keyMap.clear();
+  }
+
+  /**
+   * 获取读写锁，空实现
+   */
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * 转动时钟指针淘汰，直到不超过上限。所有键都被访问过时，第一圈清标记，第二圈一定能淘汰掉
+   * note 淘汰与并发的 putObject 之间没有原子性，极端情况下 delegate 中的键会被多删一次，只影响命中率，不影响正确性
+   */
+  private void evict() {
+    evictionLock.lock();
+    try {
+      while (keyMap.size() > size) {
+        if (hand == null || !hand.hasNext()) {
+          hand = keyMap.entrySet().iterator();
+          if (!hand.hasNext()) {
+            return;
+          }
+        }
+        Map.Entry<Object, Node> entry = hand.next();
+        Node node = entry.getValue();
+        if (node.accessed) {
+          node.accessed = false;
+        } else if (keyMap.remove(entry.getKey(), node)) {
+          delegate.removeObject(entry.getKey());
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * 访问标记，新添加的键视为刚被访问过
+   */
+  private static class Node {
+
+    volatile boolean accessed = true;
+
+  }
+
+}
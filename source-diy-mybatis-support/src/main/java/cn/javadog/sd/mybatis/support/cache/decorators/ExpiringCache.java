@@ -0,0 +1,268 @@
+package cn.javadog.sd.mybatis.support.cache.decorators;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 15:02
+ *
+ * 实现 Cache 接口，按键过期的 Cache 实现类。
+ * {@link ScheduledCache} 到点后一次清空整个命名空间，所有热点同时失效，紧接着就是一大波请求同时打到数据库；
+ * 这里每个键单独记录写入时间和访问时间，支持：
+ *    expireAfterWrite – 写入后多久过期，单位：毫秒
+ *    expireAfterAccess – 多久没被访问就过期，单位：毫秒
+ *    refreshAfterWrite – 写入后多久开始提前刷新，单位：毫秒，应小于 expireAfterWrite
+ *
+ * 缓存自己没法查数据库，所以提前刷新的做法是：键到了刷新时间后，第一个来读的线程会拿到 null，由它去查库并重新 putObject，
+ * 在它刷新完之前，其他线程照样命中旧值，不会一起去查库。只有被读到的键才会刷新，冷的键直接过期
+ *
+ * note 通过 {@code <cache>} 的 {@code <property>} 配置，设置了上面任意一个属性，CacheBuilder 就会包一层
+ */
+public class ExpiringCache implements Cache, ThreadSafeCache {
+
+  /**
+   * 属性名，CacheBuilder 据此判断是否需要包装
+   */
+  public static final String EXPIRE_AFTER_WRITE = "expireAfterWrite";
+  public static final String EXPIRE_AFTER_ACCESS = "expireAfterAccess";
+  public static final String REFRESH_AFTER_WRITE = "refreshAfterWrite";
+
+  /**
+   * 委托的 Cache 对象
+   */
+  private final Cache delegate;
+
+  /**
+   * 缓存键与过期信息的映射
+   */
+  private final ConcurrentHashMap<Object, Expiry> expiries = new ConcurrentHashMap<>();
+
+  /**
+   * 下次清理过期键的时间，被淘汰装饰器删掉的键，过期信息要靠清理才能移除
+   */
+  private final AtomicLong nextSweep = new AtomicLong();
+
+  /**
+   * 写入后过期时间，0 代表不过期
+   */
+  private long expireAfterWrite;
+
+  /**
+   * 访问后过期时间，0 代表不过期
+   */
+  private long expireAfterAccess;
+
+  /**
+   * 写入后提前刷新时间，0 代表不提前刷新
+   */
+  private long refreshAfterWrite;
+
+  /**
+   * 构造
+   */
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * 获取缓存标示
+   */
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  /**
+   * 获取已经缓存的数量
+   */
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * 添加缓存，记录写入时间
+   */
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    long now = System.currentTimeMillis();
+    // 值为 null 的不用记录，见 TransactionalCache#flushPendingEntries
+    if (value == null) {
+      expiries.remove(key);
+    } else {
+      expiries.put(key, new Expiry(now));
+    }
+    sweepIfNecessary(now);
+  }
+
+  /**
+   * 获取缓存，过期了就删除；到了刷新时间，选出一个线程返回 null 让它去刷新
+   */
+  @Override
+  public Object getObject(Object key) {
+    Expiry expiry = expiries.get(key);
+    if (expiry == null) {
+      return delegate.getObject(key);
+    }
+    long now = System.currentTimeMillis();
+    if (isExpired(expiry, now)) {
+      if (expiries.remove(key, expiry)) {
+        delegate.removeObject(key);
+      }
+      return null;
+    }
+    if (refreshAfterWrite > 0 && now - expiry.writeTime >= refreshAfterWrite && expiry.refreshing.compareAndSet(false, true)) {
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      // 已经被淘汰了
+      expiries.remove(key, expiry);
+    } else {
+      expiry.accessTime = now;
+    }
+    return value;
+  }
+
+  /**
+   * 移除缓存
+   */
+  @Override
+  public Object removeObject(Object key) {
+    expiries.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  /**
+   * 清空缓存
+   */
+  @Override
+  public void clear() {
+    expiries.clear();
+    delegate.clear();
+  }
+
+  /**
+   * 获取读写锁，空实现
+   */
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * 获取hashcode
+   */
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  /**
+   * 使用委托对象的实现
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  /**
+   * 判断是否过期
+   */
+  private boolean isExpired(Expiry expiry, long now) {
+    return (expireAfterWrite > 0 && now - expiry.writeTime >= expireAfterWrite)
+        || (expireAfterAccess > 0 && now - expiry.accessTime >= expireAfterAccess);
+  }
+
+  /**
+   * 定期清理过期的键，间隔取配置的最短过期时间，同一时间只有一个线程清理
+   */
+  private void sweepIfNecessary(long now) {
+    long next = nextSweep.get();
+    long interval = sweepInterval();
+    if (interval <= 0 || now < next || !nextSweep.compareAndSet(next, now + interval)) {
+      return;
+    }
+    Iterator<Map.Entry<Object, Expiry>> it = expiries.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<Object, Expiry> entry = it.next();
+      if (isExpired(entry.getValue(), now) && expiries.remove(entry.getKey(), entry.getValue())) {
+        delegate.removeObject(entry.getKey());
+      }
+    }
+  }
+
+  /**
+   * 清理间隔
+   */
+  private long sweepInterval() {
+    if (expireAfterWrite > 0 && expireAfterAccess > 0) {
+      return Math.min(expireAfterWrite, expireAfterAccess);
+    }
+    return Math.max(expireAfterWrite, expireAfterAccess);
+  }
+
+  /**
+   * get/set 方法，通过 CacheBuilder 的 properties 设置
+   */
+  public long getExpireAfterWrite() {
+    return expireAfterWrite;
+  }
+
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+  }
+
+  public long getExpireAfterAccess() {
+    return expireAfterAccess;
+  }
+
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+  }
+
+  public long getRefreshAfterWrite() {
+    return refreshAfterWrite;
+  }
+
+  public void setRefreshAfterWrite(long refreshAfterWrite) {
+    this.refreshAfterWrite = refreshAfterWrite;
+  }
+
+  /**
+   * 单个键的过期信息
+   */
+  private static class Expiry {
+
+    /**
+     * 写入时间
+     */
+    final long writeTime;
+
+    /**
+     * 最后访问时间
+     */
+    volatile long accessTime;
+
+    /**
+     * 是否已经选出了刷新的线程。刷新的线程如果查库失败没有 putObject，就不会再刷新，等它自然过期
+     */
+    final AtomicBoolean refreshing = new AtomicBoolean();
+
+    Expiry(long writeTime) {
+      this.writeTime = writeTime;
+      this.accessTime = writeTime;
+    }
+
+  }
+
+}
@@ -1,8 +1,10 @@
 package cn.javadog.sd.mybatis.support.cache.decorators;
 
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
 import cn.javadog.sd.mybatis.support.logging.Log;
 import cn.javadog.sd.mybatis.support.logging.LogFactory;
 
@@ -13,8 +15,9 @@ import cn.javadog.sd.mybatis.support.logging.LogFactory;
  * @author 余勇
  * @date 2019-12-04 17:22
  * 日志装饰器，实际只有 {@link #getObject(Object)} 这一步做了增强
+ * 本身只做统计，线程安全取决于委托对象
  */
-public class LoggingCache implements Cache {
+public class LoggingCache implements Cache, ThreadSafeCache {
 
   /**
    * MyBatis Log 对象
@@ -27,14 +30,14 @@ public class LoggingCache implements Cache {
   private final Cache delegate;
 
   /**
-   * 统计请求缓存的次数
+   * 统计请求缓存的次数，使用 LongAdder，不包 SynchronizedCache 时也能正确计数
    */
-  protected int requests = 0;
+  protected final LongAdder requests = new LongAdder();
 
   /**
    * 统计命中缓存的次数
    */
-  protected int hits = 0;
+  protected final LongAdder hits = new LongAdder();
 
   /**
    * 构造
@@ -76,12 +79,12 @@ public class LoggingCache implements Cache {
   @Override
   public Object getObject(Object key) {
     // 请求次数 ++
-    requests++;
+    requests.increment();
     // 获得缓存
     final Object value = delegate.getObject(key);
     // 如果命中缓存，则命中次数 ++
     if (value != null) {
-      hits++;
+      hits.increment();
     }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
@@ -135,7 +138,7 @@ public class LoggingCache implements Cache {
    * @return 命中比率
    */
   private double getHitRatio() {
-    return (double) hits / (double) requests;
+    return (double) hits.sum() / (double) requests.sum();
   }
 
 }
@@ -0,0 +1,439 @@
+package cn.javadog.sd.mybatis.support.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 14:05
+ *
+ * 实现 Cache 接口，基于 W-TinyLFU 淘汰机制的 Cache 实现类，思路来自 Caffeine。
+ * {@link LruCache} 只看最近一次访问时间，一个报表查询扫一遍上千个只用一次的 key，就能把真正的热点全挤出去；
+ * 这里新 key 先进入一个很小的窗口区（LRU），从窗口被挤出来时要和主区里最该淘汰的 key 比一比访问频率，频率高的才能留下，
+ * 频率由 {@link FrequencySketch} 近似统计，占用内存很小。主区又分为试用区和保护区（SLRU），试用区再次被访问才晋升到保护区。
+ *
+ * 默认按条目数计算容量；设置 weighByResultSize 为 true 时，按查询结果 List 的元素个数计算容量，大结果集占的名额更多
+ *
+ * note 与 LruCache 一样，自身不是线程安全的，外层会包 SynchronizedCache。通过 eviction="TINYLFU" 使用
+ */
+public class WTinyLfuCache implements Cache {
+
+  /**
+   * 委托的 Cache 对象
+   */
+  private final Cache delegate;
+
+  /**
+   * 所有被跟踪的 key
+   */
+  private final Map<Object, Node> data = new HashMap<>();
+
+  /**
+   * 窗口区、试用区、保护区，都是按加入顺序排列，最前面的是最该淘汰的
+   */
+  private final LinkedHashMap<Object, Node> window = new LinkedHashMap<>();
+  private final LinkedHashMap<Object, Node> probation = new LinkedHashMap<>();
+  private final LinkedHashMap<Object, Node> protectedArea = new LinkedHashMap<>();
+
+  /**
+   * 各个区当前的权重
+   */
+  private long windowWeight;
+  private long probationWeight;
+  private long protectedWeight;
+
+  /**
+   * 总容量、窗口区容量、保护区容量
+   */
+  private long maximum;
+  private long windowMaximum;
+  private long protectedMaximum;
+
+  /**
+   * 是否按结果集大小计算权重
+   */
+  private boolean weighByResultSize;
+
+  /**
+   * 频率统计
+   */
+  private FrequencySketch sketch;
+
+  /**
+   * 构造
+   */
+  public WTinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    // 默认为 1024
+    setSize(1024);
+  }
+
+  /**
+   * 获取缓存标示
+   */
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  /**
+   * 获取已经缓存的数量
+   */
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * 设置容量。窗口区占 1%，剩下的是主区，主区中保护区占 80%
+   * note 会清空已经跟踪的 key，只应在初始化时调用
+   */
+  public void setSize(int size) {
+    this.maximum = Math.max(size, 1);
+    this.windowMaximum = Math.max(1, maximum / 100);
+    this.protectedMaximum = (maximum - windowMaximum) * 8 / 10;
+    this.sketch = new FrequencySketch(size);
+    clearTracking();
+  }
+
+  /**
+   * 设置是否按结果集大小计算权重
+   */
+  public void setWeighByResultSize(boolean weighByResultSize) {
+    this.weighByResultSize = weighByResultSize;
+  }
+
+  /**
+   * 添加缓存
+   */
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    sketch.increment(key);
+    int weight = weigh(value);
+    Node node = data.get(key);
+    if (node != null) {
+      // 已经存在，更新权重，并当作一次访问
+      updateWeight(node, weight);
+      onHit(node);
+    } else {
+      node = new Node(key, weight);
+      data.put(key, node);
+      window.put(key, node);
+      windowWeight += weight;
+    }
+    evict();
+  }
+
+  /**
+   * 获取缓存，不管是否命中都要记录频率
+   */
+  @Override
+  public Object getObject(Object key) {
+    sketch.increment(key);
+    Node node = data.get(key);
+    if (node != null) {
+      onHit(node);
+    }
+    return delegate.getObject(key);
+  }
+
+  /**
+   * 移除缓存
+   */
+  @Override
+  public Object removeObject(Object key) {
+    Node node = data.remove(key);
+    if (node != null) {
+      unlink(node);
+    }
+    return delegate.removeObject(key);
+  }
+
+  /**
+   * 清空缓存
+   */
+  @Override
+  public void clear() {
+    delegate.clear();
+    clearTracking();
+  }
+
+  /**
+   * 获取读写锁，空实现
+   */
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * 计算权重
+   */
+  private int weigh(Object value) {
+    if (weighByResultSize && value instanceof Collection) {
+      return Math.max(1, ((Collection<?>) value).size());
+    }
+    return 1;
+  }
+
+  /**
+   * 命中时调整位置：窗口区和保护区内挪到最后，试用区的晋升到保护区
+   */
+  private void onHit(Node node) {
+    Object key = node.key;
+    if (node.area == Area.WINDOW) {
+      window.remove(key);
+      window.put(key, node);
+    } else if (node.area == Area.PROTECTED) {
+      protectedArea.remove(key);
+      protectedArea.put(key, node);
+    } else {
+      probation.remove(key);
+      probationWeight -= node.weight;
+      node.area = Area.PROTECTED;
+      protectedArea.put(key, node);
+      protectedWeight += node.weight;
+      // 保护区超出容量，把最老的降级回试用区
+      Iterator<Node> it = protectedArea.values().iterator();
+      while (protectedWeight > protectedMaximum && it.hasNext()) {
+        Node demoted = it.next();
+        if (demoted == node) {
+          break;
+        }
+        it.remove();
+        protectedWeight -= demoted.weight;
+        demoted.area = Area.PROBATION;
+        probation.put(demoted.key, demoted);
+        probationWeight += demoted.weight;
+      }
+    }
+  }
+
+  /**
+   * 淘汰：窗口区超出的 key 作为候选者进入主区，主区满了就和试用区最老的 key 比频率
+   */
+  private void evict() {
+    while (windowWeight > windowMaximum && !window.isEmpty()) {
+      Iterator<Node> it = window.values().iterator();
+      Node candidate = it.next();
+      it.remove();
+      windowWeight -= candidate.weight;
+      admit(candidate);
+    }
+  }
+
+  /**
+   * 候选者准入主区
+   */
+  private void admit(Node candidate) {
+    long mainMaximum = maximum - windowMaximum;
+    // 比主区还大，直接淘汰
+    if (candidate.weight > mainMaximum) {
+      evictEntry(candidate);
+      return;
+    }
+    int candidateFrequency = sketch.frequency(candidate.key);
+    while (probationWeight + protectedWeight + candidate.weight > mainMaximum) {
+      Node victim = eldest();
+      // 频率不高于受害者，候选者被淘汰，这样一次性扫描的 key 进不了主区
+      if (victim == null || candidateFrequency <= sketch.frequency(victim.key)) {
+        evictEntry(candidate);
+        return;
+      }
+      unlink(victim);
+      evictEntry(victim);
+    }
+    candidate.area = Area.PROBATION;
+    probation.put(candidate.key, candidate);
+    probationWeight += candidate.weight;
+  }
+
+  /**
+   * 主区中最该淘汰的 key，优先从试用区取
+   */
+  private Node eldest() {
+    if (!probation.isEmpty()) {
+      return probation.values().iterator().next();
+    }
+    if (!protectedArea.isEmpty()) {
+      return protectedArea.values().iterator().next();
+    }
+    return null;
+  }
+
+  /**
+   * 从委托的缓存中真正删除
+   */
+  private void evictEntry(Node node) {
+    data.remove(node.key);
+    delegate.removeObject(node.key);
+  }
+
+  /**
+   * 更新权重
+   */
+  private void updateWeight(Node node, int weight) {
+    int delta = weight - node.weight;
+    node.weight = weight;
+    if (node.area == Area.WINDOW) {
+      windowWeight += delta;
+    } else if (node.area == Area.PROBATION) {
+      probationWeight += delta;
+    } else {
+      protectedWeight += delta;
+    }
+  }
+
+  /**
+   * 从所在的区中移除
+   */
+  private void unlink(Node node) {
+    if (node.area == Area.WINDOW) {
+      window.remove(node.key);
+      windowWeight -= node.weight;
+    } else if (node.area == Area.PROBATION) {
+      probation.remove(node.key);
+      probationWeight -= node.weight;
+    } else {
+      protectedArea.remove(node.key);
+      protectedWeight -= node.weight;
+    }
+  }
+
+  /**
+   * 清空所有跟踪的 key
+   */
+  private void clearTracking() {
+    data.clear();
+    window.clear();
+    probation.clear();
+    protectedArea.clear();
+    windowWeight = 0;
+    probationWeight = 0;
+    protectedWeight = 0;
+  }
+
+  /**
+   * key 所在的区
+   */
+  private enum Area {
+    WINDOW, PROBATION, PROTECTED
+  }
+
+  /**
+   * 跟踪的 key
+   */
+  private static class Node {
+
+    final Object key;
+
+    int weight;
+
+    Area area = Area.WINDOW;
+
+    Node(Object key, int weight) {
+      this.key = key;
+      this.weight = weight;
+    }
+
+  }
+
+  /**
+   * 频率统计，4 位的 Count-Min Sketch，每个 long 存 16 个计数器，每个 key 对应 4 个计数器，取最小值。
+   * 计数器最大为 15；累计增加次数达到容量的 10 倍时，所有计数器减半，让旧的热点慢慢冷却
+   */
+  static class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    FrequencySketch(int maximum) {
+      int capacity = Math.max(maximum, 16);
+      // 取不小于 capacity 的 2 的幂
+      int length = Integer.highestOneBit(capacity - 1) << 1;
+      this.table = new long[length];
+      this.tableMask = length - 1;
+      this.sampleSize = 10 * capacity;
+    }
+
+    /**
+     * 估算频率
+     */
+    int frequency(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      int frequency = Integer.MAX_VALUE;
+      for (int i = 0; i < 4; i++) {
+        int index = indexOf(hash, i);
+        int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+        frequency = Math.min(frequency, count);
+      }
+      return frequency;
+    }
+
+    /**
+     * 频率加一
+     */
+    void increment(Object key) {
+      int hash = spread(key.hashCode());
+      int start = (hash & 3) << 2;
+      boolean added = false;
+      for (int i = 0; i < 4; i++) {
+        added |= incrementAt(indexOf(hash, i), start + i);
+      }
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+      int offset = counter << 2;
+      long mask = 0xfL << offset;
+      if ((table[index] & mask) != mask) {
+        table[index] += 1L << offset;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (table[i] >>> 1) & RESET_MASK;
+      }
+      additions >>>= 1;
+    }
+
+    private int indexOf(int item, int i) {
+      long hash = (item + SEEDS[i]) * SEEDS[i];
+      hash += hash >>> 32;
+      return ((int) hash) & tableMask;
+    }
+
+    private static int spread(int x) {
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      x = ((x >>> 16) ^ x) * 0x45d9f3b;
+      return (x >>> 16) ^ x;
+    }
+
+  }
+
+}
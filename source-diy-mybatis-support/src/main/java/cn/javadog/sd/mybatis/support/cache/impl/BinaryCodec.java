@@ -0,0 +1,602 @@
+package cn.javadog.sd.mybatis.support.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import cn.javadog.sd.mybatis.support.exceptions.CacheException;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import cn.javadog.sd.mybatis.support.reflection.Reflector;
+import cn.javadog.sd.mybatis.support.reflection.factory.DefaultReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.factory.ReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.invoker.Invoker;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 15:40
+ *
+ * 缓存值的二进制编解码，给 {@link OffHeapCache} 用，core 的 QueryCoalescer 也用它给等待者复制结果。
+ * 常见的 JDK 类型（字符串、数字、日期、byte[]、枚举）用带类型标记的紧凑格式编码；List 和 Map 只写一个大小，元素逐个编码。
+ * 查询出来的实体只要实现了 Serializable、有默认构造、没有自定义序列化方法（writeReplace、readObject 等，懒加载代理也因此排除），
+ * 就通过 {@link Reflector} 逐个属性编码：同一次编码里类名只写一次，之后只写编号，属性按名字排好序只写值，不写属性名；
+ * 同一个实体出现多次时只写一次，之后写引用，所以共享的对象和循环引用解码后保持原样。
+ * 其他对象要求实现 Serializable，单独走一次 Java 序列化，不会把整个结果拖回 Java 序列化。
+ *
+ * note 解码出来的是全新的对象，这也正是被移除的 SerializedCache 提供的读写隔离；
+ *  类名编号和引用只在一次编码内有效，编码结果不能跨进程使用
+ */
+public final class BinaryCodec {
+
+  /**
+   * 类型标记
+   */
+  private static final byte NULL = 0;
+  private static final byte STRING = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte FLOAT = 5;
+  private static final byte SHORT = 6;
+  private static final byte BYTE = 7;
+  private static final byte BOOLEAN = 8;
+  private static final byte CHARACTER = 9;
+  private static final byte BIG_DECIMAL = 10;
+  private static final byte BIG_INTEGER = 11;
+  private static final byte DATE = 12;
+  private static final byte SQL_DATE = 13;
+  private static final byte SQL_TIMESTAMP = 14;
+  private static final byte BYTES = 15;
+  private static final byte LIST = 16;
+  private static final byte MAP = 17;
+  private static final byte ENUM = 18;
+  private static final byte BEAN = 19;
+  private static final byte REFERENCE = 20;
+  private static final byte SERIALIZED = 127;
+
+  /**
+   * 不能逐个属性编码的类的占位
+   */
+  private static final BeanLayout NOT_BEAN = new BeanLayout(null, null, new String[0], new Invoker[0], new Invoker[0], new boolean[0]);
+
+  /**
+   * 解析实体的属性
+   */
+  private static final ReflectorFactory REFLECTOR_FACTORY = new DefaultReflectorFactory();
+
+  /**
+   * 类与属性布局的映射，不能逐个属性编码的类对应 {@link #NOT_BEAN}
+   */
+  private static final ConcurrentMap<Class<?>, BeanLayout> LAYOUTS = new ConcurrentHashMap<>();
+
+  private BinaryCodec() {
+  }
+
+  /**
+   * 编码
+   */
+  public static byte[] encode(Object value) {
+    Buffer bos = new Buffer(256);
+    try (DataOutputStream out = new DataOutputStream(bos)) {
+      new Encoder(out).write(value);
+    } catch (IOException e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * 解码
+   */
+  public static Object decode(byte[] bytes) {
+    try (DataInputStream in = new DataInputStream(new BufferInput(bytes))) {
+      return new Decoder(in).read();
+    } catch (IOException | ReflectiveOperationException e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 获取类的属性布局，不能逐个属性编码时返回 null
+   */
+  private static BeanLayout layoutOf(Class<?> type) {
+    BeanLayout layout = LAYOUTS.get(type);
+    if (layout == null) {
+      layout = LAYOUTS.computeIfAbsent(type, BinaryCodec::resolveLayout);
+    }
+    return layout == NOT_BEAN ? null : layout;
+  }
+
+  /**
+   * 解析类的属性布局：可读可写、不是 transient 的属性，按名字排序
+   */
+  private static BeanLayout resolveLayout(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || type.isEnum() || type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())
+        || Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)
+        || type.getName().startsWith("java.") || hasCustomSerialization(type)) {
+      return NOT_BEAN;
+    }
+    Reflector reflector = REFLECTOR_FACTORY.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return NOT_BEAN;
+    }
+    List<String> names = new ArrayList<>();
+    for (String name : reflector.getGetablePropertyNames()) {
+      if (reflector.hasSetter(name) && !isTransient(type, name)) {
+        names.add(name);
+      }
+    }
+    String[] sorted = names.toArray(new String[0]);
+    Arrays.sort(sorted);
+    Invoker[] getters = new Invoker[sorted.length];
+    Invoker[] setters = new Invoker[sorted.length];
+    boolean[] keepContainerTypes = new boolean[sorted.length];
+    for (int i = 0; i < sorted.length; i++) {
+      getters[i] = reflector.getGetInvoker(sorted[i]);
+      setters[i] = reflector.getSetInvoker(sorted[i]);
+      keepContainerTypes[i] = mayRejectDecodedContainer(setters[i].getType());
+    }
+    return new BeanLayout(type, reflector.getDefaultConstructor(), sorted, getters, setters, keepContainerTypes);
+  }
+
+  /**
+   * 属性的值可能是 List 或 Map，而声明的类型又不一定接收得了解码出来的 ArrayList、HashMap。
+   * 绝大多数属性是字符串、数字这样的类型，提前算好，编码时就不用对每个值都做一遍 instanceof List/Map
+   */
+  private static boolean mayRejectDecodedContainer(Class<?> propertyType) {
+    if (propertyType.isPrimitive() || propertyType.isArray() || Modifier.isFinal(propertyType.getModifiers())
+        || propertyType.isAssignableFrom(ArrayList.class) && propertyType.isAssignableFrom(HashMap.class)) {
+      return false;
+    }
+    return propertyType.isInterface() || Modifier.isAbstract(propertyType.getModifiers())
+        || Collection.class.isAssignableFrom(propertyType) || Map.class.isAssignableFrom(propertyType);
+  }
+
+  /**
+   * 类或者父类是否定义了自定义序列化的方法
+   */
+  private static boolean hasCustomSerialization(Class<?> type) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Method method : current.getDeclaredMethods()) {
+        String name = method.getName();
+        if ("writeReplace".equals(name) || "readResolve".equals(name) || "writeObject".equals(name) || "readObject".equals(name)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 属性对应的字段是否是 transient 的，Java 序列化不会保存这样的字段
+   */
+  private static boolean isTransient(Class<?> type, String name) {
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      for (Field field : current.getDeclaredFields()) {
+        if (field.getName().equals(name)) {
+          return Modifier.isTransient(field.getModifiers());
+        }
+      }
+    }
+    return false;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * 一次编码，记录已经写过的类和实体
+   */
+  private static class Encoder {
+
+    private final DataOutputStream out;
+
+    /**
+     * 类与编号的映射
+     */
+    private final Map<Class<?>, Integer> classes = new HashMap<>();
+
+    /**
+     * 实体与编号的映射，按对象身份
+     */
+    private final Map<Object, Integer> handles = new IdentityHashMap<>();
+
+    Encoder(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Object value) throws IOException {
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof String) {
+        out.writeByte(STRING);
+        writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+      } else if (value instanceof Integer) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (value instanceof Long) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Double) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (value instanceof Float) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (value instanceof Short) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (value instanceof Byte) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof Character) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (value.getClass() == BigDecimal.class) {
+        out.writeByte(BIG_DECIMAL);
+        BigDecimal decimal = (BigDecimal) value;
+        out.writeInt(decimal.scale());
+        writeBytes(out, decimal.unscaledValue().toByteArray());
+      } else if (value.getClass() == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(out, ((BigInteger) value).toByteArray());
+      } else if (value.getClass() == java.sql.Timestamp.class) {
+        out.writeByte(SQL_TIMESTAMP);
+        out.writeLong(((java.sql.Timestamp) value).getTime());
+        out.writeInt(((java.sql.Timestamp) value).getNanos());
+      } else if (value.getClass() == java.sql.Date.class) {
+        out.writeByte(SQL_DATE);
+        out.writeLong(((java.sql.Date) value).getTime());
+      } else if (value.getClass() == Date.class) {
+        out.writeByte(DATE);
+        out.writeLong(((Date) value).getTime());
+      } else if (value instanceof byte[]) {
+        out.writeByte(BYTES);
+        writeBytes(out, (byte[]) value);
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        out.writeUTF(((Enum<?>) value).name());
+      } else if (value instanceof List) {
+        out.writeByte(LIST);
+        List<?> list = (List<?>) value;
+        out.writeInt(list.size());
+        for (Object element : list) {
+          write(element);
+        }
+      } else if (value instanceof Map) {
+        out.writeByte(MAP);
+        Map<?, ?> map = (Map<?, ?>) value;
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(entry.getKey());
+          write(entry.getValue());
+        }
+      } else {
+        BeanLayout layout = layoutOf(value.getClass());
+        if (layout != null) {
+          writeBean(value, layout);
+        } else {
+          writeSerialized(value);
+        }
+      }
+    }
+
+    /**
+     * 逐个属性写实体，写过的实体只写引用
+     */
+    private void writeBean(Object bean, BeanLayout layout) throws IOException {
+      Integer handle = handles.get(bean);
+      if (handle != null) {
+        out.writeByte(REFERENCE);
+        out.writeInt(handle);
+        return;
+      }
+      handles.put(bean, handles.size());
+      out.writeByte(BEAN);
+      writeClass(layout.type);
+      for (int i = 0; i < layout.getters.length; i++) {
+        Object value;
+        try {
+          value = layout.getters[i].invoke(bean, null);
+        } catch (ReflectiveOperationException e) {
+          throw new CacheException("Error reading property '" + layout.names[i] + "' of " + layout.type.getName() + ".  Cause: " + e, e);
+        }
+        // 解码出来的 List、Map 是 ArrayList、HashMap，属性声明的类型接收不了时保留原来的类型
+        if (layout.keepContainerTypes[i] && isRejectedContainer(value, layout.setters[i].getType())) {
+          writeSerialized(value);
+        } else {
+          write(value);
+        }
+      }
+    }
+
+    private boolean isRejectedContainer(Object value, Class<?> propertyType) {
+      return value instanceof List && !propertyType.isAssignableFrom(ArrayList.class)
+          || value instanceof Map && !propertyType.isAssignableFrom(HashMap.class);
+    }
+
+    /**
+     * 写类，第一次出现时写类名，之后只写编号
+     */
+    private void writeClass(Class<?> type) throws IOException {
+      Integer id = classes.get(type);
+      if (id != null) {
+        out.writeInt(id);
+      } else {
+        out.writeInt(classes.size());
+        classes.put(type, classes.size());
+        out.writeUTF(type.getName());
+      }
+    }
+
+    /**
+     * 单个值走 Java 序列化
+     */
+    private void writeSerialized(Object value) throws IOException {
+      if (!(value instanceof Serializable)) {
+        throw new CacheException("Error serializing object, " + value.getClass().getName() + " is not Serializable.");
+      }
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+      try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+        oos.writeObject(value);
+      }
+      out.writeByte(SERIALIZED);
+      writeBytes(out, bos.toByteArray());
+    }
+
+  }
+
+  /**
+   * 一次解码，与 {@link Encoder} 的编号一一对应
+   */
+  private static class Decoder {
+
+    private final DataInputStream in;
+
+    private final List<Class<?>> classes = new ArrayList<>();
+
+    private final List<Object> handles = new ArrayList<>();
+
+    Decoder(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    Object read() throws IOException, ClassNotFoundException, ReflectiveOperationException {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case STRING:
+          return new String(readBytes(in), StandardCharsets.UTF_8);
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case DOUBLE:
+          return in.readDouble();
+        case FLOAT:
+          return in.readFloat();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case BOOLEAN:
+          return in.readBoolean();
+        case CHARACTER:
+          return in.readChar();
+        case BIG_DECIMAL:
+          int scale = in.readInt();
+          return new BigDecimal(new BigInteger(readBytes(in)), scale);
+        case BIG_INTEGER:
+          return new BigInteger(readBytes(in));
+        case SQL_TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+          timestamp.setNanos(in.readInt());
+          return timestamp;
+        case SQL_DATE:
+          return new java.sql.Date(in.readLong());
+        case DATE:
+          return new Date(in.readLong());
+        case BYTES:
+          return readBytes(in);
+        case ENUM:
+          Class enumType = readClass();
+          return Enum.valueOf(enumType, in.readUTF());
+        case LIST:
+          int size = in.readInt();
+          List<Object> list = new ArrayList<>(size);
+          for (int i = 0; i < size; i++) {
+            list.add(read());
+          }
+          return list;
+        case MAP:
+          int entries = in.readInt();
+          Map<Object, Object> map = new HashMap<>(Math.max(16, entries * 4 / 3 + 1));
+          for (int i = 0; i < entries; i++) {
+            map.put(read(), read());
+          }
+          return map;
+        case BEAN:
+          return readBean();
+        case REFERENCE:
+          return handles.get(in.readInt());
+        case SERIALIZED:
+          try (ObjectInputStream ois = new ResourcesObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+            return ois.readObject();
+          }
+        default:
+          throw new CacheException("Unknown type tag " + tag + " in cached value.");
+      }
+    }
+
+    /**
+     * 读实体，先登记再读属性，这样属性里引用回自己的也能解析
+     */
+    private Object readBean() throws IOException, ClassNotFoundException, ReflectiveOperationException {
+      Class<?> type = readClass();
+      BeanLayout layout = layoutOf(type);
+      if (layout == null) {
+        throw new CacheException("Cached value of type " + type.getName() + " can not be decoded property by property.");
+      }
+      Object bean = layout.constructor.newInstance();
+      handles.add(bean);
+      for (Invoker setter : layout.setters) {
+        setter.invoke(bean, new Object[] {read()});
+      }
+      return bean;
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int id = in.readInt();
+      if (id < classes.size()) {
+        return classes.get(id);
+      }
+      Class<?> type = Resources.classForName(in.readUTF());
+      classes.add(type);
+      return type;
+    }
+
+  }
+
+  /**
+   * 实体的属性布局
+   */
+  private static class BeanLayout {
+
+    private final Class<?> type;
+
+    private final Constructor<?> constructor;
+
+    private final String[] names;
+
+    private final Invoker[] getters;
+
+    private final Invoker[] setters;
+
+    /**
+     * 编码时是否要检查值是不是声明的类型接收不了的 List、Map，见 {@link #mayRejectDecodedContainer(Class)}
+     */
+    private final boolean[] keepContainerTypes;
+
+    BeanLayout(Class<?> type, Constructor<?> constructor, String[] names, Invoker[] getters, Invoker[] setters, boolean[] keepContainerTypes) {
+      this.type = type;
+      this.constructor = constructor;
+      this.names = names;
+      this.getters = getters;
+      this.setters = setters;
+      this.keepContainerTypes = keepContainerTypes;
+    }
+
+  }
+
+  /**
+   * 不加锁的 ByteArrayOutputStream。DataOutputStream 写 int 之类时是一个字节一个字节写的，
+   * ByteArrayOutputStream 的方法都是 synchronized 的，每个字节都要加一次锁
+   */
+  private static final class Buffer extends ByteArrayOutputStream {
+
+    Buffer(int size) {
+      super(size);
+    }
+
+    @Override
+    public void write(int b) {
+      if (count == buf.length) {
+        buf = Arrays.copyOf(buf, buf.length << 1);
+      }
+      buf[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      if (count + len > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + len));
+      }
+      System.arraycopy(b, off, buf, count, len);
+      count += len;
+    }
+
+  }
+
+  /**
+   * 不加锁的 ByteArrayInputStream，原因同 {@link Buffer}
+   */
+  private static final class BufferInput extends ByteArrayInputStream {
+
+    BufferInput(byte[] buf) {
+      super(buf);
+    }
+
+    @Override
+    public int read() {
+      return pos < count ? buf[pos++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (pos >= count) {
+        return -1;
+      }
+      int n = Math.min(len, count - pos);
+      System.arraycopy(buf, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+  }
+
+  /**
+   * 通过 Resources 加载类，避免不同类加载器下找不到实体类
+   */
+  private static class ResourcesObjectInputStream extends ObjectInputStream {
+
+    ResourcesObjectInputStream(InputStream in) throws IOException {
+      super(in);
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+      return Resources.classForName(desc.getName());
+    }
+
+  }
+
+}
@@ -0,0 +1,130 @@
+package cn.javadog.sd.mybatis.support.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
+import cn.javadog.sd.mybatis.support.exceptions.CacheException;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 13:15
+ *
+ * 永不过期的线程安全 Cache 实现类，基于 ConcurrentHashMap 实现，读操作无锁。
+ * 与 {@link PerpetualCache} 的区别只在于容器，PerpetualCache 使用 HashMap，必须靠外层的 SynchronizedCache 保证线程安全，
+ * 每次命中缓存都要串行；这里声明了 {@link ThreadSafeCache}，配合线程安全的装饰器时就不再需要 SynchronizedCache
+ *
+ * note 通过 type="CONCURRENT" 使用
+ */
+public class ConcurrentCache implements Cache, ThreadSafeCache {
+
+  /**
+   * 标识
+   */
+  private final String id;
+
+  /**
+   * 缓存容器
+   */
+  private final ConcurrentHashMap<Object, Object> cache = new ConcurrentHashMap<>();
+
+  /**
+   * 构造，ID要求是namespace，这是规范
+   */
+  public ConcurrentCache(String id) {
+    this.id = id;
+  }
+
+  /**
+   * 获取缓存标识
+   */
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * 获取容器中缓存的数量
+   */
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  /**
+   * 添加缓存。ConcurrentHashMap 不支持 null 值，而 TransactionalCache 提交时会为未命中的键放入 null，
+   * 这里直接移除，效果与 HashMap 中存 null 一样，getObject 都拿到 null
+   */
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      cache.remove(key);
+    } else {
+      cache.put(key, value);
+    }
+  }
+
+  /**
+   * 查询缓存
+   */
+  @Override
+  public Object getObject(Object key) {
+    return cache.get(key);
+  }
+
+  /**
+   * 移除指定缓存
+   */
+  @Override
+  public Object removeObject(Object key) {
+    return cache.remove(key);
+  }
+
+  /**
+   * 清空缓存
+   */
+  @Override
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * 获取读写锁，这里没有做实现
+   */
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * 重写equal，判断两个cache是否指向同一个namespace，同 PerpetualCache
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  /**
+   * 重写hashcode，拿的就是标识符的code
+   */
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,360 @@
+package cn.javadog.sd.mybatis.support.cache.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.ThreadSafeCache;
+import cn.javadog.sd.mybatis.support.exceptions.CacheException;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 15:55
+ *
+ * 堆外存储的 Cache 实现类。
+ * {@link PerpetualCache} 把查询结果的对象图直接放在堆上，缓存几百万行之后老年代几乎都是缓存，GC 停顿越来越长；
+ * 这里把值用 {@link BinaryCodec} 编码后追加写入若干块堆外的 direct ByteBuffer（slab），堆上只留键和位置信息。
+ * slab 组成一个环，写满一块就换下一块，绕回来时整块复用，块里原来的键全部失效，相当于按写入顺序的 FIFO 淘汰，
+ * 需要更精细的淘汰可以再配 eviction。
+ *
+ * 每次读取都会解码出一份新的对象，调用方怎么修改都不会影响缓存中的值，这也补回了 SerializedCache 被移除后丢失的读写隔离。
+ * 读取使用 StampedLock 的乐观读，只有恰好碰上所在 slab 被复用时才会退化为加锁
+ *
+ * note 通过 type="OFF_HEAP" 使用，slabSize、slabCount 可以通过 {@code <property>} 配置；
+ * 缓存的值必须能被 BinaryCodec 编码，也就是常见的 JDK 类型或者实现了 Serializable
+ */
+public class OffHeapCache implements Cache, ThreadSafeCache {
+
+  /**
+   * 标识
+   */
+  private final String id;
+
+  /**
+   * 缓存键与存储位置的映射
+   */
+  private final ConcurrentHashMap<Object, Location> index = new ConcurrentHashMap<>();
+
+  /**
+   * 追加写入时加的锁，同一时间只有一个线程写 slab
+   */
+  private final ReentrantLock appendLock = new ReentrantLock();
+
+  /**
+   * 每块 slab 的字节数，默认 4MB
+   */
+  private int slabSize = 4 * 1024 * 1024;
+
+  /**
+   * slab 环
+   */
+  private Slab[] slabs;
+
+  /**
+   * 当前写入的 slab 下标，只在持有 appendLock 时访问
+   */
+  private int current;
+
+  /**
+   * 构造，ID要求是namespace，这是规范
+   */
+  public OffHeapCache(String id) {
+    this.id = id;
+    // 默认 16 块
+    setSlabCount(16);
+  }
+
+  /**
+   * 获取缓存标识
+   */
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * 获取缓存的数量
+   */
+  @Override
+  public int getSize() {
+    return index.size();
+  }
+
+  /**
+   * 添加缓存，值为 null 时直接移除，见 TransactionalCache#flushPendingEntries。
+   * 编码后比一整块 slab 还大的值不缓存，下次照样查库
+   */
+  @Override
+  public void putObject(Object key, Object value) {
+    if (value == null) {
+      index.remove(key);
+      return;
+    }
+    byte[] bytes = BinaryCodec.encode(value);
+    if (bytes.length > slabSize) {
+      index.remove(key);
+      return;
+    }
+    appendLock.lock();
+    try {
+      Slab slab = slabs[current];
+      if (slab.position + bytes.length > slabSize) {
+        current = (current + 1) % slabs.length;
+        slab = slabs[current];
+        recycle(slab);
+      }
+      if (slab.buffer == null) {
+        // 用到时才分配
+        slab.buffer = ByteBuffer.allocateDirect(slabSize);
+      }
+      ByteBuffer target = slab.buffer.duplicate();
+      target.position(slab.position);
+      target.put(bytes);
+      Location location = new Location(key, current, slab.generation, slab.position, bytes.length);
+      slab.position += bytes.length;
+      slab.locations.add(location);
+      index.put(key, location);
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * 获取缓存，每次都是新解码出来的对象
+   */
+  @Override
+  public Object getObject(Object key) {
+    Location location = index.get(key);
+    if (location == null) {
+      return null;
+    }
+    byte[] bytes = read(location);
+    if (bytes == null) {
+      // 所在的 slab 已经被复用
+      index.remove(key, location);
+      return null;
+    }
+    return BinaryCodec.decode(bytes);
+  }
+
+  /**
+   * 移除缓存
+   */
+  @Override
+  public Object removeObject(Object key) {
+    Location location = index.remove(key);
+    if (location == null) {
+      return null;
+    }
+    byte[] bytes = read(location);
+    return bytes == null ? null : BinaryCodec.decode(bytes);
+  }
+
+  /**
+   * 清空缓存，slab 的内存保留下来继续用
+   */
+  @Override
+  public void clear() {
+    appendLock.lock();
+    try {
+      index.clear();
+      for (Slab slab : slabs) {
+        recycle(slab);
+      }
+      current = 0;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * 获取读写锁，空实现
+   */
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * 读出位置上的字节，slab 的代数对不上返回 null。
+   * 先乐观读，拷贝完再校验，期间 slab 被复用过就加读锁重读一次
+   */
+  private byte[] read(Location location) {
+    Slab slab = slabs[location.slab];
+    StampedLock lock = slab.lock;
+    long stamp = lock.tryOptimisticRead();
+    byte[] bytes = copy(slab, location);
+    if (!lock.validate(stamp)) {
+      stamp = lock.readLock();
+      try {
+        bytes = copy(slab, location);
+      } finally {
+        lock.unlockRead(stamp);
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * 拷贝字节，用 duplicate 出来的 ByteBuffer，不改原 buffer 的 position，多个线程可以同时读
+   */
+  private byte[] copy(Slab slab, Location location) {
+    ByteBuffer buffer = slab.buffer;
+    if (slab.generation != location.generation || buffer == null) {
+      return null;
+    }
+    byte[] bytes = new byte[location.length];
+    ByteBuffer source = buffer.duplicate();
+    source.position(location.offset);
+    source.get(bytes);
+    return bytes;
+  }
+
+  /**
+   * 复用 slab：块里的键都失效，代数加一，已经拿到旧位置的读线程会读失败。需持有 appendLock
+   */
+  private void recycle(Slab slab) {
+    for (Location location : slab.locations) {
+      // 键可能已经被重新写到别的 slab，只删还指向这里的
+      index.remove(location.key, location);
+    }
+    slab.locations.clear();
+    long stamp = slab.lock.writeLock();
+    try {
+      slab.generation++;
+      slab.position = 0;
+    } finally {
+      slab.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * get/set 方法，通过 CacheBuilder 的 properties 设置
+   * note 会丢弃已经缓存的内容，只应在初始化时调用
+   */
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public void setSlabSize(int slabSize) {
+    if (slabSize <= 0) {
+      throw new CacheException("slabSize must be positive for cache " + id);
+    }
+    this.slabSize = slabSize;
+    setSlabCount(slabs.length);
+  }
+
+  public int getSlabCount() {
+    return slabs.length;
+  }
+
+  public void setSlabCount(int slabCount) {
+    if (slabCount < 2) {
+      throw new CacheException("slabCount must be at least 2 for cache " + id);
+    }
+    appendLock.lock();
+    try {
+      index.clear();
+      Slab[] newSlabs = new Slab[slabCount];
+      for (int i = 0; i < slabCount; i++) {
+        newSlabs[i] = new Slab();
+      }
+      this.slabs = newSlabs;
+      this.current = 0;
+    } finally {
+      appendLock.unlock();
+    }
+  }
+
+  /**
+   * 判断是否相等，与 PerpetualCache 一样只看 ID
+   */
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  /**
+   * 获取hashcode
+   */
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  /**
+   * 一块堆外内存
+   */
+  private static class Slab {
+
+    /**
+     * 堆外内存，第一次写入时才分配
+     */
+    volatile ByteBuffer buffer;
+
+    /**
+     * 代数，每复用一次加一
+     */
+    volatile int generation;
+
+    /**
+     * 下一次写入的位置，只在持有 appendLock 时访问
+     */
+    int position;
+
+    /**
+     * 写在这块里的位置，复用时据此删除索引，只在持有 appendLock 时访问
+     */
+    final List<Location> locations = new ArrayList<>();
+
+    /**
+     * 复用时加写锁，读取时乐观读
+     */
+    final StampedLock lock = new StampedLock();
+
+  }
+
+  /**
+   * 值的存储位置
+   */
+  private static class Location {
+
+    final Object key;
+
+    final int slab;
+
+    final int generation;
+
+    final int offset;
+
+    final int length;
+
+    Location(Object key, int slab, int generation, int offset, int length) {
+      this.key = key;
+      this.slab = slab;
+      this.generation = generation;
+      this.offset = offset;
+      this.length = length;
+    }
+
+  }
+
+}
@@ -0,0 +1,243 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+import static cn.javadog.sd.mybatis.support.datasource.pooled.PoolEntry.STATE_IN_USE;
+import static cn.javadog.sd.mybatis.support.datasource.pooled.PoolEntry.STATE_NOT_IN_USE;
+import static cn.javadog.sd.mybatis.support.datasource.pooled.PoolEntry.STATE_REMOVED;
+
+import java.lang.ref.WeakReference;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 10:20
+ *
+ * 无锁的连接容器，思路参考 HikariCP 的 ConcurrentBag：
+ *    1. 线程本地列表：记录当前线程最近归还的连接，同一线程再次借用时优先从这里拿，几乎没有竞争；
+ *    2. 共享列表：所有连接都在这里，借用时遍历并通过 CAS 把状态从 {@link PoolEntry#STATE_NOT_IN_USE} 改为 {@link PoolEntry#STATE_IN_USE}；
+ *    3. 交接队列：拿不到连接的线程在 SynchronousQueue 上等待，归还连接的线程直接把连接交给等待者。
+ *
+ * note 整个过程没有 synchronized，也没有 wait/notify，替代的是 {@link PooledDataSource} 中的 synchronized(state)
+ */
+class ConcurrentBag {
+
+  /**
+   * 连接创建器，由连接池实现：名额未满就新建连接，否则尝试回收超时的连接
+   */
+  interface EntryCreator {
+
+    /**
+     * @return 状态为 {@link PoolEntry#STATE_IN_USE} 的连接，无法创建时返回 null
+     */
+    PoolEntry create() throws SQLException;
+
+  }
+
+  /**
+   * 线程本地列表的最大长度
+   */
+  private static final int MAX_THREAD_LOCAL_SIZE = 16;
+
+  /**
+   * 共享列表，读多写少，所以使用 CopyOnWriteArrayList
+   */
+  private final CopyOnWriteArrayList<PoolEntry> sharedList = new CopyOnWriteArrayList<>();
+
+  /**
+   * 线程本地列表，弱引用，避免连接被移除后仍被线程持有
+   */
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> threadList = ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_SIZE));
+
+  /**
+   * 交接队列，公平模式，先等的先拿
+   */
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<>(true);
+
+  /**
+   * 正在等待连接的线程数
+   */
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /**
+   * 空闲（{@link PoolEntry#STATE_NOT_IN_USE}）的连接数。连接变为空闲之前加一，从空闲变为其他状态的 CAS 成功后减一，
+   * 归还时据此判断空闲连接是否到了上限，不用遍历共享列表
+   */
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /**
+   * 借用连接，先查线程本地列表，再查共享列表，然后交给 creator 尝试新建连接，都没有就在交接队列上等待 timeout
+   * note creator 在登记为等待者之后才调用，这样即使连接刚好在这期间被移除，空出来的名额也不会被漏掉
+   *
+   * @return 借到的连接，超时返回 null
+   */
+  PoolEntry borrow(long timeout, TimeUnit timeUnit, EntryCreator creator) throws InterruptedException, SQLException {
+    // 先从线程本地列表拿，倒序遍历，最近归还的最先被拿到
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      PoolEntry entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+        idleCount.decrementAndGet();
+        return entry;
+      }
+    }
+
+    // 记录等待的线程，便于归还方判断是否需要交接
+    waiters.incrementAndGet();
+    try {
+      // 遍历共享列表
+      for (PoolEntry entry : sharedList) {
+        if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          idleCount.decrementAndGet();
+          return entry;
+        }
+      }
+      // 尝试新建连接，返回的连接已经是使用中的状态
+      PoolEntry created = creator.create();
+      if (created != null) {
+        return created;
+      }
+      // 在交接队列上等待
+      long nanos = timeUnit.toNanos(timeout);
+      while (nanos > 0) {
+        long start = System.nanoTime();
+        PoolEntry entry = handoffQueue.poll(nanos, TimeUnit.NANOSECONDS);
+        // 超时，或者 CAS 成功，都可以返回了；CAS 失败说明被线程本地的借用方抢走了，继续等
+        if (entry == null) {
+          return null;
+        }
+        if (entry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+          idleCount.decrementAndGet();
+          return entry;
+        }
+        nanos -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * 归还连接。如果有线程在等待，优先交给等待者，否则放入当前线程的本地列表
+   */
+  void requite(PoolEntry entry) {
+    idleCount.incrementAndGet();
+    release(entry);
+  }
+
+  /**
+   * 有线程在等待，或者空闲连接数没到 maxIdleCount 时才归还，空闲的名额通过 CAS 占用，并发归还也不会超出上限
+   *
+   * @return 是否归还了，没有归还的连接由调用方关闭
+   */
+  boolean requite(PoolEntry entry, int maxIdleCount) {
+    int idle;
+    do {
+      idle = idleCount.get();
+      if (idle >= maxIdleCount) {
+        if (waiters.get() == 0) {
+          return false;
+        }
+        // 有人在等，超出上限也要归还，等待者拿走后就降回来了
+        idleCount.incrementAndGet();
+        break;
+      }
+    } while (!idleCount.compareAndSet(idle, idle + 1));
+    release(entry);
+    return true;
+  }
+
+  /**
+   * 置为空闲并交接，调用前空闲连接数已经加过了
+   */
+  private void release(PoolEntry entry) {
+    entry.setState(STATE_NOT_IN_USE);
+    for (int i = 0; waiters.get() > 0; i++) {
+      // 已经被别的线程从共享列表中拿走了，或者成功交给等待者，结束
+      if (entry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<PoolEntry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_SIZE) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * 添加新的连接，状态由调用方决定。新建的连接若是直接借出的，传入前就要设置为 {@link PoolEntry#STATE_IN_USE}
+   */
+  void add(PoolEntry entry) {
+    if (entry.getState() == STATE_NOT_IN_USE) {
+      idleCount.incrementAndGet();
+    }
+    sharedList.add(entry);
+  }
+
+  /**
+   * 移除连接，只有当前的借用者（或者强制关闭时）才能移除
+   *
+   * @return 是否移除成功
+   */
+  boolean remove(PoolEntry entry) {
+    if (!entry.compareAndSet(STATE_IN_USE, STATE_REMOVED)) {
+      if (!entry.compareAndSet(STATE_NOT_IN_USE, STATE_REMOVED)) {
+        return false;
+      }
+      idleCount.decrementAndGet();
+    }
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * 所有连接的快照，遍历时不受并发修改影响
+   */
+  List<PoolEntry> values() {
+    return sharedList;
+  }
+
+  /**
+   * 指定状态的连接数
+   */
+  int getCount(int state) {
+    int count = 0;
+    for (PoolEntry entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 空闲的连接数
+   */
+  int getIdleCount() {
+    return idleCount.get();
+  }
+
+  /**
+   * 正在等待连接的线程数
+   */
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  /**
+   * 连接总数
+   */
+  int size() {
+    return sharedList.size();
+  }
+
+}
@@ -0,0 +1,104 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 10:41
+ *
+ * {@link ConcurrentPooledDataSource} 的连接池状态。
+ * 统计项与 {@link PoolState} 完全一致，只是改用 LongAdder 累加，这样统计时无需加锁；
+ * 空闲和激活的连接数直接从 {@link ConcurrentBag} 中统计，不再使用父类的 idleConnections/activeConnections
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  /**
+   * 连接容器
+   */
+  private final ConcurrentBag bag;
+
+  /**
+   * 各项统计，与父类字段一一对应，如 requestAdder 对应 {@link PoolState#requestCount}
+   */
+  final LongAdder requestAdder = new LongAdder();
+  final LongAdder requestTimeAdder = new LongAdder();
+  final LongAdder checkoutTimeAdder = new LongAdder();
+  final LongAdder claimedOverdueAdder = new LongAdder();
+  final LongAdder overdueCheckoutTimeAdder = new LongAdder();
+  final LongAdder waitTimeAdder = new LongAdder();
+  final LongAdder hadToWaitAdder = new LongAdder();
+  final LongAdder badConnectionAdder = new LongAdder();
+
+  /**
+   * 构造
+   */
+  ConcurrentPoolState(PooledDataSource dataSource, ConcurrentBag bag) {
+    super(dataSource);
+    this.bag = bag;
+  }
+
+  /**
+   * get方法，都不加锁
+   */
+  @Override
+  public long getRequestCount() {
+    return requestAdder.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long count = requestAdder.sum();
+    return count == 0 ? 0 : requestTimeAdder.sum() / count;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long count = hadToWaitAdder.sum();
+    return count == 0 ? 0 : waitTimeAdder.sum() / count;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitAdder.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionAdder.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueAdder.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long count = claimedOverdueAdder.sum();
+    return count == 0 ? 0 : overdueCheckoutTimeAdder.sum() / count;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long count = requestAdder.sum();
+    return count == 0 ? 0 : checkoutTimeAdder.sum() / count;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return bag.getIdleCount();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return bag.getCount(PoolEntry.STATE_IN_USE);
+  }
+
+  /**
+   * 正在等待连接的线程数，原实现中没有这个统计
+   */
+  public int getWaitingThreadCount() {
+    return bag.getWaitingThreadCount();
+  }
+
+}
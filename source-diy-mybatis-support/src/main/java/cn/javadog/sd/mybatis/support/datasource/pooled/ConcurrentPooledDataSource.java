@@ -0,0 +1,360 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.javadog.sd.mybatis.support.datasource.unpooled.UnpooledDataSource;
+import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 11:02
+ *
+ * 无锁的池化 DataSource 实现类，配置项、ping 检测、{@link PooledConnection} 代理的语义都与 {@link PooledDataSource} 一致。
+ * 区别在于父类所有的借出/归还都在 synchronized(state) 里完成，高并发下这把锁就是瓶颈；
+ * 这里换成了 {@link ConcurrentBag}：线程本地优先 + CAS 修改连接状态 + SynchronousQueue 交接给等待者，统计则交给 {@link ConcurrentPoolState}
+ *
+ * note 通过 type="CONCURRENT_POOLED" 使用，见 {@link ConcurrentPooledDataSourceFactory}
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  /**
+   * 连接容器
+   */
+  private final ConcurrentBag bag = new ConcurrentBag();
+
+  /**
+   * 连接池状态，替代父类的 PoolState
+   */
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this, bag);
+
+  /**
+   * 已经创建（包括正在创建）的连接数，用于控制不超过 poolMaximumActiveConnections
+   */
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  /**
+   * 构造，同父类
+   */
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  /**
+   * 获得 Connection 连接
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public PoolState getPoolState() {
+    return state;
+  }
+
+  /**
+   * 关闭所有连接，正在使用的连接也会被失效
+   */
+  @Override
+  public void forceCloseAll() {
+    // 计算 expectedConnectionTypeCode
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PoolEntry entry : bag.values()) {
+      PooledConnection owner = entry.getOwner();
+      // 移除成功才关闭，没成功说明已经被别的线程移除了
+      if (bag.remove(entry)) {
+        totalConnections.decrementAndGet();
+        // 持有者置为失效，它之后归还时会被当作坏连接
+        if (owner != null && entry.releaseOwner(owner)) {
+          owner.invalidate();
+        }
+        closeRealConnection(entry);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  /**
+   * 将使用完的连接，归还到连接池中
+   */
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    // 借出时记下的 PoolEntry，释放持有者。失败说明已被超时回收或强制关闭了
+    PoolEntry entry = conn.getPoolEntry();
+    if (entry == null || !entry.releaseOwner(conn)) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionAdder.increment();
+      return;
+    }
+    // 统计连接使用时长
+    state.checkoutTimeAdder.add(conn.getCheckoutTime());
+    if (conn.isValid()) {
+      // 回滚事务，避免使用方未提交或者回滚事务
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      // 设置原连接失效，避免使用方归还后还在用
+      conn.invalidate();
+      // 有人在等，或者空闲连接没达到上限，就放回池中；当然前提是和当前连接池的标识匹配
+      if (conn.getConnectionTypeCode() == expectedConnectionTypeCode && bag.requite(entry, poolMaximumIdleConnections)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+        }
+      } else {
+        removeEntry(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+      }
+    } else {
+      // 失效的连接，从池中移除，把名额空出来
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.badConnectionAdder.increment();
+      removeEntry(entry);
+    }
+  }
+
+  /**
+   * 从池中获取 PooledConnection 对象，流程与父类一致：空闲连接 -> 新建连接 -> 回收超时连接 -> 等待
+   */
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    // 标记，获取连接时，是否进行了等待
+    boolean countedWait = false;
+    // 记录当前时间
+    long t = System.currentTimeMillis();
+    // 记录当前方法，获取到坏连接的次数
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      PoolEntry entry;
+      try {
+        // 不等待，先拿空闲的，没有就新建或者回收超时的
+        entry = bag.borrow(0, TimeUnit.MILLISECONDS, this::createOrClaimEntry);
+        if (entry == null) {
+          // 对等待连接进行统计。通过 countedWait 标识，只记录一次
+          if (!countedWait) {
+            state.hadToWaitAdder.increment();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          // 等待，直到超时，或者有连接归还时直接交接过来
+          entry = bag.borrow(poolTimeToWait, TimeUnit.MILLISECONDS, this::createOrClaimEntry);
+          // 统计等待连接的时间
+          state.waitTimeAdder.add(System.currentTimeMillis() - wt);
+          if (entry == null) {
+            continue;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+
+      // 每次借出都创建新的 PooledConnection
+      PooledConnection conn = new PooledConnection(entry.getRealConnection(), this, entry.getStatementCache(), entry);
+      conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+      conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+      // 通过 ping 来测试连接是否有效
+      if (conn.isValid()) {
+        // 如果非自动提交的，需要进行回滚
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+        // 设置获取连接的属性
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        entry.setOwner(conn);
+        // 设置持有者期间被 forceCloseAll 移除了，重新获取
+        if (entry.getState() == PoolEntry.STATE_REMOVED) {
+          conn.invalidate();
+          continue;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+        // 对获取成功连接的统计
+        state.requestAdder.increment();
+        state.requestTimeAdder.add(System.currentTimeMillis() - t);
+        return conn;
+      }
+
+      // 坏掉的连接
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+      }
+      state.badConnectionAdder.increment();
+      localBadConnectionCount++;
+      removeEntry(entry);
+      // 超过最大次数，抛出 SQLException 异常
+      if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+
+    // 获取不到连接，抛出 SQLException 异常
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    throw new SQLException("ConcurrentPooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+  }
+
+  /**
+   * 没有空闲连接时调用：名额未满就新建连接，否则回收一个超时的连接
+   *
+   * @return 状态为使用中的连接，都不满足时返回 null
+   */
+  private PoolEntry createOrClaimEntry() throws SQLException {
+    PoolEntry entry = createEntry();
+    return entry != null ? entry : claimOverdueEntry();
+  }
+
+  /**
+   * 在名额内新建连接，CAS 占用名额，创建失败要把名额还回去
+   */
+  private PoolEntry createEntry() throws SQLException {
+    int total;
+    do {
+      total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+    } while (!totalConnections.compareAndSet(total, total + 1));
+    try {
+      PoolEntry entry = new PoolEntry(dataSource.getConnection(), new StatementCache(poolStatementCacheSize));
+      entry.setState(PoolEntry.STATE_IN_USE);
+      bag.add(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+      }
+      return entry;
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+  }
+
+  /**
+   * 找到一个超过 poolMaximumCheckoutTime 的连接并强制回收
+   */
+  private PoolEntry claimOverdueEntry() {
+    for (PoolEntry entry : bag.values()) {
+      PooledConnection owner = entry.getOwner();
+      if (owner == null || entry.getState() != PoolEntry.STATE_IN_USE) {
+        continue;
+      }
+      long longestCheckoutTime = owner.getCheckoutTime();
+      // 检查到超时，并且抢到了所有权
+      if (longestCheckoutTime > poolMaximumCheckoutTime && entry.releaseOwner(owner)) {
+        // 对连接超时的时间的统计
+        state.claimedOverdueAdder.increment();
+        state.overdueCheckoutTimeAdder.add(longestCheckoutTime);
+        state.checkoutTimeAdder.add(longestCheckoutTime);
+        // 设置原持有者为无效，它的 Statement 缓存也不再沿用
+        owner.invalidate();
+        entry.resetStatementCache();
+        // 如果非自动提交的，需要进行回滚。同父类，失败了只打日志，交给后面的有效性检测
+        try {
+          if (!entry.getRealConnection().getAutoCommit()) {
+            entry.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          log.debug("Bad connection. Could not roll back");
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + owner.getRealHashCode() + ".");
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 移除连接并关闭，空出来的名额如果有人在等，就新建一个连接交给他
+   */
+  private void removeEntry(PoolEntry entry) {
+    if (bag.remove(entry)) {
+      totalConnections.decrementAndGet();
+      closeRealConnection(entry);
+      if (bag.getWaitingThreadCount() > 0) {
+        fillPool();
+      }
+    }
+  }
+
+  /**
+   * 为等待的线程补充一个连接
+   */
+  private void fillPool() {
+    try {
+      PoolEntry entry = createEntry();
+      if (entry != null) {
+        bag.requite(entry);
+      }
+    } catch (SQLException e) {
+      log.debug("Could not create connection for waiting threads: " + e.getMessage());
+    }
+  }
+
+  /**
+   * 关闭真实的连接，同父类，出错不刁
+   */
+  private void closeRealConnection(PoolEntry entry) {
+    try {
+      Connection realConn = entry.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+}
@@ -0,0 +1,22 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+
+import cn.javadog.sd.mybatis.support.datasource.unpooled.UnpooledDataSourceFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 11:40
+ *
+ * CONCURRENT_POOLED – 无锁的池化数据源，属性与 POOLED 完全一致，见 {@link PooledDataSourceFactory}。
+ * 适合高并发场景，获取和归还连接都不再争抢同一把锁，见 {@link ConcurrentPooledDataSource}
+ */
+public class ConcurrentPooledDataSourceFactory extends UnpooledDataSourceFactory {
+
+  /**
+   * 构造
+   */
+  public ConcurrentPooledDataSourceFactory() {
+    this.dataSource = new ConcurrentPooledDataSource();
+  }
+
+}
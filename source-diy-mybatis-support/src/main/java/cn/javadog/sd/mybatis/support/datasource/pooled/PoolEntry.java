@@ -0,0 +1,141 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 10:12
+ *
+ * {@link ConcurrentBag} 中的元素，一个 PoolEntry 对应一个真实的数据库连接。
+ * 与 {@link PoolState} 里直接存放 {@link PooledConnection} 不同，PoolEntry 在连接的整个生命周期内不变，
+ * 每次被借出时才创建新的 PooledConnection 作为本次使用的代理，归还时让其失效，语义与 {@link PooledDataSource#pushConnection} 一致
+ */
+class PoolEntry {
+
+  /**
+   * 状态：空闲，在池中
+   */
+  static final int STATE_NOT_IN_USE = 0;
+
+  /**
+   * 状态：被借出使用中
+   */
+  static final int STATE_IN_USE = 1;
+
+  /**
+   * 状态：已从池中移除
+   */
+  static final int STATE_REMOVED = -1;
+
+  /**
+   * 连接状态，通过 CAS 切换，替代原先的 synchronized(state)
+   */
+  private final AtomicInteger state = new AtomicInteger(STATE_NOT_IN_USE);
+
+  /**
+   * 当前持有该连接的 PooledConnection，即借出方拿到的代理；空闲时为 null。
+   * 归还和超时回收都要先 CAS 抢到它，谁抢到谁处理，避免一个连接被归还两次
+   */
+  private final AtomicReference<PooledConnection> owner = new AtomicReference<>();
+
+  /**
+   * 真实的 Connection 连接
+   */
+  private final Connection realConnection;
+
+  /**
+   * 真实连接上的 Statement 缓存，每次借出的 PooledConnection 共用，超时回收时换新的
+   */
+  private volatile StatementCache statementCache;
+
+  /**
+   * 对象创建时间
+   */
+  private final long createdTimestamp;
+
+  /**
+   * 最后使用时间
+   */
+  private volatile long lastUsedTimestamp;
+
+  /**
+   * 构造
+   */
+  PoolEntry(Connection realConnection, StatementCache statementCache) {
+    this.realConnection = realConnection;
+    this.statementCache = statementCache;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  /**
+   * CAS 修改状态
+   */
+  boolean compareAndSet(int expect, int update) {
+    return state.compareAndSet(expect, update);
+  }
+
+  /**
+   * 直接设置状态，只有当前持有者才能调用
+   */
+  void setState(int update) {
+    state.set(update);
+  }
+
+  int getState() {
+    return state.get();
+  }
+
+  /**
+   * 获取当前的持有者
+   */
+  PooledConnection getOwner() {
+    return owner.get();
+  }
+
+  /**
+   * 借出时设置持有者
+   */
+  void setOwner(PooledConnection conn) {
+    owner.set(conn);
+  }
+
+  /**
+   * 释放持有者，只有 expect 确实是当前持有者时才会成功
+   */
+  boolean releaseOwner(PooledConnection expect) {
+    return owner.compareAndSet(expect, null);
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * 超时回收时调用，原持有者的会话还能拿到旧的缓存，关闭其中的 Statement，之后借出的用新的缓存
+   */
+  void resetStatementCache() {
+    StatementCache previous = statementCache;
+    statementCache = new StatementCache(previous.getMaxSize());
+    previous.clear();
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+}
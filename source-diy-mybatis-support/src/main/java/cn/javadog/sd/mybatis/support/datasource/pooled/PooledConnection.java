@@ -47,6 +47,16 @@ class PooledConnection implements InvocationHandler {
    */
   private final Connection proxyConnection;
 
+  /**
+   * 真实连接上的 Statement 缓存，重新包装同一个真实连接时沿用
+   */
+  private final StatementCache statementCache;
+
+  /**
+   * 真实连接在 {@link ConcurrentPooledDataSource} 中对应的 PoolEntry，归还时直接使用；其它数据源为 null
+   */
+  private final PoolEntry poolEntry;
+
   /**
    * 从连接池中，获取走的时间戳
    */
@@ -80,6 +90,22 @@ class PooledConnection implements InvocationHandler {
    * @param dataSource - 数据源，connection就是来自于它
    */
   public PooledConnection(Connection connection, PooledDataSource dataSource) {
+    this(connection, dataSource, new StatementCache(dataSource.getPoolStatementCacheSize()));
+  }
+
+  /**
+   * 构造函数，重新包装已经在池中的真实连接时使用，沿用它的 Statement 缓存
+   */
+  public PooledConnection(Connection connection, PooledDataSource dataSource, StatementCache statementCache) {
+    this(connection, dataSource, statementCache, null);
+  }
+
+  /**
+   * 构造函数，{@link ConcurrentPooledDataSource} 借出连接时使用，同时记下对应的 PoolEntry
+   */
+  PooledConnection(Connection connection, PooledDataSource dataSource, StatementCache statementCache, PoolEntry poolEntry) {
+    this.statementCache = statementCache;
+    this.poolEntry = poolEntry;
     this.hashCode = connection.hashCode();
     this.realConnection = connection;
     this.dataSource = dataSource;
@@ -118,6 +144,14 @@ class PooledConnection implements InvocationHandler {
     return realConnection == null ? 0 : realConnection.hashCode();
   }
 
+  public StatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
   public int getConnectionTypeCode() {
     return connectionTypeCode;
   }
@@ -38,7 +38,7 @@ public class PooledDataSource implements DataSource {
   /**
    * UnpooledDataSource 对象，其实PooledDataSource就是对UnpooledDataSource的增强！
    */
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // 下面使是一些可选的配置字段
   /**
@@ -85,7 +85,12 @@ public class PooledDataSource implements DataSource {
   /**
    * 期望 Connection 的类型编码，通过 {@link #assembleConnectionTypeCode(String, String, String)} 计算。
    */
-  private int expectedConnectionTypeCode;
+  protected int expectedConnectionTypeCode;
+
+  /**
+   * 每个连接上最多缓存的 Statement 个数，见 {@link StatementCache}，0 代表不缓存
+   */
+  protected int poolStatementCacheSize = StatementCache.DEFAULT_SIZE;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -234,6 +239,11 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  public void setPoolStatementCacheSize(int poolStatementCacheSize) {
+    this.poolStatementCacheSize = poolStatementCacheSize;
+    forceCloseAll();
+  }
+
   /**
    * 字段的get方法
    */
@@ -297,6 +307,10 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolStatementCacheSize() {
+    return poolStatementCacheSize;
+  }
+
   public PoolState getPoolState() {
     return state;
   }
@@ -355,7 +369,7 @@ public class PooledDataSource implements DataSource {
   /**
    * 组装连接类型码，JVM同一个对象的hashCode肯定一致，string会重用对象
    */
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -378,7 +392,7 @@ public class PooledDataSource implements DataSource {
             conn.getRealConnection().rollback();
           }
           // 创建新的 PooledConnection 对象，并添加到空闲的链接集合中；新的 PooledConnection 与当前相比就是重置了连接时间
-          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this, conn.getStatementCache());
           state.idleConnections.add(newConn);
           // 将这俩时间都设置回去了，创建新的 PooledConnection 的意义在哪里？见下面👇
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
@@ -486,6 +500,8 @@ public class PooledDataSource implements DataSource {
                   log.debug("Bad connection. Could not roll back");
                 }  
               }
+              // 原持有者的会话还能通过旧的代理拿到 Statement 缓存，关闭其中的 Statement，新的持有者用新的缓存
+              oldestActiveConnection.getStatementCache().clear();
               // 创建新的 PooledConnection 连接对象
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
@@ -649,6 +665,19 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * 获取连接上的 Statement 缓存，不是连接池借出的连接时返回 null
+   */
+  public static StatementCache getStatementCache(Connection conn) {
+    if (Proxy.isProxyClass(conn.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(conn);
+      if (handler instanceof PooledConnection) {
+        return ((PooledConnection) handler).getStatementCache();
+      }
+    }
+    return null;
+  }
+
   /**
    * gc释放资源
    */
@@ -0,0 +1,156 @@
+package cn.javadog.sd.mybatis.support.datasource.pooled;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 22:40
+ *
+ * 一个真实数据库连接上的 Statement 缓存，按最近使用淘汰，淘汰时关闭 Statement。
+ * 缓存跟随真实的连接，而不是某次借出的 {@link PooledConnection}，连接归还后再被借出，之前准备好的 Statement 依然可以复用。
+ * 目前由 ReuseExecutor 使用，通过 {@link PooledDataSource#getStatementCache(java.sql.Connection)} 获取
+ *
+ * note 同一时间一个连接只会被一个会话使用，加锁只是为了强制关闭连接池时的可见性，没有竞争
+ */
+public class StatementCache {
+
+  /**
+   * 默认最多缓存的 Statement 个数
+   */
+  public static final int DEFAULT_SIZE = 32;
+
+  /**
+   * 最多缓存的 Statement 个数，0 代表不缓存
+   */
+  private final int maxSize;
+
+  /**
+   * 缓存的 Statement，按访问顺序排列，最久没用的在最前面
+   */
+  private final LinkedHashMap<String, Statement> statements;
+
+  /**
+   * 命中次数
+   */
+  private long hits;
+
+  /**
+   * 未命中次数
+   */
+  private long misses;
+
+  /**
+   * 淘汰次数
+   */
+  private long evictions;
+
+  public StatementCache(int maxSize) {
+    this.maxSize = maxSize;
+    this.statements = new LinkedHashMap<String, Statement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+        if (size() > StatementCache.this.maxSize) {
+          evictions++;
+          close(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * 获取缓存的 Statement，没有或者已经关闭时返回 null
+   */
+  public synchronized Statement get(String key) {
+    Statement stmt = statements.get(key);
+    if (stmt != null && isClosed(stmt)) {
+      statements.remove(key);
+      stmt = null;
+    }
+    if (stmt == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return stmt;
+  }
+
+  /**
+   * 缓存 Statement，超过上限时关闭最久没用的。不缓存时返回 false，由调用方自己关闭
+   */
+  public synchronized boolean put(String key, Statement stmt) {
+    if (maxSize <= 0) {
+      return false;
+    }
+    Statement previous = statements.put(key, stmt);
+    if (previous != null && previous != stmt) {
+      close(previous);
+    }
+    return true;
+  }
+
+  /**
+   * 关闭并清空所有的 Statement
+   */
+  public synchronized void clear() {
+    for (Statement stmt : statements.values()) {
+      close(stmt);
+    }
+    statements.clear();
+  }
+
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "StatementCache{size=" + statements.size() + ", maxSize=" + maxSize + ", hits=" + hits
+        + ", misses=" + misses + ", evictions=" + evictions + "}";
+  }
+
+  /**
+   * 判断 Statement 或它的连接是否已经关闭
+   */
+  private static boolean isClosed(Statement stmt) {
+    try {
+      return stmt.isClosed() || stmt.getConnection().isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  /**
+   * 关闭 Statement，出错不刁
+   */
+  private static void close(Statement stmt) {
+    try {
+      stmt.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
@@ -19,10 +19,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import cn.javadog.sd.mybatis.support.exceptions.ReflectionException;
-import cn.javadog.sd.mybatis.support.reflection.invoker.GetFieldInvoker;
+import cn.javadog.sd.mybatis.support.reflection.invoker.DefaultInvokerFactory;
 import cn.javadog.sd.mybatis.support.reflection.invoker.Invoker;
-import cn.javadog.sd.mybatis.support.reflection.invoker.MethodInvoker;
-import cn.javadog.sd.mybatis.support.reflection.invoker.SetFieldInvoker;
+import cn.javadog.sd.mybatis.support.reflection.invoker.InvokerFactory;
 import cn.javadog.sd.mybatis.support.reflection.property.PropertyNamer;
 import cn.javadog.sd.mybatis.support.reflection.resolver.TypeParameterResolver;
 
@@ -78,6 +77,11 @@ public class Reflector {
 	 */
 	private final Map<String, Class<?>> getTypes = new HashMap<>();
 
+	/**
+	 * 创建 get/set 调用器的工厂
+	 */
+	private final InvokerFactory invokerFactory;
+
 	/**
 	 * 默认构造
 	 */
@@ -91,11 +95,19 @@ public class Reflector {
 	private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
 
 	/**
-	 * 构造函数
+	 * 构造函数，调用器都基于反射
 	 */
 	public Reflector(Class<?> clazz) {
+		this(clazz, DefaultInvokerFactory.INSTANCE);
+	}
+
+	/**
+	 * 构造函数，指定调用器工厂
+	 */
+	public Reflector(Class<?> clazz, InvokerFactory invokerFactory) {
 		// 设置对应的类
 		type = clazz;
+		this.invokerFactory = invokerFactory;
 		// 初始化 defaultConstructor
 		addDefaultConstructor(clazz);
 		// 初始化 getMethods 和 getTypes ，通过遍历 get 方法。note 注意顺序，先初始化的Get方法，因为下面的 addSetMethods 会使用到这个方法的结果 getTypes
@@ -233,7 +245,7 @@ public class Reflector {
 		// 判断是合理的属性
 		if (isValidPropertyName(field.getName())) {
 			// 添加到 setMethods 中
-			setMethods.put(field.getName(), new SetFieldInvoker(field));
+			setMethods.put(field.getName(), invokerFactory.forSetField(field));
 			// 处理字段的类型
 			Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
 			// 添加到 setTypes 中
@@ -248,7 +260,7 @@ public class Reflector {
 		// 判断是合理的属性
 		if (isValidPropertyName(field.getName())) {
 			// 添加到 getMethods 中
-			getMethods.put(field.getName(), new GetFieldInvoker(field));
+			getMethods.put(field.getName(), invokerFactory.forGetField(field));
 			// 添加到 getTypes 中
 			Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
 			getTypes.put(field.getName(), typeToClass(fieldType));
@@ -465,7 +477,7 @@ public class Reflector {
 	private void addSetMethod(String name, Method method) {
 		// 排除方法名不合法的
 		if (isValidPropertyName(name)) {
-			setMethods.put(name, new MethodInvoker(method));
+			setMethods.put(name, invokerFactory.forMethod(method));
 			// 处理 方法的参数类型
 			Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
 			// 实际只有一个参数，所以就放第一个
@@ -480,7 +492,7 @@ public class Reflector {
 		// 判断属性名是否合法
 		if (isValidPropertyName(name)) {
 			// 添加到getMethods
-			getMethods.put(name, new MethodInvoker(method));
+			getMethods.put(name, invokerFactory.forMethod(method));
 			// 处理方法返回的类型
 			Type returnType = TypeParameterResolver.resolveReturnType(method, type);
 			// 添加到 getTypes 中
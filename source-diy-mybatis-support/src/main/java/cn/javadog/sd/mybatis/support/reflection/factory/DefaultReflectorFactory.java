@@ -60,11 +60,18 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     if (classCacheEnabled) {
       // 开启缓存，则从 reflectorMap 中获取，没找到就创建 => 放进去 => 缓存起来
       // note 注释里提到之前添加了 synchronized(type) ，但是移除了，原因参见see issue #461，这种我是不懂的
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, this::createReflector);
     } else {
       // 关闭缓存，则创建 Reflector 对象
-      return new Reflector(type);
+      return createReflector(type);
     }
   }
 
+  /**
+   * 创建 Reflector 对象，子类可以指定不同的调用器工厂
+   */
+  protected Reflector createReflector(Class<?> type) {
+    return new Reflector(type);
+  }
+
 }
@@ -0,0 +1,25 @@
+package cn.javadog.sd.mybatis.support.reflection.factory;
+
+import cn.javadog.sd.mybatis.support.reflection.Reflector;
+import cn.javadog.sd.mybatis.support.reflection.invoker.LambdaInvokerFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 17:30
+ *
+ * 生成直接调用的 get/set 调用器的 ReflectorFactory，见 {@link LambdaInvokerFactory}。
+ * 结果映射、参数设置时每个属性的读写都不再经过 Method.invoke，适合宽表、大结果集的查询
+ *
+ * note 需要手动开启：{@code <reflectorFactory type="cn.javadog.sd.mybatis.support.reflection.factory.LambdaReflectorFactory"/>}
+ */
+public class LambdaReflectorFactory extends DefaultReflectorFactory {
+
+  /**
+   * 创建 Reflector 对象，使用 LambdaInvokerFactory
+   */
+  @Override
+  protected Reflector createReflector(Class<?> type) {
+    return new Reflector(type, LambdaInvokerFactory.INSTANCE);
+  }
+
+}
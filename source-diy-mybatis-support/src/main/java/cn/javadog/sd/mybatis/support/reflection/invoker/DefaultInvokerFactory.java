@@ -0,0 +1,33 @@
+package cn.javadog.sd.mybatis.support.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 17:12
+ * 默认的调用器工厂，全部基于反射
+ */
+public class DefaultInvokerFactory implements InvokerFactory {
+
+	/**
+	 * 单例，没有状态
+	 */
+	public static final DefaultInvokerFactory INSTANCE = new DefaultInvokerFactory();
+
+	@Override
+	public Invoker forMethod(Method method) {
+		return new MethodInvoker(method);
+	}
+
+	@Override
+	public Invoker forGetField(Field field) {
+		return new GetFieldInvoker(field);
+	}
+
+	@Override
+	public Invoker forSetField(Field field) {
+		return new SetFieldInvoker(field);
+	}
+
+}
@@ -0,0 +1,28 @@
+package cn.javadog.sd.mybatis.support.reflection.invoker;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 17:10
+ * 调用器工厂，Reflector 通过它为每个属性创建 get/set 的调用器
+ */
+public interface InvokerFactory {
+
+	/**
+	 * 创建 get/set 方法的调用器
+	 */
+	Invoker forMethod(Method method);
+
+	/**
+	 * 创建直接读取字段的调用器，针对没有 get 方法的字段
+	 */
+	Invoker forGetField(Field field);
+
+	/**
+	 * 创建直接设置字段的调用器，针对没有 set 方法的字段
+	 */
+	Invoker forSetField(Field field);
+
+}
@@ -0,0 +1,237 @@
+package cn.javadog.sd.mybatis.support.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import cn.javadog.sd.mybatis.support.logging.Log;
+import cn.javadog.sd.mybatis.support.logging.LogFactory;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 17:15
+ * 基于 LambdaMetafactory 的调用器工厂。
+ * MethodInvoker 每次都走 Method.invoke，要做参数数组、访问检查、装箱等一系列处理，结果映射时每行每列都要调一次；
+ * 这里在运行时为每个 get/set 方法生成一个 Function/BiConsumer 的实现类，调用时就是一次普通的接口调用，JIT 可以直接内联。
+ * 字段没法生成 lambda，用 MethodHandle 访问。
+ *
+ * Java 9 及以上通过 privateLookupIn 拿到目标类的私有访问权限，private 方法也能处理；
+ * Java 8 只处理当前类加载器可见的 public 类的 public 方法。生成失败的一律退回到反射的调用器
+ *
+ * note 生成的调用器继承了反射的调用器，MetaClass 依然可以从中取出 Method/Field
+ */
+public class LambdaInvokerFactory implements InvokerFactory {
+
+	private static final Log log = LogFactory.getLog(LambdaInvokerFactory.class);
+
+	/**
+	 * 单例，没有状态
+	 */
+	public static final LambdaInvokerFactory INSTANCE = new LambdaInvokerFactory();
+
+	/**
+	 * MethodHandles#privateLookupIn，Java 9 才有，Java 8 下为 null
+	 */
+	private static final Method PRIVATE_LOOKUP_IN = resolvePrivateLookupIn();
+
+	private static final MethodType GETTER_FACTORY = MethodType.methodType(Function.class);
+	private static final MethodType GETTER_SIGNATURE = MethodType.methodType(Object.class, Object.class);
+	private static final MethodType SETTER_FACTORY = MethodType.methodType(BiConsumer.class);
+	private static final MethodType SETTER_SIGNATURE = MethodType.methodType(void.class, Object.class, Object.class);
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Invoker forMethod(Method method) {
+		if (!Modifier.isStatic(method.getModifiers())) {
+			try {
+				Class<?> owner = method.getDeclaringClass();
+				Lookup lookup = lookupFor(owner, method.getModifiers());
+				if (lookup != null && method.getParameterCount() == 0 && method.getReturnType() != void.class) {
+					MethodType instantiated = MethodType.methodType(boxed(method.getReturnType()), owner);
+					CallSite site = LambdaMetafactory.metafactory(lookup, "apply", GETTER_FACTORY, GETTER_SIGNATURE,
+						lookup.unreflect(method), instantiated);
+					return new LambdaGetterInvoker(method, (Function<Object, Object>) site.getTarget().invoke());
+				}
+				if (lookup != null && method.getParameterCount() == 1) {
+					MethodType instantiated = MethodType.methodType(void.class, owner, boxed(method.getParameterTypes()[0]));
+					CallSite site = LambdaMetafactory.metafactory(lookup, "accept", SETTER_FACTORY, SETTER_SIGNATURE,
+						lookup.unreflect(method), instantiated);
+					return new LambdaSetterInvoker(method, (BiConsumer<Object, Object>) site.getTarget().invoke());
+				}
+			} catch (Throwable t) {
+				if (log.isDebugEnabled()) {
+					log.debug("Falling back to reflection for " + method + ". Cause: " + t);
+				}
+			}
+		}
+		return new MethodInvoker(method);
+	}
+
+	@Override
+	public Invoker forGetField(Field field) {
+		try {
+			// Reflector 已经 setAccessible 过，unreflect 不再检查访问权限
+			MethodHandle handle = MethodHandles.lookup().unreflectGetter(field).asType(GETTER_SIGNATURE);
+			return new HandleGetFieldInvoker(field, handle);
+		} catch (Throwable t) {
+			return new GetFieldInvoker(field);
+		}
+	}
+
+	@Override
+	public Invoker forSetField(Field field) {
+		try {
+			MethodHandle handle = MethodHandles.lookup().unreflectSetter(field).asType(SETTER_SIGNATURE);
+			return new HandleSetFieldInvoker(field, handle);
+		} catch (Throwable t) {
+			return new SetFieldInvoker(field);
+		}
+	}
+
+	/**
+	 * 获取能访问目标类的 Lookup，拿不到返回 null
+	 */
+	private static Lookup lookupFor(Class<?> owner, int modifiers) throws Exception {
+		if (PRIVATE_LOOKUP_IN != null) {
+			return (Lookup) PRIVATE_LOOKUP_IN.invoke(null, owner, MethodHandles.lookup());
+		}
+		// Java 8，生成的类挂在当前类下，只能调用 public 的方法，并且目标类要对当前类加载器可见
+		if (!Modifier.isPublic(owner.getModifiers()) || !Modifier.isPublic(modifiers)) {
+			return null;
+		}
+		try {
+			if (Class.forName(owner.getName(), false, LambdaInvokerFactory.class.getClassLoader()) != owner) {
+				return null;
+			}
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+		return MethodHandles.lookup();
+	}
+
+	/**
+	 * 基本类型转成包装类型，lambda 的签名是 Object，由 LambdaMetafactory 负责装箱拆箱
+	 */
+	private static Class<?> boxed(Class<?> type) {
+		return MethodType.methodType(type).wrap().returnType();
+	}
+
+	private static Method resolvePrivateLookupIn() {
+		try {
+			return MethodHandles.class.getMethod("privateLookupIn", Class.class, Lookup.class);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 与 Method.invoke 保持一致，目标方法抛出的异常包装成 InvocationTargetException
+	 */
+	private static InvocationTargetException wrap(Throwable t) {
+		return new InvocationTargetException(t);
+	}
+
+	/**
+	 * get 方法的调用器
+	 */
+	private static class LambdaGetterInvoker extends MethodInvoker {
+
+		private final Function<Object, Object> getter;
+
+		LambdaGetterInvoker(Method method, Function<Object, Object> getter) {
+			super(method);
+			this.getter = getter;
+		}
+
+		@Override
+		public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+			try {
+				return getter.apply(target);
+			} catch (Throwable t) {
+				throw wrap(t);
+			}
+		}
+
+	}
+
+	/**
+	 * set 方法的调用器
+	 */
+	private static class LambdaSetterInvoker extends MethodInvoker {
+
+		private final BiConsumer<Object, Object> setter;
+
+		LambdaSetterInvoker(Method method, BiConsumer<Object, Object> setter) {
+			super(method);
+			this.setter = setter;
+		}
+
+		@Override
+		public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+			try {
+				setter.accept(target, args[0]);
+				return null;
+			} catch (Throwable t) {
+				throw wrap(t);
+			}
+		}
+
+	}
+
+	/**
+	 * 读取字段的调用器
+	 */
+	private static class HandleGetFieldInvoker extends GetFieldInvoker {
+
+		private final MethodHandle getter;
+
+		HandleGetFieldInvoker(Field field, MethodHandle getter) {
+			super(field);
+			this.getter = getter;
+		}
+
+		@Override
+		public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+			try {
+				return (Object) getter.invokeExact(target);
+			} catch (Throwable t) {
+				throw wrap(t);
+			}
+		}
+
+	}
+
+	/**
+	 * 设置字段的调用器
+	 */
+	private static class HandleSetFieldInvoker extends SetFieldInvoker {
+
+		private final MethodHandle setter;
+
+		HandleSetFieldInvoker(Field field, MethodHandle setter) {
+			super(field);
+			this.setter = setter;
+		}
+
+		@Override
+		public Object invoke(Object target, Object[] args) throws InvocationTargetException {
+			try {
+				setter.invokeExact(target, args[0]);
+				return null;
+			} catch (Throwable t) {
+				throw wrap(t);
+			}
+		}
+
+	}
+
+}
@@ -31,8 +31,8 @@ public class PropertyNamer {
 				"or 'set'");
 		}
 
-		// 首字母小写，这种写法蛮臃肿的，但没必要吹毛求疵！重要的学习到什么，比如Character.isUpperCase这个api
-		if (name.length() == 1 || (name.length() > 1) && Character.isUpperCase(name.charAt(1))) {
+		// 首字母小写，第二个字母也是大写的（如 getURL）保持原样，这种写法蛮臃肿的，但没必要吹毛求疵！重要的学习到什么，比如Character.isUpperCase这个api
+		if (name.length() == 1 || (name.length() > 1 && !Character.isUpperCase(name.charAt(1)))) {
 			name = name.substring(0, 1).toLowerCase(Locale.ENGLISH) + name.substring(1);
 		}
 
@@ -1,5 +1,12 @@
 package cn.javadog.sd.mybatis.example.mapper;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.example.domain.Blog;
+import cn.javadog.sd.mybatis.example.domain.Post;
 
 /**
  * @author 余勇
@@ -8,5 +15,29 @@ package cn.javadog.sd.mybatis.example.mapper;
  */
 public interface BlogMapper {
 
+  /**
+   * 异步按编号查作者
+   */
+  CompletableFuture<List<Author>> selectAuthorsByIds(List<Integer> ids);
+
+  /**
+   * 异步查博客
+   */
+  CompletableFuture<Blog> selectBlog(int id);
+
+  /**
+   * 异步插入博客
+   */
+  CompletableFuture<Integer> insertBlog(Blog blog);
+
+  /**
+   * 异步删除博客
+   */
+  CompletableFuture<Integer> deleteBlog(int id);
+
+  /**
+   * 按博客编号查文章，订阅后按请求推送
+   */
+  CursorPublisher<Post> selectPostsByBlogIds(List<Integer> blogIds);
 
 }
@@ -0,0 +1,45 @@
+package cn.javadog.sd.mybatis.example.plugin;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
+import cn.javadog.sd.mybatis.plugin.Interceptor;
+import cn.javadog.sd.mybatis.plugin.Intercepts;
+import cn.javadog.sd.mybatis.plugin.Invocation;
+import cn.javadog.sd.mybatis.plugin.Plugin;
+import cn.javadog.sd.mybatis.plugin.Signature;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 06:00
+ * 记录执行语句之前 Statement 上的 fetchSize 的插件，拦截 StatementHandler#parameterize
+ */
+@Intercepts({
+    @Signature(type = StatementHandler.class, method = "parameterize", args = {Statement.class})
+})
+public class FetchSizePlugin implements Interceptor {
+
+  private final List<Integer> fetchSizes;
+
+  public FetchSizePlugin(List<Integer> fetchSizes) {
+    this.fetchSizes = fetchSizes;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    fetchSizes.add(((Statement) invocation.getArgs()[0]).getFetchSize());
+    return invocation.proceed();
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+  }
+
+}
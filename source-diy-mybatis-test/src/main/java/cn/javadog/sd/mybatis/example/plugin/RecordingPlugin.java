@@ -0,0 +1,53 @@
+package cn.javadog.sd.mybatis.example.plugin;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Properties;
+
+import cn.javadog.sd.mybatis.executor.Executor;
+import cn.javadog.sd.mybatis.executor.result.ResultHandler;
+import cn.javadog.sd.mybatis.executor.statement.StatementHandler;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.plugin.Interceptor;
+import cn.javadog.sd.mybatis.plugin.Intercepts;
+import cn.javadog.sd.mybatis.plugin.Invocation;
+import cn.javadog.sd.mybatis.plugin.Plugin;
+import cn.javadog.sd.mybatis.plugin.Signature;
+import cn.javadog.sd.mybatis.session.RowBounds;
+
+/**
+ * @author 余勇
+ * @date 2026-10-19 01:30
+ * 记录拦截顺序的插件，拦截 Executor#query 和 StatementHandler#prepare
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class})
+})
+public class RecordingPlugin implements Interceptor {
+
+  private final String name;
+
+  private final List<String> records;
+
+  public RecordingPlugin(String name, List<String> records) {
+    this.name = name;
+    this.records = records;
+  }
+
+  @Override
+  public Object intercept(Invocation invocation) throws Throwable {
+    records.add(name + "." + invocation.getMethod().getName());
+    return invocation.proceed();
+  }
+
+  @Override
+  public Object plugin(Object target) {
+    return Plugin.wrap(target, this);
+  }
+
+  @Override
+  public void setProperties(Properties properties) {
+  }
+
+}
@@ -1,9 +1,45 @@
 package cn.javadog.sd.mybatis.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.example.domain.Section;
+import cn.javadog.sd.mybatis.executor.QueryCoalescer;
+import cn.javadog.sd.mybatis.mapping.CacheBuilder;
 import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.support.cache.Cache;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.cache.decorators.LruCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.SynchronizedCache;
+import cn.javadog.sd.mybatis.support.cache.decorators.WTinyLfuCache;
+import cn.javadog.sd.mybatis.support.cache.impl.BinaryCodec;
+import cn.javadog.sd.mybatis.support.cache.impl.ConcurrentCache;
+import cn.javadog.sd.mybatis.support.cache.impl.OffHeapCache;
 import cn.javadog.sd.mybatis.support.cache.impl.PerpetualCache;
 import org.junit.Test;
 
@@ -13,6 +49,12 @@ import org.junit.Test;
  *
  * 测试缓存，包括：
  * 		* configuration 注册、获取 cache
+ * 		* CacheBuilder 构建线程安全的缓存
+ * 		* 淘汰策略的命中率
+ * 		* 按键过期与提前刷新
+ * 		* 堆外缓存的读写隔离与淘汰
+ * 		* 缓存未命中时的查询合并
+ * 		* CacheKey 的相等性
  *
  */
 public class CacheTest extends BaseDataTest {
@@ -90,4 +132,209 @@ public class CacheTest extends BaseDataTest {
 		}
 	}
 
+	/**
+	 * 默认的 PerpetualCache 需要包 SynchronizedCache
+	 */
+	@Test
+	public void shouldWrapPerpetualCacheWithSynchronizedCache() {
+		Cache cache = new CacheBuilder("com.mycache.MyCache").build();
+		assertTrue(cache instanceof SynchronizedCache);
+	}
+
+	/**
+	 * 线程安全的 ConcurrentCache 不再包 SynchronizedCache，LRU 换成线程安全的版本，依然会淘汰
+	 */
+	@Test
+	public void shouldNotSynchronizeThreadSafeCache() {
+		Cache cache = new CacheBuilder("com.mycache.MyCache")
+				.implementation(ConcurrentCache.class)
+				.addDecorator(LruCache.class)
+				.size(10)
+				.build();
+		assertFalse(cache instanceof SynchronizedCache);
+		for (int i = 0; i < 100; i++) {
+			cache.putObject(i, i);
+		}
+		assertEquals(10, cache.getSize());
+	}
+
+	/**
+	 * 热点 key 中间穿插一次性的扫描，对比 LRU 和 W-TinyLFU 的命中率
+	 * 扫描的 key 比容量多，LRU 下每轮热点都被挤出去；W-TinyLFU 下扫描的 key 频率低，进不了主区
+	 */
+	@Test
+	public void shouldResistScanPollutionBetterThanLru() {
+		LruCache lru = new LruCache(new PerpetualCache("lru"));
+		lru.setSize(100);
+		WTinyLfuCache tinyLfu = new WTinyLfuCache(new PerpetualCache("tinylfu"));
+		tinyLfu.setSize(100);
+		double lruHitRatio = simulateHotKeysWithScans(lru);
+		double tinyLfuHitRatio = simulateHotKeysWithScans(tinyLfu);
+		log.debug(String.format("命中率 LRU: %.2f%%, W-TinyLFU: %.2f%%", lruHitRatio * 100, tinyLfuHitRatio * 100));
+		assertTrue(tinyLfuHitRatio > lruHitRatio);
+	}
+
+	/**
+	 * 80 个热点 key，每轮访问一遍热点后再扫描 200 个新 key，未命中就放入缓存。cache 的容量由调用方设置为 100
+	 */
+	private double simulateHotKeysWithScans(Cache cache) {
+		int requests = 0;
+		int hits = 0;
+		int scanKey = 1000;
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < 80; i++) {
+				requests++;
+				if (cache.getObject(i) != null) {
+					hits++;
+				} else {
+					cache.putObject(i, i);
+				}
+			}
+			for (int i = 0; i < 200; i++, scanKey++) {
+				requests++;
+				if (cache.getObject(scanKey) == null) {
+					cache.putObject(scanKey, scanKey);
+				}
+			}
+		}
+		return (double) hits / requests;
+	}
+
+	/**
+	 * 按键过期：到了刷新时间只有第一个读的拿到 null 去刷新，其他的继续命中；到了过期时间都拿不到
+	 */
+	@Test
+	public void shouldRefreshAheadAndExpirePerKey() throws Exception {
+		Properties props = new Properties();
+		props.setProperty("expireAfterWrite", "200");
+		props.setProperty("refreshAfterWrite", "100");
+		Cache cache = new CacheBuilder("com.mycache.MyCache").properties(props).build();
+		cache.putObject("key", "value");
+		assertEquals("value", cache.getObject("key"));
+		Thread.sleep(120);
+		assertNull(cache.getObject("key"));
+		assertEquals("value", cache.getObject("key"));
+		Thread.sleep(100);
+		assertNull(cache.getObject("key"));
+		assertEquals(0, cache.getSize());
+	}
+
+	/**
+	 * 堆外缓存：每次读到的都是新对象，改了也不影响缓存；slab 绕回来复用时最早写入的键失效
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldCopyOnReadAndRecycleOffHeapSlabs() {
+		OffHeapCache cache = new OffHeapCache("com.mycache.MyCache");
+		cache.setSlabSize(64);
+		cache.setSlabCount(2);
+		List<Object> rows = new ArrayList<>();
+		rows.add("jim");
+		rows.add(101);
+		cache.putObject("list", rows);
+		List<Object> first = (List<Object>) cache.getObject("list");
+		assertEquals(rows, first);
+		first.clear();
+		assertEquals(rows, cache.getObject("list"));
+		// 列表 18 字节，每个字符串 29 字节，写到 key3 时第一块 slab 被复用
+		for (int i = 0; i < 4; i++) {
+			cache.putObject("key" + i, "value-0123456789abcdef-" + i);
+		}
+		assertNull(cache.getObject("list"));
+		assertNull(cache.getObject("key0"));
+		assertEquals("value-0123456789abcdef-3", cache.getObject("key3"));
+		// 比一块 slab 还大的值不缓存
+		cache.putObject("big", new byte[65]);
+		assertNull(cache.getObject("big"));
+	}
+
+	/**
+	 * 实体逐个属性编码：解码出来的是新对象，同一个实体引用多次解码后还是同一个，编码结果比 Java 序列化小
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void shouldEncodeBeansPropertyByProperty() throws Exception {
+		Author jim = new Author(101, "jim", "********", "jim@ibatis.apache.org", "blog owner", Section.NEWS);
+		Author sally = new Author(102, "sally", "********", "sally@ibatis.apache.org", null, Section.VIDEOS);
+		List<Author> authors = new ArrayList<>(Arrays.asList(jim, sally, jim));
+		byte[] bytes = BinaryCodec.encode(authors);
+		List<Author> decoded = (List<Author>) BinaryCodec.decode(bytes);
+		assertEquals(authors, decoded);
+		assertNotSame(jim, decoded.get(0));
+		assertSame(decoded.get(0), decoded.get(2));
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+			out.writeObject(authors);
+		}
+		assertTrue(bytes.length < serialized.size());
+	}
+
+	/**
+	 * 查询合并：同一个 key 并发未命中只查一次，其他的拿到结果的副本，连元素也是各自的；带头的查询失败后不会留下在途的 key
+	 */
+	@Test
+	public void shouldCoalesceConcurrentMisses() throws Exception {
+		QueryCoalescer coalescer = new QueryCoalescer();
+		CacheKey key = new CacheKey(new Object[] {"selectAllAuthors"});
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<List<Map<String, Object>>>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.submit(() -> coalescer.query(key, 5000, () -> {
+				loads.incrementAndGet();
+				started.countDown();
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(300));
+				Map<String, Object> row = new HashMap<>();
+				row.put("username", "jim");
+				return Collections.singletonList(row);
+			})));
+			if (i == 0) {
+				started.await();
+			}
+		}
+		Set<Object> rows = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Future<List<Map<String, Object>>> future : futures) {
+			List<Map<String, Object>> list = future.get();
+			assertEquals(Collections.singletonMap("username", "jim"), list.get(0));
+			rows.add(list.get(0));
+		}
+		assertEquals(8, rows.size());
+		executor.shutdown();
+		assertEquals(1, loads.get());
+		assertEquals(7, coalescer.getCollapsedCount());
+		assertEquals(0, coalescer.getInFlightCount());
+		try {
+			coalescer.query(key, 5000, () -> {
+				throw new SQLException("boom");
+			});
+		} catch (SQLException e) {
+			assertEquals("boom", e.getMessage());
+		}
+		assertEquals(0, coalescer.getInFlightCount());
+	}
+
+	/**
+	 * CacheKey：内容相同就相等，与顺序相关；预先算好的哈希与现算的一致；克隆后继续更新不影响原来的
+	 */
+	@Test
+	public void shouldCompareCacheKeysByContent() throws Exception {
+		String sql = "select * from author where id = ?";
+		CacheKey first = new CacheKey(new Object[] {"selectAuthor", 0, sql, 101, new byte[] {1, 2}});
+		CacheKey second = new CacheKey();
+		second.update("selectAuthor");
+		second.update(0);
+		second.update(new String(sql), CacheKey.hashOf(sql));
+		second.update(101);
+		second.update(new byte[] {1, 2});
+		assertEquals(first, second);
+		assertEquals(first.hashCode(), second.hashCode());
+		assertFalse(first.equals(new CacheKey(new Object[] {0, "selectAuthor", sql, 101, new byte[] {1, 2}})));
+		CacheKey combined = first.clone();
+		combined.update(second);
+		assertEquals(6, combined.getUpdateCount());
+		assertEquals(5, first.getUpdateCount());
+		assertEquals(first, second);
+	}
+
 }
@@ -0,0 +1,198 @@
+package cn.javadog.sd.mybatis.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.javadog.sd.mybatis.support.datasource.pooled.ConcurrentPooledDataSource;
+import cn.javadog.sd.mybatis.support.datasource.pooled.PoolState;
+import cn.javadog.sd.mybatis.support.datasource.pooled.PooledDataSource;
+import cn.javadog.sd.mybatis.support.datasource.pooled.StatementCache;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import org.junit.Test;
+
+/**
+ * @author 余勇
+ * @date 2026-10-18 12:05
+ *
+ * 测试数据源，包括：
+ * 		* 无锁连接池的借出、归还、等待
+ * 		* 连接上的 Statement 缓存
+ */
+public class DataSourceTest extends BaseDataTest {
+
+	/**
+	 * 创建无锁的池化datasource
+	 */
+	private ConcurrentPooledDataSource createConcurrentPooledDataSource() throws Exception {
+		Properties props = Resources.getResourceAsProperties(BLOG_PROPERTIES);
+		ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+		ds.setDriver(props.getProperty("driver"));
+		ds.setUrl(props.getProperty("url"));
+		ds.setUsername(props.getProperty("username"));
+		ds.setPassword(props.getProperty("password"));
+		return ds;
+	}
+
+	/**
+	 * 归还后连接回到池中，再次获取会复用，旧的代理失效
+	 */
+	@Test
+	public void shouldReuseReturnedConnection() throws Exception {
+		ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+		Connection first = ds.getConnection();
+		first.close();
+		Connection second = ds.getConnection();
+		assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+		try {
+			first.createStatement();
+			fail("已归还的连接不能再使用");
+		} catch (SQLException e) {
+			assertTrue(e.getMessage().contains("invalid"));
+		}
+		second.close();
+		assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+		assertEquals(2, ds.getPoolState().getRequestCount());
+		ds.forceCloseAll();
+	}
+
+	/**
+	 * 并发获取连接，任意时刻借出的连接都不超过 poolMaximumActiveConnections
+	 */
+	@Test
+	public void shouldNeverExceedMaximumActiveConnections() throws Exception {
+		ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+		ds.setPoolMaximumActiveConnections(3);
+		ds.setPoolMaximumIdleConnections(3);
+		AtomicInteger inUse = new AtomicInteger();
+		AtomicInteger maxInUse = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			futures.add(executor.submit(() -> {
+				try (Connection conn = ds.getConnection()) {
+					maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+					conn.getAutoCommit();
+					inUse.decrementAndGet();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		PoolState state = ds.getPoolState();
+		assertTrue(maxInUse.get() <= 3);
+		assertEquals(0, state.getActiveConnectionCount());
+		assertEquals(200, state.getRequestCount());
+		ds.forceCloseAll();
+	}
+
+	/**
+	 * 并发归还连接，空闲连接数不会超过 poolMaximumIdleConnections，多出来的连接被关闭
+	 */
+	@Test
+	public void shouldNeverExceedMaximumIdleConnections() throws Exception {
+		ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+		ds.setPoolMaximumActiveConnections(8);
+		ds.setPoolMaximumIdleConnections(2);
+		for (int round = 0; round < 300; round++) {
+			List<Connection> connections = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				connections.add(ds.getConnection());
+			}
+			CountDownLatch start = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(8);
+			List<Future<?>> futures = new ArrayList<>();
+			for (Connection connection : connections) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					connection.close();
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			executor.shutdown();
+			PoolState state = ds.getPoolState();
+			assertEquals(2, state.getIdleConnectionCount());
+			assertEquals(0, state.getActiveConnectionCount());
+		}
+		ds.forceCloseAll();
+		assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+	}
+
+	/**
+	 * 连接上的 Statement 缓存按最近使用淘汰，归还后再借出依然可以复用
+	 */
+	@Test
+	public void shouldKeepStatementCacheAcrossCheckouts() throws Exception {
+		ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+		ds.setPoolMaximumActiveConnections(1);
+		ds.setPoolStatementCacheSize(2);
+		Connection first = ds.getConnection();
+		StatementCache cache = PooledDataSource.getStatementCache(first);
+		PreparedStatement byId = first.prepareStatement("select * from author where id = ?");
+		PreparedStatement byName = first.prepareStatement("select * from author where username = ?");
+		cache.put("byId", byId);
+		cache.put("byName", byName);
+		assertSame(byId, cache.get("byId"));
+		// byName 最久没用，被淘汰并关闭
+		cache.put("all", first.prepareStatement("select * from author"));
+		assertTrue(byName.isClosed());
+		assertEquals(1, cache.getEvictions());
+		first.close();
+
+		Connection second = ds.getConnection();
+		assertSame(cache, PooledDataSource.getStatementCache(second));
+		assertSame(byId, cache.get("byId"));
+		assertNull(cache.get("byName"));
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		second.close();
+		ds.forceCloseAll();
+	}
+
+	/**
+	 * 超时回收的连接换一个新的 Statement 缓存，原持有者缓存的 Statement 被关闭，不会与新的持有者共用
+	 */
+	@Test
+	public void shouldNotShareStatementCacheWithReclaimedOwner() throws Exception {
+		PooledDataSource[] pools = {createPooledDataSource(BLOG_PROPERTIES), createConcurrentPooledDataSource()};
+		for (PooledDataSource ds : pools) {
+			ds.setPoolMaximumActiveConnections(1);
+			ds.setPoolMaximumCheckoutTime(10);
+			Connection first = ds.getConnection();
+			StatementCache cache = PooledDataSource.getStatementCache(first);
+			PreparedStatement byId = first.prepareStatement("select * from author where id = ?");
+			cache.put("byId", byId);
+			Thread.sleep(50);
+			// 唯一的连接超时，被回收给第二个使用方
+			Connection second = ds.getConnection();
+			assertNotSame(cache, PooledDataSource.getStatementCache(second));
+			assertTrue(byId.isClosed());
+			assertNull(cache.get("byId"));
+			second.close();
+			ds.forceCloseAll();
+		}
+	}
+
+}
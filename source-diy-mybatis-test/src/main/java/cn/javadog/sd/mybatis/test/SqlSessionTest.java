@@ -1,14 +1,86 @@
 package cn.javadog.sd.mybatis.test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import cn.javadog.sd.mybatis.builder.StaticSqlSource;
+import cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshot;
+import cn.javadog.sd.mybatis.builder.snapshot.ConfigurationSnapshotWriter;
+import cn.javadog.sd.mybatis.builder.xml.XMLConfigBuilder;
+import cn.javadog.sd.mybatis.builder.xml.XMLMapperBuilder;
+import cn.javadog.sd.mybatis.cursor.Cursor;
+import cn.javadog.sd.mybatis.cursor.CursorPublisher;
+import cn.javadog.sd.mybatis.cursor.CursorSubscriber;
+import cn.javadog.sd.mybatis.cursor.CursorSubscription;
 import cn.javadog.sd.mybatis.example.domain.Author;
+import cn.javadog.sd.mybatis.example.domain.Blog;
+import cn.javadog.sd.mybatis.example.domain.Post;
+import cn.javadog.sd.mybatis.executor.BatchResult;
+import cn.javadog.sd.mybatis.executor.QueryCoalescer;
+import cn.javadog.sd.mybatis.executor.SimpleExecutor;
+import cn.javadog.sd.mybatis.executor.loader.BatchSqlSource;
+import cn.javadog.sd.mybatis.executor.loader.ProxyClassCache;
+import cn.javadog.sd.mybatis.executor.loader.javassist.JavassistProxyFactory;
+import cn.javadog.sd.mybatis.example.domain.Section;
+import cn.javadog.sd.mybatis.example.mapper.BlogMapper;
+import cn.javadog.sd.mybatis.example.plugin.FetchSizePlugin;
+import cn.javadog.sd.mybatis.example.plugin.RecordingPlugin;
+import cn.javadog.sd.mybatis.mapping.BoundSql;
+import cn.javadog.sd.mybatis.executor.resultset.RowMappingPlanCompiler;
+import cn.javadog.sd.mybatis.mapping.Environment;
+import cn.javadog.sd.mybatis.mapping.MappedStatement;
+import cn.javadog.sd.mybatis.mapping.SqlCommandType;
+import cn.javadog.sd.mybatis.scripting.defaults.RawSqlSource;
+import cn.javadog.sd.mybatis.scripting.xmltags.DynamicSqlSource;
+import cn.javadog.sd.mybatis.session.Configuration;
+import cn.javadog.sd.mybatis.session.ExecutorType;
+import cn.javadog.sd.mybatis.session.RangePartitioner;
+import cn.javadog.sd.mybatis.session.RowBounds;
 import cn.javadog.sd.mybatis.session.SqlSession;
+import cn.javadog.sd.mybatis.session.SqlSessionFactory;
+import cn.javadog.sd.mybatis.session.SqlSessionFactoryBuilder;
+import cn.javadog.sd.mybatis.support.cache.CacheKey;
+import cn.javadog.sd.mybatis.support.datasource.pooled.PooledDataSource;
+import cn.javadog.sd.mybatis.support.datasource.pooled.StatementCache;
+import cn.javadog.sd.mybatis.support.exceptions.BaseException;
 import cn.javadog.sd.mybatis.support.exceptions.TooManyResultsException;
+import cn.javadog.sd.mybatis.support.io.Resources;
+import cn.javadog.sd.mybatis.support.reflection.Reflector;
+import cn.javadog.sd.mybatis.support.reflection.factory.LambdaReflectorFactory;
+import cn.javadog.sd.mybatis.support.reflection.invoker.MethodInvoker;
+import cn.javadog.sd.mybatis.support.reflection.meta.MetaObject;
+import cn.javadog.sd.mybatis.support.reflection.meta.SystemMetaObject;
+import cn.javadog.sd.mybatis.support.reflection.property.PropertyNamer;
 import cn.javadog.sd.mybatis.support.transaction.TransactionIsolationLevel;
+import cn.javadog.sd.mybatis.support.transaction.jdbc.JdbcTransactionFactory;
 import org.junit.Test;
 
 public class SqlSessionTest extends BaseDataTest {
@@ -88,5 +160,781 @@ public class SqlSessionTest extends BaseDataTest {
     }
   }
 
+  /**
+   * 查询合并：有未提交写操作的会话不参与合并，直接查库，能看到自己的修改；没有写操作的会话才会等待在途的查询
+   */
+  @Test
+  public void shouldNotCoalesceQueriesWithUncommittedWrites() throws Exception {
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+    Configuration configuration = factory.getConfiguration();
+    String resource = "blog/mapper/CachedAuthorMapper.xml";
+    new XMLMapperBuilder(Resources.getResourceAsStream(resource), configuration, resource, configuration.getSqlFragments()).parse();
+    configuration.setCoalesceQueries(true);
+    configuration.setCoalesceTimeout(200);
+    String statement = "cn.javadog.sd.mybatis.example.mapper.CachedAuthorMapper.selectAllAuthors";
+    MappedStatement ms = configuration.getMappedStatement(statement);
+    CacheKey key = new SimpleExecutor(configuration, null).createCacheKey(ms, null, RowBounds.DEFAULT, ms.getBoundSql(null));
+    QueryCoalescer coalescer = configuration.getQueryCoalescer();
+    // 用同一个 CacheKey 占住一个在途的查询，直到放行
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<List<Object>> leader = executor.submit(() -> coalescer.query(key, 5000, () -> {
+      started.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new ArrayList<>();
+    }));
+    started.await();
+    try {
+      try (SqlSession session = factory.openSession()) {
+        session.insert("cn.javadog.sd.mybatis.example.mapper.CachedAuthorMapper.insertAuthor",
+            new Author(500, "coalesce", "******", "coalesce@somewhere.com", "", null));
+        assertEquals(3, session.selectList(statement).size());
+        assertEquals(0, coalescer.getCollapsedCount());
+        assertEquals(0, coalescer.getFallbackCount());
+        session.rollback(true);
+      }
+      // 没有写操作的会话等待在途的查询，超时后自己查库
+      try (SqlSession session = factory.openSession()) {
+        assertEquals(2, session.selectList(statement).size());
+        assertEquals(1, coalescer.getFallbackCount());
+      }
+    } finally {
+      release.countDown();
+      leader.get();
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * 动态 SQL：形状相同复用解析好的 SqlSource，foreach 元素个数或类型不同算不同的形状
+   */
+  @Test
+  public void shouldReuseParsedDynamicSqlPerShape() {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAuthorsByCondition";
+    MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(statement);
+    DynamicSqlSource sqlSource = (DynamicSqlSource) ms.getSqlSource();
+    Map<String, Object> byIds = new HashMap<>();
+    byIds.put("ids", Arrays.asList(101, 102));
+    Map<String, Object> byOtherIds = new HashMap<>();
+    byOtherIds.put("ids", Arrays.asList(102, 101));
+    BoundSql first = sqlSource.getBoundSql(byIds);
+    BoundSql second = sqlSource.getBoundSql(byOtherIds);
+    assertEquals("select * from author WHERE id in ( ? , ? ) order by id", first.getSql().replaceAll("\\s+", " "));
+    assertSame(first.getSql(), second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(Integer.valueOf(102), second.getAdditionalParameter("__frch_id_0"));
+    Map<String, Object> byLongIds = new HashMap<>();
+    byLongIds.put("ids", Arrays.asList(101L, 102L));
+    assertNotSame(first.getParameterMappings(), sqlSource.getBoundSql(byLongIds).getParameterMappings());
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      Map<String, Object> byUsername = new HashMap<>();
+      byUsername.put("username", "jim");
+      byUsername.put("ids", Arrays.asList(101, 102));
+      assertEquals(1, session.selectList(statement, byUsername).size());
+      byUsername.put("ids", Arrays.asList(102));
+      assertEquals(0, session.selectList(statement, byUsername).size());
+      assertEquals(2, session.selectList(statement, byIds).size());
+    }
+    assertEquals(4, sqlSource.getCachedShapeCount());
+  }
+
+  /**
+   * 动态 SQL：foreach 的元素是 Map 时，#{key.id} 的类型取决于值的类型，只有值的类型不同时也要重新解析
+   */
+  @Test
+  public void shouldReparseDynamicSqlWhenNestedValueTypeChanges() {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAuthorsByKeys";
+    DynamicSqlSource sqlSource = (DynamicSqlSource) sqlSessionFactory.getConfiguration().getMappedStatement(statement).getSqlSource();
+    assertEquals(String.class, sqlSource.getBoundSql(keysOf("101")).getParameterMappings().get(0).getJavaType());
+    assertEquals(Integer.class, sqlSource.getBoundSql(keysOf(101)).getParameterMappings().get(0).getJavaType());
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<Author> byStringKey = session.selectList(statement, keysOf("101"));
+      assertEquals(101, byStringKey.get(0).getId());
+      List<Author> byIntegerKey = session.selectList(statement, keysOf(101));
+      assertEquals(101, byIntegerKey.get(0).getId());
+    }
+    assertEquals(1, sqlSource.getCachedShapeCount());
+  }
+
+  private static Map<String, Object> keysOf(Object id) {
+    Map<String, Object> key = new HashMap<>();
+    key.put("id", id);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("keys", Collections.singletonList(key));
+    return parameter;
+  }
+
+  /**
+   * LambdaReflectorFactory：get/set 不再走 Method.invoke，基本类型自动装箱拆箱
+   */
+  @Test
+  public void shouldAccessPropertiesThroughGeneratedInvokers() throws Exception {
+    LambdaReflectorFactory reflectorFactory = new LambdaReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    assertNotEquals(MethodInvoker.class, reflector.getGetInvoker("id").getClass());
+    assertNotEquals(MethodInvoker.class, reflector.getSetInvoker("username").getClass());
+    Author author = new Author();
+    MetaObject metaObject = MetaObject.forObject(author, SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, reflectorFactory);
+    metaObject.setValue("id", 101);
+    metaObject.setValue("username", "jim");
+    metaObject.setValue("favouriteSection", Section.NEWS);
+    assertEquals(101, author.getId());
+    assertEquals("jim", author.getUsername());
+    assertEquals(101, metaObject.getValue("id"));
+    assertEquals(Section.NEWS, metaObject.getValue("favouriteSection"));
+    assertEquals(int.class, metaObject.getGetterType("id"));
+  }
+
+  /**
+   * get/set 方法名转属性名时首字母小写，前两个字母都是大写的（如 getURL）保持原样；POOLED 数据源的 password 等属性因此能从 XML 配置
+   */
+  @Test
+  public void shouldDecapitalizeAccessorPropertyNames() {
+    assertEquals("password", PropertyNamer.methodToProperty("setPassword"));
+    assertEquals("id", PropertyNamer.methodToProperty("getId"));
+    assertEquals("x", PropertyNamer.methodToProperty("getX"));
+    assertEquals("active", PropertyNamer.methodToProperty("isActive"));
+    assertEquals("URL", PropertyNamer.methodToProperty("getURL"));
+    Reflector reflector = new Reflector(PooledDataSource.class);
+    assertTrue(reflector.hasSetter("password"));
+    assertTrue(reflector.hasSetter("poolMaximumActiveConnections"));
+  }
+
+  /**
+   * insert/update/delete 没有 resultMap，设置给 MappedStatement 时不会空指针
+   */
+  @Test
+  public void shouldBuildStatementsWithoutResultMap() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    MappedStatement insert = configuration.getMappedStatement("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog");
+    assertNull(insert.getResultMap());
+    assertFalse(insert.hasNestedResultMaps());
+    new MappedStatement.Builder(configuration, "deletePost", new StaticSqlSource(configuration, "delete from post where id = ?", new ArrayList<>()), SqlCommandType.DELETE)
+        .resultMap(null);
+  }
+
+  /**
+   * 编译好的行映射计划与逐行解析的结果一致，同一种列布局只编译一次
+   */
+  @Test
+  public void shouldMapRowsWithCompiledPlan() {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAllAuthors";
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    RowMappingPlanCompiler compiler = configuration.getRowMappingPlanCompiler();
+    List<Author> interpreted;
+    configuration.setCompiledRowMappingEnabled(false);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      interpreted = session.selectList(statement);
+    } finally {
+      configuration.setCompiledRowMappingEnabled(true);
+    }
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      assertEquals(interpreted, session.selectList(statement));
+    }
+    int cachedPlans = compiler.getCachedPlanCount();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      assertEquals(interpreted, session.selectList(statement));
+    }
+    assertEquals(2, interpreted.size());
+    assertTrue(cachedPlans > 0);
+    assertEquals(cachedPlans, compiler.getCachedPlanCount());
+  }
+
+  /**
+   * 批量加载的嵌套查询，作者和文章按关联键分回各个博客
+   */
+  @Test
+  public void shouldBatchFetchNestedSelects() {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = session.selectList("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithBatchFetch");
+      assertEquals(2, blogs.size());
+      assertEquals(101, blogs.get(0).getAuthor().getId());
+      assertEquals(102, blogs.get(1).getAuthor().getId());
+      assertEquals(2, blogs.get(0).getPosts().size());
+      assertEquals(1, blogs.get(0).getPosts().get(0).getId());
+      assertEquals(2, blogs.get(0).getPosts().get(1).getId());
+      assertEquals(2, blogs.get(1).getPosts().size());
+      assertEquals(3, blogs.get(1).getPosts().get(0).getId());
+    }
+  }
+
+  /**
+   * 批量加载时使用自定义的 ResultHandler，每个对象交给它时批量加载的属性已经加载好
+   */
+  @Test
+  public void shouldLoadBatchFetchesBeforeCustomResultHandler() {
+    List<Blog> blogs = new ArrayList<>();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      session.select("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithBatchFetch", context -> {
+        Blog blog = (Blog) context.getResultObject();
+        assertTrue(blog.getAuthor() != null);
+        assertTrue(blog.getPosts() != null);
+        blogs.add(blog);
+      });
+    }
+    assertEquals(2, blogs.size());
+    assertEquals(102, blogs.get(1).getAuthor().getId());
+    assertEquals(2, blogs.get(1).getPosts().size());
+  }
+
+  /**
+   * 批量执行时交替插入父表和子表，声明了表的先后顺序时每个 SQL 只用一个 Statement
+   */
+  @Test
+  public void shouldKeepOneBatchPerStatementWhenInterleaved() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchInsertTableOrder(Arrays.asList("blog", "post"));
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Author author = new Author(101);
+      for (int id = 10; id < 13; id++) {
+        Blog blog = new Blog(id, "Blog " + id, author, null);
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", blog);
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertPost", newPost(id, blog, author));
+      }
+      List<BatchResult> results = session.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(3, results.get(1).getUpdateCounts().length);
+      session.rollback(true);
+    } finally {
+      configuration.setBatchInsertTableOrder(Collections.<String>emptyList());
+    }
+  }
+
+  /**
+   * 批量执行时先插子表，子表的行不能越过后面插入的父表的行，否则违反外键
+   */
+  @Test
+  public void shouldNotMoveChildRowsAheadOfLaterParentRows() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    for (List<String> tableOrder : Arrays.asList(Collections.<String>emptyList(), Arrays.asList("blog", "post"))) {
+      configuration.setBatchInsertTableOrder(tableOrder);
+      try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+        Author author = new Author(101);
+        // 已有的 blog 1 下插一篇，再插新的 blog 和它下面的一篇
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertPost", newPost(40, new Blog(1, null, author, null), author));
+        Blog blog = new Blog(40, "Blog 40", author, null);
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", blog);
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertPost", newPost(41, blog, author));
+        List<BatchResult> results = session.flushStatements();
+        assertEquals(3, results.size());
+        assertEquals("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertPost", results.get(2).getMappedStatement().getId());
+        session.rollback(true);
+      } finally {
+        configuration.setBatchInsertTableOrder(Collections.<String>emptyList());
+      }
+    }
+  }
+
+  private static Post newPost(int id, Blog blog, Author author) {
+    Post post = new Post();
+    post.setId(id);
+    post.setBlog(blog);
+    post.setAuthor(author);
+    post.setCreatedOn(new Date());
+    post.setSection(Section.NEWS);
+    post.setSubject("Subject " + id);
+    post.setBody("Body " + id);
+    return post;
+  }
+
+  /**
+   * 批量执行时按行数自动刷入，刷入的结果交给监听器，不再保留
+   */
+  @Test
+  public void shouldStreamAutoFlushedBatchesToListener() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    final List<Integer> flushedRows = new ArrayList<>();
+    configuration.setBatchFlushSize(2);
+    configuration.setBatchFlushListener(results -> {
+      for (BatchResult result : results) {
+        flushedRows.add(result.getUpdateCounts().length);
+      }
+    });
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Author author = new Author(101);
+      for (int id = 20; id < 25; id++) {
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", new Blog(id, "Blog " + id, author, null));
+      }
+      List<BatchResult> results = session.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(1, results.get(0).getParameterCount());
+      assertEquals(Arrays.asList(2, 2, 1), flushedRows);
+      session.rollback(true);
+    } finally {
+      configuration.setBatchFlushSize(0);
+      configuration.setBatchFlushListener(null);
+    }
+  }
+
+  /**
+   * 没有开启自动刷入时，参数对象与影响行数一一对应；开启后自动刷入的结果才释放参数对象
+   */
+  @Test
+  public void shouldKeepParameterObjectsUnlessAutoFlushEnabled() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Author author = new Author(101);
+      for (int id = 20; id < 25; id++) {
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", new Blog(id, "Blog " + id, author, null));
+      }
+      List<BatchResult> results = session.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(5, results.get(0).getUpdateCounts().length);
+      assertEquals(5, results.get(0).getParameterObjects().size());
+      session.rollback(true);
+    }
+    configuration.setBatchFlushSize(2);
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Author author = new Author(101);
+      for (int id = 20; id < 25; id++) {
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", new Blog(id, "Blog " + id, author, null));
+      }
+      List<BatchResult> results = session.flushStatements();
+      assertEquals(3, results.size());
+      assertEquals(2, results.get(0).getParameterCount());
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+      assertEquals(1, results.get(2).getParameterObjects().size());
+      session.rollback(true);
+    } finally {
+      configuration.setBatchFlushSize(0);
+    }
+  }
+
+  /**
+   * 批量执行时把单行 INSERT 改写成多行 VALUES，按占位符个数分块
+   */
+  @Test
+  public void shouldRewriteBatchedInsertsIntoMultiRowValues() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setBatchInsertRewriteEnabled(true);
+    // insertBlog 每行 3 个占位符，每块 2 行
+    configuration.setBatchInsertMaxParameters(6);
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Author author = new Author(101);
+      for (int id = 30; id < 35; id++) {
+        session.insert("cn.javadog.sd.mybatis.example.mapper.BlogMapper.insertBlog", new Blog(id, "Blog " + id, author, null));
+      }
+      List<BatchResult> results = session.flushStatements();
+      assertEquals(1, results.size());
+      assertTrue(Arrays.equals(new int[]{1, 1, 1, 1, 1}, results.get(0).getUpdateCounts()));
+      List<Blog> blogs = session.selectList("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithBatchFetch");
+      assertEquals(7, blogs.size());
+      assertEquals("Blog 34", blogs.get(6).getTitle());
+      session.rollback(true);
+    } finally {
+      configuration.setBatchInsertRewriteEnabled(false);
+      configuration.setBatchInsertMaxParameters(2000);
+    }
+  }
+
+  /**
+   * REUSE 执行器在连接池的连接上缓存 Statement，同一个连接上的后续会话继续复用
+   */
+  @Test
+  public void shouldReuseStatementsAcrossSessionsOnPooledConnection() throws Exception {
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+    PooledDataSource ds = createPooledDataSource(BLOG_PROPERTIES);
+    ds.setPoolMaximumActiveConnections(1);
+    factory.getConfiguration().setEnvironment(new Environment("pooled", new JdbcTransactionFactory(), ds));
+    StatementCache statementCache = null;
+    for (int i = 0; i < 3; i++) {
+      try (SqlSession session = factory.openSession(ExecutorType.REUSE)) {
+        assertEquals(2, session.selectList("cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAllAuthors").size());
+        statementCache = PooledDataSource.getStatementCache(session.getConnection());
+      }
+    }
+    assertEquals(1, statementCache.size());
+    assertEquals(1, statementCache.getMisses());
+    assertEquals(2, statementCache.getHits());
+    ds.forceCloseAll();
+  }
+
+  /**
+   * 返回 CompletableFuture 的 Mapper 方法用自己的会话异步执行，异常交给 CompletableFuture
+   */
+  @Test
+  public void shouldExecuteFutureMapperMethodsAsynchronously() throws Exception {
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      BlogMapper mapper = session.getMapper(BlogMapper.class);
+      List<Author> authors = mapper.selectAuthorsByIds(Arrays.asList(101, 102)).get();
+      assertEquals(2, authors.size());
+      assertEquals("Jim Business", mapper.selectBlog(1).get().getTitle());
+      // 异步的写操作执行成功后提交
+      assertEquals(Integer.valueOf(1), mapper.insertBlog(new Blog(40, "Async", new Author(101), null)).get());
+      assertEquals(Integer.valueOf(1), mapper.deleteBlog(40).get());
+      try {
+        mapper.insertBlog(new Blog(1, "Duplicate", new Author(101), null)).get();
+        fail("Expected a duplicate key failure");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof BaseException);
+      }
+    }
+  }
+
+  /**
+   * CursorPublisher 按请求的数量推送结果，推送完或者取消时关闭游标
+   */
+  @Test
+  public void shouldPublishCursorRowsOnDemand() {
+    List<Object> received = new ArrayList<>();
+    List<String> signals = new ArrayList<>();
+    CursorSubscription[] subscription = new CursorSubscription[1];
+    CursorSubscriber<Object> subscriber = new CursorSubscriber<Object>() {
+      @Override
+      public void onSubscribe(CursorSubscription s) {
+        subscription[0] = s;
+      }
+
+      @Override
+      public void onNext(Object item) {
+        received.add(item);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        signals.add("error");
+      }
+
+      @Override
+      public void onComplete() {
+        signals.add("complete");
+      }
+    };
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      CursorPublisher<Object> publisher = session.selectPublisher("cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAllAuthors");
+      publisher.subscribe(subscriber);
+      // 请求之前不查询
+      assertTrue(received.isEmpty());
+      subscription[0].request(1);
+      assertEquals(1, received.size());
+      assertTrue(signals.isEmpty());
+      subscription[0].request(1);
+      assertEquals(2, received.size());
+      // 两个作者都推送完之后立刻结束
+      assertEquals(Arrays.asList("complete"), signals);
+      // 只能订阅一次
+      publisher.subscribe(subscriber);
+      assertEquals(Arrays.asList("complete", "error"), signals);
+
+      // Mapper 方法自己开会话，取消后不再推送
+      received.clear();
+      signals.clear();
+      int posts = session.selectList("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectPostsByBlogIds", Arrays.asList(1, 2)).size();
+      assertTrue(posts > 1);
+      BlogMapper mapper = session.getMapper(BlogMapper.class);
+      mapper.selectPostsByBlogIds(Arrays.asList(1, 2)).subscribe(subscriber);
+      subscription[0].request(1);
+      assertTrue(received.get(0) instanceof Post);
+      subscription[0].cancel();
+      subscription[0].request(1);
+      assertEquals(1, received.size());
+      assertTrue(signals.isEmpty());
+    }
+  }
+
+  /**
+   * CursorPublisher 按第一次请求的数量设置 fetchSize，在执行语句之前就设置到 Statement 上
+   */
+  @Test
+  public void shouldSetPublisherFetchSizeBeforeExecution() throws Exception {
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+    List<Integer> fetchSizes = new ArrayList<>();
+    factory.getConfiguration().addInterceptor(new FetchSizePlugin(fetchSizes));
+    List<Object> received = new ArrayList<>();
+    try (SqlSession session = factory.openSession()) {
+      session.selectPublisher("cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAllAuthors").subscribe(new CursorSubscriber<Object>() {
+        @Override
+        public void onSubscribe(CursorSubscription s) {
+          s.request(1);
+          s.request(5);
+        }
+
+        @Override
+        public void onNext(Object item) {
+          received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+      });
+    }
+    assertEquals(2, received.size());
+    assertEquals(Arrays.asList(1), fetchSizes);
+  }
+
+  /**
+   * 分区查询按区间并行执行，有序时按分区顺序返回，缓冲满时各分区等待
+   */
+  @Test
+  public void shouldSelectPartitionedRangesInParallel() throws Exception {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectPostsInIdRange";
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    RangePartitioner partitioner = new RangePartitioner("lower", "upper", 1, 6);
+    configuration.setPartitionedQueryBufferSize(1);
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<Integer> ordered = new ArrayList<>();
+      try (Cursor<Post> cursor = session.selectPartitioned(statement, null, partitioner, 2)) {
+        for (Post post : cursor) {
+          ordered.add(post.getId());
+        }
+        assertTrue(cursor.isConsumed());
+      }
+      assertEquals(Arrays.asList(1, 2, 3, 4, 5), ordered);
+
+      List<Integer> unordered = new ArrayList<>();
+      try (Cursor<Post> cursor = session.selectPartitioned(statement, new HashMap<String, Object>(), partitioner, 3, false)) {
+        for (Post post : cursor) {
+          unordered.add(post.getId());
+        }
+      }
+      Collections.sort(unordered);
+      assertEquals(Arrays.asList(1, 2, 3, 4, 5), unordered);
+
+      // 提前关闭时停止所有分区
+      Cursor<Post> cursor = session.selectPartitioned(statement, null, partitioner, 5);
+      Iterator<Post> iterator = cursor.iterator();
+      assertEquals(1, iterator.next().getId());
+      cursor.close();
+      assertFalse(iterator.hasNext());
+      assertFalse(cursor.isConsumed());
+    } finally {
+      configuration.setPartitionedQueryBufferSize(1024);
+    }
+  }
+
+  /**
+   * 展开的插件调用链与逐层代理的拦截顺序和结果一致
+   */
+  @Test
+  public void shouldDispatchPluginsThroughFlattenedChain() throws Exception {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAllAuthors";
+    List<List<String>> records = new ArrayList<>();
+    List<List<Author>> results = new ArrayList<>();
+    for (boolean flattened : new boolean[] {false, true}) {
+      SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+      Configuration configuration = factory.getConfiguration();
+      List<String> record = new ArrayList<>();
+      configuration.addInterceptor(new RecordingPlugin("first", record));
+      configuration.addInterceptor(new RecordingPlugin("second", record));
+      configuration.setFlattenedPluginChainEnabled(flattened);
+      try (SqlSession session = factory.openSession()) {
+        results.add(session.selectList(statement));
+        // 没有被拦截的方法直接调用
+        assertFalse(session.getConnection().isClosed());
+      }
+      records.add(record);
+    }
+    assertEquals(Arrays.asList("second.query", "first.query", "second.prepare", "first.prepare"), records.get(0));
+    assertEquals(records.get(0), records.get(1));
+    assertEquals(results.get(0), results.get(1));
+  }
+
+  /**
+   * 延迟加载的代理类每个类型只生成一次，之后每一行只创建代理对象
+   */
+  @Test
+  public void shouldReuseLazyLoadingProxyClass() {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithLazyAuthor";
+    ProxyClassCache proxyClassCache = ((JavassistProxyFactory) sqlSessionFactory.getConfiguration().getProxyFactory()).getProxyClassCache();
+    try (SqlSession session = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = session.selectList(statement);
+      assertEquals(2, blogs.size());
+      long proxyClasses = proxyClassCache.getProxyClassCount();
+      long proxies = proxyClassCache.getProxyCount();
+      session.clearCache();
+      blogs = session.selectList(statement);
+      assertEquals(proxyClasses, proxyClassCache.getProxyClassCount());
+      assertEquals(proxies + 2, proxyClassCache.getProxyCount());
+      assertSame(blogs.get(0).getClass(), blogs.get(1).getClass());
+      assertNotEquals(Blog.class, blogs.get(0).getClass());
+      assertEquals("Jim Business", blogs.get(0).getTitle());
+      assertEquals(101, blogs.get(0).getAuthor().getId());
+      assertEquals(102, blogs.get(1).getAuthor().getId());
+    }
+  }
+
+  /**
+   * 延迟加载批量化后，同一结果集中各个对象的延迟属性共用一次 IN (...) 查询，每个对象依然在访问时才设置属性
+   */
+  @Test
+  public void shouldBatchLazyLoadsAcrossSiblings() throws Exception {
+    String statement = "cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithLazyAuthor";
+    for (int batchSize : new int[] {0, 10}) {
+      SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+      Configuration configuration = factory.getConfiguration();
+      List<String> record = new ArrayList<>();
+      configuration.addInterceptor(new RecordingPlugin("lazy", record));
+      configuration.setLazyLoadBatchSize(batchSize);
+      try (SqlSession session = factory.openSession()) {
+        List<Blog> blogs = session.selectList(statement);
+        record.clear();
+        assertEquals(101, blogs.get(0).getAuthor().getId());
+        assertEquals(102, blogs.get(1).getAuthor().getId());
+        // 不批量化时每个对象一次查询，批量化时只有一次
+        assertEquals(batchSize == 0 ? 2 : 1, Collections.frequency(record, "lazy.prepare"));
+      }
+    }
+  }
+
+  /**
+   * 延迟加载批量化时，关联键不属于主表或者不在结果中的嵌套查询不能批量化，依然逐个加载
+   */
+  @Test
+  public void shouldNotBatchLazyLoadsWhenKeyColumnIsNotInResults() throws Exception {
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+    Configuration configuration = factory.getConfiguration();
+    configuration.setLazyLoadBatchSize(10);
+    String namespace = "cn.javadog.sd.mybatis.example.mapper.BlogMapper.";
+    assertEquals(null, configuration.getLazyBatchStatement(configuration.getMappedStatement(namespace + "selectPostsJoinedByBlogId")));
+    assertEquals(null, configuration.getLazyBatchStatement(configuration.getMappedStatement(namespace + "selectPostsWithoutBlogId")));
+    MappedStatement nestedQuery = configuration.getMappedStatement(namespace + "selectAuthorById");
+    assertSame(configuration.getLazyBatchStatement(nestedQuery), configuration.getLazyBatchStatement(nestedQuery));
+    try (SqlSession session = factory.openSession()) {
+      for (String statement : Arrays.asList("selectBlogsWithLazyJoinedPosts", "selectBlogsWithLazyUnkeyedPosts")) {
+        List<Blog> blogs = session.selectList(namespace + statement);
+        assertEquals(2, blogs.get(0).getPosts().size());
+        assertEquals(1, blogs.get(0).getPosts().get(0).getId());
+        assertEquals(2, blogs.get(1).getPosts().size());
+        assertEquals(3, blogs.get(1).getPosts().get(0).getId());
+      }
+    }
+  }
+
+  /**
+   * 延迟加载批量化只认 where/and 结尾的 col = ?，末尾有 order by、条件带括号、关联键带 schema 限定名的都不改写，依然逐个加载
+   */
+  @Test
+  public void shouldNotBatchLazyLoadsOfUnsupportedShapes() throws Exception {
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"));
+    Configuration configuration = factory.getConfiguration();
+    List<String> record = new ArrayList<>();
+    configuration.addInterceptor(new RecordingPlugin("lazy", record));
+    configuration.setLazyLoadBatchSize(10);
+    String namespace = "cn.javadog.sd.mybatis.example.mapper.BlogMapper.";
+    assertEquals(null, configuration.getLazyBatchStatement(configuration.getMappedStatement(namespace + "selectPostsByBlogIdOrdered")));
+    assertEquals(null, configuration.getLazyBatchStatement(nestedQuery(configuration, "select * from post where (blog_id = #{id})")));
+    assertEquals(null, configuration.getLazyBatchStatement(nestedQuery(configuration, "select * from post where draft = 0 and (blog_id = #{id})")));
+    assertEquals(null, configuration.getLazyBatchStatement(nestedQuery(configuration, "select * from app.post where app.post.blog_id = #{id}")));
+    // 主表的别名限定的关联键可以批量化
+    MappedStatement aliased = configuration.getLazyBatchStatement(nestedQuery(configuration, "select * from post p where p.blog_id = #{id}"));
+    assertEquals("blog_id", BatchSqlSource.keyColumnOf(aliased));
+    try (SqlSession session = factory.openSession()) {
+      List<Blog> blogs = session.selectList(namespace + "selectBlogsWithLazyOrderedPosts");
+      record.clear();
+      assertEquals(2, blogs.get(0).getPosts().get(0).getId());
+      assertEquals(4, blogs.get(1).getPosts().get(0).getId());
+      assertEquals(2, Collections.frequency(record, "lazy.prepare"));
+    }
+  }
+
+  /**
+   * 按 blog_id 查询文章的嵌套查询
+   */
+  private MappedStatement nestedQuery(Configuration configuration, String sql) {
+    return new MappedStatement.Builder(configuration, "nested" + sql.hashCode(), new RawSqlSource(configuration, sql, Integer.class), SqlCommandType.SELECT)
+        .resultMap(configuration.getMappedStatement("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectPostsByBlogIdOrdered").getResultMap())
+        .build();
+  }
+
+  /**
+   * 配置快照：从快照构建的配置与正常解析的一致；数据源地址、没被引用的变量变了快照依然可用，
+   * mapper 引用的变量或者配置文件的设置变了，快照过期，退回正常解析
+   */
+  @Test
+  public void shouldBuildFromConfigurationSnapshot() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ConfigurationSnapshotWriter.write(Resources.getResourceAsReader("blog/MapperConfig.xml"), null, null, out);
+    byte[] snapshot = out.toByteArray();
+
+    XMLConfigBuilder parser = new XMLConfigBuilder(Resources.getResourceAsReader("blog/MapperConfig.xml"), null, null,
+        ConfigurationSnapshot.read(new ByteArrayInputStream(snapshot)));
+    Configuration configuration = parser.parse();
+    assertTrue(parser.isSnapshotApplied());
+    assertEquals(new HashSet<>(sqlSessionFactory.getConfiguration().getMappedStatementNames()), new HashSet<>(configuration.getMappedStatementNames()));
+    assertTrue(configuration.hasMapper(BlogMapper.class));
+
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(Resources.getResourceAsReader("blog/MapperConfig.xml"),
+        new ByteArrayInputStream(snapshot));
+    try (SqlSession session = factory.openSession()) {
+      Map<String, Object> condition = new HashMap<>();
+      condition.put("ids", Arrays.asList(101, 102));
+      List<Author> authors = session.selectList("cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAuthorsByCondition", condition);
+      assertEquals(2, authors.size());
+      assertEquals(101, authors.get(0).getId());
+      List<Blog> blogs = session.selectList("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithBatchFetch");
+      assertEquals("Jim Business", blogs.get(0).getTitle());
+      assertEquals(101, blogs.get(0).getAuthor().getId());
+      assertFalse(blogs.get(0).getPosts().isEmpty());
+    }
+
+    // 数据源的地址、没有被引用的变量变了，快照依然可用
+    Properties properties = new Properties();
+    properties.setProperty("url", "jdbc:derby:production;create=true");
+    properties.setProperty("snapshot.test", "changed");
+    parser = new XMLConfigBuilder(Resources.getResourceAsReader("blog/MapperConfig.xml"), null, properties,
+        ConfigurationSnapshot.read(new ByteArrayInputStream(snapshot)));
+    parser.parse();
+    assertTrue(parser.isSnapshotApplied());
+
+    // mapper XML 中 ${} 引用的变量变了，快照过期，退回正常解析
+    properties.setProperty("postTable", "app.post");
+    parser = new XMLConfigBuilder(Resources.getResourceAsReader("blog/MapperConfig.xml"), null, properties,
+        ConfigurationSnapshot.read(new ByteArrayInputStream(snapshot)));
+    configuration = parser.parse();
+    assertFalse(parser.isSnapshotApplied());
+    assertTrue(configuration.hasStatement("cn.javadog.sd.mybatis.example.mapper.AuthorMapper.selectAuthorsByCondition"));
+
+    // 配置文件的设置变了，快照过期
+    String config = new String(Files.readAllBytes(Resources.getResourceAsFile("blog/MapperConfig.xml").toPath()), StandardCharsets.UTF_8);
+    String changed = config.replace("<setting name=\"useGeneratedKeys\" value=\"false\"/>", "<setting name=\"useGeneratedKeys\" value=\"true\"/>");
+    assertNotEquals(config, changed);
+    parser = new XMLConfigBuilder(new StringReader(changed), null, null, ConfigurationSnapshot.read(new ByteArrayInputStream(snapshot)));
+    configuration = parser.parse();
+    assertFalse(parser.isSnapshotApplied());
+    assertTrue(configuration.isUseGeneratedKeys());
+    // 只改了注释和空白，快照依然可用
+    parser = new XMLConfigBuilder(new StringReader(config.replace("<settings>", "<!-- snapshot -->\n  <settings>")), null, null,
+        ConfigurationSnapshot.read(new ByteArrayInputStream(snapshot)));
+    parser.parse();
+    assertTrue(parser.isSnapshotApplied());
+  }
+
+  /**
+   * 并行解析 mapper XML：注册的语句、mapper 与串行解析的一致，预解析的文档用完即取走，构建出的配置可以正常查询
+   */
+  @Test
+  public void shouldParseMappersInParallel() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Configuration configuration = new Configuration();
+      configuration.setParallelMapperParsingEnabled(true);
+      configuration.setMapperParsingPool(pool);
+      new XMLConfigBuilder(configuration, Resources.getResourceAsReader("blog/MapperConfig.xml"), null, null).parse();
+      assertEquals(new HashSet<>(sqlSessionFactory.getConfiguration().getMappedStatementNames()), new HashSet<>(configuration.getMappedStatementNames()));
+      assertTrue(configuration.hasMapper(BlogMapper.class));
+      assertEquals(null, configuration.takeParsedMapperDocument("blog/mapper/AuthorMapper.xml"));
+
+      try (SqlSession session = new SqlSessionFactoryBuilder().build(configuration).openSession()) {
+        List<Blog> blogs = session.selectList("cn.javadog.sd.mybatis.example.mapper.BlogMapper.selectBlogsWithBatchFetch");
+        assertEquals("Jim Business", blogs.get(0).getTitle());
+        assertEquals(101, blogs.get(0).getAuthor().getId());
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
 
 }